@@ -0,0 +1,133 @@
+package com.jtdev.authhooker.api;
+
+import com.jtdev.authhooker.dto.response.AuditLogResponse;
+import com.jtdev.authhooker.dto.response.CursorPagedResponse;
+import com.jtdev.authhooker.exception.ValidationException;
+import com.jtdev.authhooker.security.TenantContext;
+import com.jtdev.authhooker.service.AuditExportService;
+import com.jtdev.authhooker.service.AuditService;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * REST API for the tenant audit trail
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/audit")
+@RequiredArgsConstructor
+public class AuditController {
+
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final AuditService auditService;
+    private final AuditExportService auditExportService;
+
+    // Exports outlive spring.mvc.async.request-timeout, which stays short for other async requests
+    @Value("${app.audit.export.timeout-ms:1800000}")
+    private long exportTimeoutMs;
+
+    /**
+     * GET /api/v1/audit?from=&to=&cursor=&limit=
+     * Audit logs for current tenant, newest first, keyset-paginated
+     *
+     * Follow nextCursor until it is null to walk the full range.
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('TENANT_ADMIN')")
+    public ResponseEntity<CursorPagedResponse<AuditLogResponse>> getAuditLogs(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new ValidationException("from must be before to");
+        }
+
+        UUID tenantId = TenantContext.getTenantId();
+
+        return ResponseEntity.ok(auditService.getAuditLogPage(tenantId, from, to, cursor, limit)
+                .map(AuditLogResponse::fromEntity));
+    }
+
+    /**
+     * GET /api/v1/audit/export?format=ndjson|csv&from=&to=&action=&resourceType=&resourceId=
+     * Stream all matching audit logs for current tenant as a file, oldest first
+     *
+     * The body is written while rows are read, so memory use does not depend on the row count.
+     * Gzip-compressed when the client sends Accept-Encoding: gzip. Runs as an async task limited
+     * by app.audit.export.timeout-ms rather than the global async request timeout.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('TENANT_ADMIN')")
+    public WebAsyncTask<Void> exportAuditLogs(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String resourceType,
+            @RequestParam(required = false) String resourceId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+
+        AuditExportService.Format exportFormat = parseFormat(format);
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new ValidationException("from must be before to");
+        }
+
+        // Resolved here: the body is written on an async thread without the request's TenantContext
+        UUID tenantId = TenantContext.getTenantId();
+        AuditExportService.Filter filter = new AuditExportService.Filter(from, to, action, resourceType, resourceId);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        String filename = "audit-" + tenantId + "-" + LocalDate.now() + "." + exportFormat.getExtension();
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return new WebAsyncTask<>(exportTimeoutMs, () -> {
+            ServletOutputStream out = response.getOutputStream();
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 8192);
+                auditExportService.export(tenantId, filter, exportFormat, compressed);
+                compressed.finish();
+            } else {
+                auditExportService.export(tenantId, filter, exportFormat, out);
+            }
+            out.flush();
+            return null;
+        });
+    }
+
+    private static AuditExportService.Format parseFormat(String format) {
+        try {
+            return AuditExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("format must be ndjson or csv");
+        }
+    }
+}
@@ -8,6 +8,8 @@ import com.jtdev.authhooker.dto.*;
 import com.jtdev.authhooker.exception.*;
 import com.jtdev.authhooker.service.*;
 import com.jtdev.authhooker.util.PkceUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,10 +18,15 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.view.RedirectView;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Controller for OAuth authorization flow
@@ -43,6 +50,17 @@ public class AuthFlowController {
     @Value("${app.oauth.error-redirect-url:https://auth.javadevjt.tech/error}")
     private String errorRedirectUrl;
     
+    // blocking | virtual | reactive
+    @Value("${app.oauth.callback-mode:virtual}")
+    private String callbackMode;
+    
+    private static final String CALLBACK_MODE_BLOCKING = "blocking";
+    private static final String CALLBACK_MODE_VIRTUAL = "virtual";
+    private static final String CALLBACK_MODE_REACTIVE = "reactive";
+    
+    // One virtual thread per in-flight callback; IdP latency no longer holds a servlet thread
+    private final ExecutorService callbackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    
     /**
      * POST /api/v1/auth/initiate
      * Start the OAuth verification flow
@@ -123,9 +141,13 @@ public class AuthFlowController {
     /**
      * GET /oauth/callback/{tenantId}/{providerId}
      * OAuth callback endpoint (called by identity provider)
+     * 
+     * Depending on app.oauth.callback-mode the flow runs on the request thread (blocking),
+     * on a virtual thread (virtual) or as a reactive chain (reactive). In the last two modes
+     * the servlet thread is released while the token endpoint call is in progress.
      */
     @GetMapping("/oauth/callback/{tenantId}/{providerId}")
-    public RedirectView handleCallback(
+    public CompletableFuture<RedirectView> handleCallback(
             @PathVariable UUID tenantId,
             @PathVariable UUID providerId,
             @RequestParam(required = false) String code,
@@ -136,155 +158,228 @@ public class AuthFlowController {
         log.info("OAuth callback received: tenant={}, provider={}, state={}, error={}", 
                 tenantId, providerId, state, error);
         
+        // 1. Check for OAuth errors (no IdP round trip needed)
+        if (error != null && !error.isBlank()) {
+            return CompletableFuture.completedFuture(
+                    handleOAuthError(tenantId, state, error, error_description));
+        }
+        
+        return switch (callbackMode) {
+            case CALLBACK_MODE_REACTIVE -> processCallbackReactive(tenantId, providerId, code, state).toFuture();
+            case CALLBACK_MODE_VIRTUAL -> CompletableFuture.supplyAsync(
+                    () -> processCallback(tenantId, providerId, code, state), callbackExecutor);
+            default -> CompletableFuture.completedFuture(processCallback(tenantId, providerId, code, state));
+        };
+    }
+    
+    @PostConstruct
+    void validateCallbackMode() {
+        switch (callbackMode) {
+            case CALLBACK_MODE_BLOCKING, CALLBACK_MODE_VIRTUAL, CALLBACK_MODE_REACTIVE ->
+                    log.info("OAuth callback mode: {}", callbackMode);
+            default -> throw new IllegalStateException(
+                    "Unknown app.oauth.callback-mode: " + callbackMode + " (expected blocking, virtual or reactive)");
+        }
+    }
+    
+    @PreDestroy
+    void shutdownCallbackExecutor() {
+        callbackExecutor.shutdown();
+    }
+    
+    // Callback pipeline
+    
+    private RedirectView processCallback(UUID tenantId, UUID providerId, String code, String state) {
         try {
-            // 1. Check for OAuth errors
-            if (error != null && !error.isBlank()) {
-                String errorMsg = error_description != null ? error_description : error;
-                log.error("OAuth error in callback: {} - {}", error, errorMsg);
-                
-                // Audit log
-                auditService.logAction(tenantId, null, "verification.error",
-                        Map.of("error", error, "description", errorMsg));
-                
-                return buildErrorRedirect("OAuth error: " + errorMsg);
-            }
-            
-            // 2. Validate required parameters
-            if (code == null || code.isBlank()) {
-                throw new OAuthCallbackException("Authorization code is missing");
-            }
-            
-            if (state == null || state.isBlank()) {
-                throw new OAuthCallbackException("State token is missing");
-            }
-            
-            // 3. Validate state token and get session
-            VerificationSession session = sessionService.getSessionByState(state)
-                    .orElseThrow(() -> new SessionExpiredException(
-                        "Verification session not found or expired"));
-            
-            // Verify session belongs to the correct tenant and provider
-            if (!session.getTenant().getId().equals(tenantId) ||
-                !session.getProvider().getId().equals(providerId)) {
-                throw new OAuthCallbackException(
-                    "Session mismatch: tenant or provider doesn't match");
-            }
-            
-            // Verify session is still pending
-            if (!session.isPending()) {
-                throw new OAuthCallbackException(
-                    "Verification session is not pending: " + session.getStatus());
-            }
-            
-            // 4. Get provider
-            Provider provider = session.getProvider();
+            CallbackContext context = beginCallback(tenantId, providerId, code, state);
             
             // 5. Exchange authorization code for tokens using PKCE
             log.info("Exchanging authorization code for tokens");
             TokenResponse tokenResponse = oidcClient.exchangeCodeForTokens(
-                    provider,
+                    context.provider(),
                     code,
-                    session.getCodeVerifier()
+                    context.session().getCodeVerifier()
             );
             
-            // 6. Validate ID token
-            log.info("Validating ID token");
-            boolean isValid = oidcClient.validateIdToken(provider, tokenResponse.getIdToken());
-            
-            if (!isValid) {
-                throw new InvalidIdTokenException("ID token validation failed");
-            }
+            return completeCallback(context, tokenResponse);
             
-            // 7. Extract and normalize claims
-            log.info("Extracting claims from ID token");
-            Map<String, Object> rawClaims = oidcClient.extractClaims(tokenResponse.getIdToken());
-            
-            NormalizedClaims normalizedClaims = claimsNormalizer.normalize(rawClaims, provider);
-            
-            log.info("Claims normalized: subject={}, email={}", 
-                    normalizedClaims.getSubject(), normalizedClaims.getEmail());
-            
-            // 8. Create or update user record
-            log.info("Creating/updating user record");
-            User user = userService.createVerifiedUser(
-                    tenantId,
-                    providerId,
-                    normalizedClaims.getSubject(),
-                    convertNormalizedClaimsToMap(normalizedClaims)
-            );
-            
-            log.info("User verified: userId={}, subject={}", 
-                    user.getId(), normalizedClaims.getSubject());
-            
-            // 9. Create UserPlatformMapping record
-            log.info("Creating platform mapping: platform={}, platformUserId={}", 
-                    session.getPlatformType(), session.getPlatformUserId());
-            
-            Map<String, Object> platformMetadata = new HashMap<>();
-            if (normalizedClaims.getName() != null) {
-                platformMetadata.put("username", normalizedClaims.getName());
-            }
-            
-            UserPlatformMapping mapping = userService.linkPlatformAccount(
-                    user.getId(),
-                    session.getPlatformType(),
-                    session.getPlatformUserId(),
-                    platformMetadata
-            );
-            
-            log.info("Platform mapping created: mappingId={}", mapping.getId());
-            
-            // 10. Complete session
-            sessionService.completeSession(state, Map.of(
-                    "userId", user.getId().toString(),
+        } catch (Exception e) {
+            return handleCallbackError(tenantId, state, e);
+        }
+    }
+    
+    private Mono<RedirectView> processCallbackReactive(UUID tenantId, UUID providerId, String code, String state) {
+        // JPA work stays on boundedElastic; only the token endpoint call is non-blocking I/O
+        return Mono.fromCallable(() -> beginCallback(tenantId, providerId, code, state))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(context -> oidcClient.exchangeCodeForTokensAsync(
+                                context.provider(),
+                                code,
+                                context.session().getCodeVerifier())
+                        .publishOn(Schedulers.boundedElastic())
+                        .map(tokenResponse -> completeCallback(context, tokenResponse)))
+                .onErrorResume(e -> Mono.fromCallable(() -> handleCallbackError(tenantId, state, e))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+    
+    /**
+     * Steps 2-4: validate parameters, resolve the pending session and its provider
+     */
+    private CallbackContext beginCallback(UUID tenantId, UUID providerId, String code, String state) {
+        // 2. Validate required parameters
+        if (code == null || code.isBlank()) {
+            throw new OAuthCallbackException("Authorization code is missing");
+        }
+        
+        if (state == null || state.isBlank()) {
+            throw new OAuthCallbackException("State token is missing");
+        }
+        
+        // 3. Validate state token and get session (tenant and provider are fetched with it)
+        VerificationSession session = sessionService.getSessionByState(state)
+                .orElseThrow(() -> new SessionExpiredException(
+                    "Verification session not found or expired"));
+        
+        // Verify session belongs to the correct tenant and provider
+        if (!session.getTenant().getId().equals(tenantId) ||
+            !session.getProvider().getId().equals(providerId)) {
+            throw new OAuthCallbackException(
+                "Session mismatch: tenant or provider doesn't match");
+        }
+        
+        // Verify session is still pending
+        if (!session.isPending()) {
+            throw new OAuthCallbackException(
+                "Verification session is not pending: " + session.getStatus());
+        }
+        
+        // 4. Provider was loaded with the session; the rest of the callback reuses these entities
+        return new CallbackContext(tenantId, session, session.getProvider());
+    }
+    
+    /**
+     * Steps 6-11: verify the ID token, record the user and mapping, complete the session
+     */
+    private RedirectView completeCallback(CallbackContext context, TokenResponse tokenResponse) {
+        UUID tenantId = context.tenantId();
+        VerificationSession session = context.session();
+        Provider provider = context.provider();
+        
+        // 6. Verify ID token (signature + claims) and take its claims from the same parse
+        log.info("Verifying ID token");
+        Map<String, Object> rawClaims = oidcClient.verifyIdToken(provider, tokenResponse.getIdToken());
+        
+        // 7. Normalize claims
+        NormalizedClaims normalizedClaims = claimsNormalizer.normalize(rawClaims, provider);
+        
+        log.info("Claims normalized: subject={}, email={}", 
+                normalizedClaims.getSubject(), normalizedClaims.getEmail());
+        
+        // 8. Create or update user record
+        log.info("Creating/updating user record");
+        User user = userService.createVerifiedUser(
+                session.getTenant(),
+                provider,
+                normalizedClaims.getSubject(),
+                convertNormalizedClaimsToMap(normalizedClaims),
+                normalizedClaims.getRawClaims()
+        );
+        
+        log.info("User verified: userId={}, subject={}", 
+                user.getId(), normalizedClaims.getSubject());
+        
+        // 9. Create UserPlatformMapping record
+        log.info("Creating platform mapping: platform={}, platformUserId={}", 
+                session.getPlatformType(), session.getPlatformUserId());
+        
+        Map<String, Object> platformMetadata = new HashMap<>();
+        if (normalizedClaims.getName() != null) {
+            platformMetadata.put("username", normalizedClaims.getName());
+        }
+        
+        UserPlatformMapping mapping = userService.linkPlatformAccount(
+                user,
+                session.getPlatformType(),
+                session.getPlatformUserId(),
+                platformMetadata
+        );
+        
+        log.info("Platform mapping created: mappingId={}", mapping.getId());
+        
+        // 10. Complete session
+        sessionService.completeSession(session, Map.of(
+                "userId", user.getId().toString(),
+                "subject", normalizedClaims.getSubject(),
+                "email", normalizedClaims.getEmail() != null ? normalizedClaims.getEmail() : ""
+        ));
+        
+        log.info("Verification session completed successfully: sessionId={}", session.getId());
+        
+        // Audit log
+        auditService.logAction(tenantId, user.getId(), "verification.completed",
+                Map.of(
+                    "sessionId", session.getId().toString(),
                     "subject", normalizedClaims.getSubject(),
-                    "email", normalizedClaims.getEmail() != null ? normalizedClaims.getEmail() : ""
-            ));
-            
-            log.info("Verification session completed successfully: sessionId={}", session.getId());
+                    "platform", session.getPlatformType(),
+                    "platformUserId", session.getPlatformUserId()
+                ));
+        
+        // 11. Redirect to success page
+        return buildSuccessRedirect(user.getId());
+    }
+    
+    private RedirectView handleOAuthError(UUID tenantId, String state, String error, String errorDescription) {
+        try {
+            String errorMsg = errorDescription != null ? errorDescription : error;
+            log.error("OAuth error in callback: {} - {}", error, errorMsg);
             
             // Audit log
-            auditService.logAction(tenantId, user.getId(), "verification.completed",
-                    Map.of(
-                        "sessionId", session.getId().toString(),
-                        "subject", normalizedClaims.getSubject(),
-                        "platform", session.getPlatformType(),
-                        "platformUserId", session.getPlatformUserId()
-                    ));
+            auditService.logAction(tenantId, null, "verification.error",
+                    Map.of("error", error, "description", errorMsg));
             
-            // 11. Redirect to success page
-            return buildSuccessRedirect(user.getId());
-            
-        } catch (SessionExpiredException e) {
+            return buildErrorRedirect("OAuth error: " + errorMsg);
+        } catch (Exception e) {
+            return handleCallbackError(tenantId, state, e);
+        }
+    }
+    
+    private RedirectView handleCallbackError(UUID tenantId, String state, Throwable e) {
+        if (e instanceof SessionExpiredException) {
             log.error("Session expired: {}", e.getMessage());
             auditService.logAction(tenantId, null, "verification.session_expired",
                     Map.of("state", state != null ? state : ""));
             return buildErrorRedirect("Verification session expired. Please try again.");
-            
-        } catch (TokenExchangeException e) {
+        }
+        
+        if (e instanceof TokenExchangeException) {
             log.error("Token exchange failed: {}", e.getMessage(), e);
             auditService.logAction(tenantId, null, "verification.token_exchange_failed",
                     Map.of("error", e.getMessage()));
             return buildErrorRedirect("Authentication failed. Please try again.");
-            
-        } catch (InvalidIdTokenException e) {
+        }
+        
+        if (e instanceof InvalidIdTokenException) {
             log.error("ID token validation failed: {}", e.getMessage(), e);
             auditService.logAction(tenantId, null, "verification.invalid_token",
                     Map.of("error", e.getMessage()));
             return buildErrorRedirect("Authentication token is invalid. Please try again.");
-            
-        } catch (OAuthCallbackException e) {
+        }
+        
+        if (e instanceof OAuthCallbackException) {
             log.error("OAuth callback error: {}", e.getMessage());
             auditService.logAction(tenantId, null, "verification.callback_error",
                     Map.of("error", e.getMessage()));
             return buildErrorRedirect("Verification failed: " + e.getMessage());
-            
-        } catch (Exception e) {
-            log.error("Unexpected error during OAuth callback: {}", e.getMessage(), e);
+        }
+        
+        log.error("Unexpected error during OAuth callback: {}", e.getMessage(), e);
+        try {
             auditService.logAction(tenantId, null, "verification.unexpected_error",
-                    Map.of("error", e.getClass().getSimpleName(), "message", e.getMessage()));
-            return buildErrorRedirect("An unexpected error occurred. Please try again.");
+                    Map.of("error", e.getClass().getSimpleName(), "message", String.valueOf(e.getMessage())));
+        } catch (Exception auditError) {
+            log.error("Failed to audit callback error: {}", auditError.getMessage());
         }
+        return buildErrorRedirect("An unexpected error occurred. Please try again.");
     }
     
     // Helper methods
@@ -312,6 +407,11 @@ public class AuthFlowController {
     private Map<String, Object> convertNormalizedClaimsToMap(NormalizedClaims claims) {
         Map<String, Object> map = new HashMap<>();
         
+        // Mapped claims first so the standard fields below take precedence
+        if (claims.getCustomClaims() != null) {
+            map.putAll(claims.getCustomClaims());
+        }
+        
         map.put("subject", claims.getSubject());
         
         if (claims.getEmail() != null) {
@@ -350,11 +450,13 @@ public class AuthFlowController {
             map.put("locale", claims.getLocale());
         }
         
-        // Include raw claims for completeness
-        if (claims.getRawClaims() != null) {
-            map.putAll(claims.getRawClaims());
-        }
-        
+        // Raw claims are stored separately on the user, not merged in here
         return map;
     }
+    
+    private record CallbackContext(
+            UUID tenantId,
+            VerificationSession session,
+            Provider provider
+    ) {}
 }
@@ -14,8 +14,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.SecureRandom;
-import java.util.Base64;
 import java.util.Map;
 import java.util.UUID;
 
@@ -29,7 +27,6 @@ import java.util.UUID;
 public class TenantController {
     
     private final TenantService tenantService;
-    private final SecureRandom secureRandom = new SecureRandom();
     
     /**
      * Get current tenant information
@@ -76,13 +73,9 @@ public class TenantController {
     public ResponseEntity<Map<String, String>> rotateApiKey() {
         UUID tenantId = TenantContext.getTenantId();
         
-        // Generate new API key (256-bit random)
-        byte[] keyBytes = new byte[32];
-        secureRandom.nextBytes(keyBytes);
-        String newApiKey = Base64.getUrlEncoder().withoutPadding().encodeToString(keyBytes);
-        
-        // Update tenant settings with new API key
-        tenantService.updateTenantSettings(tenantId, Map.of("api_key", newApiKey));
+        // Generate new API key (256-bit random), only its hash is stored;
+        // cached principals for the old key are dropped on commit
+        String newApiKey = tenantService.rotateApiKey(tenantId);
         
         log.info("API key rotated for tenant: {}", tenantId);
         
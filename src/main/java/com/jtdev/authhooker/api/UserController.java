@@ -2,21 +2,29 @@ package com.jtdev.authhooker.api;
 
 import com.jtdev.authhooker.domain.User;
 import com.jtdev.authhooker.domain.UserPlatformMapping;
+import com.jtdev.authhooker.dto.PlatformUserStatus;
+import com.jtdev.authhooker.dto.response.CursorPagedResponse;
+import com.jtdev.authhooker.dto.response.PlatformLookupResponse;
 import com.jtdev.authhooker.dto.response.SuccessResponse;
 import com.jtdev.authhooker.dto.response.UserPlatformMappingResponse;
 import com.jtdev.authhooker.dto.response.UserResponse;
+import com.jtdev.authhooker.exception.ResourceNotFoundException;
+import com.jtdev.authhooker.exception.ValidationException;
 import com.jtdev.authhooker.security.TenantContext;
 import com.jtdev.authhooker.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -29,22 +37,75 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class UserController {
     
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final String INCLUDE_CLAIMS = "claims";
+    private static final String INCLUDE_RAW_CLAIMS = "raw_claims";
+    
     private final UserService userService;
     
     /**
-     * Get all verified users for current tenant
+     * GET /api/v1/users?emailDomain=&active=&verifiedSince=&include=claims,raw_claims&cursor=&limit=
+     * Verified users for current tenant, newest first, keyset-paginated
+     * 
+     * include selects the JSONB fields returned (default: claims). Pass an empty include for
+     * summaries only. Follow nextCursor until it is null to walk all users.
      */
     @GetMapping
     @PreAuthorize("hasAnyRole('TENANT_ADMIN', 'API_CLIENT')")
-    public ResponseEntity<List<UserResponse>> getAllUsers() {
+    public ResponseEntity<CursorPagedResponse<UserResponse>> getAllUsers(
+            @RequestParam(required = false) String emailDomain,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime verifiedSince,
+            @RequestParam(defaultValue = INCLUDE_CLAIMS) Set<String> include,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        for (String field : include) {
+            if (!field.isBlank() && !INCLUDE_CLAIMS.equals(field) && !INCLUDE_RAW_CLAIMS.equals(field)) {
+                throw new ValidationException("include must be a subset of: claims, raw_claims");
+            }
+        }
+        
         UUID tenantId = TenantContext.getTenantId();
-        List<User> users = userService.getUsersByTenant(tenantId);
+        UserService.UserFilter filter = new UserService.UserFilter(
+                emailDomain != null && !emailDomain.isBlank() ? emailDomain : null, active, verifiedSince);
         
-        List<UserResponse> response = users.stream()
-                .map(UserResponse::fromEntity)
-                .collect(Collectors.toList());
+        return ResponseEntity.ok(userService.getUserPage(tenantId, filter,
+                include.contains(INCLUDE_CLAIMS), include.contains(INCLUDE_RAW_CLAIMS), cursor, limit));
+    }
+    
+    /**
+     * GET /api/v1/users/platform/{platform}/{platformUserId}
+     * Verification status and roles of one platform account (cached; for bot join events)
+     */
+    @GetMapping("/platform/{platform}/{platformUserId}")
+    @PreAuthorize("hasAnyRole('TENANT_ADMIN', 'API_CLIENT')")
+    public ResponseEntity<PlatformUserStatus> getPlatformUserStatus(
+            @PathVariable String platform,
+            @PathVariable String platformUserId) {
         
-        return ResponseEntity.ok(response);
+        UUID tenantId = TenantContext.getTenantId();
+        return userService.getPlatformUserStatus(tenantId, platform, platformUserId)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "No verified user linked to " + platform + "/" + platformUserId));
+    }
+    
+    /**
+     * POST /api/v1/users/platform-lookup
+     * Resolve up to 1000 platform user IDs to verification status and roles in one call
+     */
+    @PostMapping("/platform-lookup")
+    @PreAuthorize("hasAnyRole('TENANT_ADMIN', 'API_CLIENT')")
+    public ResponseEntity<PlatformLookupResponse> lookupPlatformUsers(
+            @RequestBody PlatformLookupRequest request) {
+        
+        UUID tenantId = TenantContext.getTenantId();
+        return ResponseEntity.ok(userService.lookupPlatformUsers(
+                tenantId, request.platform(), request.platformUserIds()));
     }
     
     /**
@@ -161,4 +222,12 @@ public class UserController {
             String platformUserId,
             Map<String, Object> metadata
     ) {}
+    
+    /**
+     * Request DTO for bulk platform user lookup
+     */
+    public record PlatformLookupRequest(
+            String platform,
+            List<String> platformUserIds
+    ) {}
 }
@@ -0,0 +1,98 @@
+package com.jtdev.authhooker.config;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Shared HTTP client for identity provider calls (token exchange, JWKS, discovery, connection tests)
+ *
+ * Reactor Netty keeps a separate pool per remote host, so connections (and their TLS sessions)
+ * to each IdP are reused across logins instead of being re-established per request.
+ * Pool metrics are published under reactor.netty.connection.provider.* with name=idp.
+ */
+@Slf4j
+@Configuration
+public class IdpHttpClientConfig {
+
+    static final String POOL_NAME = "idp";
+
+    @Value("${app.oauth.http-client.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${app.oauth.http-client.pending-acquire-max-count:500}")
+    private int pendingAcquireMaxCount;
+
+    @Value("${app.oauth.http-client.pending-acquire-timeout-ms:5000}")
+    private long pendingAcquireTimeoutMs;
+
+    @Value("${app.oauth.http-client.max-idle-time-seconds:60}")
+    private long maxIdleTimeSeconds;
+
+    @Value("${app.oauth.http-client.max-life-time-seconds:600}")
+    private long maxLifeTimeSeconds;
+
+    @Value("${app.oauth.http-client.evict-interval-seconds:30}")
+    private long evictIntervalSeconds;
+
+    @Value("${app.oauth.http-client.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${app.oauth.http-client.http2-enabled:true}")
+    private boolean http2Enabled;
+
+    @Value("${app.oauth.http-client.dns-cache-ttl-seconds:300}")
+    private long dnsCacheTtlSeconds;
+
+    @Value("${app.oauth.http-client.max-response-size-kb:512}")
+    private int maxResponseSizeKb;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider idpConnectionProvider() {
+        log.info("IdP connection pool: maxConnections={} per host, pendingAcquireMaxCount={}, maxIdleTime={}s",
+                maxConnections, pendingAcquireMaxCount, maxIdleTimeSeconds);
+
+        return ConnectionProvider.builder(POOL_NAME)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(maxIdleTimeSeconds))
+                .maxLifeTime(Duration.ofSeconds(maxLifeTimeSeconds))
+                .evictInBackground(Duration.ofSeconds(evictIntervalSeconds))
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient idpWebClient(WebClient.Builder webClientBuilder, ConnectionProvider idpConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(idpConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .compress(true);
+
+        if (http2Enabled) {
+            // h2 is negotiated via ALPN on TLS; plain-text endpoints stay on HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        if (dnsCacheTtlSeconds > 0) {
+            httpClient = httpClient.resolver(spec -> spec
+                    .cacheMaxTimeToLive(Duration.ofSeconds(dnsCacheTtlSeconds)));
+        }
+
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxResponseSizeKb * 1024))
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package com.jtdev.authhooker.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * PostgreSQL functions for JPQL, registered through META-INF/services
+ *
+ * jsonb_field_text(u.claims, 'email_domain') renders as (claims->>'email_domain'), the exact
+ * expression of idx_users_email_domain, so filters on it can use that index. Pass the field name
+ * as a literal; a bound parameter would not match the index expression.
+ */
+public class PostgresFunctionContributor implements FunctionContributor {
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(
+                "jsonb_field_text",
+                "(?1->>?2)",
+                functionContributions.getTypeConfiguration().getBasicTypeRegistry().resolve(StandardBasicTypes.STRING));
+    }
+}
@@ -0,0 +1,45 @@
+package com.jtdev.authhooker.config;
+
+import com.jtdev.authhooker.domain.RoleRule;
+import com.jtdev.authhooker.service.RoleRuleEngine;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Evicts a tenant's compiled role rules when one of its rules is written
+ *
+ * Registered on RoleRule via @EntityListeners; Hibernate obtains it from the Spring context.
+ * Kept out of the service package so the domain model does not depend on services.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoleRuleChangeListener {
+
+    private final RoleRuleEngine roleRuleEngine;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void onRuleChanged(RoleRule rule) {
+        UUID tenantId = rule.getTenant().getId();
+
+        // Evict after commit so a concurrent evaluation cannot re-cache the old rules
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    roleRuleEngine.invalidate(tenantId);
+                }
+            });
+        } else {
+            roleRuleEngine.invalidate(tenantId);
+        }
+    }
+}
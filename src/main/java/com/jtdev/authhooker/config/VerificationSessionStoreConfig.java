@@ -0,0 +1,49 @@
+package com.jtdev.authhooker.config;
+
+import com.jtdev.authhooker.repository.ProviderRepository;
+import com.jtdev.authhooker.repository.VerificationSessionRepository;
+import com.jtdev.authhooker.service.InMemoryVerificationSessionStore;
+import com.jtdev.authhooker.service.JpaVerificationSessionStore;
+import com.jtdev.authhooker.service.UnloggedVerificationSessionStore;
+import com.jtdev.authhooker.service.VerificationSessionStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Selects the verification session backend (app.oauth.sessions.store: jpa, unlogged or memory)
+ */
+@Slf4j
+@Configuration
+public class VerificationSessionStoreConfig {
+
+    private static final String STORE_JPA = "jpa";
+    private static final String STORE_UNLOGGED = "unlogged";
+    private static final String STORE_MEMORY = "memory";
+
+    @Value("${app.oauth.sessions.store:jpa}")
+    private String store;
+
+    @Value("${app.oauth.sessions.memory.max-size:100000}")
+    private long memoryMaxSize;
+
+    @Bean
+    public VerificationSessionStore verificationSessionStore(
+            VerificationSessionRepository sessionRepository,
+            ProviderRepository providerRepository,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry) {
+        log.info("Verification session store: {}", store);
+
+        return switch (store) {
+            case STORE_JPA -> new JpaVerificationSessionStore(sessionRepository);
+            case STORE_UNLOGGED -> new UnloggedVerificationSessionStore(jdbcTemplate, providerRepository);
+            case STORE_MEMORY -> new InMemoryVerificationSessionStore(providerRepository, meterRegistry, memoryMaxSize);
+            default -> throw new IllegalStateException(
+                    "Unknown app.oauth.sessions.store: " + store + " (expected jpa, unlogged or memory)");
+        };
+    }
+}
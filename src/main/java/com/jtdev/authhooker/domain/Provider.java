@@ -5,6 +5,7 @@ import lombok.*;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.UUID;
@@ -79,4 +80,16 @@ public class Provider {
     public boolean isDeleted() {
         return deletedAt != null;
     }
+
+    /**
+     * Timeout for calls to this provider's endpoints.
+     * The optional config key http_timeout_seconds overrides the application default.
+     */
+    public Duration httpTimeout(Duration defaultTimeout) {
+        Object override = config != null ? config.get("http_timeout_seconds") : null;
+        if (override instanceof Number seconds && seconds.longValue() > 0) {
+            return Duration.ofSeconds(seconds.longValue());
+        }
+        return defaultTimeout;
+    }
 }
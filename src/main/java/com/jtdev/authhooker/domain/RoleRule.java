@@ -1,5 +1,6 @@
 package com.jtdev.authhooker.domain;
 
+import com.jtdev.authhooker.config.RoleRuleChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.JdbcTypeCode;
@@ -11,9 +12,12 @@ import java.util.UUID;
 
 /**
  * Role mapping rules (JSONB rule engine)
+ *
+ * rule_set is compiled and evaluated by RoleRuleEngine; see RoleRuleCompiler for its format.
  */
 @Entity
 @Table(name = "role_rules")
+@EntityListeners(RoleRuleChangeListener.class)
 @Data
 @Builder
 @NoArgsConstructor
@@ -55,6 +55,10 @@ public class Tenant {
     @Column(name = "stripe_subscription_id")
     private String stripeSubscriptionId;
 
+    // API key (SHA-256 hex of the issued key, plaintext is never stored)
+    @Column(name = "api_key_hash", unique = true, length = 64)
+    private String apiKeyHash;
+
     // Settings (JSONB)
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(nullable = false, columnDefinition = "jsonb")
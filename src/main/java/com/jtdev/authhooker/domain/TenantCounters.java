@@ -0,0 +1,37 @@
+package com.jtdev.authhooker.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Per-tenant active user/provider/integration counts, maintained by database triggers (V6)
+ */
+@Entity
+@Immutable
+@Table(name = "tenant_counters")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TenantCounters {
+
+    @Id
+    @Column(name = "tenant_id")
+    private UUID tenantId;
+
+    @Column(name = "active_users", nullable = false)
+    private Long activeUsers;
+
+    @Column(name = "active_providers", nullable = false)
+    private Long activeProviders;
+
+    @Column(name = "active_integrations", nullable = false)
+    private Long activeIntegrations;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -44,6 +44,10 @@ public class UsageMetering {
     @Builder.Default
     private Integer totalRoleSyncs = 0;
 
+    // HyperLogLog sketch of verified users this month (activeVerifiedUsers is its estimate)
+    @Column(name = "mau_sketch")
+    private byte[] mauSketch;
+
     // Calculated billing
     @Column(name = "metered_amount", precision = 10, scale = 2)
     private BigDecimal meteredAmount;
@@ -52,6 +52,10 @@ public class User {
     @Column(nullable = false, columnDefinition = "jsonb")
     private Map<String, Object> claims;
 
+    // SHA-256 of the claims last stored by verification (null = unknown)
+    @Column(name = "claims_fingerprint", length = 64)
+    private String claimsFingerprint;
+
     // Verification
     @Column(name = "verified_at", nullable = false, updatable = false)
     @Builder.Default
@@ -61,7 +65,8 @@ public class User {
     @Builder.Default
     private LocalDateTime lastVerifiedAt = LocalDateTime.now();
 
-    @Column(name = "verification_count", nullable = false)
+    // Only ever set in SQL (UserRepository.upsertVerified)
+    @Column(name = "verification_count", nullable = false, updatable = false)
     @Builder.Default
     private Integer verificationCount = 1;
 
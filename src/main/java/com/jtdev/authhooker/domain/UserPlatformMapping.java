@@ -15,12 +15,19 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "user_platform_mappings")
+@SqlResultSetMapping(
+        name = UserPlatformMapping.UPSERT_RESULT,
+        entities = @EntityResult(entityClass = UserPlatformMapping.class),
+        columns = @ColumnResult(name = "previous_platform_user_id", type = String.class))
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class UserPlatformMapping {
 
+    // Mapping row plus the platform account it replaced (UserPlatformMappingRepositoryCustom.upsertForUser)
+    public static final String UPSERT_RESULT = "UserPlatformMapping.upsertResult";
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
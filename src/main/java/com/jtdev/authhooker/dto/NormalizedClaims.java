@@ -54,7 +54,13 @@ public class NormalizedClaims {
     private Boolean verifiedEmail;
     
     /**
-     * Raw claims from ID token (for debugging/audit)
+     * Claims set by the provider's claim mappings (target field -> value)
+     */
+    @Builder.Default
+    private Map<String, Object> customClaims = Map.of();
+    
+    /**
+     * Raw claims from ID token (for debugging/audit), limited to the retained ones
      */
     private Map<String, Object> rawClaims;
     
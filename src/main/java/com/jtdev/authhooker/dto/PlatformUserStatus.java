@@ -0,0 +1,19 @@
+package com.jtdev.authhooker.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Verification status of a linked platform account, projected in JPQL for bulk bot lookups
+ */
+public record PlatformUserStatus(
+        String platformUserId,
+        UUID userId,
+        Boolean userActive,
+        Boolean emailVerified,
+        LocalDateTime lastVerifiedAt,
+        Boolean mappingActive,
+        List<String> roles,
+        LocalDateTime lastRoleSyncAt
+) {}
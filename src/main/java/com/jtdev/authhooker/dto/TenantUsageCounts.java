@@ -0,0 +1,17 @@
+package com.jtdev.authhooker.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Raw tenant usage counters, computed in a single aggregate query
+ */
+public record TenantUsageCounts(
+        Long totalUsers,
+        Long activeUsers,
+        Long monthlyActiveUsers,
+        Long totalVerifications,
+        LocalDateTime lastVerificationAt,
+        Long totalProviders,
+        Long activeProviders,
+        Long totalPlatformIntegrations
+) {}
@@ -0,0 +1,12 @@
+package com.jtdev.authhooker.dto;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One user's claims (normalized or raw), fetched separately from UserSummary when requested
+ */
+public record UserClaims(
+        UUID userId,
+        Map<String, Object> claims
+) {}
@@ -0,0 +1,21 @@
+package com.jtdev.authhooker.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * User columns for listings, projected in JPQL without the claims JSONB
+ */
+public record UserSummary(
+        UUID id,
+        UUID providerId,
+        String subject,
+        String email,
+        Boolean emailVerified,
+        Boolean isActive,
+        Integer verificationCount,
+        LocalDateTime lastVerifiedAt,
+        LocalDateTime verifiedAt,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {}
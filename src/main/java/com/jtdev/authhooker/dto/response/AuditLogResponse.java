@@ -0,0 +1,59 @@
+package com.jtdev.authhooker.dto.response;
+
+import com.jtdev.authhooker.domain.AuditLog;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Response DTO for AuditLog entity
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogResponse {
+    private Long id;
+    private UUID tenantId;
+    private UUID userId;
+    private String actorType;
+    private String actorId;
+    private String action;
+    private String resourceType;
+    private String resourceId;
+    private Map<String, Object> details;
+    private String ipAddress;
+    private String userAgent;
+    private LocalDateTime timestamp;
+
+    /**
+     * Convert AuditLog entity to AuditLogResponse DTO
+     *
+     * Only the ids of the lazy tenant/user associations are read, so no extra queries are issued.
+     */
+    public static AuditLogResponse fromEntity(AuditLog auditLog) {
+        if (auditLog == null) {
+            return null;
+        }
+
+        return AuditLogResponse.builder()
+                .id(auditLog.getId())
+                .tenantId(auditLog.getTenant() != null ? auditLog.getTenant().getId() : null)
+                .userId(auditLog.getUser() != null ? auditLog.getUser().getId() : null)
+                .actorType(auditLog.getActorType())
+                .actorId(auditLog.getActorId())
+                .action(auditLog.getAction())
+                .resourceType(auditLog.getResourceType())
+                .resourceId(auditLog.getResourceId())
+                .details(auditLog.getDetails())
+                .ipAddress(auditLog.getIpAddress())
+                .userAgent(auditLog.getUserAgent())
+                .timestamp(auditLog.getTimestamp())
+                .build();
+    }
+}
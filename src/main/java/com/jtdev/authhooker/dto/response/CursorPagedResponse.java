@@ -0,0 +1,44 @@
+package com.jtdev.authhooker.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset-paginated response wrapper
+ *
+ * Pass nextCursor back as the cursor parameter to fetch the next page; it is null on the last page.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPagedResponse<T> {
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasMore;
+
+    /**
+     * Create a response from a page of rows
+     */
+    public static <T> CursorPagedResponse<T> of(List<T> content, String nextCursor) {
+        return CursorPagedResponse.<T>builder()
+                .content(content)
+                .size(content.size())
+                .nextCursor(nextCursor)
+                .hasMore(nextCursor != null)
+                .build();
+    }
+
+    /**
+     * Convert the content, keeping the cursor
+     */
+    public <R> CursorPagedResponse<R> map(Function<T, R> mapper) {
+        return of(content.stream().map(mapper).toList(), nextCursor);
+    }
+}
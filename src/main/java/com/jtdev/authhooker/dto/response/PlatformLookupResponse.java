@@ -0,0 +1,24 @@
+package com.jtdev.authhooker.dto.response;
+
+import com.jtdev.authhooker.dto.PlatformUserStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response DTO for bulk platform user lookups
+ *
+ * notFound lists the requested platform user IDs with no active link to a user of the tenant.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlatformLookupResponse {
+    private String platform;
+    private List<PlatformUserStatus> users;
+    private List<String> notFound;
+}
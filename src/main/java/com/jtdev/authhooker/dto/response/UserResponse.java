@@ -1,6 +1,8 @@
 package com.jtdev.authhooker.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.jtdev.authhooker.domain.User;
+import com.jtdev.authhooker.dto.UserSummary;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,7 +26,12 @@ public class UserResponse {
     private String subject;
     private String email;
     private Boolean emailVerified;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Map<String, Object> claims;
+    
+    // Only included when explicitly requested
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, Object> rawClaims;
     private Boolean isActive;
     private Integer verificationCount;
     private LocalDateTime lastVerifiedAt;
@@ -56,4 +63,27 @@ public class UserResponse {
                 .updatedAt(user.getUpdatedAt())
                 .build();
     }
+    
+    /**
+     * Convert a UserSummary projection to UserResponse, with claims only if they were fetched
+     */
+    public static UserResponse fromSummary(UUID tenantId, UserSummary summary,
+                                           Map<String, Object> claims, Map<String, Object> rawClaims) {
+        return UserResponse.builder()
+                .id(summary.id())
+                .tenantId(tenantId)
+                .providerId(summary.providerId())
+                .subject(summary.subject())
+                .email(summary.email())
+                .emailVerified(summary.emailVerified())
+                .claims(claims)
+                .rawClaims(rawClaims)
+                .isActive(summary.isActive())
+                .verificationCount(summary.verificationCount())
+                .lastVerifiedAt(summary.lastVerifiedAt())
+                .verifiedAt(summary.verifiedAt())
+                .createdAt(summary.createdAt())
+                .updatedAt(summary.updatedAt())
+                .build();
+    }
 }
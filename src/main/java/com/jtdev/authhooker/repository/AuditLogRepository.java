@@ -1,15 +1,20 @@
 package com.jtdev.authhooker.repository;
 
 import com.jtdev.authhooker.domain.AuditLog;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
@@ -20,6 +25,50 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     @Query("SELECT al FROM AuditLog al WHERE al.tenant.id = :tenantId ORDER BY al.timestamp DESC")
     Page<AuditLog> findByTenantId(UUID tenantId, Pageable pageable);
 
+    /**
+     * Keyset page of a tenant's audit logs in [from, to), newest first.
+     * Returns rows strictly before (beforeTimestamp, beforeId) in (timestamp DESC, id DESC) order;
+     * for the first page pass beforeTimestamp = to and beforeId = Long.MIN_VALUE.
+     * Served by one range scan of idx_audit_logs_tenant_timestamp; partitions outside the range are pruned.
+     * The redundant timestamp <= beforeTimestamp is the scan's upper bound: Postgres cannot derive one
+     * from the OR, and would otherwise read every newer row of the tenant on deep pages.
+     */
+    @Query("""
+            SELECT al FROM AuditLog al
+            WHERE al.tenant.id = :tenantId
+              AND al.timestamp >= :from
+              AND al.timestamp <= :beforeTimestamp
+              AND (al.timestamp < :beforeTimestamp
+                   OR (al.timestamp = :beforeTimestamp AND al.id < :beforeId))
+            ORDER BY al.timestamp DESC, al.id DESC
+            """)
+    List<AuditLog> findPageByTenantId(UUID tenantId, LocalDateTime from,
+                                      LocalDateTime beforeTimestamp, Long beforeId, Limit limit);
+
+    /**
+     * Stream a tenant's audit logs in [from, to), oldest first, with optional action/resource filters.
+     * Rows are read through a server-side cursor in fetch-size chunks, so memory stays flat
+     * however many rows match. Must be consumed inside a transaction and closed afterwards;
+     * callers should detach each row once written.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("""
+            SELECT al FROM AuditLog al
+            WHERE al.tenant.id = :tenantId
+              AND al.timestamp >= :from
+              AND al.timestamp < :to
+              AND (:action IS NULL OR al.action = :action)
+              AND (:resourceType IS NULL OR al.resourceType = :resourceType)
+              AND (:resourceId IS NULL OR al.resourceId = :resourceId)
+            ORDER BY al.timestamp ASC, al.id ASC
+            """)
+    Stream<AuditLog> streamForExport(UUID tenantId, LocalDateTime from, LocalDateTime to,
+                                     String action, String resourceType, String resourceId);
+
     /**
      * Find audit logs for a user (paginated, ordered by timestamp desc)
      */
@@ -49,10 +98,4 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
      */
     @Query("SELECT al FROM AuditLog al WHERE al.resourceType = :resourceType AND al.resourceId = :resourceId ORDER BY al.timestamp DESC")
     List<AuditLog> findByResource(String resourceType, String resourceId);
-
-    /**
-     * Delete audit logs older than specified date (for cleanup)
-     */
-    @Query("DELETE FROM AuditLog al WHERE al.timestamp < :olderThan")
-    void deleteLogsOlderThan(LocalDateTime olderThan);
 }
@@ -1,6 +1,7 @@
 package com.jtdev.authhooker.repository;
 
 import com.jtdev.authhooker.domain.Provider;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -24,6 +25,13 @@ public interface ProviderRepository extends JpaRepository<Provider, UUID> {
     @Query("SELECT p FROM Provider p WHERE p.id = :id AND p.deletedAt IS NULL")
     Optional<Provider> findActiveById(UUID id);
 
+    /**
+     * Find provider by ID with its tenant in one query (deleted providers included)
+     */
+    @EntityGraph(attributePaths = "tenant")
+    @Query("SELECT p FROM Provider p WHERE p.id = :id")
+    Optional<Provider> findWithTenantById(UUID id);
+
     /**
      * Find all active providers for a tenant
      */
@@ -0,0 +1,45 @@
+package com.jtdev.authhooker.repository;
+
+import com.jtdev.authhooker.domain.TenantCounters;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+/**
+ * Counters are written only by the V6 triggers; the reserve methods lock the tenant's row
+ * when a slot is free so concurrent creations are checked one after another.
+ */
+@Repository
+public interface TenantCountersRepository extends JpaRepository<TenantCounters, UUID> {
+
+    /**
+     * Lock the tenant's counters if fewer than max users are active.
+     * A concurrent reservation waits for this transaction and then re-checks against the
+     * committed count, so two creations cannot both take the last slot.
+     *
+     * @return 1 if a slot is reserved, 0 if the limit is reached
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE tenant_counters SET updated_at = CURRENT_TIMESTAMP WHERE tenant_id = :tenantId AND active_users < :max",
+            nativeQuery = true)
+    int reserveUserSlot(UUID tenantId, long max);
+
+    /**
+     * Lock the tenant's counters if fewer than max providers are active
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE tenant_counters SET updated_at = CURRENT_TIMESTAMP WHERE tenant_id = :tenantId AND active_providers < :max",
+            nativeQuery = true)
+    int reserveProviderSlot(UUID tenantId, long max);
+
+    /**
+     * Lock the tenant's counters if fewer than max integrations are active
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE tenant_counters SET updated_at = CURRENT_TIMESTAMP WHERE tenant_id = :tenantId AND active_integrations < :max",
+            nativeQuery = true)
+    int reserveIntegrationSlot(UUID tenantId, long max);
+}
@@ -1,10 +1,12 @@
 package com.jtdev.authhooker.repository;
 
 import com.jtdev.authhooker.domain.Tenant;
+import com.jtdev.authhooker.dto.TenantUsageCounts;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -51,4 +53,30 @@ public interface TenantRepository extends JpaRepository<Tenant, UUID> {
      */
     @Query("SELECT t FROM Tenant t WHERE t.ownerEmail = :ownerEmail AND t.deletedAt IS NULL")
     Optional<Tenant> findByOwnerEmail(String ownerEmail);
+
+    /**
+     * Find active tenant by API key hash
+     */
+    @Query("SELECT t FROM Tenant t WHERE t.apiKeyHash = :apiKeyHash AND t.status = 'active' AND t.deletedAt IS NULL")
+    Optional<Tenant> findActiveByApiKeyHash(String apiKeyHash);
+
+    /**
+     * Aggregate usage counters for a tenant in one round trip.
+     * Users are aggregated in a single pass; monthly active users are those verified in [mauFrom, mauTo).
+     * Providers and integrations are counted in scalar subqueries, so no entities are loaded.
+     */
+    @Query("""
+            SELECT new com.jtdev.authhooker.dto.TenantUsageCounts(
+                COUNT(u),
+                COALESCE(SUM(CASE WHEN u.isActive = true THEN 1L ELSE 0L END), 0L),
+                COALESCE(SUM(CASE WHEN u.lastVerifiedAt >= :mauFrom AND u.lastVerifiedAt < :mauTo THEN 1L ELSE 0L END), 0L),
+                COALESCE(SUM(u.verificationCount), 0L),
+                MAX(u.lastVerifiedAt),
+                (SELECT COUNT(p) FROM Provider p WHERE p.tenant.id = :tenantId AND p.deletedAt IS NULL),
+                (SELECT COUNT(p) FROM Provider p WHERE p.tenant.id = :tenantId AND p.isActive = true AND p.deletedAt IS NULL),
+                (SELECT COUNT(pi) FROM PlatformIntegration pi WHERE pi.tenant.id = :tenantId AND pi.deletedAt IS NULL))
+            FROM User u
+            WHERE u.tenant.id = :tenantId AND u.deletedAt IS NULL
+            """)
+    TenantUsageCounts aggregateUsage(UUID tenantId, LocalDateTime mauFrom, LocalDateTime mauTo);
 }
@@ -1,17 +1,20 @@
 package com.jtdev.authhooker.repository;
 
 import com.jtdev.authhooker.domain.UserPlatformMapping;
+import com.jtdev.authhooker.dto.PlatformUserStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface UserPlatformMappingRepository extends JpaRepository<UserPlatformMapping, UUID> {
+public interface UserPlatformMappingRepository extends JpaRepository<UserPlatformMapping, UUID>,
+        UserPlatformMappingRepositoryCustom {
 
     /**
      * Find mapping by user and platform type
@@ -48,4 +51,21 @@ public interface UserPlatformMappingRepository extends JpaRepository<UserPlatfor
      */
     @Query("SELECT upm FROM UserPlatformMapping upm WHERE upm.platformIntegration.id = :platformIntegrationId AND upm.isActive = true AND upm.unlinkedAt IS NULL")
     List<UserPlatformMapping> findActiveByPlatformIntegrationId(UUID platformIntegrationId);
+
+    /**
+     * Resolve many platform accounts of a tenant in one query (joined to users, no entity loads)
+     */
+    @Query("""
+            SELECT new com.jtdev.authhooker.dto.PlatformUserStatus(
+                upm.platformUserId, u.id, u.isActive, u.emailVerified, u.lastVerifiedAt,
+                upm.isActive, upm.currentRoles, upm.lastRoleSyncAt)
+            FROM UserPlatformMapping upm JOIN upm.user u
+            WHERE upm.platformType = :platformType
+              AND upm.platformUserId IN :platformUserIds
+              AND upm.unlinkedAt IS NULL
+              AND u.tenant.id = :tenantId
+              AND u.deletedAt IS NULL
+            """)
+    List<PlatformUserStatus> findStatusByTenantIdAndPlatformUserIds(UUID tenantId, String platformType,
+                                                                   Collection<String> platformUserIds);
 }
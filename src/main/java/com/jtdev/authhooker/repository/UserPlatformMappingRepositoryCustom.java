@@ -0,0 +1,33 @@
+package com.jtdev.authhooker.repository;
+
+import com.jtdev.authhooker.domain.UserPlatformMapping;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Native write paths of {@link UserPlatformMappingRepository} that Spring Data cannot derive
+ */
+public interface UserPlatformMappingRepositoryCustom {
+
+    /**
+     * Result of {@link #upsertForUser}
+     *
+     * @param mapping The user's active mapping for the platform after the upsert
+     * @param previousPlatformUserId Platform account the user was linked to before (null if newly linked)
+     */
+    record UpsertedMapping(UserPlatformMapping mapping, String previousPlatformUserId) {
+    }
+
+    /**
+     * Link a user to a platform account in one statement
+     *
+     * Inserts the mapping, or on conflict with uq_user_platform points the user's existing mapping
+     * at the new account (keeping its integration). Nothing is written (empty result) when a new
+     * mapping has no active integration for the platform or the account is linked to another user.
+     */
+    Optional<UpsertedMapping> upsertForUser(UUID tenantId, UUID userId, String platformType,
+                                            String platformUserId, String platformUsername,
+                                            LocalDateTime linkedAt);
+}
@@ -0,0 +1,73 @@
+package com.jtdev.authhooker.repository;
+
+import com.jtdev.authhooker.domain.UserPlatformMapping;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+class UserPlatformMappingRepositoryCustomImpl implements UserPlatformMappingRepositoryCustom {
+
+    // previous is read from the statement's snapshot, i.e. before the upsert. An existing mapping keeps
+    // its integration, so re-linking does not depend on the integration still being active.
+    private static final String UPSERT_FOR_USER = """
+            WITH previous AS (
+                SELECT platform_user_id, platform_integration_id FROM user_platform_mappings
+                WHERE user_id = :userId AND platform_type = :platformType AND unlinked_at IS NULL
+            ), integration AS (
+                SELECT COALESCE(
+                    (SELECT platform_integration_id FROM previous),
+                    (SELECT pi.id FROM platform_integrations pi
+                     WHERE pi.tenant_id = :tenantId AND pi.platform_type = :platformType
+                       AND pi.deleted_at IS NULL)) AS id
+            )
+            INSERT INTO user_platform_mappings AS upm
+                (user_id, platform_integration_id, platform_type, platform_user_id, platform_username,
+                 is_active, linked_at, updated_at)
+            SELECT :userId, integration.id, :platformType, :platformUserId, CAST(:platformUsername AS VARCHAR),
+                   true, :linkedAt, :linkedAt
+            FROM integration
+            WHERE integration.id IS NOT NULL
+              AND NOT EXISTS (
+                SELECT 1 FROM user_platform_mappings other
+                WHERE other.platform_type = :platformType AND other.platform_user_id = :platformUserId
+                  AND other.unlinked_at IS NULL AND other.user_id <> :userId)
+            ON CONFLICT (user_id, platform_type) WHERE unlinked_at IS NULL DO UPDATE SET
+                platform_user_id = EXCLUDED.platform_user_id,
+                platform_username = COALESCE(EXCLUDED.platform_username, upm.platform_username),
+                is_active = true,
+                updated_at = EXCLUDED.updated_at
+            RETURNING upm.*, (SELECT platform_user_id FROM previous) AS previous_platform_user_id
+            """;
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Optional<UpsertedMapping> upsertForUser(UUID tenantId, UUID userId, String platformType,
+                                                   String platformUserId, String platformUsername,
+                                                   LocalDateTime linkedAt) {
+        List<?> rows = entityManager.createNativeQuery(UPSERT_FOR_USER, UserPlatformMapping.UPSERT_RESULT)
+                .setParameter("tenantId", tenantId)
+                .setParameter("userId", userId)
+                .setParameter("platformType", platformType)
+                .setParameter("platformUserId", platformUserId)
+                .setParameter("platformUsername", platformUsername)
+                .setParameter("linkedAt", linkedAt)
+                .getResultList();
+
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] row = (Object[]) rows.get(0);
+        UserPlatformMapping mapping = (UserPlatformMapping) row[0];
+        // A persistence context that already held the mapping returns its instance without the new row state
+        if (!platformUserId.equals(mapping.getPlatformUserId()) || !Boolean.TRUE.equals(mapping.getIsActive())) {
+            entityManager.refresh(mapping);
+        }
+        return Optional.of(new UpsertedMapping(mapping, (String) row[1]));
+    }
+}
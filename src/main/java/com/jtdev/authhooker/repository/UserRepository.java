@@ -1,11 +1,15 @@
 package com.jtdev.authhooker.repository;
 
 import com.jtdev.authhooker.domain.User;
+import com.jtdev.authhooker.dto.UserClaims;
+import com.jtdev.authhooker.dto.UserSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -60,4 +64,100 @@ public interface UserRepository extends JpaRepository<User, UUID> {
      */
     @Query("SELECT u FROM User u WHERE u.provider.id = :providerId AND u.deletedAt IS NULL")
     List<User> findByProviderId(UUID providerId);
+
+    /**
+     * One keyset page of a tenant's users as summaries, newest first
+     *
+     * Returns rows strictly before (beforeCreatedAt, beforeId) in (createdAt DESC, id DESC) order;
+     * for the first page pass beforeCreatedAt beyond any row. Null filters are ignored. The redundant
+     * createdAt <= beforeCreatedAt lets the scan of idx_users_tenant_created start at the cursor,
+     * which Postgres cannot derive from the OR alone.
+     */
+    @Query("""
+            SELECT new com.jtdev.authhooker.dto.UserSummary(
+                u.id, u.provider.id, u.subject, u.email, u.emailVerified, u.isActive,
+                u.verificationCount, u.lastVerifiedAt, u.verifiedAt, u.createdAt, u.updatedAt)
+            FROM User u
+            WHERE u.tenant.id = :tenantId
+              AND u.deletedAt IS NULL
+              AND (:active IS NULL OR u.isActive = :active)
+              AND (:verifiedSince IS NULL OR u.lastVerifiedAt >= :verifiedSince)
+              AND u.createdAt <= :beforeCreatedAt
+              AND (u.createdAt < :beforeCreatedAt
+                   OR (u.createdAt = :beforeCreatedAt AND u.id < :beforeId))
+            ORDER BY u.createdAt DESC, u.id DESC
+            """)
+    List<UserSummary> findSummaryPageByTenantId(UUID tenantId, Boolean active, LocalDateTime verifiedSince,
+                                                LocalDateTime beforeCreatedAt, UUID beforeId, Limit limit);
+
+    /**
+     * Like {@link #findSummaryPageByTenantId}, restricted to users whose claims->>'email_domain' is
+     * emailDomain. A separate statement rather than an optional filter, so the domain predicate stays
+     * usable by idx_users_email_domain under a generic plan.
+     */
+    @Query("""
+            SELECT new com.jtdev.authhooker.dto.UserSummary(
+                u.id, u.provider.id, u.subject, u.email, u.emailVerified, u.isActive,
+                u.verificationCount, u.lastVerifiedAt, u.verifiedAt, u.createdAt, u.updatedAt)
+            FROM User u
+            WHERE u.tenant.id = :tenantId
+              AND u.deletedAt IS NULL
+              AND jsonb_field_text(u.claims, 'email_domain') = :emailDomain
+              AND (:active IS NULL OR u.isActive = :active)
+              AND (:verifiedSince IS NULL OR u.lastVerifiedAt >= :verifiedSince)
+              AND u.createdAt <= :beforeCreatedAt
+              AND (u.createdAt < :beforeCreatedAt
+                   OR (u.createdAt = :beforeCreatedAt AND u.id < :beforeId))
+            ORDER BY u.createdAt DESC, u.id DESC
+            """)
+    List<UserSummary> findSummaryPageByTenantIdAndEmailDomain(UUID tenantId, String emailDomain, Boolean active,
+                                                              LocalDateTime verifiedSince,
+                                                              LocalDateTime beforeCreatedAt, UUID beforeId,
+                                                              Limit limit);
+
+    /**
+     * Normalized claims of the given users
+     */
+    @Query("SELECT new com.jtdev.authhooker.dto.UserClaims(u.id, u.claims) FROM User u WHERE u.id IN :ids")
+    List<UserClaims> findClaimsByIdIn(Collection<UUID> ids);
+
+    /**
+     * Raw IdP claims of the given users
+     */
+    @Query("SELECT new com.jtdev.authhooker.dto.UserClaims(u.id, u.rawClaims) FROM User u WHERE u.id IN :ids")
+    List<UserClaims> findRawClaimsByIdIn(Collection<UUID> ids);
+
+    /**
+     * Insert a verified user, or record a re-verification of the existing one, in one statement
+     *
+     * On conflict with uq_tenant_provider_subject the counter is incremented atomically and the
+     * claims columns are only rewritten when the claims fingerprint differs. Returns the resulting
+     * row; a verification_count of 1 means it was inserted.
+     */
+    @Query(value = """
+            INSERT INTO users (tenant_id, provider_id, subject, email, email_verified, raw_claims, claims,
+                               claims_fingerprint, verified_at, last_verified_at, verification_count,
+                               is_active, created_at, updated_at)
+            VALUES (:tenantId, :providerId, :subject, CAST(:email AS VARCHAR), :emailVerified,
+                    CAST(:rawClaims AS JSONB), CAST(:claims AS JSONB), :fingerprint,
+                    :verifiedAt, :verifiedAt, 1, true, :verifiedAt, :verifiedAt)
+            ON CONFLICT (tenant_id, provider_id, subject) WHERE deleted_at IS NULL DO UPDATE SET
+                last_verified_at = EXCLUDED.last_verified_at,
+                verification_count = users.verification_count + 1,
+                raw_claims = CASE WHEN users.claims_fingerprint IS DISTINCT FROM EXCLUDED.claims_fingerprint
+                                  THEN EXCLUDED.raw_claims ELSE users.raw_claims END,
+                claims = CASE WHEN users.claims_fingerprint IS DISTINCT FROM EXCLUDED.claims_fingerprint
+                              THEN EXCLUDED.claims ELSE users.claims END,
+                email = CASE WHEN users.claims_fingerprint IS DISTINCT FROM EXCLUDED.claims_fingerprint
+                                  AND EXCLUDED.email IS NOT NULL
+                             THEN EXCLUDED.email ELSE users.email END,
+                email_verified = CASE WHEN users.claims_fingerprint IS DISTINCT FROM EXCLUDED.claims_fingerprint
+                                           AND EXCLUDED.email IS NOT NULL
+                                      THEN EXCLUDED.email_verified ELSE users.email_verified END,
+                claims_fingerprint = EXCLUDED.claims_fingerprint,
+                updated_at = EXCLUDED.updated_at
+            RETURNING *
+            """, nativeQuery = true)
+    User upsertVerified(UUID tenantId, UUID providerId, String subject, String email, boolean emailVerified,
+                        String rawClaims, String claims, String fingerprint, LocalDateTime verifiedAt);
 }
@@ -1,6 +1,7 @@
 package com.jtdev.authhooker.repository;
 
 import com.jtdev.authhooker.domain.VerificationSession;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,6 +9,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -19,6 +21,26 @@ public interface VerificationSessionRepository extends JpaRepository<Verificatio
      */
     Optional<VerificationSession> findByStateToken(String stateToken);
 
+    /**
+     * Find session by state token with its tenant and provider (and the provider's tenant) in one query
+     */
+    @EntityGraph(attributePaths = {"tenant", "provider", "provider.tenant"})
+    @Query("SELECT vs FROM VerificationSession vs WHERE vs.stateToken = :stateToken")
+    Optional<VerificationSession> findWithTenantAndProviderByStateToken(String stateToken);
+
+    /**
+     * Complete a session if it is still pending and unexpired (single UPDATE, no prior load)
+     *
+     * @return 1 if the session was completed, 0 if it was not pending or has expired
+     */
+    @Modifying
+    @Query("""
+            UPDATE VerificationSession vs
+            SET vs.status = 'completed', vs.completedAt = :completedAt, vs.sessionData = :sessionData
+            WHERE vs.id = :id AND vs.status = 'pending' AND vs.expiresAt > :completedAt
+            """)
+    int completePending(UUID id, LocalDateTime completedAt, Map<String, Object> sessionData);
+
     /**
      * Find pending sessions for a tenant
      */
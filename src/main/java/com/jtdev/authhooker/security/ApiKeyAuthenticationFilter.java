@@ -1,7 +1,5 @@
 package com.jtdev.authhooker.security;
 
-import com.jtdev.authhooker.domain.Tenant;
-import com.jtdev.authhooker.repository.TenantRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,7 +20,7 @@ import java.util.Optional;
 
 /**
  * Filter for API Key-based authentication.
- * Extracts X-API-Key header and validates it against tenant API keys.
+ * Extracts X-API-Key header and validates it against hashed tenant API keys.
  * Used by bots and plugins.
  */
 @Slf4j
@@ -30,7 +28,7 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
     
-    private final TenantRepository tenantRepository;
+    private final ApiKeyService apiKeyService;
     
     @Override
     protected void doFilterInternal(
@@ -47,32 +45,23 @@ public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
             
-            // Find tenant by API key
-            // Note: In production, consider adding an api_key column with index for performance
-            // For now, we'll check settings.api_key
-            Optional<Tenant> tenantOpt = tenantRepository.findAll().stream()
-                    .filter(t -> {
-                        Object storedKey = t.getSettings().get("api_key");
-                        return storedKey != null && storedKey.toString().equals(apiKey);
-                    })
-                    .filter(t -> t.getDeletedAt() == null)
-                    .filter(t -> "active".equals(t.getStatus()))
-                    .findFirst();
+            // Find tenant by API key hash (cached, falls back to indexed lookup)
+            Optional<ApiKeyService.ApiKeyPrincipal> principalOpt = apiKeyService.authenticate(apiKey);
             
-            if (tenantOpt.isEmpty()) {
+            if (principalOpt.isEmpty()) {
                 log.debug("Invalid API key");
                 filterChain.doFilter(request, response);
                 return;
             }
             
-            Tenant tenant = tenantOpt.get();
+            ApiKeyService.ApiKeyPrincipal principal = principalOpt.get();
             
             // Set tenant context
-            TenantContext.setTenantId(tenant.getId());
+            TenantContext.setTenantId(principal.tenantId());
             
             // Set authentication in SecurityContext
             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                    tenant.getOwnerEmail(),
+                    principal.ownerEmail(),
                     null,
                     List.of(new SimpleGrantedAuthority("ROLE_API_CLIENT"))
             );
@@ -80,7 +69,7 @@ public class ApiKeyAuthenticationFilter extends OncePerRequestFilter {
             authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
             SecurityContextHolder.getContext().setAuthentication(authentication);
             
-            log.debug("API key authentication successful for tenant: {}", tenant.getId());
+            log.debug("API key authentication successful for tenant: {}", principal.tenantId());
             
         } catch (Exception e) {
             log.error("API key authentication failed: {}", e.getMessage());
@@ -0,0 +1,76 @@
+package com.jtdev.authhooker.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jtdev.authhooker.repository.TenantRepository;
+import com.jtdev.authhooker.util.ApiKeyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Resolves X-API-Key headers to tenant principals.
+ * Keys are looked up by SHA-256 hash through a unique index, with a bounded
+ * in-memory cache in front so repeat requests from the same bot skip the database.
+ */
+@Slf4j
+@Service
+public class ApiKeyService {
+
+    private final TenantRepository tenantRepository;
+    private final Cache<String, ApiKeyPrincipal> principalCache;
+
+    public ApiKeyService(
+            TenantRepository tenantRepository,
+            @Value("${app.security.api-key-cache.max-size:10000}") long maxSize,
+            @Value("${app.security.api-key-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.tenantRepository = tenantRepository;
+        this.principalCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Authenticate an API key
+     *
+     * @return Tenant principal, or empty if the key is unknown or the tenant is inactive
+     */
+    public Optional<ApiKeyPrincipal> authenticate(String apiKey) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return Optional.empty();
+        }
+
+        String apiKeyHash = ApiKeyUtil.hashApiKey(apiKey);
+
+        ApiKeyPrincipal cached = principalCache.getIfPresent(apiKeyHash);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        // Only successful lookups are cached so a new key works immediately after rotation
+        Optional<ApiKeyPrincipal> principal = tenantRepository.findActiveByApiKeyHash(apiKeyHash)
+                .map(t -> new ApiKeyPrincipal(t.getId(), t.getOwnerEmail()));
+        principal.ifPresent(p -> principalCache.put(apiKeyHash, p));
+
+        return principal;
+    }
+
+    /**
+     * Evict cached principals for a tenant (key rotation, suspension, deletion)
+     */
+    public void invalidateTenant(UUID tenantId) {
+        principalCache.asMap().values().removeIf(p -> p.tenantId().equals(tenantId));
+        log.debug("API key cache invalidated for tenant: {}", tenantId);
+    }
+
+    /**
+     * Authenticated API client
+     */
+    public record ApiKeyPrincipal(UUID tenantId, String ownerEmail) {
+    }
+}
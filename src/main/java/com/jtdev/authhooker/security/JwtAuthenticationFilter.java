@@ -16,6 +16,7 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -47,22 +48,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Extract token
             String token = authHeader.substring(7);
             
-            // Validate token
-            if (!jwtService.validateToken(token)) {
+            // Verify token and extract tenant ID and email (single parse, cached)
+            Optional<JwtService.JwtPrincipal> principalOpt = jwtService.verifyAndExtract(token);
+            
+            if (principalOpt.isEmpty()) {
                 log.debug("Invalid JWT token");
                 filterChain.doFilter(request, response);
                 return;
             }
             
-            // Extract tenant ID and email
-            UUID tenantId = jwtService.extractTenantId(token);
-            String email = jwtService.extractEmail(token);
-            
-            if (tenantId == null || email == null) {
-                log.debug("JWT token missing required claims");
-                filterChain.doFilter(request, response);
-                return;
-            }
+            UUID tenantId = principalOpt.get().tenantId();
+            String email = principalOpt.get().email();
             
             // Set tenant context
             TenantContext.setTenantId(tenantId);
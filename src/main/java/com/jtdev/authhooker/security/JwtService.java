@@ -1,19 +1,24 @@
 package com.jtdev.authhooker.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * Service for JWT token generation and validation
@@ -25,9 +30,23 @@ public class JwtService {
     private final SecretKey secretKey;
     private final long expirationHours;
     
+    // Thread-safe, reused for every verification
+    private final JwtParser parser;
+    
+    // SHA-256(token) -> verified principal; null when disabled
+    private final Cache<String, JwtPrincipal> verifiedTokenCache;
+    
+    public JwtService(String secret, long expirationHours) {
+        this(secret, expirationHours, true, 10_000, 60);
+    }
+    
+    @Autowired
     public JwtService(
             @Value("${app.security.jwt-secret}") String secret,
-            @Value("${app.security.jwt-expiration-hours:24}") long expirationHours) {
+            @Value("${app.security.jwt-expiration-hours:24}") long expirationHours,
+            @Value("${app.security.jwt-cache.enabled:true}") boolean cacheEnabled,
+            @Value("${app.security.jwt-cache.max-size:10000}") long cacheMaxSize,
+            @Value("${app.security.jwt-cache.ttl-seconds:60}") long cacheTtlSeconds) {
         
         if (secret == null || secret.isBlank()) {
             throw new IllegalArgumentException("JWT secret cannot be null or empty. Set app.security.jwt-secret property.");
@@ -41,6 +60,15 @@ public class JwtService {
         
         this.secretKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.expirationHours = expirationHours;
+        this.parser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.verifiedTokenCache = cacheEnabled
+                ? Caffeine.newBuilder()
+                        .maximumSize(cacheMaxSize)
+                        .expireAfter(new TokenExpiry(Duration.ofSeconds(cacheTtlSeconds)))
+                        .build()
+                : null;
         
         log.info("JwtService initialized with expiration: {} hours", expirationHours);
     }
@@ -75,15 +103,60 @@ public class JwtService {
         return token;
     }
     
+    /**
+     * Verify a token and extract the tenant principal in one parse
+     * Repeat calls with the same token are served from the verified-token cache until the
+     * cache TTL or the token's own expiry, whichever comes first
+     *
+     * @return Principal, or empty if the token is invalid, expired or missing tenantId/email
+     */
+    public Optional<JwtPrincipal> verifyAndExtract(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        
+        String cacheKey = null;
+        if (verifiedTokenCache != null) {
+            cacheKey = hashToken(token);
+            JwtPrincipal cached = verifiedTokenCache.getIfPresent(cacheKey);
+            if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+                return Optional.of(cached);
+            }
+        }
+        
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            
+            Object tenantId = claims.get("tenantId");
+            Object email = claims.get("email");
+            if (tenantId == null || email == null) {
+                log.debug("JWT token missing required claims");
+                return Optional.empty();
+            }
+            
+            Date expiration = claims.getExpiration();
+            JwtPrincipal principal = new JwtPrincipal(
+                    UUID.fromString(tenantId.toString()),
+                    email.toString(),
+                    expiration != null ? expiration.toInstant() : Instant.MAX);
+            
+            if (cacheKey != null) {
+                verifiedTokenCache.put(cacheKey, principal);
+            }
+            return Optional.of(principal);
+            
+        } catch (Exception e) {
+            log.debug("JWT token validation failed: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
     /**
      * Validate a JWT token
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token);
+            parser.parseSignedClaims(token);
             return true;
         } catch (Exception e) {
             log.debug("JWT token validation failed: {}", e.getMessage());
@@ -110,11 +183,7 @@ public class JwtService {
      * Extract all claims from token
      */
     public Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
     
     /**
@@ -137,4 +206,46 @@ public class JwtService {
             return true;
         }
     }
+    
+    private static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 should always be available
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+    }
+    
+    /**
+     * Authenticated dashboard user
+     */
+    public record JwtPrincipal(UUID tenantId, String email, Instant expiresAt) {
+    }
+    
+    /**
+     * Cache entries live for the configured TTL, but never past the token's own expiry
+     */
+    private record TokenExpiry(Duration maxTtl) implements Expiry<String, JwtPrincipal> {
+        
+        @Override
+        public long expireAfterCreate(String key, JwtPrincipal principal, long currentTime) {
+            // Compared as Durations: a token without exp (Instant.MAX) is centuries away, beyond toNanos()
+            Duration untilExpiry = Duration.between(Instant.now(), principal.expiresAt());
+            if (untilExpiry.isNegative()) {
+                return 0;
+            }
+            return untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry.toNanos() : maxTtl.toNanos();
+        }
+        
+        @Override
+        public long expireAfterUpdate(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, principal, currentTime);
+        }
+        
+        @Override
+        public long expireAfterRead(String key, JwtPrincipal principal, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -0,0 +1,195 @@
+package com.jtdev.authhooker.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jtdev.authhooker.domain.AuditLog;
+import com.jtdev.authhooker.repository.AuditLogRepository;
+import jakarta.persistence.EntityManager;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Service for bulk audit log exports
+ *
+ * Rows are streamed from a server-side cursor straight into the output and detached as soon as
+ * they are written, so an export holds only one fetch-size chunk in memory regardless of its size.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AuditExportService {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    private static final String[] CSV_COLUMNS = {
+            "id", "timestamp", "tenant_id", "user_id", "actor_type", "actor_id", "action",
+            "resource_type", "resource_id", "ip_address", "user_agent", "details"
+    };
+
+    // Open bounds for time range queries (within PostgreSQL's timestamp range)
+    private static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private final AuditLogRepository auditLogRepository;
+    private final EntityManager entityManager;
+
+    /**
+     * Export format
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+    }
+
+    /**
+     * Export filters; null fields are not filtered on
+     */
+    public record Filter(LocalDateTime from, LocalDateTime to,
+                         String action, String resourceType, String resourceId) {}
+
+    /**
+     * Write all of a tenant's audit logs matching the filter to out, oldest first
+     *
+     * The transaction (and its connection) stays open for the whole export; out is flushed but not closed.
+     *
+     * @return Number of rows written
+     */
+    @Transactional(readOnly = true)
+    public long export(UUID tenantId, Filter filter, Format format, OutputStream out) throws IOException {
+        log.info("Exporting audit logs: tenant={}, format={}, filter={}", tenantId, format, filter);
+
+        try (Stream<AuditLog> rows = auditLogRepository.streamForExport(
+                tenantId,
+                filter.from() != null ? filter.from() : MIN_TIMESTAMP,
+                filter.to() != null ? filter.to() : MAX_TIMESTAMP,
+                filter.action(),
+                filter.resourceType(),
+                filter.resourceId())) {
+
+            long count = switch (format) {
+                case NDJSON -> writeNdjson(rows, out);
+                case CSV -> writeCsv(rows, out);
+            };
+
+            log.info("Exported {} audit logs for tenant {}", count, tenantId);
+            return count;
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-export
+            throw e.getCause();
+        }
+    }
+
+    private long writeNdjson(Stream<AuditLog> rows, OutputStream out) throws IOException {
+        try (JsonGenerator json = OBJECT_MAPPER.getFactory().createGenerator(out)) {
+            json.setRootValueSeparator(new SerializedString("\n"));
+
+            long count = rows.mapToLong(row -> {
+                try {
+                    writeJson(json, row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                entityManager.detach(row);
+                return 1;
+            }).sum();
+
+            if (count > 0) {
+                json.writeRaw('\n');
+            }
+            return count;
+        }
+    }
+
+    private static void writeJson(JsonGenerator json, AuditLog row) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", row.getId());
+        json.writeStringField("timestamp", row.getTimestamp().toString());
+        json.writeStringField("tenantId", row.getTenant() != null ? row.getTenant().getId().toString() : null);
+        json.writeStringField("userId", row.getUser() != null ? row.getUser().getId().toString() : null);
+        json.writeStringField("actorType", row.getActorType());
+        json.writeStringField("actorId", row.getActorId());
+        json.writeStringField("action", row.getAction());
+        json.writeStringField("resourceType", row.getResourceType());
+        json.writeStringField("resourceId", row.getResourceId());
+        json.writeStringField("ipAddress", row.getIpAddress());
+        json.writeStringField("userAgent", row.getUserAgent());
+        json.writeObjectField("details", row.getDetails());
+        json.writeEndObject();
+    }
+
+    private long writeCsv(Stream<AuditLog> rows, OutputStream out) throws IOException {
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeCsvRow(csv, CSV_COLUMNS);
+
+        long count = rows.mapToLong(row -> {
+            try {
+                writeCsvRow(csv,
+                        String.valueOf(row.getId()),
+                        row.getTimestamp().toString(),
+                        row.getTenant() != null ? row.getTenant().getId().toString() : null,
+                        row.getUser() != null ? row.getUser().getId().toString() : null,
+                        row.getActorType(),
+                        row.getActorId(),
+                        row.getAction(),
+                        row.getResourceType(),
+                        row.getResourceId(),
+                        row.getIpAddress(),
+                        row.getUserAgent(),
+                        OBJECT_MAPPER.writeValueAsString(row.getDetails() != null ? row.getDetails() : Map.of()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            entityManager.detach(row);
+            return 1;
+        }).sum();
+
+        csv.flush();
+        return count;
+    }
+
+    private static void writeCsvRow(Writer csv, String... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                csv.write(',');
+            }
+            csv.write(escapeCsv(values[i]));
+        }
+        csv.write("\r\n");
+    }
+
+    /**
+     * Quote a CSV field (RFC 4180) when it contains a delimiter, quote or line break
+     */
+    static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
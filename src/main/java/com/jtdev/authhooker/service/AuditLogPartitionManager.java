@@ -0,0 +1,113 @@
+package com.jtdev.authhooker.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the monthly audit_logs partitions
+ *
+ * Creates partitions ahead of time and enforces retention by detaching and dropping whole
+ * partitions (see V5__partition_audit_logs.sql). A partition is only dropped once its entire
+ * month is older than the retention period, so up to one extra month of logs is kept.
+ * Rows that fell into audit_logs_default because their month was missing are moved into
+ * monthly partitions on the next run (V14__audit_logs_default_partition.sql).
+ */
+@Slf4j
+@Service
+public class AuditLogPartitionManager {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionDays;
+
+    public AuditLogPartitionManager(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.audit.partitions.months-ahead:3}") int monthsAhead,
+            @Value("${app.cleanup.audit-logs-days:90}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Create upcoming partitions and drop expired ones (on startup and daily)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.audit.partitions.cron:0 15 3 * * *}")
+    public void maintainPartitions() {
+        // Independent steps: a failure to create partitions must not stop retention
+        try {
+            ensurePartitions();
+        } catch (Exception e) {
+            log.error("Audit log partition creation failed: {}", e.getMessage(), e);
+        }
+        try {
+            dropExpiredPartitions(retentionDays);
+        } catch (Exception e) {
+            log.error("Audit log partition retention failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ensure partitions exist for the current month, the configured number of months ahead and
+     * every month with rows in the default partition
+     *
+     * @return Names of the partitions covering those months
+     */
+    public List<String> ensurePartitions() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> partitions = new ArrayList<>();
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            partitions.add(createPartition(Timestamp.valueOf(now.plusMonths(i))));
+        }
+
+        // Left over when maintenance fell behind or rows arrived with far-off timestamps
+        List<Timestamp> strayMonths = jdbcTemplate.queryForList(
+                "SELECT DISTINCT date_trunc('month', timestamp) FROM audit_logs_default",
+                Timestamp.class);
+        if (!strayMonths.isEmpty()) {
+            log.warn("Audit log rows found in audit_logs_default for months {}, moving them to monthly partitions",
+                    strayMonths);
+            for (Timestamp month : strayMonths) {
+                partitions.add(createPartition(month));
+            }
+        }
+
+        log.debug("Audit log partitions present: {}", partitions);
+        return partitions;
+    }
+
+    /**
+     * Detach and drop partitions whose whole month is older than daysToKeep
+     *
+     * @return Names of the dropped partitions
+     */
+    public List<String> dropExpiredPartitions(int daysToKeep) {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(daysToKeep);
+
+        List<String> dropped = jdbcTemplate.queryForList(
+                "SELECT drop_audit_log_partitions_before(?)",
+                String.class,
+                Timestamp.valueOf(cutoff));
+
+        if (!dropped.isEmpty()) {
+            log.info("Dropped audit log partitions older than {}: {}", cutoff, dropped);
+        }
+        return dropped;
+    }
+
+    private String createPartition(Timestamp month) {
+        return jdbcTemplate.queryForObject("SELECT create_audit_log_partition(?)", String.class, month);
+    }
+}
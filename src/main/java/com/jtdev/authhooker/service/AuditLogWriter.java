@@ -0,0 +1,307 @@
+package com.jtdev.authhooker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched writer for audit log rows
+ *
+ * Entries are queued once the caller's transaction commits (immediately when there is none)
+ * and inserted by a single background thread in JDBC batches, flushed when batch-size entries
+ * are pending or flush-interval has passed since the first one. When the queue is full the
+ * overflow policy either writes the entry on the caller's thread (caller-runs) or drops it (drop).
+ * Caller-runs writes get their own transaction: after commit the caller's connection is still bound
+ * to the finished transaction, and an insert on it would never be committed.
+ * Pending entries are drained on shutdown.
+ *
+ * With app.audit.async.enabled=false every entry is inserted immediately, inside the caller's transaction.
+ */
+@Slf4j
+@Component
+public class AuditLogWriter {
+
+    static final String INSERT_SQL = """
+            INSERT INTO audit_logs (tenant_id, user_id, actor_type, actor_id, action, resource_type,
+                                    resource_id, details, ip_address, user_agent, timestamp)
+            VALUES (?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), CAST(? AS inet), ?, ?)
+            """;
+
+    private static final String METRIC_PREFIX = "authhooker.audit.";
+
+    // Upper bound on a single queue wait, so stop() is noticed promptly
+    private static final long POLL_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public enum OverflowPolicy { CALLER_RUNS, DROP }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final boolean async;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration shutdownTimeout;
+    private final OverflowPolicy overflowPolicy;
+    private final BlockingQueue<Entry> queue;
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public AuditLogWriter(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.audit.async.enabled:true}") boolean async,
+            @Value("${app.audit.async.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.audit.async.batch-size:200}") int batchSize,
+            @Value("${app.audit.async.flush-interval-ms:500}") long flushIntervalMs,
+            @Value("${app.audit.async.overflow-policy:caller-runs}") String overflowPolicy,
+            @Value("${app.audit.async.shutdown-timeout-seconds:10}") long shutdownTimeoutSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.async = async;
+        this.batchSize = batchSize;
+        this.flushInterval = Duration.ofMillis(flushIntervalMs);
+        this.shutdownTimeout = Duration.ofSeconds(shutdownTimeoutSeconds);
+        this.overflowPolicy = OverflowPolicy.valueOf(
+                overflowPolicy.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder(METRIC_PREFIX + "queue.depth", queue, BlockingQueue::size)
+                .description("Audit log entries waiting to be written")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder(METRIC_PREFIX + "written").register(meterRegistry);
+        this.droppedCounter = Counter.builder(METRIC_PREFIX + "dropped")
+                .description("Audit log entries dropped because the queue was full")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder(METRIC_PREFIX + "failed").register(meterRegistry);
+        this.flushTimer = Timer.builder(METRIC_PREFIX + "flush").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!async) {
+            log.info("Audit log writer running synchronously");
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::runWriter, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Audit log writer started: queueCapacity={}, batchSize={}, flushInterval={}ms, overflowPolicy={}",
+                queue.remainingCapacity(), batchSize, flushInterval.toMillis(), overflowPolicy);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        try {
+            writerThread.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("Audit log writer stopped with {} entries not written", queue.size());
+        }
+    }
+
+    /**
+     * Queue an entry for writing after the current transaction commits
+     */
+    public void write(Entry entry) {
+        if (!async) {
+            // Part of the caller's transaction: failures propagate like any other statement
+            jdbcTemplate.batchUpdate(INSERT_SQL, List.of(entry), 1, this::bind);
+            writtenCounter.increment();
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(entry);
+                }
+            });
+        } else {
+            enqueue(entry);
+        }
+    }
+
+    /**
+     * Number of entries waiting to be written
+     */
+    public int pending() {
+        return queue.size();
+    }
+
+    private void enqueue(Entry entry) {
+        if (running && queue.offer(entry)) {
+            return;
+        }
+
+        if (overflowPolicy == OverflowPolicy.CALLER_RUNS || !running) {
+            // Usually called from afterCommit, where the caller's transaction can no longer commit
+            requiresNew.executeWithoutResult(status -> insert(List.of(entry)));
+        } else {
+            droppedCounter.increment();
+            log.warn("Audit log queue full, dropping entry: tenant={}, action={}", entry.tenantId(), entry.action());
+        }
+    }
+
+    private void runWriter() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+
+        // After stop() the loop keeps going until the queue is empty
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(POLL_SLICE_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                insert(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Audit log writer interrupted with {} entries pending", batch.size() + queue.size());
+                return;
+            } catch (Exception e) {
+                log.error("Audit log writer error: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Add queued entries until the batch is full, the flush interval has passed or the writer is stopping
+     */
+    private void fillBatch(List<Entry> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + flushInterval.toNanos();
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            Entry next = queue.poll(Math.min(remaining, POLL_SLICE_NANOS), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void insert(List<Entry> entries) {
+        Timer.Sample sample = Timer.start();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), this::bind);
+            writtenCounter.increment(entries.size());
+        } catch (DataAccessException e) {
+            if (entries.size() == 1) {
+                failedCounter.increment();
+                log.error("Failed to write audit log entry: tenant={}, action={}: {}",
+                        entries.get(0).tenantId(), entries.get(0).action(), e.getMessage());
+                return;
+            }
+            // Isolate the offending rows so one bad entry does not lose the whole batch
+            log.warn("Audit log batch of {} failed, retrying row by row: {}", entries.size(), e.getMessage());
+            for (Entry entry : entries) {
+                insert(List.of(entry));
+            }
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    private void bind(PreparedStatement ps, Entry entry) throws SQLException {
+        setNullable(ps, 1, entry.tenantId());
+        setNullable(ps, 2, entry.userId());
+        ps.setString(3, entry.actorType());
+        ps.setString(4, entry.actorId());
+        ps.setString(5, entry.action());
+        ps.setString(6, entry.resourceType());
+        ps.setString(7, entry.resourceId());
+        ps.setString(8, toJson(entry.details()));
+        ps.setString(9, entry.ipAddress());
+        ps.setString(10, entry.userAgent());
+        ps.setTimestamp(11, Timestamp.valueOf(entry.timestamp()));
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, UUID value) throws SQLException {
+        if (value != null) {
+            ps.setObject(index, value);
+        } else {
+            ps.setNull(index, Types.OTHER);
+        }
+    }
+
+    private static String toJson(Map<String, Object> details) {
+        if (details == null || details.isEmpty()) {
+            return "{}";
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsString(details);
+        } catch (JsonProcessingException e) {
+            log.warn("Audit details not serializable, storing as string: {}", e.getMessage());
+            return OBJECT_MAPPER.createObjectNode().put("value", details.toString()).toString();
+        }
+    }
+
+    /**
+     * A single audit log row
+     */
+    public record Entry(
+            UUID tenantId,
+            UUID userId,
+            String actorType,
+            String actorId,
+            String action,
+            String resourceType,
+            String resourceId,
+            Map<String, Object> details,
+            String ipAddress,
+            String userAgent,
+            LocalDateTime timestamp
+    ) {}
+}
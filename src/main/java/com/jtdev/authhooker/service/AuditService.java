@@ -1,17 +1,18 @@
 package com.jtdev.authhooker.service;
 
 import com.jtdev.authhooker.domain.AuditLog;
-import com.jtdev.authhooker.domain.Tenant;
-import com.jtdev.authhooker.domain.User;
+import com.jtdev.authhooker.dto.response.CursorPagedResponse;
+import com.jtdev.authhooker.exception.ValidationException;
 import com.jtdev.authhooker.repository.AuditLogRepository;
-import com.jtdev.authhooker.repository.TenantRepository;
-import com.jtdev.authhooker.repository.UserRepository;
+import com.jtdev.authhooker.util.CursorUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -29,36 +30,36 @@ import java.util.UUID;
 public class AuditService {
     
     private final AuditLogRepository auditLogRepository;
-    private final TenantRepository tenantRepository;
-    private final UserRepository userRepository;
+    private final AuditLogWriter auditLogWriter;
+    private final AuditLogPartitionManager auditLogPartitionManager;
+    
+    // Open bounds for time range queries (within PostgreSQL's timestamp range)
+    private static final LocalDateTime MIN_TIMESTAMP = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 0, 0);
     
     /**
      * Log an action
      */
-    public AuditLog logAction(UUID tenantId, UUID userId, String action, 
-                              Map<String, Object> details) {
-        return logAction(tenantId, userId, action, details, null, null);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void logAction(UUID tenantId, UUID userId, String action, 
+                          Map<String, Object> details) {
+        logAction(tenantId, userId, action, details, null, null);
     }
     
     /**
      * Log an action with full context
+     * 
+     * The row is handed to AuditLogWriter and written after the caller's transaction commits;
+     * only ids are recorded, so no tenant or user lookup is needed.
      */
-    public AuditLog logAction(UUID tenantId, UUID userId, String action, 
-                              Map<String, Object> details, String ipAddress, String userAgent) {
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void logAction(UUID tenantId, UUID userId, String action, 
+                          Map<String, Object> details, String ipAddress, String userAgent) {
         log.debug("Logging action: tenant={}, user={}, action={}", tenantId, userId, action);
         
-        // Fetch entities (may be null)
-        Tenant tenant = tenantId != null 
-                ? tenantRepository.findById(tenantId).orElse(null) 
-                : null;
-        
-        User user = userId != null 
-                ? userRepository.findById(userId).orElse(null) 
-                : null;
-        
         // Determine actor
-        String actorType = user != null ? "user" : "system";
-        String actorId = user != null ? user.getId().toString() : null;
+        String actorType = userId != null ? "user" : "system";
+        String actorId = userId != null ? userId.toString() : null;
         
         // Extract resource info from details if present
         String resourceType = details != null && details.containsKey("resourceType")
@@ -69,22 +70,19 @@ public class AuditService {
                 ? (String) details.get("resourceId")
                 : null;
         
-        AuditLog auditLog = AuditLog.builder()
-                .tenant(tenant)
-                .user(user)
-                .actorType(actorType)
-                .actorId(actorId)
-                .action(action)
-                .resourceType(resourceType)
-                .resourceId(resourceId)
-                .details(details != null ? details : Map.of())
-                .ipAddress(ipAddress)
-                .userAgent(userAgent)
-                .build();
-        
-        auditLog = auditLogRepository.save(auditLog);
-        
-        return auditLog;
+        auditLogWriter.write(new AuditLogWriter.Entry(
+                tenantId,
+                userId,
+                actorType,
+                actorId,
+                action,
+                resourceType,
+                resourceId,
+                details != null ? details : Map.of(),
+                ipAddress,
+                userAgent,
+                LocalDateTime.now()
+        ));
     }
     
     /**
@@ -96,22 +94,56 @@ public class AuditService {
     }
     
     /**
-     * Get audit logs for a tenant within a time range with pagination
+     * Get the newest audit logs for a tenant within a time range
      */
     @Transactional(readOnly = true)
     public List<AuditLog> getAuditLogs(UUID tenantId, LocalDateTime from, LocalDateTime to, int limit) {
-        Pageable pageable = PageRequest.of(0, limit);
-        Page<AuditLog> page = auditLogRepository.findByTenantId(tenantId, pageable);
+        return getAuditLogPage(tenantId, from, to, null, limit).getContent();
+    }
+    
+    /**
+     * Get one keyset page of a tenant's audit logs within [from, to), newest first
+     * 
+     * The range and the page position are both applied in SQL, so each page costs
+     * one index range scan regardless of how deep into the history it is.
+     * 
+     * @param from Inclusive lower bound (null for no bound)
+     * @param to Exclusive upper bound (null for no bound)
+     * @param cursor nextCursor of the previous page (null for the first page)
+     * @param limit Maximum rows in the page
+     */
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<AuditLog> getAuditLogPage(UUID tenantId, LocalDateTime from, LocalDateTime to,
+                                                         String cursor, int limit) {
+        LocalDateTime lowerBound = from != null ? from : MIN_TIMESTAMP;
+        LocalDateTime beforeTimestamp = to != null ? to : MAX_TIMESTAMP;
+        long beforeId = Long.MIN_VALUE;
+        
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        if (position != null && position.timestamp().isBefore(beforeTimestamp)) {
+            beforeTimestamp = position.timestamp();
+            beforeId = parseCursorId(position.id());
+        }
         
-        // Filter by date range
-        return page.getContent().stream()
-                .filter(log -> {
-                    LocalDateTime timestamp = log.getTimestamp();
-                    boolean afterFrom = from == null || timestamp.isAfter(from) || timestamp.isEqual(from);
-                    boolean beforeTo = to == null || timestamp.isBefore(to);
-                    return afterFrom && beforeTo;
-                })
-                .toList();
+        // One extra row tells whether another page follows
+        List<AuditLog> rows = auditLogRepository.findPageByTenantId(
+                tenantId, lowerBound, beforeTimestamp, beforeId, Limit.of(limit + 1));
+        
+        if (rows.size() <= limit) {
+            return CursorPagedResponse.of(rows, null);
+        }
+        
+        List<AuditLog> page = List.copyOf(rows.subList(0, limit));
+        AuditLog last = page.get(page.size() - 1);
+        return CursorPagedResponse.of(page, CursorUtil.encode(last.getTimestamp(), last.getId()));
+    }
+    
+    private static long parseCursorId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Invalid cursor", e);
+        }
     }
     
     /**
@@ -150,13 +182,14 @@ public class AuditService {
     
     /**
      * Clean up old audit logs (older than specified days)
+     * 
+     * Drops whole monthly partitions instead of deleting rows.
      */
     public void cleanupOldLogs(int daysToKeep) {
         log.info("Cleaning up audit logs older than {} days", daysToKeep);
         
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
-        auditLogRepository.deleteLogsOlderThan(cutoffDate);
+        List<String> dropped = auditLogPartitionManager.dropExpiredPartitions(daysToKeep);
         
-        log.info("Old audit logs cleaned up (older than {})", cutoffDate);
+        log.info("Old audit logs cleaned up ({} partitions dropped)", dropped.size());
     }
 }
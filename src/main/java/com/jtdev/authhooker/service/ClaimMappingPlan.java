@@ -0,0 +1,191 @@
+package com.jtdev.authhooker.service;
+
+import com.jayway.jsonpath.JsonPath;
+import com.jtdev.authhooker.domain.ClaimMapping;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * A provider's active claim mappings, compiled once and applied to every verification
+ *
+ * Source paths are precompiled JSONPaths (or plain keys), transform regexes are precompiled
+ * Patterns and target fields are pre-split, so applying the plan does no parsing. Mappings run
+ * in priority order against the same claims map, so later mappings see earlier results.
+ * A mapping that cannot be compiled is left out, as it could never have applied.
+ * Immutable and shared across threads.
+ */
+@Slf4j
+final class ClaimMappingPlan {
+
+    static final ClaimMappingPlan EMPTY = new ClaimMappingPlan(null, List.of());
+
+    private final UUID providerId;
+    private final List<CompiledMapping> mappings;
+
+    private ClaimMappingPlan(UUID providerId, List<CompiledMapping> mappings) {
+        this.providerId = providerId;
+        this.mappings = mappings;
+    }
+
+    /**
+     * Compile a provider's active mappings (already in priority order)
+     */
+    static ClaimMappingPlan compile(UUID providerId, List<ClaimMapping> mappings) {
+        List<CompiledMapping> compiled = new ArrayList<>(mappings.size());
+        for (ClaimMapping mapping : mappings) {
+            try {
+                compiled.add(CompiledMapping.of(mapping));
+            } catch (Exception e) {
+                log.warn("Skipping claim mapping {} for provider {}: {}",
+                        mapping.getName(), providerId, e.getMessage());
+            }
+        }
+        return new ClaimMappingPlan(providerId, List.copyOf(compiled));
+    }
+
+    int size() {
+        return mappings.size();
+    }
+
+    /**
+     * Apply the plan to a copy of the raw claims
+     *
+     * The raw claims, including their nested maps, are left unchanged.
+     */
+    Map<String, Object> apply(Map<String, Object> rawClaims) {
+        Map<String, Object> result = new HashMap<>(rawClaims);
+
+        for (CompiledMapping mapping : mappings) {
+            try {
+                mapping.apply(result);
+            } catch (Exception e) {
+                log.warn("Failed to apply claim mapping {} for provider {}: {}",
+                        mapping.name(), providerId, e.getMessage());
+                // Continue with other mappings
+            }
+        }
+
+        return result;
+    }
+
+    private record CompiledMapping(String name, String sourceKey, JsonPath sourcePath,
+                                   Transform transform, String[] target) {
+
+        static CompiledMapping of(ClaimMapping mapping) {
+            String path = mapping.getSourcePath();
+            String field = mapping.getTargetField();
+
+            // Simple path (no JSONPath syntax) is a plain key lookup
+            boolean simple = !path.contains("$") && !path.contains("[") && !path.contains(".");
+            return new CompiledMapping(
+                    mapping.getName(),
+                    simple ? path : null,
+                    simple ? null : JsonPath.compile(path),
+                    Transform.of(mapping.getTransform()),
+                    field.contains(".") ? field.split("\\.") : new String[]{field});
+        }
+
+        void apply(Map<String, Object> claims) {
+            Object value = extract(claims);
+            if (value == null) {
+                log.debug("No value found for mapping: {}", name);
+                return;
+            }
+
+            setNestedField(claims, transform.apply(value));
+        }
+
+        private Object extract(Map<String, Object> claims) {
+            if (sourceKey != null) {
+                return claims.get(sourceKey);
+            }
+            try {
+                return sourcePath.read(claims);
+            } catch (Exception e) {
+                log.debug("Failed to extract value for path {}: {}", sourcePath.getPath(), e.getMessage());
+                return null;
+            }
+        }
+
+        private void setNestedField(Map<String, Object> claims, Object value) {
+            Map<String, Object> current = claims;
+
+            for (int i = 0; i < target.length - 1; i++) {
+                Object next = current.get(target[i]);
+                if (next instanceof Map) {
+                    // Copy before writing: the level may be shared with the caller's raw claims
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> nextMap = new HashMap<>((Map<String, Object>) next);
+                    current.put(target[i], nextMap);
+                    current = nextMap;
+                } else {
+                    // Missing or not navigable, replace with a new level
+                    Map<String, Object> newMap = new HashMap<>();
+                    current.put(target[i], newMap);
+                    current = newMap;
+                }
+            }
+
+            current.put(target[target.length - 1], value);
+        }
+    }
+
+    /**
+     * Value transformations of a mapping (see ClaimMappingRequest.transform)
+     */
+    private record Transform(boolean lowerCase, boolean upperCase, boolean trim,
+                             Pattern regex, String replacement,
+                             boolean hasDefault, Object defaultValue) {
+
+        static final Transform NONE = new Transform(false, false, false, null, null, false, null);
+
+        static Transform of(Map<String, Object> transform) {
+            if (transform == null || transform.isEmpty()) {
+                return NONE;
+            }
+
+            boolean hasRegex = transform.containsKey("regex") && transform.containsKey("replacement");
+            return new Transform(
+                    Boolean.TRUE.equals(transform.get("toLowerCase")),
+                    Boolean.TRUE.equals(transform.get("toUpperCase")),
+                    Boolean.TRUE.equals(transform.get("trim")),
+                    hasRegex ? Pattern.compile((String) transform.get("regex")) : null,
+                    hasRegex ? (String) transform.get("replacement") : null,
+                    transform.containsKey("default"),
+                    transform.get("default"));
+        }
+
+        Object apply(Object value) {
+            Object result = value;
+
+            if (lowerCase) {
+                result = result.toString().toLowerCase();
+            }
+
+            if (upperCase) {
+                result = result.toString().toUpperCase();
+            }
+
+            if (trim) {
+                result = result.toString().trim();
+            }
+
+            if (regex != null) {
+                result = regex.matcher(result.toString()).replaceAll(replacement);
+            }
+
+            // Default value if null/empty
+            if (hasDefault && (result == null || result.toString().isEmpty())) {
+                result = defaultValue;
+            }
+
+            return result;
+        }
+    }
+}
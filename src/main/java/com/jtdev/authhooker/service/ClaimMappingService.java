@@ -1,5 +1,7 @@
 package com.jtdev.authhooker.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.jtdev.authhooker.domain.ClaimMapping;
 import com.jtdev.authhooker.domain.Provider;
 import com.jtdev.authhooker.dto.ClaimMappingRequest;
@@ -7,28 +9,49 @@ import com.jtdev.authhooker.exception.ResourceNotFoundException;
 import com.jtdev.authhooker.exception.ValidationException;
 import com.jtdev.authhooker.repository.ClaimMappingRepository;
 import com.jayway.jsonpath.JsonPath;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 /**
  * Service for managing claim mappings and transformations
+ * 
+ * Active mappings are applied through a per-provider ClaimMappingPlan compiled on first use and
+ * rebuilt after any mapping of the provider is created, updated or deleted.
  */
 @Slf4j
 @Service
 @Transactional
-@RequiredArgsConstructor
 public class ClaimMappingService {
     
     private final ClaimMappingRepository claimMappingRepository;
     private final ProviderService providerService;
     
+    // providerId -> compiled active mappings; evicted on commit of a mapping change
+    private final Cache<UUID, ClaimMappingPlan> planCache;
+    
+    public ClaimMappingService(
+            ClaimMappingRepository claimMappingRepository,
+            ProviderService providerService,
+            @Value("${app.claim-mappings.cache.max-size:10000}") long maxSize,
+            @Value("${app.claim-mappings.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.claimMappingRepository = claimMappingRepository;
+        this.providerService = providerService;
+        this.planCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+    
     /**
      * Create a new claim mapping for a provider
      */
@@ -54,6 +77,7 @@ public class ClaimMappingService {
         
         mapping = claimMappingRepository.save(mapping);
         log.info("Claim mapping created: {} (id={})", mapping.getName(), mapping.getId());
+        evictPlan(providerId);
         
         return mapping;
     }
@@ -110,6 +134,7 @@ public class ClaimMappingService {
         
         mapping = claimMappingRepository.save(mapping);
         log.info("Claim mapping updated: {}", mappingId);
+        evictPlan(mapping.getProvider().getId());
         
         return mapping;
     }
@@ -128,159 +153,48 @@ public class ClaimMappingService {
         
         claimMappingRepository.save(mapping);
         log.info("Claim mapping deleted (soft): {}", id);
+        evictPlan(mapping.getProvider().getId());
     }
     
     /**
      * Apply all active mappings for a provider to raw claims
+     * 
+     * Uses the provider's cached ClaimMappingPlan; the mappings are only queried and compiled
+     * on a cache miss. Runs without a transaction of its own so cache hits touch no connection.
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Map<String, Object> applyMappings(UUID providerId, Map<String, Object> rawClaims) {
         if (rawClaims == null || rawClaims.isEmpty()) {
             return Map.of();
         }
         
-        // Get active mappings for provider (ordered by priority DESC)
-        List<ClaimMapping> mappings = claimMappingRepository.findActiveByProviderId(providerId);
-        
-        if (mappings.isEmpty()) {
-            return new HashMap<>(rawClaims);
-        }
-        
-        Map<String, Object> result = new HashMap<>(rawClaims);
-        
-        // Apply each mapping in priority order
-        for (ClaimMapping mapping : mappings) {
-            try {
-                applyMapping(result, mapping);
-            } catch (Exception e) {
-                log.warn("Failed to apply claim mapping {} for provider {}: {}", 
-                        mapping.getName(), providerId, e.getMessage());
-                // Continue with other mappings
-            }
-        }
-        
-        return result;
+        return getPlan(providerId).apply(rawClaims);
     }
     
     /**
-     * Apply a single mapping to claims
+     * The provider's compiled active mappings (ordered by priority DESC)
      */
-    private void applyMapping(Map<String, Object> claims, ClaimMapping mapping) {
-        try {
-            // Extract value using JSONPath
-            Object value = extractValue(claims, mapping.getSourcePath());
-            
-            if (value == null) {
-                log.debug("No value found for path: {}", mapping.getSourcePath());
-                return;
-            }
-            
-            // Apply transformations
-            Object transformedValue = applyTransformations(value, mapping.getTransform());
-            
-            // Set target field
-            setNestedField(claims, mapping.getTargetField(), transformedValue);
-            
-        } catch (Exception e) {
-            log.error("Error applying claim mapping {}: {}", mapping.getName(), e.getMessage());
-            throw new ValidationException("Failed to apply claim mapping: " + mapping.getName(), e);
-        }
+    ClaimMappingPlan getPlan(UUID providerId) {
+        return planCache.get(providerId, id ->
+                ClaimMappingPlan.compile(id, claimMappingRepository.findActiveByProviderId(id)));
     }
     
     /**
-     * Extract value from claims using JSONPath
+     * Drop a provider's cached plan once the current transaction commits
      */
-    private Object extractValue(Map<String, Object> claims, String path) {
-        try {
-            // Simple path (no JSONPath syntax)
-            if (!path.contains("$") && !path.contains("[") && !path.contains(".")) {
-                return claims.get(path);
-            }
-            
-            // JSONPath
-            return JsonPath.read(claims, path);
-            
-        } catch (Exception e) {
-            log.debug("Failed to extract value for path {}: {}", path, e.getMessage());
-            return null;
+    private void evictPlan(UUID providerId) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    planCache.invalidate(providerId);
+                }
+            });
+        } else {
+            planCache.invalidate(providerId);
         }
     }
     
-    /**
-     * Apply transformations to a value
-     */
-    private Object applyTransformations(Object value, Map<String, Object> transform) {
-        if (transform == null || transform.isEmpty()) {
-            return value;
-        }
-        
-        Object result = value;
-        
-        // String transformations
-        if (transform.containsKey("toLowerCase") && Boolean.TRUE.equals(transform.get("toLowerCase"))) {
-            result = result.toString().toLowerCase();
-        }
-        
-        if (transform.containsKey("toUpperCase") && Boolean.TRUE.equals(transform.get("toUpperCase"))) {
-            result = result.toString().toUpperCase();
-        }
-        
-        if (transform.containsKey("trim") && Boolean.TRUE.equals(transform.get("trim"))) {
-            result = result.toString().trim();
-        }
-        
-        // Regex replacement
-        if (transform.containsKey("regex") && transform.containsKey("replacement")) {
-            String regex = (String) transform.get("regex");
-            String replacement = (String) transform.get("replacement");
-            result = result.toString().replaceAll(regex, replacement);
-        }
-        
-        // Default value if null/empty
-        if (transform.containsKey("default") && (result == null || result.toString().isEmpty())) {
-            result = transform.get("default");
-        }
-        
-        return result;
-    }
-    
-    /**
-     * Set a nested field in claims map
-     */
-    private void setNestedField(Map<String, Object> claims, String field, Object value) {
-        if (!field.contains(".")) {
-            // Simple field
-            claims.put(field, value);
-            return;
-        }
-        
-        // Nested field (e.g., "user.profile.name")
-        String[] parts = field.split("\\.");
-        Map<String, Object> current = claims;
-        
-        for (int i = 0; i < parts.length - 1; i++) {
-            String part = parts[i];
-            
-            if (!current.containsKey(part)) {
-                current.put(part, new HashMap<String, Object>());
-            }
-            
-            Object next = current.get(part);
-            if (!(next instanceof Map)) {
-                // Can't navigate further, overwrite
-                Map<String, Object> newMap = new HashMap<>();
-                current.put(part, newMap);
-                current = newMap;
-            } else {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> nextMap = (Map<String, Object>) next;
-                current = nextMap;
-            }
-        }
-        
-        current.put(parts[parts.length - 1], value);
-    }
-    
     /**
      * Validate JSONPath expression
      */
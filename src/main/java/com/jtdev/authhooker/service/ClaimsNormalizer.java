@@ -2,13 +2,16 @@ package com.jtdev.authhooker.service;
 
 import com.jtdev.authhooker.domain.Provider;
 import com.jtdev.authhooker.dto.NormalizedClaims;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Service for normalizing OAuth/OIDC claims from various providers
@@ -16,11 +19,20 @@ import java.util.Map;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ClaimsNormalizer {
     
     private final ClaimMappingService claimMappingService;
     
+    // Raw claims kept on the user (empty = keep all)
+    private final Set<String> retainedRawClaims;
+    
+    public ClaimsNormalizer(
+            ClaimMappingService claimMappingService,
+            @Value("${app.users.raw-claims.retained:}") Set<String> retainedRawClaims) {
+        this.claimMappingService = claimMappingService;
+        this.retainedRawClaims = retainedRawClaims != null ? Set.copyOf(retainedRawClaims) : Set.of();
+    }
+    
     /**
      * Normalize claims from various providers to standard format
      * 
@@ -38,23 +50,27 @@ public class ClaimsNormalizer {
         
         String providerType = provider.getProviderType().toLowerCase();
         
+        // Apply the provider's claim mappings first so mapped fields feed the standard claims
+        Map<String, Object> claims = claimMappingService.applyMappings(provider.getId(), rawClaims);
+        
         // Build normalized claims based on provider type
         NormalizedClaims.NormalizedClaimsBuilder builder = NormalizedClaims.builder();
         
         // Extract standard OIDC claims
-        builder.subject(extractSubject(rawClaims, providerType));
-        builder.email(extractEmail(rawClaims, providerType));
-        builder.emailDomain(extractEmailDomain(extractEmail(rawClaims, providerType)));
-        builder.name(extractName(rawClaims, providerType));
-        builder.givenName(extractGivenName(rawClaims, providerType));
-        builder.familyName(extractFamilyName(rawClaims, providerType));
-        builder.avatarUrl(extractAvatarUrl(rawClaims, providerType));
-        builder.verifiedEmail(extractEmailVerified(rawClaims, providerType));
-        builder.groups(extractGroups(rawClaims, provider));
-        builder.locale(extractLocale(rawClaims, providerType));
+        builder.subject(extractSubject(claims, providerType));
+        builder.email(extractEmail(claims, providerType));
+        builder.emailDomain(extractEmailDomain(extractEmail(claims, providerType)));
+        builder.name(extractName(claims, providerType));
+        builder.givenName(extractGivenName(claims, providerType));
+        builder.familyName(extractFamilyName(claims, providerType));
+        builder.avatarUrl(extractAvatarUrl(claims, providerType));
+        builder.verifiedEmail(extractEmailVerified(claims, providerType));
+        builder.groups(extractGroups(claims, provider));
+        builder.locale(extractLocale(claims, providerType));
+        builder.customClaims(extractMappedClaims(rawClaims, claims));
         
-        // Store raw claims for reference
-        builder.rawClaims(rawClaims);
+        // Store raw claims for reference (only the retained ones, if an allow-list is configured)
+        builder.rawClaims(retainRawClaims(rawClaims));
         
         NormalizedClaims normalized = builder.build();
         
@@ -170,6 +186,36 @@ public class ClaimsNormalizer {
         return groups;
     }
     
+    /**
+     * Filter raw claims down to the configured allow-list (app.users.raw-claims.retained)
+     */
+    private Map<String, Object> retainRawClaims(Map<String, Object> rawClaims) {
+        if (retainedRawClaims.isEmpty() || rawClaims == null) {
+            return rawClaims;
+        }
+        
+        Map<String, Object> retained = new HashMap<>();
+        for (String claim : retainedRawClaims) {
+            if (rawClaims.containsKey(claim)) {
+                retained.put(claim, rawClaims.get(claim));
+            }
+        }
+        return retained;
+    }
+    
+    /**
+     * Top-level claims set or changed by the provider's claim mappings
+     */
+    private Map<String, Object> extractMappedClaims(Map<String, Object> rawClaims, Map<String, Object> claims) {
+        Map<String, Object> mapped = new HashMap<>();
+        claims.forEach((key, value) -> {
+            if (!Objects.equals(rawClaims.get(key), value)) {
+                mapped.put(key, value);
+            }
+        });
+        return mapped;
+    }
+    
     // Private helper methods for extracting specific claims
     
     private String extractSubject(Map<String, Object> claims, String providerType) {
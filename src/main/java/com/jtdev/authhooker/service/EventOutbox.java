@@ -0,0 +1,80 @@
+package com.jtdev.authhooker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Records domain events in event_outbox (V9__event_outbox.sql)
+ *
+ * Events are inserted in the caller's transaction, so they exist exactly when the change they
+ * describe commits; OutboxRelay publishes them to Kafka afterwards.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventOutbox {
+
+    public static final String USER_CREATED = "user.created";
+    public static final String USER_VERIFIED = "user.verified";
+    public static final String PLATFORM_LINKED = "platform.linked";
+    public static final String PLATFORM_UNLINKED = "platform.unlinked";
+    public static final String ROLES_CHANGED = "roles.changed";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String INSERT_SQL = """
+            INSERT INTO event_outbox (tenant_id, event_type, aggregate_id, payload)
+            VALUES (?, ?, ?, CAST(? AS jsonb))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Record one event
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(UUID tenantId, String eventType, UUID aggregateId, Map<String, Object> payload) {
+        appendAll(List.of(new Event(tenantId, eventType, aggregateId, payload)));
+    }
+
+    /**
+     * Record several events with one JDBC batch
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> args = new ArrayList<>(events.size());
+        for (Event event : events) {
+            args.add(new Object[]{event.tenantId(), event.type(), event.aggregateId(), toJson(event.payload())});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+        log.debug("Recorded {} outbox events", events.size());
+    }
+
+    private static String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload != null ? payload : Map.of());
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize event payload", e);
+        }
+    }
+
+    /**
+     * A domain event; aggregateId is the user or mapping it concerns
+     */
+    public record Event(UUID tenantId, String type, UUID aggregateId, Map<String, Object> payload) {
+    }
+}
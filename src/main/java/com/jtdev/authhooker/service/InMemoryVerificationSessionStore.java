@@ -0,0 +1,151 @@
+package com.jtdev.authhooker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.jtdev.authhooker.domain.VerificationSession;
+import com.jtdev.authhooker.repository.ProviderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sessions held in process, keyed by state token (app.oauth.sessions.store=memory)
+ *
+ * For single-node deployments only: a callback must reach the instance that started its login,
+ * and a restart drops in-flight logins. Each entry expires at its session's expiresAt; the cache
+ * is bounded, evicting the least recently used sessions when full. Caffeine stripes its internal
+ * buffers, so concurrent logins do not contend on one lock. Callers get copies, never the stored
+ * session. Size and evictions are published as cache.* meters (cache=verification_sessions).
+ */
+public class InMemoryVerificationSessionStore implements VerificationSessionStore {
+
+    private static final String CACHE_NAME = "verification_sessions";
+
+    private final ProviderRepository providerRepository;
+    private final Cache<String, Entry> sessions;
+
+    public InMemoryVerificationSessionStore(ProviderRepository providerRepository, MeterRegistry meterRegistry,
+                                            long maxSize) {
+        this.providerRepository = providerRepository;
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilSessionExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, CACHE_NAME);
+    }
+
+    @Override
+    public VerificationSession save(VerificationSession session) {
+        if (session.getId() == null) {
+            session.setId(UUID.randomUUID());
+        }
+        sessions.put(session.getStateToken(), new Entry(copy(session), session.getProvider().getId()));
+        return session;
+    }
+
+    @Override
+    public Optional<VerificationSession> findByStateToken(String stateToken) {
+        Entry entry = sessions.getIfPresent(stateToken);
+        if (entry == null) {
+            return Optional.empty();
+        }
+
+        // Loaded per lookup so the callback sees the provider's current configuration;
+        // the provider's tenant is the session's tenant (checked when the session was created)
+        return providerRepository.findWithTenantById(entry.providerId()).map(provider -> {
+            VerificationSession session = copy(entry.session());
+            session.setProvider(provider);
+            session.setTenant(provider.getTenant());
+            return session;
+        });
+    }
+
+    @Override
+    public boolean completePending(VerificationSession session, LocalDateTime completedAt,
+                                   Map<String, Object> sessionData) {
+        AtomicBoolean completed = new AtomicBoolean();
+        sessions.asMap().computeIfPresent(session.getStateToken(), (stateToken, entry) -> {
+            if (!entry.session().isPending() || !entry.session().getExpiresAt().isAfter(completedAt)) {
+                return entry;
+            }
+            VerificationSession updated = copy(entry.session());
+            updated.setStatus("completed");
+            updated.setCompletedAt(completedAt);
+            updated.setSessionData(sessionData);
+            completed.set(true);
+            return new Entry(updated, entry.providerId());
+        });
+        return completed.get();
+    }
+
+    @Override
+    public boolean expire(String stateToken) {
+        return sessions.asMap().computeIfPresent(stateToken, (token, entry) -> {
+            VerificationSession updated = copy(entry.session());
+            updated.expire();
+            return new Entry(updated, entry.providerId());
+        }) != null;
+    }
+
+    @Override
+    public int purgeExpired(LocalDateTime now, LocalDateTime retainUntil) {
+        // Entries already expire on their own; this only runs the pending cleanup now
+        long before = sessions.estimatedSize();
+        sessions.cleanUp();
+        return (int) Math.max(0, before - sessions.estimatedSize());
+    }
+
+    private static VerificationSession copy(VerificationSession session) {
+        return VerificationSession.builder()
+                .id(session.getId())
+                .stateToken(session.getStateToken())
+                .codeVerifier(session.getCodeVerifier())
+                .nonce(session.getNonce())
+                .platformType(session.getPlatformType())
+                .platformUserId(session.getPlatformUserId())
+                .redirectUrl(session.getRedirectUrl())
+                .sessionData(session.getSessionData() != null ? new HashMap<>(session.getSessionData()) : Map.of())
+                .status(session.getStatus())
+                .completedAt(session.getCompletedAt())
+                .expiresAt(session.getExpiresAt())
+                .createdAt(session.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * A stored session (without tenant and provider entities) and its provider
+     */
+    private record Entry(VerificationSession session, UUID providerId) {
+    }
+
+    /**
+     * Entries live until their session's expiresAt; completing or expiring a session keeps that deadline
+     */
+    private static class UntilSessionExpiry implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String stateToken, Entry entry, long currentTime) {
+            Duration remaining = Duration.between(LocalDateTime.now(), entry.session().getExpiresAt());
+            return Math.max(0, remaining.toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String stateToken, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String stateToken, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.domain.VerificationSession;
+import com.jtdev.authhooker.repository.VerificationSessionRepository;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Sessions in the verification_sessions table (app.oauth.sessions.store=jpa)
+ *
+ * Finished sessions are kept for reference until the retention window passes.
+ */
+@RequiredArgsConstructor
+public class JpaVerificationSessionStore implements VerificationSessionStore {
+
+    private final VerificationSessionRepository sessionRepository;
+
+    @Override
+    public VerificationSession save(VerificationSession session) {
+        return sessionRepository.save(session);
+    }
+
+    @Override
+    public Optional<VerificationSession> findByStateToken(String stateToken) {
+        // Tenant and provider come with the session; callers use both
+        return sessionRepository.findWithTenantAndProviderByStateToken(stateToken);
+    }
+
+    @Override
+    public boolean completePending(VerificationSession session, LocalDateTime completedAt,
+                                   Map<String, Object> sessionData) {
+        return sessionRepository.completePending(session.getId(), completedAt, sessionData) == 1;
+    }
+
+    @Override
+    public boolean expire(String stateToken) {
+        Optional<VerificationSession> session = sessionRepository.findByStateToken(stateToken);
+        session.ifPresent(s -> {
+            s.expire();
+            sessionRepository.save(s);
+        });
+        return session.isPresent();
+    }
+
+    @Override
+    public int purgeExpired(LocalDateTime now, LocalDateTime retainUntil) {
+        return sessionRepository.expireOldSessions(now) + sessionRepository.deleteOldSessions(retainUntil);
+    }
+}
@@ -5,9 +5,16 @@ import com.jtdev.authhooker.dto.OidcConfiguration;
 import com.jtdev.authhooker.dto.TokenResponse;
 import com.jtdev.authhooker.exception.InvalidIdTokenException;
 import com.jtdev.authhooker.exception.TokenExchangeException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.JwtParserBuilder;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.SignatureException;
+import io.jsonwebtoken.ProtectedHeader;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,10 +27,6 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 
-import java.math.BigInteger;
-import java.security.KeyFactory;
-import java.security.PublicKey;
-import java.security.spec.RSAPublicKeySpec;
 import java.time.Duration;
 import java.util.*;
 
@@ -35,8 +38,9 @@ import java.util.*;
 @RequiredArgsConstructor
 public class OidcClient {
     
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient idpWebClient;
     private final EncryptionService encryptionService;
+    private final OidcMetadataCache metadataCache;
     
     @Value("${app.oauth.callback-base-url:https://auth.javadevjt.tech}")
     private String callbackBaseUrl;
@@ -44,11 +48,15 @@ public class OidcClient {
     @Value("${app.oauth.timeout-seconds:10}")
     private int timeoutSeconds;
     
-    // Cache for JWKS keys (provider ID -> public keys)
-    private final Map<UUID, Map<String, PublicKey>> jwksCache = new HashMap<>();
+    // Shared, thread-safe mapper for decoding unsigned token payloads
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<>() {};
     
-    // Cache for discovery documents (issuer -> config)
-    private final Map<String, OidcConfiguration> discoveryCache = new HashMap<>();
+    // Prebuilt ID token parsers per provider configuration
+    private final Cache<ParserKey, JwtParser> parserCache = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
     
     /**
      * Build OAuth authorization URL with PKCE
@@ -119,6 +127,30 @@ public class OidcClient {
      * @return Token response with id_token, access_token, refresh_token
      */
     public TokenResponse exchangeCodeForTokens(Provider provider, String code, String codeVerifier) {
+        // Configuration and decryption errors are thrown here, before any request is made
+        Mono<TokenResponse> exchange = exchangeCodeForTokensAsync(provider, code, codeVerifier);
+        
+        try {
+            return exchange.block();
+        } catch (TokenExchangeException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Unexpected error during token exchange for provider {}: {}", 
+                    provider.getId(), e.getMessage(), e);
+            throw new TokenExchangeException(
+                "Unexpected error during token exchange: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Exchange authorization code for tokens without blocking the caller
+     * 
+     * @param provider The OIDC provider
+     * @param code Authorization code from callback
+     * @param codeVerifier PKCE code verifier
+     * @return Token response; request errors are signalled as TokenExchangeException
+     */
+    public Mono<TokenResponse> exchangeCodeForTokensAsync(Provider provider, String code, String codeVerifier) {
         log.info("Exchanging authorization code for tokens: provider={}", provider.getId());
         
         Map<String, Object> config = provider.getConfig();
@@ -148,39 +180,72 @@ public class OidcClient {
         formData.add("client_secret", clientSecret);
         formData.add("code_verifier", codeVerifier);
         
-        // Make token exchange request
-        WebClient webClient = webClientBuilder.build();
+        // Make token exchange request over the shared IdP connection pool
+        return idpWebClient.post()
+                .uri(tokenEndpoint)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData(formData))
+                .retrieve()
+                .bodyToMono(TokenResponse.class)
+                .timeout(provider.httpTimeout(Duration.ofSeconds(timeoutSeconds)))
+                .onErrorMap(e -> !(e instanceof TokenExchangeException), e -> {
+                    log.error("Token exchange failed for provider {}: {}", 
+                            provider.getId(), e.getMessage());
+                    return new TokenExchangeException(
+                        "Failed to exchange authorization code for tokens: " + e.getMessage(), e);
+                })
+                .filter(tokenResponse -> tokenResponse.getIdToken() != null)
+                .switchIfEmpty(Mono.error(() -> 
+                    new TokenExchangeException("Token response is null or missing ID token")))
+                .doOnNext(tokenResponse -> 
+                    log.info("Token exchange successful for provider: {}", provider.getId()));
+    }
+    
+    /**
+     * Verify ID token and return its claims
+     * 
+     * Single pass: the token is decoded and parsed once; the signing key is resolved
+     * from the cached JWKS by kid, and the parser for the provider is reused across calls.
+     * 
+     * @param provider The OIDC provider
+     * @param idToken JWT ID token from token response
+     * @return Verified claims
+     * @throws InvalidIdTokenException if the token is malformed, unsigned, expired or not for this client
+     */
+    public Map<String, Object> verifyIdToken(Provider provider, String idToken) {
+        log.debug("Verifying ID token for provider: {}", provider.getId());
+        
+        String jwksUri = (String) provider.getConfig().get("jwks_uri");
+        if (jwksUri == null || jwksUri.isBlank()) {
+            log.warn("Provider {} missing jwks_uri, skipping signature verification", 
+                    provider.getId());
+            // For providers without JWKS (like GitHub), skip signature validation
+            // but still parse and validate claims
+            return verifyUnsignedIdTokenClaims(provider, idToken);
+        }
         
         try {
-            TokenResponse tokenResponse = webClient.post()
-                    .uri(tokenEndpoint)
-                    .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                    .body(BodyInserters.fromFormData(formData))
-                    .retrieve()
-                    .bodyToMono(TokenResponse.class)
-                    .timeout(Duration.ofSeconds(timeoutSeconds))
-                    .onErrorResume(e -> {
-                        log.error("Token exchange failed for provider {}: {}", 
-                                provider.getId(), e.getMessage());
-                        return Mono.error(new TokenExchangeException(
-                            "Failed to exchange authorization code for tokens: " + e.getMessage(), e));
-                    })
-                    .block();
+            Claims claims = getParser(provider, jwksUri)
+                    .parseSignedClaims(idToken)
+                    .getPayload();
             
-            if (tokenResponse == null || tokenResponse.getIdToken() == null) {
-                throw new TokenExchangeException("Token response is null or missing ID token");
+            // Validate issued time (not in the future)
+            Date issuedAt = claims.getIssuedAt();
+            if (issuedAt != null && issuedAt.after(new Date())) {
+                throw new InvalidIdTokenException("ID token issued in the future: " + issuedAt);
             }
             
-            log.info("Token exchange successful for provider: {}", provider.getId());
-            return tokenResponse;
+            log.debug("ID token verification successful");
+            return toClaimsMap(claims);
             
-        } catch (TokenExchangeException e) {
+        } catch (InvalidIdTokenException e) {
+            log.error("ID token validation failed for provider {}: {}", 
+                    provider.getId(), e.getMessage());
             throw e;
-        } catch (Exception e) {
-            log.error("Unexpected error during token exchange for provider {}: {}", 
-                    provider.getId(), e.getMessage(), e);
-            throw new TokenExchangeException(
-                "Unexpected error during token exchange: " + e.getMessage(), e);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.error("ID token validation failed for provider {}: {}", 
+                    provider.getId(), e.getMessage());
+            throw new InvalidIdTokenException("ID token validation failed: " + e.getMessage(), e);
         }
     }
     
@@ -192,67 +257,10 @@ public class OidcClient {
      * @return true if valid, false otherwise
      */
     public boolean validateIdToken(Provider provider, String idToken) {
-        log.debug("Validating ID token for provider: {}", provider.getId());
-        
         try {
-            Map<String, Object> config = provider.getConfig();
-            
-            // Get JWKS URI
-            String jwksUri = (String) config.get("jwks_uri");
-            if (jwksUri == null || jwksUri.isBlank()) {
-                log.warn("Provider {} missing jwks_uri, skipping signature verification", 
-                        provider.getId());
-                // For providers without JWKS (like GitHub), skip signature validation
-                // but still parse and validate claims
-                return validateIdTokenClaims(provider, idToken);
-            }
-            
-            // Fetch JWKS if not cached
-            Map<String, PublicKey> publicKeys = getOrFetchJwks(provider.getId(), jwksUri);
-            
-            // Parse JWT header to get key ID (kid)
-            String[] parts = idToken.split("\\.");
-            if (parts.length != 3) {
-                throw new InvalidIdTokenException("Invalid JWT format");
-            }
-            
-            String headerJson = new String(Base64.getUrlDecoder().decode(parts[0]));
-            @SuppressWarnings("unchecked")
-            Map<String, Object> header = new com.fasterxml.jackson.databind.ObjectMapper()
-                    .readValue(headerJson, Map.class);
-            
-            String kid = (String) header.get("kid");
-            
-            // Get the public key for this kid
-            PublicKey publicKey = publicKeys.get(kid);
-            if (publicKey == null) {
-                log.warn("Public key not found for kid: {}, refreshing JWKS", kid);
-                // Refresh JWKS cache and try again
-                publicKeys = fetchJwks(provider.getId(), jwksUri);
-                publicKey = publicKeys.get(kid);
-                
-                if (publicKey == null) {
-                    throw new InvalidIdTokenException("Public key not found for kid: " + kid);
-                }
-            }
-            
-            // Verify JWT signature and parse claims
-            Claims claims = Jwts.parser()
-                    .verifyWith(publicKey)
-                    .build()
-                    .parseSignedClaims(idToken)
-                    .getPayload();
-            
-            // Validate claims
-            return validateClaims(provider, claims);
-            
-        } catch (SignatureException e) {
-            log.error("ID token signature validation failed for provider {}: {}", 
-                    provider.getId(), e.getMessage());
-            return false;
-        } catch (Exception e) {
-            log.error("ID token validation failed for provider {}: {}", 
-                    provider.getId(), e.getMessage(), e);
+            verifyIdToken(provider, idToken);
+            return true;
+        } catch (InvalidIdTokenException e) {
             return false;
         }
     }
@@ -271,15 +279,14 @@ public class OidcClient {
                 throw new InvalidIdTokenException("Invalid JWT format");
             }
             
-            String payloadJson = new String(Base64.getUrlDecoder().decode(parts[1]));
-            
-            @SuppressWarnings("unchecked")
-            Map<String, Object> claims = new com.fasterxml.jackson.databind.ObjectMapper()
-                    .readValue(payloadJson, Map.class);
+            Map<String, Object> claims = OBJECT_MAPPER.readValue(
+                    Base64.getUrlDecoder().decode(parts[1]), CLAIMS_TYPE);
             
             log.debug("Extracted {} claims from ID token", claims.size());
             return claims;
             
+        } catch (InvalidIdTokenException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to extract claims from ID token: {}", e.getMessage(), e);
             throw new InvalidIdTokenException("Failed to extract claims: " + e.getMessage(), e);
@@ -295,64 +302,14 @@ public class OidcClient {
     public OidcConfiguration discoverConfiguration(String issuerUri) {
         log.info("Discovering OIDC configuration for issuer: {}", issuerUri);
         
-        // Check cache
-        if (discoveryCache.containsKey(issuerUri)) {
-            log.debug("Returning cached discovery document for: {}", issuerUri);
-            return discoveryCache.get(issuerUri);
-        }
-        
-        // Build discovery URL
-        String discoveryUrl = issuerUri.endsWith("/")
-                ? issuerUri + ".well-known/openid-configuration"
-                : issuerUri + "/.well-known/openid-configuration";
-        
-        // Fetch discovery document
-        WebClient webClient = webClientBuilder.build();
-        
-        try {
-            OidcConfiguration config = webClient.get()
-                    .uri(discoveryUrl)
-                    .retrieve()
-                    .bodyToMono(OidcConfiguration.class)
-                    .timeout(Duration.ofSeconds(timeoutSeconds))
-                    .onErrorResume(e -> {
-                        log.error("Failed to fetch OIDC discovery document from {}: {}", 
-                                discoveryUrl, e.getMessage());
-                        return Mono.empty();
-                    })
-                    .block();
-            
-            if (config == null) {
-                throw new IllegalArgumentException(
-                    "Failed to retrieve OIDC discovery document from: " + discoveryUrl);
-            }
-            
-            // Validate required fields
-            if (config.getAuthorizationEndpoint() == null || 
-                config.getTokenEndpoint() == null) {
-                throw new IllegalArgumentException(
-                    "Invalid OIDC discovery document: missing required endpoints");
-            }
-            
-            // Cache the configuration
-            discoveryCache.put(issuerUri, config);
-            
-            log.info("OIDC configuration discovered successfully for: {}", issuerUri);
-            return config;
-            
-        } catch (Exception e) {
-            log.error("Failed to discover OIDC configuration for {}: {}", 
-                    issuerUri, e.getMessage(), e);
-            throw new IllegalArgumentException(
-                "Failed to discover OIDC configuration: " + e.getMessage(), e);
-        }
+        return metadataCache.getDiscovery(issuerUri);
     }
     
     /**
      * Clear JWKS cache for a provider (useful for key rotation)
      */
     public void clearJwksCache(UUID providerId) {
-        jwksCache.remove(providerId);
+        metadataCache.evictJwks(providerId);
         log.info("JWKS cache cleared for provider: {}", providerId);
     }
     
@@ -360,157 +317,69 @@ public class OidcClient {
      * Clear discovery cache for an issuer
      */
     public void clearDiscoveryCache(String issuer) {
-        discoveryCache.remove(issuer);
+        metadataCache.evictDiscovery(issuer);
         log.info("Discovery cache cleared for issuer: {}", issuer);
     }
     
     // Private helper methods
     
-    private Map<String, PublicKey> getOrFetchJwks(UUID providerId, String jwksUri) {
-        if (jwksCache.containsKey(providerId)) {
-            return jwksCache.get(providerId);
-        }
-        return fetchJwks(providerId, jwksUri);
-    }
-    
-    private Map<String, PublicKey> fetchJwks(UUID providerId, String jwksUri) {
-        log.info("Fetching JWKS for provider {} from: {}", providerId, jwksUri);
+    private JwtParser getParser(Provider provider, String jwksUri) {
+        String issuer = (String) provider.getConfig().get("issuer");
+        ParserKey key = new ParserKey(provider.getId(), jwksUri, issuer, provider.getClientId());
         
-        WebClient webClient = webClientBuilder.build();
-        
-        try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> jwks = webClient.get()
-                    .uri(jwksUri)
-                    .retrieve()
-                    .bodyToMono(Map.class)
-                    .timeout(Duration.ofSeconds(timeoutSeconds))
-                    .block();
-            
-            if (jwks == null || !jwks.containsKey("keys")) {
-                throw new InvalidIdTokenException("Invalid JWKS response");
+        return parserCache.get(key, k -> {
+            JwtParserBuilder builder = Jwts.parser()
+                    .keyLocator(header -> metadataCache.getSigningKey(
+                            k.providerId(),
+                            k.jwksUri(),
+                            header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null))
+                    .requireAudience(k.clientId());
+            if (k.issuer() != null) {
+                builder.requireIssuer(k.issuer());
             }
-            
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> keys = (List<Map<String, Object>>) jwks.get("keys");
-            
-            Map<String, PublicKey> publicKeys = new HashMap<>();
-            
-            for (Map<String, Object> key : keys) {
-                String kid = (String) key.get("kid");
-                String kty = (String) key.get("kty");
-                
-                if (!"RSA".equals(kty)) {
-                    log.debug("Skipping non-RSA key: {}", kid);
-                    continue;
-                }
-                
-                String n = (String) key.get("n");
-                String e = (String) key.get("e");
-                
-                // Convert base64url to BigInteger
-                BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(n));
-                BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(e));
-                
-                // Create RSA public key
-                RSAPublicKeySpec spec = new RSAPublicKeySpec(modulus, exponent);
-                KeyFactory factory = KeyFactory.getInstance("RSA");
-                PublicKey publicKey = factory.generatePublic(spec);
-                
-                publicKeys.put(kid, publicKey);
-                log.debug("Loaded public key: {}", kid);
+            return builder.build();
+        });
+    }
+    
+    /**
+     * Copy verified claims into plain JSON types (epoch seconds, lists) as they appear in the token
+     */
+    private Map<String, Object> toClaimsMap(Claims claims) {
+        Map<String, Object> result = new LinkedHashMap<>(claims.size());
+        claims.forEach((name, value) -> {
+            if (value instanceof Date date) {
+                result.put(name, date.getTime() / 1000);
+            } else if (value instanceof Collection<?> collection) {
+                result.put(name, new ArrayList<>(collection));
+            } else {
+                result.put(name, value);
             }
-            
-            // Cache the keys
-            jwksCache.put(providerId, publicKeys);
-            
-            log.info("Fetched and cached {} JWKS keys for provider: {}", 
-                    publicKeys.size(), providerId);
-            
-            return publicKeys;
-            
-        } catch (Exception e) {
-            log.error("Failed to fetch JWKS for provider {}: {}", providerId, e.getMessage(), e);
-            throw new InvalidIdTokenException("Failed to fetch JWKS: " + e.getMessage(), e);
-        }
+        });
+        return result;
     }
     
-    private boolean validateClaims(Provider provider, Claims claims) {
+    private Map<String, Object> verifyUnsignedIdTokenClaims(Provider provider, String idToken) {
+        Map<String, Object> claims = extractClaims(idToken);
+        
+        // Basic validation without signature verification
         Map<String, Object> config = provider.getConfig();
         
-        // Validate issuer
+        // Validate issuer if configured
         String expectedIssuer = (String) config.get("issuer");
-        if (expectedIssuer != null && !expectedIssuer.equals(claims.getIssuer())) {
-            log.error("Invalid issuer: expected={}, actual={}", 
-                    expectedIssuer, claims.getIssuer());
-            return false;
-        }
-        
-        // Validate audience
-        String expectedAudience = provider.getClientId();
-        Object audience = claims.get("aud");
-        
-        boolean audienceValid = false;
-        if (audience instanceof String) {
-            audienceValid = expectedAudience.equals(audience);
-        } else if (audience instanceof List) {
-            @SuppressWarnings("unchecked")
-            List<String> audiences = (List<String>) audience;
-            audienceValid = audiences.contains(expectedAudience);
-        }
-        
-        if (!audienceValid) {
-            log.error("Invalid audience: expected={}, actual={}", expectedAudience, audience);
-            return false;
+        if (expectedIssuer != null && !expectedIssuer.equals(claims.get("iss"))) {
+            log.error("Invalid issuer in claims");
+            throw new InvalidIdTokenException("Invalid issuer: " + claims.get("iss"));
         }
         
         // Validate expiration
-        Date expiration = claims.getExpiration();
-        if (expiration != null && expiration.before(new Date())) {
-            log.error("ID token expired: {}", expiration);
-            return false;
+        if (claims.get("exp") instanceof Number exp && exp.longValue() < System.currentTimeMillis() / 1000) {
+            log.error("ID token expired");
+            throw new InvalidIdTokenException("ID token expired");
         }
         
-        // Validate issued time (not in the future)
-        Date issuedAt = claims.getIssuedAt();
-        if (issuedAt != null && issuedAt.after(new Date())) {
-            log.error("ID token issued in the future: {}", issuedAt);
-            return false;
-        }
-        
-        log.debug("ID token claims validation successful");
-        return true;
+        return claims;
     }
     
-    private boolean validateIdTokenClaims(Provider provider, String idToken) {
-        try {
-            Map<String, Object> claims = extractClaims(idToken);
-            
-            // Basic validation without signature verification
-            Map<String, Object> config = provider.getConfig();
-            
-            // Validate issuer if configured
-            String expectedIssuer = (String) config.get("issuer");
-            if (expectedIssuer != null && !expectedIssuer.equals(claims.get("iss"))) {
-                log.error("Invalid issuer in claims");
-                return false;
-            }
-            
-            // Validate expiration
-            Object exp = claims.get("exp");
-            if (exp instanceof Number) {
-                long expirationTimestamp = ((Number) exp).longValue();
-                if (expirationTimestamp < System.currentTimeMillis() / 1000) {
-                    log.error("ID token expired");
-                    return false;
-                }
-            }
-            
-            return true;
-            
-        } catch (Exception e) {
-            log.error("Failed to validate ID token claims: {}", e.getMessage());
-            return false;
-        }
+    private record ParserKey(UUID providerId, String jwksUri, String issuer, String clientId) {
     }
 }
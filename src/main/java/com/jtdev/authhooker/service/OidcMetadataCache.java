@@ -0,0 +1,458 @@
+package com.jtdev.authhooker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jtdev.authhooker.dto.OidcConfiguration;
+import com.jtdev.authhooker.exception.InvalidIdTokenException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent cache for IdP metadata (JWKS key sets and discovery documents)
+ *
+ * - Entry lifetime follows the IdP's Cache-Control max-age, clamped to [min-ttl, max-ttl]
+ * - Entries are refreshed in the background once refresh-ahead-ratio of the TTL has elapsed
+ * - Concurrent misses for the same provider share a single in-flight fetch
+ * - Unknown kids are negatively cached, and forced JWKS refreshes are rate limited per provider
+ * - A stale entry is served if the IdP is unreachable, up to max-stale past expiry
+ */
+@Slf4j
+@Component
+public class OidcMetadataCache {
+
+    private static final String METRIC_CACHE = "authhooker.oidc.metadata.cache";
+    private static final String METRIC_FETCH = "authhooker.oidc.metadata.fetch";
+
+    private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
+
+    private final Duration defaultTtl;
+    private final Duration minTtl;
+    private final Duration maxTtl;
+    private final Duration maxStale;
+    private final double refreshAheadRatio;
+    private final Duration fetchTimeout;
+    private final Duration minForcedRefreshInterval;
+
+    private final MetadataCache<JwksKey, Map<String, PublicKey>> jwksCache;
+    private final MetadataCache<String, OidcConfiguration> discoveryCache;
+
+    // providerId:kid -> marker, for kids that were still missing after a refresh
+    private final Cache<String, Boolean> unknownKids;
+
+    // providerId -> System.nanoTime() of the last kid-miss refresh
+    private final ConcurrentHashMap<UUID, Long> lastForcedRefresh = new ConcurrentHashMap<>();
+
+    private final Counter unknownKidHits;
+
+    public OidcMetadataCache(
+            WebClient idpWebClient,
+            MeterRegistry meterRegistry,
+            @Value("${app.oauth.metadata-cache.default-ttl-seconds:3600}") long defaultTtlSeconds,
+            @Value("${app.oauth.metadata-cache.min-ttl-seconds:300}") long minTtlSeconds,
+            @Value("${app.oauth.metadata-cache.max-ttl-seconds:86400}") long maxTtlSeconds,
+            @Value("${app.oauth.metadata-cache.max-stale-seconds:3600}") long maxStaleSeconds,
+            @Value("${app.oauth.metadata-cache.refresh-ahead-ratio:0.8}") double refreshAheadRatio,
+            @Value("${app.oauth.metadata-cache.unknown-kid-ttl-seconds:60}") long unknownKidTtlSeconds,
+            @Value("${app.oauth.metadata-cache.min-forced-refresh-seconds:30}") long minForcedRefreshSeconds,
+            @Value("${app.oauth.timeout-seconds:10}") long timeoutSeconds) {
+        this.webClient = idpWebClient;
+        this.meterRegistry = meterRegistry;
+        this.defaultTtl = Duration.ofSeconds(defaultTtlSeconds);
+        this.minTtl = Duration.ofSeconds(minTtlSeconds);
+        this.maxTtl = Duration.ofSeconds(maxTtlSeconds);
+        this.maxStale = Duration.ofSeconds(maxStaleSeconds);
+        this.refreshAheadRatio = refreshAheadRatio;
+        this.fetchTimeout = Duration.ofSeconds(timeoutSeconds);
+        this.minForcedRefreshInterval = Duration.ofSeconds(minForcedRefreshSeconds);
+
+        this.jwksCache = new MetadataCache<>("jwks", this::fetchJwks,
+                e -> e instanceof InvalidIdTokenException ex ? ex
+                        : new InvalidIdTokenException("Failed to fetch JWKS: " + e.getMessage(), e));
+        this.discoveryCache = new MetadataCache<>("discovery", this::fetchDiscovery,
+                e -> new IllegalArgumentException(
+                        "Failed to discover OIDC configuration: " + e.getMessage(), e));
+
+        this.unknownKids = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(unknownKidTtlSeconds))
+                .build();
+        this.unknownKidHits = Counter.builder(METRIC_CACHE)
+                .tag("cache", "jwks")
+                .tag("result", "unknown_kid")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Get the signing key for a kid, refreshing the provider's JWKS at most once per
+     * min-forced-refresh interval when the kid is not in the cached key set
+     *
+     * @throws InvalidIdTokenException if no key exists for the kid
+     */
+    public PublicKey getSigningKey(UUID providerId, String jwksUri, String kid) {
+        JwksKey key = new JwksKey(providerId, jwksUri);
+
+        PublicKey publicKey = selectKey(jwksCache.get(key), kid);
+        if (publicKey != null) {
+            return publicKey;
+        }
+
+        String unknownKidKey = providerId + ":" + kid;
+        if (unknownKids.getIfPresent(unknownKidKey) != null) {
+            unknownKidHits.increment();
+            throw new InvalidIdTokenException("Public key not found for kid: " + kid);
+        }
+
+        if (tryAcquireForcedRefresh(providerId)) {
+            log.warn("Public key not found for kid: {}, refreshing JWKS for provider {}", kid, providerId);
+            publicKey = selectKey(jwksCache.reload(key), kid);
+        } else {
+            // Another request refreshed recently (or is refreshing now), use its result
+            publicKey = selectKey(jwksCache.current(key), kid);
+        }
+
+        if (publicKey == null) {
+            unknownKids.put(unknownKidKey, Boolean.TRUE);
+            throw new InvalidIdTokenException("Public key not found for kid: " + kid);
+        }
+
+        return publicKey;
+    }
+
+    /**
+     * Get the JWKS key set for a provider (kid -> public key)
+     */
+    public Map<String, PublicKey> getJwks(UUID providerId, String jwksUri) {
+        return jwksCache.get(new JwksKey(providerId, jwksUri));
+    }
+
+    /**
+     * Get the discovery document for an issuer
+     */
+    public OidcConfiguration getDiscovery(String issuerUri) {
+        return discoveryCache.get(issuerUri);
+    }
+
+    /**
+     * Evict cached JWKS for a provider (useful for key rotation)
+     */
+    public void evictJwks(UUID providerId) {
+        jwksCache.evictIf(key -> key.providerId().equals(providerId));
+        unknownKids.asMap().keySet().removeIf(k -> k.startsWith(providerId + ":"));
+        lastForcedRefresh.remove(providerId);
+    }
+
+    /**
+     * Evict cached discovery document for an issuer
+     */
+    public void evictDiscovery(String issuerUri) {
+        discoveryCache.evictIf(issuerUri::equals);
+    }
+
+    // Private helper methods
+
+    private PublicKey selectKey(Map<String, PublicKey> keys, String kid) {
+        if (kid == null) {
+            // Tokens without a kid are only unambiguous against a single-key set
+            return keys.size() == 1 ? keys.values().iterator().next() : null;
+        }
+        return keys.get(kid);
+    }
+
+    private boolean tryAcquireForcedRefresh(UUID providerId) {
+        long now = System.nanoTime();
+        long minInterval = minForcedRefreshInterval.toNanos();
+        boolean[] acquired = {false};
+
+        lastForcedRefresh.compute(providerId, (id, last) -> {
+            if (last == null || now - last >= minInterval) {
+                acquired[0] = true;
+                return now;
+            }
+            return last;
+        });
+
+        return acquired[0];
+    }
+
+    private Mono<Fetched<Map<String, PublicKey>>> fetchJwks(JwksKey key) {
+        log.info("Fetching JWKS for provider {} from: {}", key.providerId(), key.jwksUri());
+
+        return webClient.get()
+                .uri(key.jwksUri())
+                .retrieve()
+                .toEntity(Map.class)
+                .map(response -> {
+                    Map<String, PublicKey> keys = parseJwks(response.getBody());
+                    log.info("Fetched {} JWKS keys for provider: {}", keys.size(), key.providerId());
+                    return new Fetched<>(keys, parseMaxAge(response.getHeaders()));
+                });
+    }
+
+    private Mono<Fetched<OidcConfiguration>> fetchDiscovery(String issuerUri) {
+        String discoveryUrl = issuerUri.endsWith("/")
+                ? issuerUri + ".well-known/openid-configuration"
+                : issuerUri + "/.well-known/openid-configuration";
+
+        log.info("Fetching OIDC discovery document from: {}", discoveryUrl);
+
+        return webClient.get()
+                .uri(discoveryUrl)
+                .retrieve()
+                .toEntity(OidcConfiguration.class)
+                .map(response -> {
+                    OidcConfiguration config = response.getBody();
+                    if (config == null ||
+                        config.getAuthorizationEndpoint() == null ||
+                        config.getTokenEndpoint() == null) {
+                        throw new IllegalArgumentException(
+                            "Invalid OIDC discovery document: missing required endpoints");
+                    }
+                    return new Fetched<>(config, parseMaxAge(response.getHeaders()));
+                });
+    }
+
+    private Map<String, PublicKey> parseJwks(Map<?, ?> jwks) {
+        if (jwks == null || !(jwks.get("keys") instanceof List<?> keys)) {
+            throw new InvalidIdTokenException("Invalid JWKS response");
+        }
+
+        Map<String, PublicKey> publicKeys = new HashMap<>();
+
+        try {
+            KeyFactory factory = KeyFactory.getInstance("RSA");
+
+            for (Object entry : keys) {
+                if (!(entry instanceof Map<?, ?> key)) {
+                    continue;
+                }
+
+                String kid = (String) key.get("kid");
+                String kty = (String) key.get("kty");
+
+                if (!"RSA".equals(kty)) {
+                    log.debug("Skipping non-RSA key: {}", kid);
+                    continue;
+                }
+
+                // Convert base64url to BigInteger
+                BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode((String) key.get("n")));
+                BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode((String) key.get("e")));
+
+                publicKeys.put(kid, factory.generatePublic(new RSAPublicKeySpec(modulus, exponent)));
+                log.debug("Loaded public key: {}", kid);
+            }
+        } catch (Exception e) {
+            throw new InvalidIdTokenException("Failed to parse JWKS: " + e.getMessage(), e);
+        }
+
+        return Collections.unmodifiableMap(publicKeys);
+    }
+
+    /**
+     * Extract max-age from Cache-Control (no-store / no-cache map to zero, i.e. min-ttl)
+     */
+    private Duration parseMaxAge(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return null;
+        }
+
+        for (String directive : cacheControl.split(",")) {
+            String d = directive.trim().toLowerCase(Locale.ROOT);
+            if (d.equals("no-store") || d.equals("no-cache")) {
+                return Duration.ZERO;
+            }
+            if (d.startsWith("max-age=")) {
+                try {
+                    return Duration.ofSeconds(Long.parseLong(d.substring(8).replace("\"", "")));
+                } catch (NumberFormatException e) {
+                    log.debug("Ignoring malformed Cache-Control max-age: {}", directive);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private Duration effectiveTtl(Duration maxAge) {
+        Duration ttl = maxAge != null ? maxAge : defaultTtl;
+        if (ttl.compareTo(minTtl) < 0) {
+            return minTtl;
+        }
+        return ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+    }
+
+    private record JwksKey(UUID providerId, String jwksUri) {
+    }
+
+    private record Fetched<V>(V value, Duration maxAge) {
+    }
+
+    private record Entry<V>(V value, Instant fetchedAt, Instant refreshAt, Instant expiresAt) {
+    }
+
+    /**
+     * TTL cache with refresh-ahead and single-flight loading, shared by JWKS and discovery
+     */
+    private final class MetadataCache<K, V> {
+
+        private final Function<K, Mono<Fetched<V>>> loader;
+        private final Function<Throwable, RuntimeException> errorMapper;
+        private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter refreshes;
+        private final Counter staleServed;
+        private final Timer fetchSuccess;
+        private final Timer fetchFailure;
+
+        MetadataCache(String name,
+                      Function<K, Mono<Fetched<V>>> loader,
+                      Function<Throwable, RuntimeException> errorMapper) {
+            this.loader = loader;
+            this.errorMapper = errorMapper;
+            this.hits = counter(name, "hit");
+            this.misses = counter(name, "miss");
+            this.refreshes = counter(name, "refresh");
+            this.staleServed = counter(name, "stale");
+            this.fetchSuccess = Timer.builder(METRIC_FETCH).tag("cache", name).tag("outcome", "success")
+                    .register(meterRegistry);
+            this.fetchFailure = Timer.builder(METRIC_FETCH).tag("cache", name).tag("outcome", "failure")
+                    .register(meterRegistry);
+            meterRegistry.gaugeMapSize("authhooker.oidc.metadata.cache.size",
+                    List.of(Tag.of("cache", name)), entries);
+        }
+
+        /**
+         * Cached value, loading on miss/expiry and refreshing in the background when due
+         */
+        V get(K key) {
+            Entry<V> entry = entries.get(key);
+            Instant now = Instant.now();
+
+            if (entry != null && now.isBefore(entry.expiresAt())) {
+                hits.increment();
+                if (!now.isBefore(entry.refreshAt()) && !inFlight.containsKey(key)) {
+                    refreshes.increment();
+                    load(key);
+                }
+                return entry.value();
+            }
+
+            misses.increment();
+            return await(load(key), entry);
+        }
+
+        /**
+         * Force a fetch (joins one already in flight)
+         */
+        V reload(K key) {
+            refreshes.increment();
+            return await(load(key), entries.get(key));
+        }
+
+        /**
+         * Value of the in-flight fetch if there is one, otherwise the cached value
+         */
+        V current(K key) {
+            CompletableFuture<V> pending = inFlight.get(key);
+            if (pending != null) {
+                return await(pending, entries.get(key));
+            }
+            Entry<V> entry = entries.get(key);
+            return entry != null ? entry.value() : get(key);
+        }
+
+        void evictIf(Predicate<K> predicate) {
+            entries.keySet().removeIf(predicate);
+        }
+
+        private CompletableFuture<V> load(K key) {
+            CompletableFuture<V> created = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                return existing;
+            }
+
+            long start = System.nanoTime();
+            Mono<Fetched<V>> fetch;
+            try {
+                fetch = loader.apply(key).timeout(fetchTimeout);
+            } catch (RuntimeException e) {
+                fetch = Mono.error(e);
+            }
+
+            fetch.toFuture().whenComplete((fetched, error) -> {
+                long elapsed = System.nanoTime() - start;
+                if (error == null && fetched == null) {
+                    error = new IllegalStateException("Empty metadata response");
+                }
+
+                if (error == null) {
+                    fetchSuccess.record(elapsed, TimeUnit.NANOSECONDS);
+                    Instant now = Instant.now();
+                    Duration ttl = effectiveTtl(fetched.maxAge());
+                    Instant refreshAt = now.plusMillis((long) (ttl.toMillis() * refreshAheadRatio));
+                    entries.put(key, new Entry<>(fetched.value(), now, refreshAt, now.plus(ttl)));
+                    inFlight.remove(key, created);
+                    created.complete(fetched.value());
+                } else {
+                    fetchFailure.record(elapsed, TimeUnit.NANOSECONDS);
+                    log.error("Failed to fetch OIDC metadata for {}: {}", key, error.getMessage());
+                    inFlight.remove(key, created);
+                    created.completeExceptionally(error);
+                }
+            });
+
+            return created;
+        }
+
+        private V await(CompletableFuture<V> future, Entry<V> stale) {
+            try {
+                return future.get(fetchTimeout.toMillis() + 1000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw errorMapper.apply(e);
+            } catch (ExecutionException | TimeoutException e) {
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+
+                if (stale != null && Instant.now().isBefore(stale.expiresAt().plus(maxStale))) {
+                    staleServed.increment();
+                    log.warn("Serving stale OIDC metadata fetched at {}: {}", stale.fetchedAt(), cause.getMessage());
+                    return stale.value();
+                }
+
+                throw errorMapper.apply(cause);
+            }
+        }
+
+        private Counter counter(String name, String result) {
+            return Counter.builder(METRIC_CACHE)
+                    .tag("cache", name)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.jtdev.authhooker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes event_outbox rows to Kafka
+ *
+ * Each run takes the oldest rows in id order, sends them keyed by tenant id (so a tenant's events
+ * share a partition and are published in id order), waits for every acknowledgement and only then
+ * deletes the rows in the same transaction. A failed send rolls the batch back to be retried, so
+ * delivery is at-least-once; consumers de-duplicate on the envelope id. A transaction-scoped
+ * advisory lock keeps a single relay active across nodes.
+ *
+ * Ids are assigned on insert, not on commit: a slow transaction can commit a lower id after a
+ * higher one has already been published, so a tenant's events are not guaranteed to arrive in
+ * commit order. Consumers that need ordering should compare the envelope's occurred_at per aggregate.
+ */
+@Slf4j
+@Service
+public class OutboxRelay {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Arbitrary constant identifying the relay's advisory lock
+    private static final long RELAY_LOCK_KEY = 0x6f7574626f78L;
+
+    private static final String SELECT_BATCH_SQL = """
+            SELECT id, tenant_id, event_type, aggregate_id, payload, created_at
+            FROM event_outbox
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final String DELETE_SQL = "DELETE FROM event_outbox WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final boolean enabled;
+    private final String topic;
+    private final int batchSize;
+    private final long sendTimeoutSeconds;
+
+    public OutboxRelay(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            KafkaTemplate<String, String> kafkaTemplate,
+            @Value("${app.outbox.relay.enabled:true}") boolean enabled,
+            @Value("${app.outbox.topic:authhooker.events}") String topic,
+            @Value("${app.outbox.relay.batch-size:500}") int batchSize,
+            @Value("${app.outbox.relay.send-timeout-seconds:30}") long sendTimeoutSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.enabled = enabled;
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.sendTimeoutSeconds = sendTimeoutSeconds;
+    }
+
+    /**
+     * Publish pending events until the outbox is drained or a batch fails
+     *
+     * @return Number of events published
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.relay.interval-ms:500}")
+    public int relay() {
+        if (!enabled) {
+            return 0;
+        }
+
+        int published = 0;
+        try {
+            int batch;
+            do {
+                Integer sent = transactionTemplate.execute(status -> publishBatch());
+                batch = sent != null ? sent : 0;
+                published += batch;
+            } while (batch == batchSize);
+        } catch (Exception e) {
+            log.error("Outbox relay failed after {} events: {}", published, e.getMessage());
+        }
+
+        if (published > 0) {
+            log.debug("Published {} outbox events to {}", published, topic);
+        }
+        return published;
+    }
+
+    private int publishBatch() {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, RELAY_LOCK_KEY);
+        if (!Boolean.TRUE.equals(locked)) {
+            return 0;
+        }
+
+        List<ProducerRecord<String, String>> records = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        jdbcTemplate.query(SELECT_BATCH_SQL, rs -> {
+            long id = rs.getLong("id");
+            UUID tenantId = rs.getObject("tenant_id", UUID.class);
+            String eventType = rs.getString("event_type");
+            UUID aggregateId = rs.getObject("aggregate_id", UUID.class);
+
+            ObjectNode envelope = objectMapper.createObjectNode();
+            envelope.put("id", id);
+            envelope.put("type", eventType);
+            envelope.put("tenant_id", tenantId.toString());
+            envelope.put("aggregate_id", aggregateId != null ? aggregateId.toString() : null);
+            envelope.put("occurred_at", rs.getTimestamp("created_at").toLocalDateTime().toString());
+            try {
+                envelope.set("payload", objectMapper.readTree(rs.getString("payload")));
+            } catch (Exception e) {
+                throw new IllegalStateException("Invalid payload in outbox event " + id, e);
+            }
+
+            ProducerRecord<String, String> record = new ProducerRecord<>(topic, tenantId.toString(), envelope.toString());
+            record.headers().add("event_type", eventType.getBytes(StandardCharsets.UTF_8));
+            records.add(record);
+            ids.add(id);
+        }, batchSize);
+
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        // The producer batches these into per-partition requests; wait for all acks before deleting
+        List<CompletableFuture<?>> sends = new ArrayList<>(records.size());
+        for (ProducerRecord<String, String> record : records) {
+            sends.add(kafkaTemplate.send(record));
+        }
+        kafkaTemplate.flush();
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(sendTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing outbox events", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Kafka publish failed: " + e.getMessage(), e);
+        }
+
+        jdbcTemplate.update(DELETE_SQL, ps -> {
+            Array array = ps.getConnection().createArrayOf("bigint", ids.toArray());
+            ps.setArray(1, array);
+        });
+        return records.size();
+    }
+}
@@ -0,0 +1,112 @@
+package com.jtdev.authhooker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jtdev.authhooker.dto.PlatformUserStatus;
+import com.jtdev.authhooker.repository.UserPlatformMappingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * In-process cache of platform account verification status, keyed by (tenant, platform, platformUserId)
+ *
+ * Bot join events ask "is this member verified and what roles do they have" far more often than
+ * links change, so resolved statuses are kept in a bounded Caffeine cache. Misses are cached too
+ * (as empty), which absorbs storms of joins by unlinked members. Link, unlink, user deletion and
+ * role sync changes evict the affected keys after commit; the TTL bounds staleness on other
+ * instances and for fields written elsewhere (e.g. lastVerifiedAt on re-verification).
+ * Hit/miss/eviction counts are published as the standard cache.* meters (cache=platform_user_status).
+ */
+@Slf4j
+@Component
+public class PlatformUserStatusCache {
+
+    private static final String CACHE_NAME = "platform_user_status";
+
+    private final UserPlatformMappingRepository mappingRepository;
+    private final Cache<Key, Optional<PlatformUserStatus>> cache;
+
+    public PlatformUserStatusCache(
+            UserPlatformMappingRepository mappingRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.platform-status.cache.max-size:100000}") long maxSize,
+            @Value("${app.platform-status.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.mappingRepository = mappingRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Status of one platform account, or empty if it has no active link to a user of the tenant
+     */
+    public Optional<PlatformUserStatus> get(UUID tenantId, String platform, String platformUserId) {
+        return cache.get(new Key(tenantId, platform, platformUserId), key -> mappingRepository
+                .findStatusByTenantIdAndPlatformUserIds(tenantId, platform, List.of(platformUserId))
+                .stream()
+                .findFirst());
+    }
+
+    /**
+     * Statuses of many platform accounts; all misses are loaded in one query
+     *
+     * @return Linked accounts by platform user ID (unlinked IDs are absent)
+     */
+    public Map<String, PlatformUserStatus> getAll(UUID tenantId, String platform, Collection<String> platformUserIds) {
+        List<Key> keys = new ArrayList<>(platformUserIds.size());
+        for (String platformUserId : platformUserIds) {
+            keys.add(new Key(tenantId, platform, platformUserId));
+        }
+
+        Map<Key, Optional<PlatformUserStatus>> cached = cache.getAll(keys, missing -> {
+            List<String> ids = new ArrayList<>(missing.size());
+            for (Key key : missing) {
+                ids.add(key.platformUserId());
+            }
+
+            Map<Key, Optional<PlatformUserStatus>> loaded = new HashMap<>();
+            for (Key key : missing) {
+                loaded.put(key, Optional.empty());
+            }
+            for (PlatformUserStatus status : mappingRepository.findStatusByTenantIdAndPlatformUserIds(tenantId, platform, ids)) {
+                loaded.put(new Key(tenantId, platform, status.platformUserId()), Optional.of(status));
+            }
+            return loaded;
+        });
+
+        Map<String, PlatformUserStatus> statuses = new LinkedHashMap<>();
+        cached.forEach((key, status) -> status.ifPresent(s -> statuses.put(key.platformUserId(), s)));
+        return statuses;
+    }
+
+    /**
+     * Evict a platform account once the current transaction commits (immediately if none is active)
+     */
+    public void invalidate(UUID tenantId, String platform, String platformUserId) {
+        Key key = new Key(tenantId, platform, platformUserId);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(key);
+                }
+            });
+        } else {
+            cache.invalidate(key);
+        }
+    }
+
+    private record Key(UUID tenantId, String platform, String platformUserId) {
+    }
+}
@@ -34,7 +34,7 @@ public class ProviderService {
     private final ProviderRepository providerRepository;
     private final TenantService tenantService;
     private final EncryptionService encryptionService;
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient idpWebClient;
     
     /**
      * Create a new provider for a tenant
@@ -45,8 +45,8 @@ public class ProviderService {
         // Validate tenant exists
         Tenant tenant = tenantService.getTenantById(tenantId);
         
-        // Validate plan limits
-        if (!tenantService.validatePlanLimits(tenantId, "providers")) {
+        // Reserve a plan slot for the provider (held until this transaction ends)
+        if (!tenantService.reservePlanSlot(tenantId, "providers")) {
             throw new ValidationException("Provider limit exceeded for current plan");
         }
         
@@ -210,13 +210,11 @@ public class ProviderService {
                 : issuer + "/.well-known/openid-configuration";
             
             // Test connection with timeout
-            WebClient webClient = webClientBuilder.build();
-            
-            Map<String, Object> discoveryDoc = webClient.get()
+            Map<String, Object> discoveryDoc = idpWebClient.get()
                     .uri(discoveryUrl)
                     .retrieve()
                     .bodyToMono(Map.class)
-                    .timeout(Duration.ofSeconds(10))
+                    .timeout(provider.httpTimeout(Duration.ofSeconds(10)))
                     .onErrorResume(e -> {
                         log.error("Provider connection test failed for {}: {}", id, e.getMessage());
                         return Mono.empty();
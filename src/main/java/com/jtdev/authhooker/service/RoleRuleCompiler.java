@@ -0,0 +1,267 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.domain.RoleRule;
+import com.jtdev.authhooker.exception.ValidationException;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiles RoleRule.ruleSet JSON into predicate trees
+ *
+ * Rule set format:
+ * <pre>
+ * {
+ *   "roles": ["staff", "engineering"],      roles granted when the condition matches (required)
+ *   "condition": { ... },                   omitted = always matches
+ *   "stop": true                            skip lower-priority rules once this one matches
+ * }
+ * </pre>
+ * Conditions (each object has exactly one of these forms):
+ * <pre>
+ * {"all": [cond, ...]}   {"any": [cond, ...]}   {"not": cond}
+ * {"email_domain": "example.com"}  or  {"email_domain": ["a.com", "b.com"]}
+ * {"group": "admins"}  or  {"groups": ["admins", "ops"]}       user is in any of them
+ * {"claim": "department", "equals": "eng"}                      also: "in": [...], "exists": true|false,
+ *                                                               "contains": value, "matches": "regex"
+ * </pre>
+ * Claim names may be dotted paths into nested objects. All lookups are resolved at compile time
+ * (sets, compiled patterns), so evaluation does no parsing.
+ */
+final class RoleRuleCompiler {
+
+    private RoleRuleCompiler() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Predicate over a user's claims
+     */
+    @FunctionalInterface
+    interface Condition {
+        boolean test(ClaimsView claims);
+    }
+
+    /**
+     * A user's claims with the commonly tested values extracted once per evaluation
+     */
+    record ClaimsView(Map<String, Object> claims, String emailDomain, Set<String> groups) {
+
+        static ClaimsView of(Map<String, Object> claims) {
+            Map<String, Object> source = claims != null ? claims : Map.of();
+
+            String domain = null;
+            if (source.get("email_domain") instanceof String d) {
+                domain = d.toLowerCase(Locale.ROOT);
+            } else if (source.get("email") instanceof String email && email.indexOf('@') > 0) {
+                domain = email.substring(email.indexOf('@') + 1).toLowerCase(Locale.ROOT);
+            }
+
+            Set<String> groups = Set.of();
+            if (source.get("groups") instanceof Collection<?> values && !values.isEmpty()) {
+                groups = new HashSet<>(values.size() * 2);
+                for (Object value : values) {
+                    if (value != null) {
+                        groups.add(value.toString());
+                    }
+                }
+            }
+            return new ClaimsView(source, domain, groups);
+        }
+
+        Object get(String[] path) {
+            Object current = claims.get(path[0]);
+            for (int i = 1; i < path.length && current != null; i++) {
+                current = current instanceof Map<?, ?> nested ? nested.get(path[i]) : null;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * A compiled rule
+     */
+    record CompiledRule(UUID id, String name, int priority, Condition condition, List<String> roles, boolean stop) {
+    }
+
+    /**
+     * Compile a rule
+     *
+     * @throws ValidationException if the rule set is malformed
+     */
+    static CompiledRule compile(RoleRule rule) {
+        Map<String, Object> ruleSet = rule.getRuleSet();
+        if (ruleSet == null) {
+            throw new ValidationException("Rule set is required");
+        }
+
+        List<String> roles = stringList(ruleSet.get("roles"), "roles");
+        if (roles.isEmpty()) {
+            throw new ValidationException("Rule set must grant at least one role");
+        }
+
+        Object conditionNode = ruleSet.get("condition");
+        Condition condition = conditionNode != null ? compileCondition(conditionNode) : claims -> true;
+
+        return new CompiledRule(
+                rule.getId(),
+                rule.getName(),
+                rule.getPriority() != null ? rule.getPriority() : 0,
+                condition,
+                roles,
+                Boolean.TRUE.equals(ruleSet.get("stop")));
+    }
+
+    static Condition compileCondition(Object node) {
+        if (!(node instanceof Map<?, ?> map)) {
+            throw new ValidationException("Condition must be an object: " + node);
+        }
+
+        if (map.containsKey("all")) {
+            Condition[] children = compileChildren(map.get("all"), "all");
+            return claims -> {
+                for (Condition child : children) {
+                    if (!child.test(claims)) {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }
+        if (map.containsKey("any")) {
+            Condition[] children = compileChildren(map.get("any"), "any");
+            return claims -> {
+                for (Condition child : children) {
+                    if (child.test(claims)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+        if (map.containsKey("not")) {
+            Condition child = compileCondition(map.get("not"));
+            return claims -> !child.test(claims);
+        }
+        if (map.containsKey("email_domain")) {
+            Set<String> domains = new HashSet<>();
+            for (String domain : stringList(map.get("email_domain"), "email_domain")) {
+                domains.add(domain.toLowerCase(Locale.ROOT));
+            }
+            return claims -> claims.emailDomain() != null && domains.contains(claims.emailDomain());
+        }
+        if (map.containsKey("group") || map.containsKey("groups")) {
+            String key = map.containsKey("group") ? "group" : "groups";
+            Set<String> groups = Set.copyOf(stringList(map.get(key), key));
+            return claims -> {
+                if (claims.groups().isEmpty()) {
+                    return false;
+                }
+                for (String group : groups) {
+                    if (claims.groups().contains(group)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+        if (map.containsKey("claim")) {
+            return compileClaimCondition(map);
+        }
+
+        throw new ValidationException("Unknown condition: " + map.keySet());
+    }
+
+    private static Condition compileClaimCondition(Map<?, ?> map) {
+        if (!(map.get("claim") instanceof String name) || name.isBlank()) {
+            throw new ValidationException("claim must be a claim name");
+        }
+        String[] path = name.split("\\.");
+
+        if (map.containsKey("equals")) {
+            Object expected = map.get("equals");
+            return claims -> valueEquals(claims.get(path), expected);
+        }
+        if (map.containsKey("in")) {
+            Set<String> allowed = Set.copyOf(stringList(map.get("in"), "in"));
+            return claims -> {
+                Object value = claims.get(path);
+                return value != null && allowed.contains(value.toString());
+            };
+        }
+        if (map.containsKey("exists")) {
+            boolean shouldExist = !Boolean.FALSE.equals(map.get("exists"));
+            return claims -> (claims.get(path) != null) == shouldExist;
+        }
+        if (map.containsKey("contains")) {
+            Object expected = map.get("contains");
+            String expectedString = String.valueOf(expected);
+            return claims -> {
+                Object value = claims.get(path);
+                if (value instanceof Collection<?> values) {
+                    for (Object element : values) {
+                        if (valueEquals(element, expected)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                return value instanceof String s && s.contains(expectedString);
+            };
+        }
+        if (map.containsKey("matches")) {
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(String.valueOf(map.get("matches")));
+            } catch (PatternSyntaxException e) {
+                throw new ValidationException("Invalid pattern for claim " + name + ": " + e.getDescription());
+            }
+            return claims -> {
+                Object value = claims.get(path);
+                return value != null && pattern.matcher(value.toString()).matches();
+            };
+        }
+
+        throw new ValidationException("Claim condition needs one of equals, in, exists, contains, matches");
+    }
+
+    private static Condition[] compileChildren(Object node, String operator) {
+        if (!(node instanceof List<?> list) || list.isEmpty()) {
+            throw new ValidationException(operator + " must be a non-empty array of conditions");
+        }
+        Condition[] children = new Condition[list.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = compileCondition(list.get(i));
+        }
+        return children;
+    }
+
+    private static List<String> stringList(Object node, String field) {
+        if (node instanceof String s) {
+            return List.of(s);
+        }
+        if (node instanceof List<?> list) {
+            List<String> values = new ArrayList<>(list.size());
+            for (Object value : list) {
+                if (value == null) {
+                    throw new ValidationException(field + " must not contain null");
+                }
+                values.add(value.toString());
+            }
+            return List.copyOf(values);
+        }
+        throw new ValidationException(field + " must be a string or an array of strings");
+    }
+
+    private static boolean valueEquals(Object actual, Object expected) {
+        if (actual == null || expected == null) {
+            return actual == expected;
+        }
+        if (actual instanceof Number a && expected instanceof Number e) {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(e.toString())) == 0;
+        }
+        return actual.toString().equals(expected.toString());
+    }
+}
@@ -0,0 +1,129 @@
+package com.jtdev.authhooker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jtdev.authhooker.domain.RoleRule;
+import com.jtdev.authhooker.exception.ValidationException;
+import com.jtdev.authhooker.repository.RoleRuleRepository;
+import com.jtdev.authhooker.service.RoleRuleCompiler.ClaimsView;
+import com.jtdev.authhooker.service.RoleRuleCompiler.CompiledRule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Evaluates a tenant's role rules against a user's claims
+ *
+ * Rules are compiled once into predicate trees (see {@link RoleRuleCompiler} for the rule_set
+ * format) and cached per tenant and platform integration. Rule changes evict the tenant's
+ * entries on commit (RoleRuleChangeListener); the TTL bounds staleness on other instances.
+ * Matching rules are applied in priority order and their roles are unioned.
+ */
+@Slf4j
+@Service
+public class RoleRuleEngine {
+
+    private final RoleRuleRepository roleRuleRepository;
+    private final Cache<RuleSetKey, List<CompiledRule>> ruleCache;
+
+    public RoleRuleEngine(
+            RoleRuleRepository roleRuleRepository,
+            @Value("${app.role-rules.cache.max-size:10000}") long maxSize,
+            @Value("${app.role-rules.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.roleRuleRepository = roleRuleRepository;
+        this.ruleCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Compute the roles a user's claims grant on a platform integration
+     *
+     * @param integrationId Platform integration, or null for tenant-wide rules only
+     * @return Granted roles in rule priority order
+     */
+    public Set<String> evaluate(UUID tenantId, UUID integrationId, Map<String, Object> claims) {
+        List<CompiledRule> rules = ruleCache.get(new RuleSetKey(tenantId, integrationId), this::load);
+        ClaimsView view = ClaimsView.of(claims);
+
+        Set<String> roles = new LinkedHashSet<>();
+        for (CompiledRule rule : rules) {
+            if (rule.condition().test(view)) {
+                roles.addAll(rule.roles());
+                if (rule.stop()) {
+                    break;
+                }
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * Diff desired roles against current ones
+     *
+     * @return {"roles": desired, "add": [...], "remove": [...], "computed_at": ...}, or empty if they match
+     */
+    public static Map<String, Object> roleChanges(List<String> currentRoles, Set<String> desired) {
+        List<String> current = currentRoles != null ? currentRoles : List.of();
+
+        List<String> add = new ArrayList<>();
+        for (String role : desired) {
+            if (!current.contains(role)) {
+                add.add(role);
+            }
+        }
+        List<String> remove = new ArrayList<>();
+        for (String role : current) {
+            if (!desired.contains(role)) {
+                remove.add(role);
+            }
+        }
+
+        if (add.isEmpty() && remove.isEmpty()) {
+            return Map.of();
+        }
+        return Map.of(
+                "roles", List.copyOf(desired),
+                "add", add,
+                "remove", remove,
+                "computed_at", LocalDateTime.now().toString());
+    }
+
+    /**
+     * Evict a tenant's compiled rules
+     */
+    public void invalidate(UUID tenantId) {
+        ruleCache.asMap().keySet().removeIf(key -> key.tenantId().equals(tenantId));
+    }
+
+    private List<CompiledRule> load(RuleSetKey key) {
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (RoleRule rule : roleRuleRepository.findActiveByTenantId(key.tenantId())) {
+            if (rule.getPlatformIntegration() != null
+                    && !rule.getPlatformIntegration().getId().equals(key.integrationId())) {
+                continue;
+            }
+            try {
+                compiled.add(RoleRuleCompiler.compile(rule));
+            } catch (ValidationException e) {
+                // One bad rule must not block role assignment for the whole tenant
+                log.warn("Skipping invalid role rule {} ({}) for tenant {}: {}",
+                        rule.getId(), rule.getName(), key.tenantId(), e.getMessage());
+            }
+        }
+        // Repository orders by priority already; keep it stable if a rule was edited in place
+        compiled.sort(Comparator.comparingInt(CompiledRule::priority).reversed());
+
+        log.debug("Compiled {} role rules for tenant {} integration {}",
+                compiled.size(), key.tenantId(), key.integrationId());
+        return List.copyOf(compiled);
+    }
+
+    private record RuleSetKey(UUID tenantId, UUID integrationId) {
+    }
+}
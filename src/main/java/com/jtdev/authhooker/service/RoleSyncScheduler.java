@@ -0,0 +1,327 @@
+package com.jtdev.authhooker.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Periodically re-evaluates role rules for linked platform accounts
+ *
+ * Each integration's mappings whose last_role_sync_at is older than app.role-sync.interval-hours
+ * are walked in id order (keyset pagination). A batch is selected FOR UPDATE SKIP LOCKED, so
+ * nodes running the job concurrently take disjoint batches instead of waiting on or repeating
+ * each other's. Rules are evaluated across a bounded worker pool, then the batch's
+ * current_roles/pending_role_changes/last_role_sync_at are written with JDBC batch updates in the
+ * same transaction that holds the row locks, together with a roles.changed outbox event for each
+ * mapping whose roles changed. Changed mappings are evicted from PlatformUserStatusCache on commit.
+ */
+@Slf4j
+@Service
+public class RoleSyncScheduler {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final TypeReference<List<String>> ROLES_TYPE = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<>() {};
+
+    // Lowest UUID in PostgreSQL's ordering; the keyset start
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    private static final String INTEGRATIONS_SQL = """
+            SELECT id, tenant_id
+            FROM platform_integrations
+            WHERE is_active = true AND deleted_at IS NULL
+            """;
+
+    // Rules match raw claims as well as normalized ones; users.claims holds only the normalized fields
+    // and claim-mapping targets since V11, so the two documents are merged (normalized keys win)
+    private static final String LOCK_BATCH_SQL = """
+            SELECT upm.id, upm.user_id, upm.platform_type, upm.platform_user_id, upm.current_roles,
+                   u.raw_claims || u.claims AS claims,
+                   (u.is_active AND u.deleted_at IS NULL) AS user_active
+            FROM user_platform_mappings upm
+            JOIN users u ON u.id = upm.user_id
+            WHERE upm.platform_integration_id = ?
+              AND upm.is_active = true AND upm.unlinked_at IS NULL
+              AND upm.id > ?
+              AND (upm.last_role_sync_at IS NULL OR upm.last_role_sync_at < ?)
+            ORDER BY upm.id
+            LIMIT ?
+            FOR UPDATE OF upm SKIP LOCKED
+            """;
+
+    private static final String UPDATE_CHANGED_SQL = """
+            UPDATE user_platform_mappings
+            SET current_roles = CAST(? AS jsonb), pending_role_changes = CAST(? AS jsonb), last_role_sync_at = ?
+            WHERE id = ?
+            """;
+
+    private static final String UPDATE_UNCHANGED_SQL = """
+            UPDATE user_platform_mappings SET last_role_sync_at = ? WHERE id = ?
+            """;
+
+    private static final String UPDATE_INTEGRATION_SQL = """
+            UPDATE platform_integrations SET last_sync_at = ? WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RoleRuleEngine roleRuleEngine;
+    private final UsageMeteringService usageMeteringService;
+    private final EventOutbox eventOutbox;
+    private final PlatformUserStatusCache platformUserStatusCache;
+    private final ExecutorService workers;
+    private final int workerCount;
+    private final boolean enabled;
+    private final int intervalHours;
+    private final int batchSize;
+
+    public RoleSyncScheduler(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            RoleRuleEngine roleRuleEngine,
+            UsageMeteringService usageMeteringService,
+            EventOutbox eventOutbox,
+            PlatformUserStatusCache platformUserStatusCache,
+            @Value("${app.role-sync.enabled:true}") boolean enabled,
+            @Value("${app.role-sync.interval-hours:24}") int intervalHours,
+            @Value("${app.role-sync.batch-size:500}") int batchSize,
+            @Value("${app.role-sync.workers:4}") int workerCount) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.roleRuleEngine = roleRuleEngine;
+        this.usageMeteringService = usageMeteringService;
+        this.eventOutbox = eventOutbox;
+        this.platformUserStatusCache = platformUserStatusCache;
+        this.enabled = enabled;
+        this.intervalHours = intervalHours;
+        this.batchSize = batchSize;
+        this.workerCount = workerCount;
+        this.workers = Executors.newFixedThreadPool(workerCount, new CustomizableThreadFactory("role-sync-"));
+    }
+
+    /**
+     * Sync every active integration's stale mappings
+     *
+     * @return Number of mappings synced
+     */
+    @Scheduled(fixedDelayString = "${app.role-sync.poll-interval-ms:300000}",
+            initialDelayString = "${app.role-sync.poll-interval-ms:300000}")
+    public int syncAll() {
+        if (!enabled) {
+            return 0;
+        }
+
+        LocalDateTime threshold = LocalDateTime.now().minusHours(intervalHours);
+        List<Integration> integrations = jdbcTemplate.query(INTEGRATIONS_SQL,
+                (rs, i) -> new Integration(rs.getObject("id", UUID.class), rs.getObject("tenant_id", UUID.class)));
+
+        int synced = 0;
+        for (Integration integration : integrations) {
+            try {
+                synced += syncIntegration(integration, threshold);
+            } catch (Exception e) {
+                log.error("Role sync failed for integration {}: {}", integration.id(), e.getMessage(), e);
+            }
+        }
+
+        if (synced > 0) {
+            log.info("Role sync updated {} mappings across {} integrations", synced, integrations.size());
+        }
+        return synced;
+    }
+
+    /**
+     * Sync one integration's mappings last synced before the threshold
+     *
+     * @return Number of mappings synced
+     */
+    public int syncIntegration(Integration integration, LocalDateTime threshold) {
+        int synced = 0;
+        int changed = 0;
+        UUID afterId = FIRST_ID;
+
+        while (true) {
+            UUID cursor = afterId;
+            BatchResult batch = transactionTemplate.execute(status -> syncBatch(integration, cursor, threshold));
+            if (batch == null || batch.selected() == 0) {
+                break;
+            }
+            synced += batch.synced();
+            changed += batch.changed();
+            afterId = batch.lastId();
+            if (batch.selected() < batchSize) {
+                break;
+            }
+        }
+
+        if (synced > 0) {
+            jdbcTemplate.update(UPDATE_INTEGRATION_SQL, Timestamp.valueOf(LocalDateTime.now()), integration.id());
+            log.debug("Role sync for integration {}: {} synced, {} changed", integration.id(), synced, changed);
+        }
+        return synced;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private BatchResult syncBatch(Integration integration, UUID afterId, LocalDateTime threshold) {
+        List<Candidate> candidates = jdbcTemplate.query(LOCK_BATCH_SQL, RoleSyncScheduler::mapCandidate,
+                integration.id(), afterId, Timestamp.valueOf(threshold), batchSize);
+        if (candidates.isEmpty()) {
+            return new BatchResult(0, 0, 0, afterId);
+        }
+
+        List<Evaluation> evaluations = evaluateAll(integration, candidates);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> changedArgs = new ArrayList<>();
+        List<Object[]> unchangedArgs = new ArrayList<>();
+        List<EventOutbox.Event> events = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Evaluation evaluation = evaluations.get(i);
+            if (evaluation == null) {
+                // Left stale so the next run retries it; the keyset moves past it for this one
+                continue;
+            }
+            Candidate candidate = candidates.get(i);
+            Map<String, Object> changes = RoleRuleEngine.roleChanges(evaluation.currentRoles(), evaluation.desiredRoles());
+            if (changes.isEmpty()) {
+                unchangedArgs.add(new Object[]{now, candidate.id()});
+            } else {
+                changedArgs.add(new Object[]{
+                        toJson(List.copyOf(evaluation.desiredRoles())), toJson(changes), now, candidate.id()});
+                events.add(rolesChangedEvent(integration, candidate, changes));
+                platformUserStatusCache.invalidate(integration.tenantId(), candidate.platformType(), candidate.platformUserId());
+            }
+        }
+
+        if (!changedArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_CHANGED_SQL, changedArgs);
+        }
+        if (!unchangedArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_UNCHANGED_SQL, unchangedArgs);
+        }
+        eventOutbox.appendAll(events);
+
+        int synced = changedArgs.size() + unchangedArgs.size();
+        if (synced > 0) {
+            usageMeteringService.recordRoleSyncs(integration.tenantId(), synced);
+        }
+        return new BatchResult(candidates.size(), synced, changedArgs.size(), candidates.get(candidates.size() - 1).id());
+    }
+
+    /**
+     * Evaluate a batch on the worker pool, preserving order; null marks a mapping that failed
+     */
+    private List<Evaluation> evaluateAll(Integration integration, List<Candidate> candidates) {
+        int chunkSize = Math.max(1, (candidates.size() + workerCount - 1) / workerCount);
+        List<Callable<List<Evaluation>>> tasks = new ArrayList<>();
+        for (int from = 0; from < candidates.size(); from += chunkSize) {
+            List<Candidate> chunk = candidates.subList(from, Math.min(from + chunkSize, candidates.size()));
+            tasks.add(() -> {
+                List<Evaluation> results = new ArrayList<>(chunk.size());
+                for (Candidate candidate : chunk) {
+                    results.add(evaluate(integration, candidate));
+                }
+                return results;
+            });
+        }
+
+        List<Evaluation> evaluations = new ArrayList<>(candidates.size());
+        try {
+            for (Future<List<Evaluation>> future : workers.invokeAll(tasks)) {
+                evaluations.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Role sync interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Role evaluation failed", e.getCause());
+        }
+        return evaluations;
+    }
+
+    private Evaluation evaluate(Integration integration, Candidate candidate) {
+        try {
+            List<String> current = candidate.currentRoles() != null
+                    ? objectMapper.readValue(candidate.currentRoles(), ROLES_TYPE)
+                    : List.of();
+            // Deactivated or deleted users keep their link but lose every rule-granted role
+            Set<String> desired = candidate.userActive() && candidate.claims() != null
+                    ? roleRuleEngine.evaluate(integration.tenantId(), integration.id(),
+                            objectMapper.readValue(candidate.claims(), CLAIMS_TYPE))
+                    : Set.of();
+            return new Evaluation(current, desired);
+        } catch (Exception e) {
+            log.warn("Role evaluation failed for mapping {}: {}", candidate.id(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static EventOutbox.Event rolesChangedEvent(Integration integration, Candidate candidate,
+                                                       Map<String, Object> changes) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("mapping_id", candidate.id().toString());
+        payload.put("user_id", candidate.userId().toString());
+        payload.put("platform", candidate.platformType());
+        payload.put("platform_user_id", candidate.platformUserId());
+        payload.put("platform_integration_id", integration.id().toString());
+        payload.putAll(changes);
+        return new EventOutbox.Event(integration.tenantId(), EventOutbox.ROLES_CHANGED, candidate.id(), payload);
+    }
+
+    private static Candidate mapCandidate(ResultSet rs, int rowNum) throws SQLException {
+        return new Candidate(
+                rs.getObject("id", UUID.class),
+                rs.getObject("user_id", UUID.class),
+                rs.getString("platform_type"),
+                rs.getString("platform_user_id"),
+                rs.getString("current_roles"),
+                rs.getString("claims"),
+                rs.getBoolean("user_active"));
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize role sync state", e);
+        }
+    }
+
+    /**
+     * A platform integration to sync
+     */
+    public record Integration(UUID id, UUID tenantId) {
+    }
+
+    private record Candidate(UUID id, UUID userId, String platformType, String platformUserId,
+                             String currentRoles, String claims, boolean userActive) {
+    }
+
+    private record Evaluation(List<String> currentRoles, Set<String> desiredRoles) {
+    }
+
+    private record BatchResult(int selected, int synced, int changed, UUID lastId) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.jtdev.authhooker.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jtdev.authhooker.domain.TenantCounters;
+import com.jtdev.authhooker.exception.ValidationException;
+import com.jtdev.authhooker.repository.TenantCountersRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Reads and reserves against the per-tenant counters in tenant_counters.
+ *
+ * Reads go through a short-lived in-memory cache and are meant for advisory checks;
+ * reservations always hit the database and are what actually enforce plan limits.
+ */
+@Slf4j
+@Service
+@Transactional
+public class TenantCounterService {
+
+    private final TenantCountersRepository tenantCountersRepository;
+    private final Cache<UUID, TenantCounters> countersCache;
+
+    public TenantCounterService(
+            TenantCountersRepository tenantCountersRepository,
+            @Value("${app.plan-limits.counter-cache.max-size:10000}") long maxSize,
+            @Value("${app.plan-limits.counter-cache.ttl-seconds:5}") long ttlSeconds) {
+        this.tenantCountersRepository = tenantCountersRepository;
+        this.countersCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Get a tenant's counters, possibly up to the cache TTL old
+     */
+    @Transactional(readOnly = true)
+    public TenantCounters getCounters(UUID tenantId) {
+        return countersCache.get(tenantId, id -> tenantCountersRepository.findById(id)
+                .orElseGet(() -> TenantCounters.builder()
+                        .tenantId(id)
+                        .activeUsers(0L)
+                        .activeProviders(0L)
+                        .activeIntegrations(0L)
+                        .build()));
+    }
+
+    /**
+     * Get the current count for a limit type ("users", "providers" or "integrations")
+     */
+    @Transactional(readOnly = true)
+    public long getCount(UUID tenantId, String limitType) {
+        TenantCounters counters = getCounters(tenantId);
+        return switch (limitType) {
+            case "users" -> counters.getActiveUsers();
+            case "providers" -> counters.getActiveProviders();
+            case "integrations" -> counters.getActiveIntegrations();
+            default -> throw new ValidationException("Unknown limit type: " + limitType);
+        };
+    }
+
+    /**
+     * Reserve a slot for one more active row of the given type if fewer than max exist
+     *
+     * Must run in the transaction that creates the row: the tenant's counters stay locked
+     * until it ends, and the insert trigger turns the reservation into a real count.
+     *
+     * @return true if the slot was reserved, false if the limit is reached
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reserveSlot(UUID tenantId, String limitType, long max) {
+        int reserved = switch (limitType) {
+            case "users" -> tenantCountersRepository.reserveUserSlot(tenantId, max);
+            case "providers" -> tenantCountersRepository.reserveProviderSlot(tenantId, max);
+            case "integrations" -> tenantCountersRepository.reserveIntegrationSlot(tenantId, max);
+            default -> throw new ValidationException("Unknown limit type: " + limitType);
+        };
+
+        if (reserved == 0) {
+            log.debug("No {} slot left for tenant {} (max {})", limitType, tenantId, max);
+            return false;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(tenantId);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Evict a tenant's cached counters
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void invalidate(UUID tenantId) {
+        countersCache.invalidate(tenantId);
+    }
+}
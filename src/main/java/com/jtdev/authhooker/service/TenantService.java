@@ -2,16 +2,21 @@ package com.jtdev.authhooker.service;
 
 import com.jtdev.authhooker.domain.Tenant;
 import com.jtdev.authhooker.dto.TenantCreateRequest;
+import com.jtdev.authhooker.dto.TenantUsageCounts;
 import com.jtdev.authhooker.dto.UsageStats;
 import com.jtdev.authhooker.exception.ConflictException;
 import com.jtdev.authhooker.exception.PlanLimitExceededException;
 import com.jtdev.authhooker.exception.ResourceNotFoundException;
 import com.jtdev.authhooker.exception.ValidationException;
 import com.jtdev.authhooker.repository.*;
+import com.jtdev.authhooker.security.ApiKeyService;
+import com.jtdev.authhooker.util.ApiKeyUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -31,6 +36,8 @@ public class TenantService {
     private final UserRepository userRepository;
     private final ProviderRepository providerRepository;
     private final PlatformIntegrationRepository platformIntegrationRepository;
+    private final ApiKeyService apiKeyService;
+    private final TenantCounterService tenantCounterService;
     
     // Plan limits configuration
     private static final Map<String, Integer> PLAN_USER_LIMITS = Map.of(
@@ -125,6 +132,25 @@ public class TenantService {
         return tenant;
     }
     
+    /**
+     * Rotate tenant API key
+     * Only the hash is persisted; the plaintext key is returned once to the caller.
+     * Cached principals for the old key are dropped on commit.
+     */
+    public String rotateApiKey(UUID id) {
+        log.info("Rotating API key for tenant: {}", id);
+        
+        Tenant tenant = getTenantById(id);
+        
+        String apiKey = ApiKeyUtil.generateApiKey();
+        tenant.setApiKeyHash(ApiKeyUtil.hashApiKey(apiKey));
+        
+        tenantRepository.save(tenant);
+        invalidateApiKeysAfterCommit(id);
+        
+        return apiKey;
+    }
+    
     /**
      * Update tenant plan
      */
@@ -162,40 +188,72 @@ public class TenantService {
     
     /**
      * Validate tenant plan limits
+     * 
+     * Advisory check against the cached tenant counters; use {@link #reservePlanSlot} when creating.
      */
     @Transactional(readOnly = true)
     public boolean validatePlanLimits(UUID id, String limitType) {
         Tenant tenant = getTenantById(id);
+        String type = limitType.toLowerCase();
         
-        return switch (limitType.toLowerCase()) {
-            case "users" -> {
-                Long currentUsers = userRepository.countActiveByTenantId(id);
-                yield currentUsers < tenant.getMaxVerifiedUsers();
-            }
-            case "providers" -> {
-                // Free plan: 1 provider, Starter: 3, Professional: 10, Enterprise: unlimited
-                Long currentProviders = (long) providerRepository.findActiveByTenantId(id).size();
-                int maxProviders = switch (tenant.getPlanTier()) {
-                    case "free" -> 1;
-                    case "starter" -> 3;
-                    case "professional" -> 10;
-                    case "enterprise" -> Integer.MAX_VALUE;
-                    default -> 1;
-                };
-                yield currentProviders < maxProviders;
-            }
-            case "integrations" -> {
-                // Free plan: 1 integration, Starter: 2, Professional: 5, Enterprise: unlimited
-                Long currentIntegrations = (long) platformIntegrationRepository.findActiveByTenantId(id).size();
-                int maxIntegrations = switch (tenant.getPlanTier()) {
-                    case "free" -> 1;
-                    case "starter" -> 2;
-                    case "professional" -> 5;
-                    case "enterprise" -> Integer.MAX_VALUE;
-                    default -> 1;
-                };
-                yield currentIntegrations < maxIntegrations;
-            }
+        return tenantCounterService.getCount(id, type) < getPlanLimit(tenant, type);
+    }
+    
+    /**
+     * Reserve room for one more active user, provider or integration under the tenant's plan
+     * 
+     * Call in the transaction that creates the row. The check and the creation are atomic:
+     * concurrent reservations for the same tenant wait for each other, so the limit cannot be overshot.
+     * 
+     * @return true if the row may be created, false if the plan limit is reached
+     */
+    public boolean reservePlanSlot(UUID id, String limitType) {
+        return reservePlanSlot(getTenantById(id), limitType);
+    }
+    
+    /**
+     * Reserve a plan slot for a tenant the caller has already loaded
+     */
+    public boolean reservePlanSlot(Tenant tenant, String limitType) {
+        String type = limitType.toLowerCase();
+        
+        return tenantCounterService.reserveSlot(tenant.getId(), type, getPlanLimit(tenant, type));
+    }
+    
+    /**
+     * Check the plan limit for a row this transaction has already inserted
+     * 
+     * For upserts that only find out whether they created a row once it is written: the insert
+     * trigger has counted the row, so up to limit + 1 counted rows are within the plan. The caller
+     * must roll back when this returns false.
+     * 
+     * @return true if the new row is within the plan limit
+     */
+    public boolean confirmPlanSlot(Tenant tenant, String limitType) {
+        String type = limitType.toLowerCase();
+    
+        return tenantCounterService.reserveSlot(tenant.getId(), type, getPlanLimit(tenant, type) + 1);
+    }
+    
+    private long getPlanLimit(Tenant tenant, String limitType) {
+        return switch (limitType) {
+            case "users" -> tenant.getMaxVerifiedUsers();
+            // Free plan: 1 provider, Starter: 3, Professional: 10, Enterprise: unlimited
+            case "providers" -> switch (tenant.getPlanTier()) {
+                case "free" -> 1;
+                case "starter" -> 3;
+                case "professional" -> 10;
+                case "enterprise" -> Integer.MAX_VALUE;
+                default -> 1;
+            };
+            // Free plan: 1 integration, Starter: 2, Professional: 5, Enterprise: unlimited
+            case "integrations" -> switch (tenant.getPlanTier()) {
+                case "free" -> 1;
+                case "starter" -> 2;
+                case "professional" -> 5;
+                case "enterprise" -> Integer.MAX_VALUE;
+                default -> 1;
+            };
             default -> throw new ValidationException("Unknown limit type: " + limitType);
         };
     }
@@ -207,42 +265,22 @@ public class TenantService {
     public UsageStats getTenantUsageStats(UUID id) {
         Tenant tenant = getTenantById(id);
         
-        Long totalUsers = (long) userRepository.findByTenantId(id).size();
-        Long activeUsers = userRepository.countActiveByTenantId(id);
-        Long totalProviders = (long) providerRepository.findByTenantId(id).size();
-        Long activeProviders = (long) providerRepository.findActiveByTenantId(id).size();
-        Long totalIntegrations = (long) platformIntegrationRepository.findByTenantId(id).size();
-        
-        // Calculate MAU (users verified in last 30 days)
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
+        // Users, providers and integrations are all counted in one aggregate query (MAU = last 30 days)
         LocalDateTime now = LocalDateTime.now();
-        Long monthlyActiveUsers = (long) userRepository
-                .findByTenantIdAndLastVerifiedAtBetween(id, thirtyDaysAgo, now)
-                .size();
-        
-        // Total verification count
-        Long totalVerifications = userRepository.findByTenantId(id).stream()
-                .mapToLong(u -> u.getVerificationCount())
-                .sum();
-        
-        // Last verification timestamp
-        LocalDateTime lastVerificationAt = userRepository.findByTenantId(id).stream()
-                .map(u -> u.getLastVerifiedAt())
-                .max(LocalDateTime::compareTo)
-                .orElse(null);
+        TenantUsageCounts counts = tenantRepository.aggregateUsage(id, now.minusDays(30), now);
         
         // Usage percentage
-        double usagePercentage = (activeUsers.doubleValue() / tenant.getMaxVerifiedUsers()) * 100;
+        double usagePercentage = (counts.activeUsers().doubleValue() / tenant.getMaxVerifiedUsers()) * 100;
         
         return UsageStats.builder()
-                .totalUsers(totalUsers)
-                .activeUsers(activeUsers)
-                .totalProviders(totalProviders)
-                .activeProviders(activeProviders)
-                .totalPlatformIntegrations(totalIntegrations)
-                .monthlyActiveUsers(monthlyActiveUsers)
-                .totalVerifications(totalVerifications)
-                .lastVerificationAt(lastVerificationAt)
+                .totalUsers(counts.totalUsers())
+                .activeUsers(counts.activeUsers())
+                .totalProviders(counts.totalProviders())
+                .activeProviders(counts.activeProviders())
+                .totalPlatformIntegrations(counts.totalPlatformIntegrations())
+                .monthlyActiveUsers(counts.monthlyActiveUsers())
+                .totalVerifications(counts.totalVerifications())
+                .lastVerificationAt(counts.lastVerificationAt())
                 .maxVerifiedUsers(tenant.getMaxVerifiedUsers())
                 .usagePercentage(usagePercentage)
                 .build();
@@ -258,6 +296,7 @@ public class TenantService {
         tenant.setStatus("suspended");
         
         tenant = tenantRepository.save(tenant);
+        invalidateApiKeysAfterCommit(id);
         log.info("Tenant suspended: {}", id);
         
         return tenant;
@@ -274,6 +313,26 @@ public class TenantService {
         tenant.setStatus("deleted");
         
         tenantRepository.save(tenant);
+        invalidateApiKeysAfterCommit(id);
         log.info("Tenant deleted (soft): {}", id);
     }
+    
+    /**
+     * Drop a tenant's cached API key principals once the change is committed
+     * 
+     * Evicting before commit would let a concurrent request re-cache the old principal
+     * from the not yet updated row.
+     */
+    private void invalidateApiKeysAfterCommit(UUID id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apiKeyService.invalidateTenant(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apiKeyService.invalidateTenant(id);
+            }
+        });
+    }
 }
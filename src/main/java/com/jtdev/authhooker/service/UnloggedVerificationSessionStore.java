@@ -0,0 +1,155 @@
+package com.jtdev.authhooker.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jtdev.authhooker.domain.VerificationSession;
+import com.jtdev.authhooker.repository.ProviderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Sessions in the UNLOGGED verification_sessions_unlogged table (V13, app.oauth.sessions.store=unlogged)
+ *
+ * Same statements as the JPA store, without WAL writes; a crash truncates the table, which only
+ * restarts logins that were in flight. Rows are deleted as soon as they expire.
+ */
+@RequiredArgsConstructor
+public class UnloggedVerificationSessionStore implements VerificationSessionStore {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String INSERT_SQL = """
+            INSERT INTO verification_sessions_unlogged
+                (id, tenant_id, provider_id, state_token, code_verifier, nonce, platform_type,
+                 platform_user_id, redirect_url, session_data, status, expires_at, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?, ?)
+            """;
+
+    private static final String SELECT_BY_STATE_SQL = """
+            SELECT * FROM verification_sessions_unlogged WHERE state_token = ?
+            """;
+
+    private static final String COMPLETE_PENDING_SQL = """
+            UPDATE verification_sessions_unlogged
+            SET status = 'completed', completed_at = ?, session_data = CAST(? AS jsonb)
+            WHERE id = ? AND status = 'pending' AND expires_at > ?
+            """;
+
+    private static final String EXPIRE_SQL = """
+            UPDATE verification_sessions_unlogged SET status = 'expired' WHERE state_token = ?
+            """;
+
+    private static final String DELETE_EXPIRED_SQL = """
+            DELETE FROM verification_sessions_unlogged WHERE expires_at < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProviderRepository providerRepository;
+
+    @Override
+    public VerificationSession save(VerificationSession session) {
+        if (session.getId() == null) {
+            session.setId(UUID.randomUUID());
+        }
+        jdbcTemplate.update(INSERT_SQL,
+                session.getId(),
+                session.getTenant().getId(),
+                session.getProvider().getId(),
+                session.getStateToken(),
+                session.getCodeVerifier(),
+                session.getNonce(),
+                session.getPlatformType(),
+                session.getPlatformUserId(),
+                session.getRedirectUrl(),
+                toJson(session.getSessionData()),
+                session.getStatus(),
+                session.getExpiresAt(),
+                session.getCreatedAt());
+        return session;
+    }
+
+    @Override
+    public Optional<VerificationSession> findByStateToken(String stateToken) {
+        List<Row> rows = jdbcTemplate.query(SELECT_BY_STATE_SQL, (rs, rowNum) -> mapRow(rs), stateToken);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // The provider's tenant is the session's tenant (checked when the session was created)
+        Row row = rows.get(0);
+        return providerRepository.findWithTenantById(row.providerId()).map(provider -> {
+            row.session().setProvider(provider);
+            row.session().setTenant(provider.getTenant());
+            return row.session();
+        });
+    }
+
+    @Override
+    public boolean completePending(VerificationSession session, LocalDateTime completedAt,
+                                   Map<String, Object> sessionData) {
+        return jdbcTemplate.update(COMPLETE_PENDING_SQL,
+                completedAt, toJson(sessionData), session.getId(), completedAt) == 1;
+    }
+
+    @Override
+    public boolean expire(String stateToken) {
+        return jdbcTemplate.update(EXPIRE_SQL, stateToken) > 0;
+    }
+
+    @Override
+    public int purgeExpired(LocalDateTime now, LocalDateTime retainUntil) {
+        // Nothing reads finished sessions from this table, so they go once expired
+        return jdbcTemplate.update(DELETE_EXPIRED_SQL, now);
+    }
+
+    private static Row mapRow(ResultSet rs) throws SQLException {
+        VerificationSession session = VerificationSession.builder()
+                .id(rs.getObject("id", UUID.class))
+                .stateToken(rs.getString("state_token"))
+                .codeVerifier(rs.getString("code_verifier"))
+                .nonce(rs.getString("nonce"))
+                .platformType(rs.getString("platform_type"))
+                .platformUserId(rs.getString("platform_user_id"))
+                .redirectUrl(rs.getString("redirect_url"))
+                .sessionData(fromJson(rs.getString("session_data")))
+                .status(rs.getString("status"))
+                .completedAt(rs.getObject("completed_at", LocalDateTime.class))
+                .expiresAt(rs.getObject("expires_at", LocalDateTime.class))
+                .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                .build();
+        return new Row(session, rs.getObject("provider_id", UUID.class));
+    }
+
+    private static String toJson(Map<String, Object> sessionData) {
+        try {
+            return objectMapper.writeValueAsString(sessionData != null ? sessionData : Map.of());
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize session data", e);
+        }
+    }
+
+    private static Map<String, Object> fromJson(String json) {
+        if (json == null) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to read session data", e);
+        }
+    }
+
+    /**
+     * A session row before its provider and tenant are attached
+     */
+    private record Row(VerificationSession session, UUID providerId) {
+    }
+}
@@ -0,0 +1,199 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Maintains usage_metering incrementally
+ *
+ * Verifications and role syncs are counted in memory per tenant and billing month, and the
+ * distinct verified users are tracked in a HyperLogLog sketch. A scheduled flush upserts each
+ * bucket with INSERT ... ON CONFLICT, adding the counts and merging the sketch in SQL, so
+ * several instances can flush into the same row and MAU never requires scanning users.
+ */
+@Slf4j
+@Service
+public class UsageMeteringService {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO usage_metering (tenant_id, billing_month, total_verifications, total_role_syncs, mau_sketch)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (tenant_id, billing_month) DO UPDATE SET
+                total_verifications = usage_metering.total_verifications + EXCLUDED.total_verifications,
+                total_role_syncs = usage_metering.total_role_syncs + EXCLUDED.total_role_syncs,
+                mau_sketch = hll_merge(usage_metering.mau_sketch, EXCLUDED.mau_sketch)
+            RETURNING mau_sketch
+            """;
+
+    // The sketch only grows, so a late writer must never lower the estimate
+    private static final String UPDATE_MAU_SQL = """
+            UPDATE usage_metering
+            SET active_verified_users = GREATEST(active_verified_users, ?)
+            WHERE tenant_id = ? AND billing_month = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Map<BucketKey, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public UsageMeteringService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${app.metering.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Count a successful verification of a user (new or returning)
+     *
+     * Inside a transaction the event is counted only once it commits.
+     */
+    public void recordVerification(UUID tenantId, UUID userId) {
+        afterCommit(() -> update(tenantId, bucket -> bucket.addVerification(userId)));
+    }
+
+    /**
+     * Count a completed role sync for a tenant
+     */
+    public void recordRoleSync(UUID tenantId) {
+        recordRoleSyncs(tenantId, 1);
+    }
+
+    /**
+     * Count several completed role syncs for a tenant
+     */
+    public void recordRoleSyncs(UUID tenantId, int count) {
+        afterCommit(() -> update(tenantId, bucket -> bucket.addRoleSyncs(count)));
+    }
+
+    /**
+     * Write buffered usage to usage_metering
+     *
+     * Each bucket is removed before it is written; if the write fails it is merged back
+     * so the next flush retries it.
+     *
+     * @return Number of tenant-month rows written
+     */
+    @Scheduled(fixedDelayString = "${app.metering.flush-interval-ms:60000}",
+            initialDelayString = "${app.metering.flush-interval-ms:60000}")
+    public int flush() {
+        int written = 0;
+        for (BucketKey key : List.copyOf(buckets.keySet())) {
+            Bucket bucket = buckets.remove(key);
+            if (bucket == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(key, bucket));
+                written++;
+            } catch (DataIntegrityViolationException e) {
+                // Tenant deleted since the usage was recorded; retrying cannot succeed
+                log.warn("Dropping usage metering for missing tenant {} ({})", key.tenantId(), key.billingMonth());
+            } catch (Exception e) {
+                log.error("Usage metering flush failed for tenant {} ({}): {}",
+                        key.tenantId(), key.billingMonth(), e.getMessage());
+                buckets.merge(key, bucket, Bucket::mergeFrom);
+            }
+        }
+
+        if (written > 0) {
+            log.debug("Flushed usage metering for {} tenant-months", written);
+        }
+        return written;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private void write(BucketKey key, Bucket bucket) {
+        Date billingMonth = Date.valueOf(key.billingMonth());
+
+        byte[] merged = jdbcTemplate.queryForObject(UPSERT_SQL, byte[].class,
+                key.tenantId(),
+                billingMonth,
+                bucket.verifications,
+                bucket.roleSyncs,
+                bucket.sketch.isEmpty() ? null : bucket.sketch.toBytes());
+
+        if (merged != null) {
+            jdbcTemplate.update(UPDATE_MAU_SQL,
+                    HyperLogLog.fromBytes(merged).estimate(), key.tenantId(), billingMonth);
+        }
+    }
+
+    private void update(UUID tenantId, Consumer<Bucket> change) {
+        if (!enabled) {
+            return;
+        }
+        // compute() runs under the map's per-key lock, so flush's remove() never races an update
+        buckets.compute(new BucketKey(tenantId, YearMonth.now().atDay(1)), (key, bucket) -> {
+            Bucket target = bucket != null ? bucket : new Bucket();
+            change.accept(target);
+            return target;
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record BucketKey(UUID tenantId, LocalDate billingMonth) {
+    }
+
+    /**
+     * Usage accumulated for one tenant-month since the last flush; guarded by the map's key lock
+     */
+    private static final class Bucket {
+        private int verifications;
+        private int roleSyncs;
+        private final HyperLogLog sketch = new HyperLogLog();
+
+        void addVerification(UUID userId) {
+            verifications++;
+            sketch.add(userId);
+        }
+
+        void addRoleSyncs(int count) {
+            roleSyncs += count;
+        }
+
+        Bucket mergeFrom(Bucket other) {
+            verifications += other.verifications;
+            roleSyncs += other.roleSyncs;
+            sketch.merge(other.sketch);
+            return this;
+        }
+    }
+}
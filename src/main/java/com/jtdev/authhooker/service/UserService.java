@@ -1,19 +1,33 @@
 package com.jtdev.authhooker.service;
 
 import com.jtdev.authhooker.domain.*;
+import com.jtdev.authhooker.dto.PlatformUserStatus;
+import com.jtdev.authhooker.dto.UserClaims;
+import com.jtdev.authhooker.dto.UserSummary;
+import com.jtdev.authhooker.dto.response.CursorPagedResponse;
+import com.jtdev.authhooker.dto.response.PlatformLookupResponse;
+import com.jtdev.authhooker.dto.response.UserResponse;
 import com.jtdev.authhooker.exception.ConflictException;
 import com.jtdev.authhooker.exception.PlanLimitExceededException;
 import com.jtdev.authhooker.exception.ResourceNotFoundException;
 import com.jtdev.authhooker.exception.ValidationException;
 import com.jtdev.authhooker.repository.PlatformIntegrationRepository;
 import com.jtdev.authhooker.repository.UserPlatformMappingRepository;
+import com.jtdev.authhooker.repository.UserPlatformMappingRepositoryCustom.UpsertedMapping;
 import com.jtdev.authhooker.repository.UserRepository;
+import com.jtdev.authhooker.util.ClaimsUtil;
+import com.jtdev.authhooker.util.CursorUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 /**
@@ -31,88 +45,112 @@ public class UserService {
     private final TenantService tenantService;
     private final ProviderService providerService;
     private final AuditService auditService;
+    private final UsageMeteringService usageMeteringService;
+    private final EventOutbox eventOutbox;
+    private final PlatformUserStatusCache platformUserStatusCache;
+    private final EntityManager entityManager;
+    
+    // First-page keyset bound: later than any created_at (within PostgreSQL's timestamp range)
+    private static final LocalDateTime MAX_TIMESTAMP = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+    
+    // Upper bound on IDs per bulk platform lookup (one IN list per request)
+    public static final int MAX_PLATFORM_LOOKUP_IDS = 1000;
+    
+    /**
+     * Optional filters for user listings (null = not applied)
+     * 
+     * @param emailDomain Exact match on the normalized email_domain claim
+     * @param verifiedSince Users whose last verification is at or after this time
+     */
+    public record UserFilter(String emailDomain, Boolean active, LocalDateTime verifiedSince) {
+    }
     
     /**
      * Create or update a verified user from OAuth claims
      */
     public User createVerifiedUser(UUID tenantId, UUID providerId, String subject, 
                                    Map<String, Object> claims) {
-        log.info("Creating/updating verified user for tenant={}, provider={}, subject={}", 
-                tenantId, providerId, subject);
-        
-        if (subject == null || subject.isBlank()) {
-            throw new ValidationException("Subject cannot be null or empty");
-        }
-        
-        if (claims == null || claims.isEmpty()) {
-            throw new ValidationException("Claims cannot be null or empty");
-        }
+        validateVerifiedUser(subject, claims);
         
         // Validate tenant and provider
         Tenant tenant = tenantService.getTenantById(tenantId);
         Provider provider = providerService.getProviderById(providerId);
         
-        // Check if user already exists
-        Optional<User> existingUser = userRepository
-                .findByTenantIdAndProviderIdAndSubject(tenantId, providerId, subject);
-        
-        if (existingUser.isPresent()) {
-            // Update existing user
-            User user = existingUser.get();
-            user.setRawClaims(claims);
-            user.setClaims(normalizeClaims(claims));
-            user.setLastVerifiedAt(LocalDateTime.now());
-            user.setVerificationCount(user.getVerificationCount() + 1);
-            
-            // Update email if present
-            if (claims.containsKey("email")) {
-                user.setEmail((String) claims.get("email"));
-                user.setEmailVerified(
-                    claims.containsKey("email_verified") && 
-                    Boolean.TRUE.equals(claims.get("email_verified"))
-                );
-            }
-            
-            user = userRepository.save(user);
+        return createVerifiedUser(tenant, provider, subject, claims);
+    }
+    
+    /**
+     * Create or update a verified user for a tenant and provider the caller has already loaded
+     * (e.g. fetched with the verification session), skipping their lookups
+     */
+    public User createVerifiedUser(Tenant tenant, Provider provider, String subject,
+                                   Map<String, Object> claims) {
+        return createVerifiedUser(tenant, provider, subject, claims, claims);
+    }
+    
+    /**
+     * Create or update a verified user, storing the normalized claims and the raw ID token
+     * claims as separate documents
+     * 
+     * @param claims Normalized claims (standard fields plus claim mapping targets)
+     * @param rawClaims Raw ID token claims, stored as-is for audit/debugging
+     */
+    public User createVerifiedUser(Tenant tenant, Provider provider, String subject,
+                                   Map<String, Object> claims, Map<String, Object> rawClaims) {
+        UUID tenantId = tenant.getId();
+        UUID providerId = provider.getId();
+        log.info("Creating/updating verified user for tenant={}, provider={}, subject={}", 
+                tenantId, providerId, subject);
+        
+        validateVerifiedUser(subject, claims);
+        
+        Map<String, Object> storedRawClaims = rawClaims != null ? rawClaims : Map.of();
+        String fingerprint = ClaimsUtil.fingerprint(claims, storedRawClaims);
+        // Truncated to what the column stores, so the returned row can be compared with it
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        
+        // Insert or re-verify in one statement (uq_tenant_provider_subject arbitrates concurrent callbacks);
+        // claims are only rewritten when their fingerprint changed
+        User user = userRepository.upsertVerified(
+                tenantId, providerId, subject,
+                claims.containsKey("email") ? (String) claims.get("email") : null,
+                claims.containsKey("email_verified") && Boolean.TRUE.equals(claims.get("email_verified")),
+                ClaimsUtil.toJson(storedRawClaims),
+                ClaimsUtil.toJson(normalizeClaims(claims)),
+                fingerprint,
+                now);
+        
+        // A persistence context that already held the user returns its instance without the new row state
+        if (!now.equals(user.getLastVerifiedAt())) {
+            entityManager.refresh(user);
+        }
+        
+        if (user.getVerificationCount() > 1) {
             log.info("User updated: {} (verification count: {})", 
                     user.getId(), user.getVerificationCount());
             
             // Audit log
             auditService.logAction(tenantId, user.getId(), "user.verified", 
                 Map.of("subject", subject, "verificationCount", user.getVerificationCount()));
+            usageMeteringService.recordVerification(tenantId, user.getId());
+            eventOutbox.append(tenantId, EventOutbox.USER_VERIFIED, user.getId(), userEvent(user));
             
             return user;
         }
         
-        // Check plan limits for new user
-        if (!tenantService.validatePlanLimits(tenantId, "users")) {
+        // The row is new: check the plan limit now that it is counted (rolls the insert back if exceeded)
+        if (!tenantService.confirmPlanSlot(tenant, "users")) {
             throw new PlanLimitExceededException(
                 "User limit exceeded for current plan tier: " + tenant.getPlanTier());
         }
-        
-        // Create new user
-        Map<String, Object> normalizedClaims = normalizeClaims(claims);
-        
-        User user = User.builder()
-                .tenant(tenant)
-                .provider(provider)
-                .subject(subject)
-                .email(claims.containsKey("email") ? (String) claims.get("email") : null)
-                .emailVerified(
-                    claims.containsKey("email_verified") && 
-                    Boolean.TRUE.equals(claims.get("email_verified"))
-                )
-                .rawClaims(claims)
-                .claims(normalizedClaims)
-                .isActive(true)
-                .build();
-        
-        user = userRepository.save(user);
         log.info("User created: {} (subject={})", user.getId(), subject);
         
         // Audit log
         auditService.logAction(tenantId, user.getId(), "user.created", 
             Map.of("subject", subject, "email", user.getEmail()));
+        usageMeteringService.recordVerification(tenantId, user.getId());
+        eventOutbox.append(tenantId, EventOutbox.USER_CREATED, user.getId(), userEvent(user));
         
         return user;
     }
@@ -145,6 +183,57 @@ public class UserService {
         return userRepository.findByTenantId(tenantId);
     }
     
+    /**
+     * Get one keyset page of a tenant's users, newest first
+     * 
+     * Rows are projected straight to UserSummary; claims and raw claims are loaded with one extra
+     * query each, for the page's users only, and only when requested.
+     * 
+     * @param cursor nextCursor of the previous page (null for the first page)
+     * @param limit Maximum rows in the page
+     */
+    @Transactional(readOnly = true)
+    public CursorPagedResponse<UserResponse> getUserPage(UUID tenantId, UserFilter filter,
+                                                        boolean includeClaims, boolean includeRawClaims,
+                                                        String cursor, int limit) {
+        LocalDateTime beforeCreatedAt = MAX_TIMESTAMP;
+        UUID beforeId = FIRST_ID;
+        
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        if (position != null) {
+            beforeCreatedAt = position.timestamp();
+            beforeId = parseCursorId(position.id());
+        }
+        
+        // One extra row tells whether another page follows
+        Limit pageLimit = Limit.of(limit + 1);
+        List<UserSummary> rows = filter.emailDomain() != null
+                ? userRepository.findSummaryPageByTenantIdAndEmailDomain(tenantId, filter.emailDomain(),
+                        filter.active(), filter.verifiedSince(), beforeCreatedAt, beforeId, pageLimit)
+                : userRepository.findSummaryPageByTenantId(tenantId, filter.active(), filter.verifiedSince(),
+                        beforeCreatedAt, beforeId, pageLimit);
+        
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            UserSummary last = rows.get(rows.size() - 1);
+            nextCursor = CursorUtil.encode(last.createdAt(), last.id());
+        }
+        
+        List<UUID> ids = rows.stream().map(UserSummary::id).toList();
+        Map<UUID, Map<String, Object>> claims = includeClaims && !ids.isEmpty()
+                ? toMap(userRepository.findClaimsByIdIn(ids))
+                : Map.of();
+        Map<UUID, Map<String, Object>> rawClaims = includeRawClaims && !ids.isEmpty()
+                ? toMap(userRepository.findRawClaimsByIdIn(ids))
+                : Map.of();
+        
+        List<UserResponse> content = rows.stream()
+                .map(row -> UserResponse.fromSummary(tenantId, row, claims.get(row.id()), rawClaims.get(row.id())))
+                .toList();
+        return CursorPagedResponse.of(content, nextCursor);
+    }
+    
     /**
      * Update user claims
      */
@@ -162,6 +251,7 @@ public class UserService {
         mergedClaims.putAll(normalizeClaims(newClaims));
         
         user.setClaims(mergedClaims);
+        user.setClaimsFingerprint(null); // no longer what the last verification stored
         user.setLastVerifiedAt(LocalDateTime.now());
         
         user = userRepository.save(user);
@@ -176,78 +266,61 @@ public class UserService {
     public UserPlatformMapping linkPlatformAccount(UUID userId, String platform, 
                                                    String platformUserId, 
                                                    Map<String, Object> metadata) {
+        validatePlatformAccount(platform, platformUserId);
+        
+        return linkPlatformAccount(getUserById(userId), platform, platformUserId, metadata);
+    }
+    
+    /**
+     * Link a user the caller has already loaded (e.g. just verified) to a platform account
+     */
+    public UserPlatformMapping linkPlatformAccount(User user, String platform,
+                                                   String platformUserId,
+                                                   Map<String, Object> metadata) {
+        UUID userId = user.getId();
         log.info("Linking user {} to platform {} (platformUserId={})", 
                 userId, platform, platformUserId);
         
-        if (platform == null || platform.isBlank()) {
-            throw new ValidationException("Platform type cannot be null or empty");
-        }
-        
-        if (platformUserId == null || platformUserId.isBlank()) {
-            throw new ValidationException("Platform user ID cannot be null or empty");
-        }
-        
-        User user = getUserById(userId);
-        
-        // Check if this platform user is already linked to another user
-        Optional<UserPlatformMapping> existingMapping = mappingRepository
-                .findByPlatformTypeAndPlatformUserId(platform, platformUserId);
-        
-        if (existingMapping.isPresent() && 
-            !existingMapping.get().getUser().getId().equals(userId)) {
-            throw new ConflictException(
-                "Platform account already linked to another user: " + platform + "/" + platformUserId);
+        validatePlatformAccount(platform, platformUserId);
+        
+        UUID tenantId = user.getTenant().getId();
+        String platformUsername = metadata != null && metadata.containsKey("username")
+                ? (String) metadata.get("username")
+                : null;
+        
+        UpsertedMapping upserted;
+        try {
+            upserted = mappingRepository.upsertForUser(tenantId, userId, platform, platformUserId,
+                            platformUsername, LocalDateTime.now())
+                    .orElseThrow(() -> linkRejected(tenantId, platform, platformUserId));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent link of the same account to another user committed first
+            if (isUniqueViolation(e, "uq_platform_user")) {
+                throw alreadyLinked(platform, platformUserId);
+            }
+            throw e;
         }
         
-        // Check if user already has a mapping for this platform
-        Optional<UserPlatformMapping> userMapping = mappingRepository
-                .findByUserIdAndPlatformType(userId, platform);
+        UserPlatformMapping mapping = upserted.mapping();
+        String previousPlatformUserId = upserted.previousPlatformUserId();
+        platformUserStatusCache.invalidate(tenantId, platform, platformUserId);
         
-        if (userMapping.isPresent()) {
-            // Update existing mapping
-            UserPlatformMapping mapping = userMapping.get();
-            mapping.setPlatformUserId(platformUserId);
-            mapping.setIsActive(true);
-            mapping.setUnlinkedAt(null);
+        if (previousPlatformUserId == null) {
+            log.info("Platform mapping created: {} (user={}, platform={})", 
+                    mapping.getId(), userId, platform);
             
-            if (metadata != null && metadata.containsKey("username")) {
-                mapping.setPlatformUsername((String) metadata.get("username"));
+            // Audit log
+            auditService.logAction(tenantId, userId, "platform.linked", 
+                Map.of("platform", platform, "platformUserId", platformUserId));
+        } else {
+            if (!previousPlatformUserId.equals(platformUserId)) {
+                platformUserStatusCache.invalidate(tenantId, platform, previousPlatformUserId);
             }
-            
-            mapping = mappingRepository.save(mapping);
             log.info("Platform mapping updated: {}", mapping.getId());
-            
-            return mapping;
         }
         
-        // Find platform integration
-        PlatformIntegration integration = integrationRepository
-                .findByTenantIdAndPlatformType(user.getTenant().getId(), platform)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                    "Platform integration not found for: " + platform));
-        
-        // Create new mapping
-        UserPlatformMapping mapping = UserPlatformMapping.builder()
-                .user(user)
-                .platformIntegration(integration)
-                .platformType(platform)
-                .platformUserId(platformUserId)
-                .platformUsername(
-                    metadata != null && metadata.containsKey("username") 
-                        ? (String) metadata.get("username") 
-                        : null
-                )
-                .currentRoles(List.of())
-                .isActive(true)
-                .build();
-        
-        mapping = mappingRepository.save(mapping);
-        log.info("Platform mapping created: {} (user={}, platform={})", 
-                mapping.getId(), userId, platform);
-        
-        // Audit log
-        auditService.logAction(user.getTenant().getId(), userId, "platform.linked", 
-            Map.of("platform", platform, "platformUserId", platformUserId));
+        eventOutbox.append(tenantId, EventOutbox.PLATFORM_LINKED, mapping.getId(),
+                mappingEvent(mapping, userId));
         
         return mapping;
     }
@@ -271,6 +344,67 @@ public class UserService {
                 .map(UserPlatformMapping::getUser);
     }
     
+    /**
+     * Verification status and roles of a platform account, served from PlatformUserStatusCache
+     */
+    @Transactional(readOnly = true)
+    public Optional<PlatformUserStatus> getPlatformUserStatus(UUID tenantId, String platform, String platformUserId) {
+        if (platform == null || platform.isBlank() || platformUserId == null || platformUserId.isBlank()) {
+            return Optional.empty();
+        }
+        return platformUserStatusCache.get(tenantId, platform, platformUserId);
+    }
+    
+    /**
+     * Resolve many platform accounts of a tenant at once
+     * 
+     * Replaces per-member getUserByPlatformId calls for bots scanning large guilds: cached IDs are
+     * served from PlatformUserStatusCache and the rest (up to MAX_PLATFORM_LOOKUP_IDS) are resolved
+     * in one query, returning status and roles without loading entities.
+     */
+    @Transactional(readOnly = true)
+    public PlatformLookupResponse lookupPlatformUsers(UUID tenantId, String platform,
+                                                      Collection<String> platformUserIds) {
+        if (platform == null || platform.isBlank()) {
+            throw new ValidationException("Platform is required");
+        }
+        if (platformUserIds == null || platformUserIds.isEmpty()) {
+            throw new ValidationException("At least one platform user ID is required");
+        }
+        
+        Set<String> ids = new LinkedHashSet<>();
+        for (String id : platformUserIds) {
+            if (id != null && !id.isBlank()) {
+                ids.add(id);
+            }
+        }
+        if (ids.size() > MAX_PLATFORM_LOOKUP_IDS) {
+            throw new ValidationException(
+                    "At most " + MAX_PLATFORM_LOOKUP_IDS + " platform user IDs can be looked up per request");
+        }
+        
+        Map<String, PlatformUserStatus> statuses = ids.isEmpty()
+                ? Map.of()
+                : platformUserStatusCache.getAll(tenantId, platform, ids);
+        
+        List<PlatformUserStatus> users = new ArrayList<>(statuses.size());
+        List<String> notFound = new ArrayList<>();
+        for (String id : ids) {
+            PlatformUserStatus status = statuses.get(id);
+            if (status != null) {
+                users.add(status);
+            } else {
+                notFound.add(id);
+            }
+        }
+        
+        return PlatformLookupResponse.builder()
+                .platform(platform)
+                .users(users)
+                .notFound(notFound)
+                .build();
+    }
+    
     /**
      * Unlink platform account
      */
@@ -286,12 +420,15 @@ public class UserService {
         
         mapping.unlink();
         mappingRepository.save(mapping);
+        platformUserStatusCache.invalidate(user.getTenant().getId(), platform, mapping.getPlatformUserId());
         
         log.info("Platform mapping unlinked: {}", mapping.getId());
         
         // Audit log
         auditService.logAction(user.getTenant().getId(), userId, "platform.unlinked", 
             Map.of("platform", platform, "platformUserId", mapping.getPlatformUserId()));
+        eventOutbox.append(user.getTenant().getId(), EventOutbox.PLATFORM_UNLINKED, mapping.getId(),
+                mappingEvent(mapping, userId));
     }
     
     /**
@@ -318,6 +455,8 @@ public class UserService {
         mappings.forEach(mapping -> {
             mapping.unlink();
             mappingRepository.save(mapping);
+            platformUserStatusCache.invalidate(
+                    user.getTenant().getId(), mapping.getPlatformType(), mapping.getPlatformUserId());
         });
         
         // Soft delete user
@@ -331,6 +470,96 @@ public class UserService {
         auditService.logAction(user.getTenant().getId(), id, "user.deleted", Map.of());
     }
     
+    private static void validateVerifiedUser(String subject, Map<String, Object> claims) {
+        if (subject == null || subject.isBlank()) {
+            throw new ValidationException("Subject cannot be null or empty");
+        }
+        
+        if (claims == null || claims.isEmpty()) {
+            throw new ValidationException("Claims cannot be null or empty");
+        }
+    }
+    
+    private static void validatePlatformAccount(String platform, String platformUserId) {
+        if (platform == null || platform.isBlank()) {
+            throw new ValidationException("Platform type cannot be null or empty");
+        }
+        
+        if (platformUserId == null || platformUserId.isBlank()) {
+            throw new ValidationException("Platform user ID cannot be null or empty");
+        }
+    }
+    
+    private static Map<UUID, Map<String, Object>> toMap(List<UserClaims> rows) {
+        Map<UUID, Map<String, Object>> byUser = new HashMap<>(rows.size() * 2);
+        rows.forEach(row -> byUser.put(row.userId(), row.claims()));
+        return byUser;
+    }
+    
+    private static UUID parseCursorId(String id) {
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor", e);
+        }
+    }
+    
+    /**
+     * Outbox payload for user events
+     */
+    private static Map<String, Object> userEvent(User user) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("user_id", user.getId().toString());
+        payload.put("subject", user.getSubject());
+        payload.put("email", user.getEmail());
+        payload.put("verification_count", user.getVerificationCount());
+        return payload;
+    }
+    
+    /**
+     * Outbox payload for platform link events
+     */
+    private static Map<String, Object> mappingEvent(UserPlatformMapping mapping, UUID userId) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("mapping_id", mapping.getId().toString());
+        payload.put("user_id", userId.toString());
+        payload.put("platform", mapping.getPlatformType());
+        payload.put("platform_user_id", mapping.getPlatformUserId());
+        payload.put("platform_integration_id", mapping.getPlatformIntegration().getId().toString());
+        payload.put("roles", mapping.getCurrentRoles());
+        return payload;
+    }
+    
+    /**
+     * Why a platform link upsert wrote nothing: no integration for the platform, or the account
+     * belongs to another user
+     */
+    private RuntimeException linkRejected(UUID tenantId, String platform, String platformUserId) {
+        if (integrationRepository.findByTenantIdAndPlatformType(tenantId, platform).isEmpty()) {
+            return new ResourceNotFoundException("Platform integration not found for: " + platform);
+        }
+        return alreadyLinked(platform, platformUserId);
+    }
+    
+    private ConflictException alreadyLinked(String platform, String platformUserId) {
+        return new ConflictException(
+            "Platform account already linked to another user: " + platform + "/" + platformUserId);
+    }
+    
+    /**
+     * Whether the statement failed on the given unique index (SQLState 23505), going by the
+     * constraint name the server reported rather than the message text
+     */
+    private static boolean isUniqueViolation(DataIntegrityViolationException e, String constraintName) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return "23505".equals(violation.getSQLState())
+                        && constraintName.equals(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+    
     /**
      * Normalize OAuth claims to a standard format
      */
@@ -5,9 +5,10 @@ import com.jtdev.authhooker.domain.Tenant;
 import com.jtdev.authhooker.domain.VerificationSession;
 import com.jtdev.authhooker.exception.ResourceNotFoundException;
 import com.jtdev.authhooker.exception.ValidationException;
-import com.jtdev.authhooker.repository.VerificationSessionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +21,8 @@ import java.util.UUID;
 
 /**
  * Service for managing OAuth verification sessions
+ * 
+ * Sessions are kept by the configured {@link VerificationSessionStore} (app.oauth.sessions.store).
  */
 @Slf4j
 @Service
@@ -27,10 +30,13 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class VerificationSessionService {
     
-    private final VerificationSessionRepository sessionRepository;
+    private final VerificationSessionStore sessionStore;
     private final TenantService tenantService;
     private final ProviderService providerService;
     
+    @Value("${app.cleanup.verification-sessions-hours:24}")
+    private int retentionHours;
+    
     private final SecureRandom secureRandom = new SecureRandom();
     
     private static final int SESSION_EXPIRATION_MINUTES = 10;
@@ -47,6 +53,11 @@ public class VerificationSessionService {
         Tenant tenant = tenantService.getTenantById(tenantId);
         Provider provider = providerService.getProviderById(providerId);
         
+        // Stores that keep only the provider's ID take the session's tenant from it
+        if (!provider.getTenant().getId().equals(tenant.getId())) {
+            throw new ValidationException("Provider does not belong to the specified tenant");
+        }
+        
         // Generate secure random state token
         String stateToken = generateSecureToken();
         
@@ -72,7 +83,7 @@ public class VerificationSessionService {
                 .expiresAt(expiresAt)
                 .build();
         
-        session = sessionRepository.save(session);
+        session = sessionStore.save(session);
         log.info("Verification session created: {} (state={})", session.getId(), stateToken);
         
         return session;
@@ -87,7 +98,8 @@ public class VerificationSessionService {
             return Optional.empty();
         }
         
-        Optional<VerificationSession> session = sessionRepository.findByStateToken(stateToken);
+        // Tenant and provider come with the session; callers use both
+        Optional<VerificationSession> session = sessionStore.findByStateToken(stateToken);
         
         // Check if session is expired
         if (session.isPresent() && session.get().isExpired()) {
@@ -113,15 +125,29 @@ public class VerificationSessionService {
                 "Verification session is not pending: " + session.getStatus());
         }
         
-        // Update session
-        session.complete();
+        return completeSession(session, claims);
+    }
+    
+    /**
+     * Complete a session already loaded by {@link #getSessionByState}
+     * 
+     * Issues a single conditional UPDATE instead of reloading the session, so a state token
+     * replayed concurrently cannot complete the same session twice.
+     */
+    public VerificationSession completeSession(VerificationSession session, Map<String, Object> claims) {
+        log.info("Completing verification session: {}", session.getId());
+        
+        Map<String, Object> sessionData = claims != null && !claims.isEmpty() ? claims : session.getSessionData();
+        LocalDateTime completedAt = LocalDateTime.now();
         
-        // Store claims in session data if needed
-        if (claims != null && !claims.isEmpty()) {
-            session.setSessionData(claims);
+        if (!sessionStore.completePending(session, completedAt, sessionData)) {
+            throw new ValidationException(
+                "Verification session is not pending or has expired: " + session.getId());
         }
         
-        session = sessionRepository.save(session);
+        session.setStatus("completed");
+        session.setCompletedAt(completedAt);
+        session.setSessionData(sessionData);
         log.info("Verification session completed: {}", session.getId());
         
         return session;
@@ -133,36 +159,31 @@ public class VerificationSessionService {
     public void expireSession(String stateToken) {
         log.info("Expiring verification session: {}", stateToken);
         
-        VerificationSession session = sessionRepository.findByStateToken(stateToken)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                    "Verification session not found: " + stateToken));
-        
-        session.expire();
-        sessionRepository.save(session);
+        if (!sessionStore.expire(stateToken)) {
+            throw new ResourceNotFoundException("Verification session not found: " + stateToken);
+        }
         
-        log.info("Verification session expired: {}", session.getId());
+        log.info("Verification session expired: {}", stateToken);
     }
     
     /**
      * Clean up expired sessions
      * 
+     * Expired sessions are dropped by the store (the JPA store marks them expired and keeps
+     * finished sessions for app.cleanup.verification-sessions-hours).
+     * 
      * @return number of sessions cleaned up
      */
+    @Scheduled(fixedDelayString = "${app.oauth.sessions.cleanup-interval-ms:60000}")
     public int cleanupExpiredSessions() {
-        log.info("Cleaning up expired verification sessions");
-        
         LocalDateTime now = LocalDateTime.now();
         
-        // Update status of expired sessions
-        int expiredCount = sessionRepository.expireOldSessions(now);
-        
-        // Delete sessions older than 24 hours
-        LocalDateTime oneDayAgo = now.minusHours(24);
-        int deletedCount = sessionRepository.deleteOldSessions(oneDayAgo);
-        
-        log.info("Expired {} sessions, deleted {} old sessions", expiredCount, deletedCount);
+        int cleanedUp = sessionStore.purgeExpired(now, now.minusHours(retentionHours));
+        if (cleanedUp > 0) {
+            log.info("Cleaned up {} expired verification sessions", cleanedUp);
+        }
         
-        return expiredCount + deletedCount;
+        return cleanedUp;
     }
     
     /**
@@ -0,0 +1,53 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.domain.VerificationSession;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Storage backend for OAuth verification sessions, selected with app.oauth.sessions.store
+ *
+ * - jpa: the verification_sessions table (default)
+ * - unlogged: the UNLOGGED verification_sessions_unlogged table (no WAL; lost on a crash)
+ * - memory: in-process, for single-node deployments (lost on restart)
+ *
+ * Sessions are only valid until their expiresAt; each backend drops them after that on its own.
+ */
+public interface VerificationSessionStore {
+
+    /**
+     * Store a new session, assigning its ID
+     */
+    VerificationSession save(VerificationSession session);
+
+    /**
+     * Find a session by state token, with its tenant and provider loaded
+     */
+    Optional<VerificationSession> findByStateToken(String stateToken);
+
+    /**
+     * Complete a session if it is still pending and unexpired (atomic: a replayed state token
+     * cannot complete it twice)
+     *
+     * @return true if the session was completed
+     */
+    boolean completePending(VerificationSession session, LocalDateTime completedAt, Map<String, Object> sessionData);
+
+    /**
+     * Mark a session expired
+     *
+     * @return false if no session has this state token
+     */
+    boolean expire(String stateToken);
+
+    /**
+     * Remove sessions the backend no longer needs
+     *
+     * @param now Sessions that expired before this are no longer valid
+     * @param retainUntil Backends that keep finished sessions for reference drop those created before this
+     * @return number of sessions expired or removed
+     */
+    int purgeExpired(LocalDateTime now, LocalDateTime retainUntil);
+}
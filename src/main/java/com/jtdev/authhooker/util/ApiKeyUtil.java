@@ -0,0 +1,62 @@
+package com.jtdev.authhooker.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Utility class for tenant API key operations
+ *
+ * API keys are only returned to the caller once, at generation time.
+ * The database stores the SHA-256 hash so lookups stay a single indexed probe.
+ */
+public final class ApiKeyUtil {
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    private static final int API_KEY_BYTES = 32; // 256-bit
+
+    private ApiKeyUtil() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Generate a new API key
+     *
+     * @return A cryptographically random 256-bit key, base64url-encoded without padding
+     */
+    public static String generateApiKey() {
+        byte[] bytes = new byte[API_KEY_BYTES];
+        SECURE_RANDOM.nextBytes(bytes);
+
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(bytes);
+    }
+
+    /**
+     * Hash an API key for storage and lookup
+     *
+     * Matches the V4 migration backfill: hex(SHA-256(UTF-8(apiKey)))
+     *
+     * @param apiKey The plaintext API key
+     * @return Lowercase hex-encoded SHA-256 hash (64 characters)
+     * @throws IllegalArgumentException if API key is null or empty
+     */
+    public static String hashApiKey(String apiKey) {
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalArgumentException("API key cannot be null or empty");
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 should always be available
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+    }
+}
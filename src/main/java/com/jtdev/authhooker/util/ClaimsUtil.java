@@ -0,0 +1,79 @@
+package com.jtdev.authhooker.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Utility class for user claims
+ *
+ * The fingerprint lets re-verification tell unchanged claims apart without comparing
+ * the stored JSONB documents; the JSON form is what native queries bind to JSONB parameters.
+ * Claims that describe the token rather than the user (issue/expiry times, nonce, hashes)
+ * are left out of the fingerprint, since they differ on every login.
+ */
+public final class ClaimsUtil {
+
+    // Map keys are sorted at every level so equal claims always serialize the same way
+    private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    // Per-token claims: a new ID token for the same identity always changes these
+    static final Set<String> VOLATILE_CLAIMS = Set.of(
+            "iat", "exp", "nbf", "nonce", "auth_time", "at_hash", "c_hash", "jti");
+    
+    private ClaimsUtil() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Serialize claims to JSON (keys sorted)
+     */
+    public static String toJson(Map<String, Object> claims) {
+        try {
+            return CANONICAL_MAPPER.writeValueAsString(claims);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Claims are not serializable", e);
+        }
+    }
+
+    /**
+     * Fingerprint a user's claims as given to verification
+     *
+     * @param claims Normalized claims
+     * @param rawClaims Raw ID token claims
+     * @return Lowercase hex-encoded SHA-256 of the canonical JSON of both without their
+     *         per-token claims (64 characters)
+     */
+    public static String fingerprint(Map<String, Object> claims, Map<String, Object> rawClaims) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("claims", withoutVolatileClaims(claims));
+        document.put("raw_claims", withoutVolatileClaims(rawClaims));
+
+        try {
+            byte[] json = CANONICAL_MAPPER.writeValueAsBytes(document);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Claims are not serializable", e);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 should always be available
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+    }
+    
+    private static Map<String, Object> withoutVolatileClaims(Map<String, Object> claims) {
+        if (claims == null || VOLATILE_CLAIMS.stream().noneMatch(claims::containsKey)) {
+            return claims;
+        }
+        Map<String, Object> stable = new LinkedHashMap<>(claims);
+        stable.keySet().removeAll(VOLATILE_CLAIMS);
+        return stable;
+    }
+}
@@ -0,0 +1,61 @@
+package com.jtdev.authhooker.util;
+
+import com.jtdev.authhooker.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Utility class for opaque keyset pagination cursors
+ *
+ * A cursor holds the sort key of the last row of a page: (timestamp, id).
+ * It is base64url-encoded so clients treat it as an opaque token.
+ */
+public final class CursorUtil {
+
+    private static final String SEPARATOR = "|";
+
+    private CursorUtil() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Position after which the next page starts
+     */
+    public record Cursor(LocalDateTime timestamp, String id) {}
+
+    /**
+     * Encode the sort key of the last row of a page
+     */
+    public static String encode(LocalDateTime timestamp, Object id) {
+        String raw = timestamp + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor returned by {@link #encode}
+     *
+     * @return The cursor, or null if cursor is null or blank
+     * @throws ValidationException if the cursor is malformed
+     */
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator <= 0 || separator == raw.length() - 1) {
+                throw new ValidationException("Invalid cursor");
+            }
+            return new Cursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    raw.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidationException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package db.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * V11: Store each user's raw claims once
+ *
+ * Verification used to merge the whole raw claim set into users.claims, so every row carried
+ * its raw claims twice. This removes from claims every key whose value is the same as in
+ * raw_claims, except the normalized fields, then drops the GIN index on raw_claims (no query
+ * filters on it) and switches raw_claims to lz4 TOAST compression where the server supports it.
+ *
+ * Runs outside a transaction so each batch commits on its own and row locks stay short;
+ * re-running it is harmless.
+ */
+@Slf4j
+public class V11__Compact_user_claims extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 1000;
+
+    // Fields of the normalized claims document, kept even when raw_claims has the same value
+    private static final String[] NORMALIZED_CLAIMS = {
+            "subject", "email", "email_domain", "name", "given_name", "family_name",
+            "picture", "email_verified", "groups", "locale"
+    };
+
+    private static final String NEXT_BATCH = """
+            SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?
+            """;
+
+    private static final String DEDUPLICATE_CLAIMS = """
+            UPDATE users u
+            SET claims = u.claims - ARRAY(
+                SELECT c.key FROM jsonb_each(u.claims) c
+                WHERE u.raw_claims -> c.key = c.value AND c.key <> ALL(?))
+            WHERE u.id = ANY(?)
+              AND EXISTS (
+                SELECT 1 FROM jsonb_each(u.claims) c
+                WHERE u.raw_claims -> c.key = c.value AND c.key <> ALL(?))
+            """;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+
+        int rewritten = deduplicateClaims(connection);
+        log.info("Removed duplicated raw claims from {} users", rewritten);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP INDEX CONCURRENTLY IF EXISTS idx_users_raw_claims_gin");
+        }
+
+        // Applies to values written from now on; older rows keep their compression until rewritten
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE users ALTER COLUMN raw_claims SET COMPRESSION lz4");
+        } catch (SQLException e) {
+            log.warn("Keeping default compression for users.raw_claims: {}", e.getMessage());
+        }
+    }
+
+    private int deduplicateClaims(Connection connection) throws SQLException {
+        Array keep = connection.createArrayOf("text", NORMALIZED_CLAIMS);
+        UUID after = new UUID(0L, 0L);
+        int rewritten = 0;
+
+        try (PreparedStatement select = connection.prepareStatement(NEXT_BATCH);
+             PreparedStatement update = connection.prepareStatement(DEDUPLICATE_CLAIMS)) {
+            while (true) {
+                List<UUID> ids = new ArrayList<>(BATCH_SIZE);
+                select.setObject(1, after);
+                select.setInt(2, BATCH_SIZE);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getObject(1, UUID.class));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    return rewritten;
+                }
+
+                update.setArray(1, keep);
+                update.setArray(2, connection.createArrayOf("uuid", ids.toArray()));
+                update.setArray(3, keep);
+                rewritten += update.executeUpdate();
+                after = ids.get(ids.size() - 1);
+            }
+        }
+    }
+}
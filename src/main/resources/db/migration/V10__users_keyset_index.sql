@@ -0,0 +1,10 @@
+-- V10: Keyset pagination for GET /api/v1/users
+-- Listings page through a tenant's users newest first by (created_at, id); this index lets each
+-- page start where the previous one ended instead of sorting all of the tenant's users
+
+-- ========================================
+-- USERS - Keyset index
+-- ========================================
+CREATE INDEX idx_users_tenant_created
+    ON users(tenant_id, created_at DESC, id DESC)
+    WHERE deleted_at IS NULL;
@@ -0,0 +1,11 @@
+-- V12: Claims fingerprint for write-free re-verification
+-- SHA-256 of the claims a verification stored; a re-verification with the same fingerprint only
+-- bumps last_verified_at and verification_count instead of rewriting both JSONB columns.
+-- Existing rows start without one and get it on their next verification.
+
+-- ========================================
+-- USERS - Claims fingerprint
+-- ========================================
+ALTER TABLE users ADD COLUMN claims_fingerprint VARCHAR(64);
+
+COMMENT ON COLUMN users.claims_fingerprint IS 'SHA-256 of the claims stored by the last verification';
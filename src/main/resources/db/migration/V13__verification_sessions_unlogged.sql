@@ -0,0 +1,34 @@
+-- V13: UNLOGGED verification session store
+-- Used when app.oauth.sessions.store=unlogged. Sessions live minutes, so their writes skip the WAL;
+-- the table is truncated after a crash (in-flight logins restart) and is not replicated.
+
+-- ========================================
+-- VERIFICATION_SESSIONS_UNLOGGED
+-- ========================================
+CREATE UNLOGGED TABLE verification_sessions_unlogged (
+    id                  UUID PRIMARY KEY,
+    tenant_id           UUID NOT NULL REFERENCES tenants(id) ON DELETE CASCADE,
+    provider_id         UUID NOT NULL REFERENCES providers(id) ON DELETE CASCADE,
+    
+    -- OAuth state
+    state_token         VARCHAR(255) NOT NULL UNIQUE,
+    code_verifier       VARCHAR(255),
+    nonce               VARCHAR(255),
+    
+    -- Context
+    platform_type       VARCHAR(50),
+    platform_user_id    VARCHAR(255),
+    redirect_url        TEXT,
+    session_data        JSONB DEFAULT '{}',
+    
+    -- Status
+    status              VARCHAR(50) NOT NULL DEFAULT 'pending',
+    completed_at        TIMESTAMP,
+    expires_at          TIMESTAMP NOT NULL,
+    created_at          TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Expiry sweep (DELETE ... WHERE expires_at < now)
+CREATE INDEX idx_verification_sessions_unlogged_expires ON verification_sessions_unlogged(expires_at);
+
+COMMENT ON TABLE verification_sessions_unlogged IS 'Verification sessions for the unlogged session store (not crash-safe)';
@@ -0,0 +1,71 @@
+-- V14: Keep audit_logs_default from blocking partition creation and retention
+-- Rows land in the default partition when maintenance has not created their month in time.
+-- Creating that month's partition later used to fail its constraint check against those rows,
+-- and retention only dropped monthly partitions, so they were never removed.
+
+-- ========================================
+-- Partition helpers
+-- ========================================
+
+-- Create the partition holding p_month (any timestamp within the month), if missing.
+-- Rows for the month already in the default partition are moved into the new partition.
+CREATE OR REPLACE FUNCTION create_audit_log_partition(p_month TIMESTAMP)
+RETURNS TEXT AS $$
+DECLARE
+    v_from  TIMESTAMP := date_trunc('month', p_month);
+    v_to    TIMESTAMP := date_trunc('month', p_month) + INTERVAL '1 month';
+    v_name  TEXT := 'audit_logs_' || to_char(date_trunc('month', p_month), '"y"YYYY"m"MM');
+BEGIN
+    -- Serialize partition DDL across application instances
+    PERFORM pg_advisory_xact_lock(hashtext('audit_logs_partitions'));
+
+    IF to_regclass(v_name) IS NOT NULL THEN
+        RETURN v_name;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM audit_logs_default WHERE timestamp >= v_from AND timestamp < v_to) THEN
+        -- Detached, the default partition no longer conflicts with the new range
+        ALTER TABLE audit_logs DETACH PARTITION audit_logs_default;
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+            v_name, v_from, v_to);
+        INSERT INTO audit_logs
+        SELECT * FROM audit_logs_default WHERE timestamp >= v_from AND timestamp < v_to;
+        DELETE FROM audit_logs_default WHERE timestamp >= v_from AND timestamp < v_to;
+        ALTER TABLE audit_logs ATTACH PARTITION audit_logs_default DEFAULT;
+    ELSE
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+            v_name, v_from, v_to);
+    END IF;
+    RETURN v_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detach and drop every monthly partition whose whole range is older than p_cutoff, and delete
+-- default partition rows from those months. Returns the names of the dropped partitions.
+CREATE OR REPLACE FUNCTION drop_audit_log_partitions_before(p_cutoff TIMESTAMP)
+RETURNS SETOF TEXT AS $$
+DECLARE
+    v_name  TEXT;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('audit_logs_partitions'));
+
+    DELETE FROM audit_logs_default WHERE timestamp < date_trunc('month', p_cutoff);
+
+    FOR v_name IN
+        SELECT child.relname
+        FROM pg_inherits i
+        JOIN pg_class parent ON parent.oid = i.inhparent
+        JOIN pg_class child ON child.oid = i.inhrelid
+        WHERE parent.relname = 'audit_logs'
+          AND child.relname ~ '^audit_logs_y[0-9]{4}m[0-9]{2}$'
+          AND to_timestamp(substr(child.relname, 12), '"y"YYYY"m"MM')::TIMESTAMP + INTERVAL '1 month' <= p_cutoff
+        ORDER BY child.relname
+    LOOP
+        EXECUTE format('ALTER TABLE audit_logs DETACH PARTITION %I', v_name);
+        EXECUTE format('DROP TABLE %I', v_name);
+        RETURN NEXT v_name;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
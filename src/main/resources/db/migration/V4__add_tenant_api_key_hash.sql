@@ -0,0 +1,26 @@
+-- V4: Indexed API key lookup
+-- Moves tenant API keys out of the settings JSONB into a hashed, uniquely indexed column
+
+-- ========================================
+-- Add api_key_hash column
+-- ========================================
+ALTER TABLE tenants ADD COLUMN api_key_hash VARCHAR(64);
+
+-- ========================================
+-- Backfill from settings.api_key (SHA-256, hex encoded)
+-- ========================================
+UPDATE tenants
+SET api_key_hash = encode(sha256(convert_to(settings->>'api_key', 'UTF8')), 'hex')
+WHERE settings ? 'api_key'
+  AND settings->>'api_key' IS NOT NULL;
+
+-- Plaintext keys are no longer stored
+UPDATE tenants
+SET settings = settings - 'api_key'
+WHERE settings ? 'api_key';
+
+-- ========================================
+-- Unique index for single-probe lookup
+-- ========================================
+CREATE UNIQUE INDEX uq_tenants_api_key_hash ON tenants(api_key_hash)
+    WHERE api_key_hash IS NOT NULL;
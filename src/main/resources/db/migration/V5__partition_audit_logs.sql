@@ -0,0 +1,143 @@
+-- V5: Monthly range partitioning for audit_logs
+-- Converts audit_logs into a table partitioned by month on timestamp so retention
+-- can drop whole partitions instead of bulk deleting rows
+
+-- ========================================
+-- Partition helpers
+-- ========================================
+
+-- Create the partition holding p_month (any timestamp within the month), if missing.
+-- Partitions are named audit_logs_yYYYYmMM.
+CREATE OR REPLACE FUNCTION create_audit_log_partition(p_month TIMESTAMP)
+RETURNS TEXT AS $$
+DECLARE
+    v_from  TIMESTAMP := date_trunc('month', p_month);
+    v_to    TIMESTAMP := date_trunc('month', p_month) + INTERVAL '1 month';
+    v_name  TEXT := 'audit_logs_' || to_char(date_trunc('month', p_month), '"y"YYYY"m"MM');
+BEGIN
+    -- Serialize partition DDL across application instances
+    PERFORM pg_advisory_xact_lock(hashtext('audit_logs_partitions'));
+
+    IF to_regclass(v_name) IS NULL THEN
+        EXECUTE format(
+            'CREATE TABLE %I PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+            v_name, v_from, v_to);
+    END IF;
+    RETURN v_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detach and drop every monthly partition whose whole range is older than p_cutoff.
+-- Returns the names of the dropped partitions.
+CREATE OR REPLACE FUNCTION drop_audit_log_partitions_before(p_cutoff TIMESTAMP)
+RETURNS SETOF TEXT AS $$
+DECLARE
+    v_name  TEXT;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('audit_logs_partitions'));
+
+    FOR v_name IN
+        SELECT child.relname
+        FROM pg_inherits i
+        JOIN pg_class parent ON parent.oid = i.inhparent
+        JOIN pg_class child ON child.oid = i.inhrelid
+        WHERE parent.relname = 'audit_logs'
+          AND child.relname ~ '^audit_logs_y[0-9]{4}m[0-9]{2}$'
+          AND to_timestamp(substr(child.relname, 12), '"y"YYYY"m"MM')::TIMESTAMP + INTERVAL '1 month' <= p_cutoff
+        ORDER BY child.relname
+    LOOP
+        EXECUTE format('ALTER TABLE audit_logs DETACH PARTITION %I', v_name);
+        EXECUTE format('DROP TABLE %I', v_name);
+        RETURN NEXT v_name;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- ========================================
+-- Partitioned table
+-- ========================================
+ALTER TABLE audit_logs RENAME TO audit_logs_legacy;
+
+-- Index names are schema-wide; free them for the new table
+ALTER TABLE audit_logs_legacy RENAME CONSTRAINT audit_logs_pkey TO audit_logs_legacy_pkey;
+DROP INDEX idx_audit_logs_tenant_timestamp;
+DROP INDEX idx_audit_logs_user;
+DROP INDEX idx_audit_logs_action;
+DROP INDEX idx_audit_logs_timestamp;
+DROP INDEX idx_audit_logs_resource;
+
+-- Keep the existing id sequence; it moves to the new table below
+ALTER SEQUENCE audit_logs_id_seq OWNED BY NONE;
+
+CREATE TABLE audit_logs (
+    id                  BIGINT NOT NULL DEFAULT nextval('audit_logs_id_seq'),
+    tenant_id           UUID REFERENCES tenants(id) ON DELETE CASCADE,
+    user_id             UUID REFERENCES users(id) ON DELETE SET NULL,
+
+    -- Actor (who performed the action)
+    actor_type          VARCHAR(50) NOT NULL,
+    actor_id            VARCHAR(255),
+
+    -- Action details
+    action              VARCHAR(100) NOT NULL,
+    resource_type       VARCHAR(100),
+    resource_id         VARCHAR(255),
+
+    -- Details (JSONB)
+    details             JSONB NOT NULL DEFAULT '{}',
+
+    -- Request context
+    ip_address          INET,
+    user_agent          TEXT,
+
+    -- Metadata
+    timestamp           TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    -- The partition key must be part of the primary key
+    PRIMARY KEY (id, timestamp),
+    CONSTRAINT chk_actor_type CHECK (actor_type IN ('admin', 'user', 'system', 'bot', 'api'))
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE audit_logs_id_seq OWNED BY audit_logs.id;
+
+COMMENT ON TABLE audit_logs IS 'Activity tracking and audit trail (monthly partitions on timestamp)';
+
+-- ========================================
+-- Partitions: every month with existing rows, through three months ahead
+-- ========================================
+DO $$
+DECLARE
+    v_month TIMESTAMP := date_trunc('month', LEAST(
+        COALESCE((SELECT min(timestamp) FROM audit_logs_legacy), CURRENT_TIMESTAMP),
+        CURRENT_TIMESTAMP));
+BEGIN
+    WHILE v_month <= date_trunc('month', CURRENT_TIMESTAMP) + INTERVAL '3 months' LOOP
+        PERFORM create_audit_log_partition(v_month);
+        v_month := v_month + INTERVAL '1 month';
+    END LOOP;
+END;
+$$;
+
+-- Rows outside every monthly partition (e.g. clock skew beyond the pre-created months)
+CREATE TABLE audit_logs_default PARTITION OF audit_logs DEFAULT;
+
+-- ========================================
+-- Indexes (created on every partition)
+-- ========================================
+-- idx_audit_logs_timestamp is replaced by partition pruning plus a BRIN index
+CREATE INDEX idx_audit_logs_tenant_timestamp ON audit_logs(tenant_id, timestamp DESC);
+CREATE INDEX idx_audit_logs_user ON audit_logs(user_id, timestamp DESC);
+CREATE INDEX idx_audit_logs_action ON audit_logs(action);
+CREATE INDEX idx_audit_logs_resource ON audit_logs(resource_type, resource_id);
+CREATE INDEX idx_audit_logs_timestamp_brin ON audit_logs USING BRIN (timestamp);
+
+-- ========================================
+-- Copy existing rows and drop the old table
+-- ========================================
+INSERT INTO audit_logs (id, tenant_id, user_id, actor_type, actor_id, action, resource_type,
+                        resource_id, details, ip_address, user_agent, timestamp)
+SELECT id, tenant_id, user_id, actor_type, actor_id, action, resource_type,
+       resource_id, details, ip_address, user_agent, timestamp
+FROM audit_logs_legacy;
+
+DROP TABLE audit_logs_legacy;
@@ -0,0 +1,103 @@
+-- V6: Materialized per-tenant counters for plan-limit enforcement
+-- Keeps active user/provider/integration counts in one row per tenant, maintained by
+-- triggers, so limit checks read a single row instead of counting (or loading) children
+
+-- ========================================
+-- Counters table
+-- ========================================
+CREATE TABLE tenant_counters (
+    tenant_id           UUID PRIMARY KEY REFERENCES tenants(id) ON DELETE CASCADE,
+    active_users        BIGINT NOT NULL DEFAULT 0,
+    active_providers    BIGINT NOT NULL DEFAULT 0,
+    active_integrations BIGINT NOT NULL DEFAULT 0,
+    updated_at          TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- ========================================
+-- Maintenance functions
+-- ========================================
+
+-- Apply a delta to one counter of a tenant
+CREATE OR REPLACE FUNCTION bump_tenant_counter(p_tenant_id UUID, p_counter TEXT, p_delta BIGINT)
+RETURNS void AS $$
+BEGIN
+    UPDATE tenant_counters
+    SET active_users        = active_users        + CASE WHEN p_counter = 'users'        THEN p_delta ELSE 0 END,
+        active_providers    = active_providers    + CASE WHEN p_counter = 'providers'    THEN p_delta ELSE 0 END,
+        active_integrations = active_integrations + CASE WHEN p_counter = 'integrations' THEN p_delta ELSE 0 END,
+        updated_at          = CURRENT_TIMESTAMP
+    WHERE tenant_id = p_tenant_id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Row trigger for users/providers/platform_integrations; TG_ARGV[0] names the counter.
+-- A row counts while it is active and not soft-deleted.
+CREATE OR REPLACE FUNCTION maintain_tenant_counter()
+RETURNS TRIGGER AS $$
+DECLARE
+    v_old_counted BOOLEAN := FALSE;
+    v_new_counted BOOLEAN := FALSE;
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        v_old_counted := OLD.is_active AND OLD.deleted_at IS NULL;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        v_new_counted := NEW.is_active AND NEW.deleted_at IS NULL;
+    END IF;
+
+    -- Most updates (e.g. re-verification) do not change membership
+    IF TG_OP = 'UPDATE' AND v_old_counted = v_new_counted AND OLD.tenant_id = NEW.tenant_id THEN
+        RETURN NULL;
+    END IF;
+
+    IF v_old_counted THEN
+        PERFORM bump_tenant_counter(OLD.tenant_id, TG_ARGV[0], -1);
+    END IF;
+    IF v_new_counted THEN
+        PERFORM bump_tenant_counter(NEW.tenant_id, TG_ARGV[0], 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Every tenant gets its counters row on creation
+CREATE OR REPLACE FUNCTION create_tenant_counters()
+RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO tenant_counters (tenant_id) VALUES (NEW.id)
+    ON CONFLICT (tenant_id) DO NOTHING;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- ========================================
+-- Triggers
+-- ========================================
+CREATE TRIGGER tenants_create_counters
+    AFTER INSERT ON tenants
+    FOR EACH ROW EXECUTE FUNCTION create_tenant_counters();
+
+CREATE TRIGGER users_tenant_counter
+    AFTER INSERT OR UPDATE OR DELETE ON users
+    FOR EACH ROW EXECUTE FUNCTION maintain_tenant_counter('users');
+
+CREATE TRIGGER providers_tenant_counter
+    AFTER INSERT OR UPDATE OR DELETE ON providers
+    FOR EACH ROW EXECUTE FUNCTION maintain_tenant_counter('providers');
+
+CREATE TRIGGER platform_integrations_tenant_counter
+    AFTER INSERT OR UPDATE OR DELETE ON platform_integrations
+    FOR EACH ROW EXECUTE FUNCTION maintain_tenant_counter('integrations');
+
+-- ========================================
+-- Backfill existing tenants
+-- ========================================
+INSERT INTO tenant_counters (tenant_id, active_users, active_providers, active_integrations)
+SELECT t.id,
+       (SELECT count(*) FROM users u
+        WHERE u.tenant_id = t.id AND u.is_active = true AND u.deleted_at IS NULL),
+       (SELECT count(*) FROM providers p
+        WHERE p.tenant_id = t.id AND p.is_active = true AND p.deleted_at IS NULL),
+       (SELECT count(*) FROM platform_integrations pi
+        WHERE pi.tenant_id = t.id AND pi.is_active = true AND pi.deleted_at IS NULL)
+FROM tenants t;
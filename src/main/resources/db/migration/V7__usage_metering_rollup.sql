@@ -0,0 +1,25 @@
+-- V7: Incremental usage metering
+-- Adds a HyperLogLog sketch of verified users per tenant-month so MAU can be maintained
+-- from periodic in-memory rollups instead of scanning users at month end
+
+-- ========================================
+-- MAU sketch column
+-- ========================================
+-- 4096 one-byte HyperLogLog registers (see HyperLogLog.java)
+ALTER TABLE usage_metering ADD COLUMN mau_sketch BYTEA;
+
+-- ========================================
+-- Sketch merge
+-- ========================================
+-- Per-register maximum of two sketches; the union of their distinct values
+CREATE OR REPLACE FUNCTION hll_merge(p_a BYTEA, p_b BYTEA)
+RETURNS BYTEA AS $$
+    SELECT CASE
+        WHEN p_a IS NULL THEN p_b
+        WHEN p_b IS NULL THEN p_a
+        ELSE (
+            SELECT decode(string_agg(lpad(to_hex(greatest(get_byte(p_a, i), get_byte(p_b, i))), 2, '0'), '' ORDER BY i), 'hex')
+            FROM generate_series(0, length(p_a) - 1) AS i
+        )
+    END;
+$$ LANGUAGE sql IMMUTABLE;
@@ -0,0 +1,13 @@
+-- V8: Role sync worker support
+-- The role sync job walks each integration's linked accounts in id order (keyset pagination),
+-- locking a batch at a time with FOR UPDATE SKIP LOCKED so several nodes can share the work
+
+-- ========================================
+-- USER_PLATFORM_MAPPINGS - Keyset index
+-- ========================================
+-- Serves WHERE platform_integration_id = ? AND id > ? ORDER BY id LIMIT ?; the staleness
+-- check on last_role_sync_at is applied to the rows read in that order
+CREATE INDEX idx_user_platform_mappings_sync_keyset
+    ON user_platform_mappings(platform_integration_id, id)
+    INCLUDE (last_role_sync_at)
+    WHERE is_active = true AND unlinked_at IS NULL;
@@ -0,0 +1,19 @@
+-- V9: Transactional outbox
+-- Domain events (user verified, platform linked, roles changed) are inserted in the same
+-- transaction as the change and relayed to Kafka by OutboxRelay, then deleted
+
+-- ========================================
+-- EVENT_OUTBOX
+-- ========================================
+CREATE TABLE event_outbox (
+    id              BIGSERIAL PRIMARY KEY,
+    tenant_id       UUID NOT NULL REFERENCES tenants(id) ON DELETE CASCADE,
+    event_type      VARCHAR(100) NOT NULL,
+    aggregate_id    UUID,
+    payload         JSONB NOT NULL DEFAULT '{}',
+    created_at      TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- The relay reads the oldest rows by primary key; no other index is needed
+
+COMMENT ON TABLE event_outbox IS 'Unpublished domain events awaiting relay to Kafka';
@@ -0,0 +1,137 @@
+package com.jtdev.authhooker.api;
+
+import com.jtdev.authhooker.domain.*;
+import com.jtdev.authhooker.dto.TokenResponse;
+import com.jtdev.authhooker.repository.PlatformIntegrationRepository;
+import com.jtdev.authhooker.repository.ProviderRepository;
+import com.jtdev.authhooker.repository.TenantRepository;
+import com.jtdev.authhooker.repository.VerificationSessionRepository;
+import com.jtdev.authhooker.service.EncryptionService;
+import com.jtdev.authhooker.service.OidcClient;
+import com.jtdev.authhooker.util.PkceUtil;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Committed data for an OAuth callback: a tenant with a Google provider, a discord integration
+ * and a pending verification session, plus OidcClient stubs for a fresh subject
+ *
+ * For tests that run without a test transaction; {@link #delete} removes everything (deleting
+ * the tenant cascades to the rest, including what the callback wrote).
+ */
+final class AuthFlowCallbackFixture {
+
+    private static final String AUTH_CODE = "test-auth-code";
+    private static final String ID_TOKEN = "test-id-token";
+
+    private final TenantRepository tenantRepository;
+    private final AtomicReference<Thread> exchangeThread = new AtomicReference<>();
+
+    final Tenant tenant;
+    final Provider provider;
+    final VerificationSession session;
+    final String subject;
+
+    AuthFlowCallbackFixture(String name,
+                            TenantRepository tenantRepository,
+                            ProviderRepository providerRepository,
+                            PlatformIntegrationRepository platformIntegrationRepository,
+                            VerificationSessionRepository sessionRepository,
+                            EncryptionService encryptionService) {
+        this.tenantRepository = tenantRepository;
+
+        tenant = tenantRepository.save(Tenant.builder()
+                .name(name + " Tenant " + UUID.randomUUID())
+                .ownerEmail("owner@test.com")
+                .planTier("free")
+                .build());
+
+        provider = providerRepository.save(Provider.builder()
+                .tenant(tenant)
+                .providerType("google")
+                .name("Google Test")
+                .clientId("test-client-id")
+                .clientSecretEncrypted(encryptionService.encrypt("test-secret"))
+                .config(Map.of(
+                        "issuer", "https://accounts.google.com",
+                        "token_endpoint", "https://oauth2.googleapis.com/token",
+                        "jwks_uri", "https://www.googleapis.com/oauth2/v3/certs"))
+                .isActive(true)
+                .isPrimary(true)
+                .build());
+
+        platformIntegrationRepository.save(PlatformIntegration.builder()
+                .tenant(tenant)
+                .platformType("discord")
+                .platformId(name.toLowerCase().replace(' ', '-') + "-server")
+                .config(Map.of("serverId", "123456789"))
+                .isActive(true)
+                .build());
+
+        session = sessionRepository.save(VerificationSession.builder()
+                .tenant(tenant)
+                .provider(provider)
+                .stateToken(UUID.randomUUID().toString())
+                .codeVerifier(PkceUtil.generateCodeVerifier())
+                .platformType("discord")
+                .platformUserId("discord-" + UUID.randomUUID())
+                .status("pending")
+                .expiresAt(LocalDateTime.now().plusMinutes(10))
+                .build());
+
+        subject = "google-" + UUID.randomUUID();
+    }
+
+    /**
+     * Accept the fixture's code at the token endpoint and verify its ID token as the fixture's subject
+     */
+    void stubOidcClient(OidcClient oidcClient) {
+        when(oidcClient.exchangeCodeForTokens(any(), eq(AUTH_CODE), any())).thenAnswer(invocation -> {
+            exchangeThread.set(Thread.currentThread());
+            return TokenResponse.builder().idToken(ID_TOKEN).build();
+        });
+        when(oidcClient.verifyIdToken(any(), eq(ID_TOKEN))).thenReturn(Map.of(
+                "sub", subject,
+                "email", "user@example.com",
+                "email_verified", true,
+                "name", "Test User"));
+    }
+
+    /**
+     * Run the callback for the session and expect the success redirect
+     */
+    void performCallback(MockMvc mockMvc) throws Exception {
+        MvcResult async = mockMvc.perform(get("/oauth/callback/{tenantId}/{providerId}",
+                        tenant.getId(), provider.getId())
+                        .param("code", AUTH_CODE)
+                        .param("state", session.getStateToken()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(async))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrlPattern("**/success?user=*"));
+    }
+
+    /**
+     * Thread the token exchange ran on, once the callback has run
+     */
+    Thread exchangeThread() {
+        return exchangeThread.get();
+    }
+
+    void delete() {
+        tenantRepository.deleteById(tenant.getId());
+    }
+}
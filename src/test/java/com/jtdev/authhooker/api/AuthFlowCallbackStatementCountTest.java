@@ -0,0 +1,100 @@
+package com.jtdev.authhooker.api;
+
+import com.jtdev.authhooker.repository.*;
+import com.jtdev.authhooker.service.ClaimMappingService;
+import com.jtdev.authhooker.service.EncryptionService;
+import com.jtdev.authhooker.service.OidcClient;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the JPA statements issued by a successful OAuth callback
+ *
+ * Not transactional: each service call commits on its own, as in production, so entities are
+ * not shared through a test-wide persistence context. JDBC writes (audit log, outbox) are not
+ * counted by Hibernate statistics. The committed data is removed with its tenant on teardown.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthFlowCallbackStatementCountTest {
+    
+    // 1 session fetch-joined with tenant and provider
+    // 2 user upsert, user slot confirmation
+    // 1 platform mapping upsert
+    // 1 conditional session completion
+    private static final long FIRST_VERIFICATION_STATEMENTS = 5;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private TenantRepository tenantRepository;
+    
+    @Autowired
+    private ProviderRepository providerRepository;
+    
+    @Autowired
+    private PlatformIntegrationRepository platformIntegrationRepository;
+    
+    @Autowired
+    private VerificationSessionRepository sessionRepository;
+    
+    @Autowired
+    private EncryptionService encryptionService;
+    
+    @Autowired
+    private ClaimMappingService claimMappingService;
+    
+    @MockitoBean
+    private OidcClient oidcClient;
+    
+    private AuthFlowCallbackFixture fixture;
+    
+    @BeforeEach
+    void setUp() {
+        fixture = new AuthFlowCallbackFixture("Statement Count", tenantRepository, providerRepository,
+                platformIntegrationRepository, sessionRepository, encryptionService);
+        fixture.stubOidcClient(oidcClient);
+        
+        // Compile the provider's claim mapping plan up front; it is cached across verifications
+        claimMappingService.applyMappings(fixture.provider.getId(), Map.of("sub", "warm-up"));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        fixture.delete();
+    }
+    
+    @Test
+    void handleCallback_shouldVerifyWithBoundedStatementCount() throws Exception {
+        // Given
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        
+        // When
+        fixture.performCallback(mockMvc);
+        
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(FIRST_VERIFICATION_STATEMENTS);
+        assertThat(sessionRepository.findByStateToken(fixture.session.getStateToken()).orElseThrow().getStatus())
+                .isEqualTo("completed");
+    }
+}
@@ -0,0 +1,81 @@
+package com.jtdev.authhooker.api;
+
+import com.jtdev.authhooker.repository.*;
+import com.jtdev.authhooker.service.EncryptionService;
+import com.jtdev.authhooker.service.OidcClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * OAuth callback in the production default mode (virtual), end to end against the database
+ *
+ * Not transactional: the callback runs on a virtual thread, outside any test transaction, and
+ * commits its own work as in production.
+ */
+@SpringBootTest(properties = "app.oauth.callback-mode=virtual")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthFlowCallbackVirtualModeTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private ProviderRepository providerRepository;
+
+    @Autowired
+    private PlatformIntegrationRepository platformIntegrationRepository;
+
+    @Autowired
+    private VerificationSessionRepository sessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @MockitoBean
+    private OidcClient oidcClient;
+
+    private AuthFlowCallbackFixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new AuthFlowCallbackFixture("Virtual Callback", tenantRepository, providerRepository,
+                platformIntegrationRepository, sessionRepository, encryptionService);
+        fixture.stubOidcClient(oidcClient);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.delete();
+    }
+
+    @Test
+    void handleCallback_shouldVerifyUserOnVirtualThread() throws Exception {
+        // When
+        fixture.performCallback(mockMvc);
+
+        // Then
+        assertThat(fixture.exchangeThread()).isNotNull();
+        assertThat(fixture.exchangeThread().isVirtual()).isTrue();
+        assertThat(sessionRepository.findByStateToken(fixture.session.getStateToken()).orElseThrow().getStatus())
+                .isEqualTo("completed");
+        assertThat(userRepository.findByTenantIdAndProviderIdAndSubject(
+                fixture.tenant.getId(), fixture.provider.getId(), fixture.subject))
+                .isPresent();
+    }
+}
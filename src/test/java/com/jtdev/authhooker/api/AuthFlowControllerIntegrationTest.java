@@ -16,6 +16,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -249,9 +250,9 @@ class AuthFlowControllerIntegrationTest {
         VerificationSession session = createTestSession();
         
         // When/Then
-        mockMvc.perform(get("/oauth/callback/{tenantId}/{providerId}", 
+        mockMvc.perform(asyncDispatch(performCallback(get("/oauth/callback/{tenantId}/{providerId}", 
                         testTenant.getId(), testProvider.getId())
-                        .param("state", session.getStateToken()))
+                        .param("state", session.getStateToken()))))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrlPattern("**/error?error=*"));
     }
@@ -259,10 +260,10 @@ class AuthFlowControllerIntegrationTest {
     @Test
     void handleCallback_shouldFailForInvalidState() throws Exception {
         // When/Then
-        mockMvc.perform(get("/oauth/callback/{tenantId}/{providerId}", 
+        mockMvc.perform(asyncDispatch(performCallback(get("/oauth/callback/{tenantId}/{providerId}", 
                         testTenant.getId(), testProvider.getId())
                         .param("code", "test-auth-code")
-                        .param("state", "invalid-state-token"))
+                        .param("state", "invalid-state-token"))))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrlPattern("**/error?error=*"));
     }
@@ -283,10 +284,10 @@ class AuthFlowControllerIntegrationTest {
         sessionRepository.save(session);
         
         // When/Then
-        mockMvc.perform(get("/oauth/callback/{tenantId}/{providerId}", 
+        mockMvc.perform(asyncDispatch(performCallback(get("/oauth/callback/{tenantId}/{providerId}", 
                         testTenant.getId(), testProvider.getId())
                         .param("code", "test-auth-code")
-                        .param("state", "expired-state"))
+                        .param("state", "expired-state"))))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrlPattern("**/error?error=*"));
     }
@@ -294,17 +295,26 @@ class AuthFlowControllerIntegrationTest {
     @Test
     void handleCallback_shouldHandleOAuthError() throws Exception {
         // When/Then
-        mockMvc.perform(get("/oauth/callback/{tenantId}/{providerId}", 
+        mockMvc.perform(asyncDispatch(performCallback(get("/oauth/callback/{tenantId}/{providerId}", 
                         testTenant.getId(), testProvider.getId())
                         .param("error", "access_denied")
                         .param("error_description", "User cancelled the request")
-                        .param("state", "some-state"))
+                        .param("state", "some-state"))))
                 .andExpect(status().is3xxRedirection())
                 .andExpect(redirectedUrlPattern("**/error?error=*User*cancelled*"));
     }
     
     // Helper methods
     
+    /**
+     * The callback endpoint is asynchronous; wait for it and return the result for dispatch
+     */
+    private MvcResult performCallback(MockHttpServletRequestBuilder builder) throws Exception {
+        return mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+    
     private VerificationSession createTestSession() {
         VerificationSession session = VerificationSession.builder()
                 .tenant(testTenant)
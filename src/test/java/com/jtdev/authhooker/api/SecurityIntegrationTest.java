@@ -3,6 +3,7 @@ package com.jtdev.authhooker.api;
 import com.jtdev.authhooker.domain.Tenant;
 import com.jtdev.authhooker.repository.TenantRepository;
 import com.jtdev.authhooker.security.JwtService;
+import com.jtdev.authhooker.util.ApiKeyUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +13,6 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Map;
 import java.util.UUID;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -57,7 +57,7 @@ class SecurityIntegrationTest {
         
         // Generate API key and save in tenant settings
         apiKey = "test-api-key-" + UUID.randomUUID();
-        testTenant.setSettings(Map.of("api_key", apiKey));
+        testTenant.setApiKeyHash(ApiKeyUtil.hashApiKey(apiKey));
         testTenant = tenantRepository.save(testTenant);
     }
     
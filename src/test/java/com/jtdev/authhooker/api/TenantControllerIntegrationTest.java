@@ -5,6 +5,7 @@ import com.jtdev.authhooker.domain.Tenant;
 import com.jtdev.authhooker.dto.TenantUpdateRequest;
 import com.jtdev.authhooker.repository.TenantRepository;
 import com.jtdev.authhooker.security.JwtService;
+import com.jtdev.authhooker.util.ApiKeyUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -118,7 +119,7 @@ class TenantControllerIntegrationTest {
     void shouldRequireAdminRoleForSensitiveOperations() throws Exception {
         // API key authentication should not have admin role for sensitive operations
         String apiKey = "test-api-key";
-        testTenant.setSettings(Map.of("api_key", apiKey));
+        testTenant.setApiKeyHash(ApiKeyUtil.hashApiKey(apiKey));
         tenantRepository.save(testTenant);
         
         mockMvc.perform(post("/api/v1/tenant/api-key/rotate")
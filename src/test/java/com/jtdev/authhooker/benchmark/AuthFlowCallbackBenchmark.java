@@ -0,0 +1,229 @@
+package com.jtdev.authhooker.benchmark;
+
+import com.jtdev.authhooker.api.AuthFlowController;
+import com.jtdev.authhooker.domain.*;
+import com.jtdev.authhooker.dto.NormalizedClaims;
+import com.jtdev.authhooker.service.*;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.view.RedirectView;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Wall-clock time for a burst of OAuth callbacks against a local stub IdP with a slow token endpoint
+ *
+ * A small fixed pool stands in for the servlet container's worker threads. In blocking mode
+ * each callback holds a worker for the full token endpoint round trip, so a burst takes about
+ * CALLBACKS / WORKER_THREADS * IDP_LATENCY_MS; in virtual and reactive modes the worker is
+ * released as soon as the callback is dispatched.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=com.jtdev.authhooker.benchmark.AuthFlowCallbackBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthFlowCallbackBenchmark {
+
+    private static final int WORKER_THREADS = 8;
+    private static final int CALLBACKS = 96;
+    private static final long IDP_LATENCY_MS = 250;
+    private static final String ISSUER = "https://idp.example.com";
+    private static final String CLIENT_ID = "load-test-client";
+
+    @Param({"blocking", "virtual", "reactive"})
+    public String callbackMode;
+
+    private DisposableServer idp;
+    private ConnectionProvider connectionProvider;
+    private ExecutorService workers;
+    private AuthFlowController controller;
+    private Tenant tenant;
+    private Provider provider;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPair keyPair = Jwts.SIG.RS256.keyPair().build();
+        startStubIdp(keyPair);
+
+        String baseUrl = "http://127.0.0.1:" + idp.port();
+        tenant = Tenant.builder().id(UUID.randomUUID()).name("Load Tenant").ownerEmail("owner@example.com").build();
+        provider = Provider.builder()
+                .id(UUID.randomUUID())
+                .tenant(tenant)
+                .clientId(CLIENT_ID)
+                .clientSecretEncrypted("encrypted")
+                .config(Map.of(
+                        "issuer", ISSUER,
+                        "token_endpoint", baseUrl + "/token",
+                        "jwks_uri", baseUrl + "/jwks"))
+                .build();
+
+        // Enough connections that the client pool is not the bottleneck being measured
+        connectionProvider = ConnectionProvider.builder("load-test").maxConnections(512).build();
+        WebClient webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+
+        EncryptionService encryptionService = mock(EncryptionService.class);
+        when(encryptionService.decrypt(any())).thenReturn("client-secret");
+
+        OidcMetadataCache metadataCache = new OidcMetadataCache(webClient, new SimpleMeterRegistry(),
+                3600, 300, 86400, 3600, 0.8, 60, 30, 10);
+        OidcClient oidcClient = new OidcClient(webClient, encryptionService, metadataCache);
+        ReflectionTestUtils.setField(oidcClient, "callbackBaseUrl", "https://auth.example.com");
+        ReflectionTestUtils.setField(oidcClient, "timeoutSeconds", 10);
+
+        controller = new AuthFlowController(
+                sessionService(), providerService(), oidcClient, claimsNormalizer(), userService(),
+                mock(AuditService.class));
+        ReflectionTestUtils.setField(controller, "successRedirectUrl", "https://auth.example.com/success");
+        ReflectionTestUtils.setField(controller, "errorRedirectUrl", "https://auth.example.com/error");
+        ReflectionTestUtils.setField(controller, "callbackMode", callbackMode);
+
+        workers = Executors.newFixedThreadPool(WORKER_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        workers.shutdownNow();
+        ReflectionTestUtils.invokeMethod(controller, "shutdownCallbackExecutor");
+        connectionProvider.dispose();
+        idp.disposeNow();
+    }
+
+    /**
+     * Dispatch CALLBACKS callbacks from the worker pool and wait for all redirects
+     */
+    @Benchmark
+    public int callbackBurst() throws Exception {
+        List<Future<CompletableFuture<RedirectView>>> dispatched = new ArrayList<>();
+        for (int i = 0; i < CALLBACKS; i++) {
+            String state = "state-" + i;
+            dispatched.add(workers.submit(() -> controller.handleCallback(
+                    tenant.getId(), provider.getId(), "code", state, null, null)));
+        }
+
+        int succeeded = 0;
+        for (Future<CompletableFuture<RedirectView>> future : dispatched) {
+            RedirectView redirect = future.get(60, TimeUnit.SECONDS).get(60, TimeUnit.SECONDS);
+            if (!redirect.getUrl().startsWith("https://auth.example.com/success")) {
+                throw new IllegalStateException("Callback failed: " + redirect.getUrl());
+            }
+            succeeded++;
+        }
+        return succeeded;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(AuthFlowCallbackBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private void startStubIdp(KeyPair keyPair) {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String jwks = """
+                {"keys":[{"kty":"RSA","kid":"load-key","n":"%s","e":"%s"}]}
+                """.formatted(
+                encoder.encodeToString(publicKey.getModulus().toByteArray()),
+                encoder.encodeToString(publicKey.getPublicExponent().toByteArray()));
+
+        // Non-blocking stub so the IdP itself is never the bottleneck
+        idp = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes
+                        .get("/jwks", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just(jwks)))
+                        .post("/token", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .sendString(request.receive().aggregate().asString()
+                                        .delayElement(Duration.ofMillis(IDP_LATENCY_MS))
+                                        .map(form -> tokenResponse(keyPair)))))
+                .bindNow();
+    }
+
+    private static String tokenResponse(KeyPair keyPair) {
+        String idToken = Jwts.builder()
+                .header().keyId("load-key").and()
+                .issuer(ISSUER)
+                .audience().add(CLIENT_ID).and()
+                .subject("subject-" + UUID.randomUUID())
+                .issuedAt(new Date(System.currentTimeMillis() - 1000))
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(keyPair.getPrivate())
+                .compact();
+        return "{\"id_token\":\"" + idToken + "\",\"access_token\":\"at\",\"token_type\":\"Bearer\"}";
+    }
+
+    private VerificationSessionService sessionService() {
+        VerificationSessionService sessionService = mock(VerificationSessionService.class);
+        when(sessionService.getSessionByState(anyString())).thenAnswer(invocation -> Optional.of(
+                VerificationSession.builder()
+                        .id(UUID.randomUUID())
+                        .tenant(tenant)
+                        .provider(provider)
+                        .stateToken(invocation.getArgument(0))
+                        .codeVerifier("verifier")
+                        .platformType("discord")
+                        .platformUserId("platform-user")
+                        .status("pending")
+                        .expiresAt(LocalDateTime.now().plusMinutes(10))
+                        .build()));
+        return sessionService;
+    }
+
+    private ProviderService providerService() {
+        ProviderService providerService = mock(ProviderService.class);
+        when(providerService.getProviderById(any())).thenAnswer(invocation -> provider);
+        return providerService;
+    }
+
+    private ClaimsNormalizer claimsNormalizer() {
+        ClaimsNormalizer claimsNormalizer = mock(ClaimsNormalizer.class);
+        when(claimsNormalizer.normalize(anyMap(), any())).thenAnswer(invocation -> {
+            Map<String, Object> rawClaims = invocation.getArgument(0);
+            return NormalizedClaims.builder()
+                    .subject((String) rawClaims.get("sub"))
+                    .rawClaims(rawClaims)
+                    .build();
+        });
+        return claimsNormalizer;
+    }
+
+    private UserService userService() {
+        UserService userService = mock(UserService.class);
+        when(userService.createVerifiedUser(any(Tenant.class), any(Provider.class), anyString(), anyMap(), anyMap())).thenAnswer(invocation ->
+                User.builder().id(UUID.randomUUID()).tenant(tenant).subject(invocation.getArgument(2)).build());
+        when(userService.linkPlatformAccount(any(User.class), anyString(), anyString(), anyMap())).thenAnswer(invocation ->
+                UserPlatformMapping.builder().id(UUID.randomUUID()).build());
+        return userService;
+    }
+}
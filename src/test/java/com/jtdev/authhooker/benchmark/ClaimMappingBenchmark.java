@@ -0,0 +1,120 @@
+package com.jtdev.authhooker.benchmark;
+
+import com.jtdev.authhooker.domain.ClaimMapping;
+import com.jtdev.authhooker.repository.ClaimMappingRepository;
+import com.jtdev.authhooker.service.ClaimMappingService;
+import com.jtdev.authhooker.service.ProviderService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-verification cost of applying claim mappings: one provider with 50 active mappings
+ *
+ * Mappings mix plain keys, JSONPaths, lowercase/trim and regex transforms, and nested targets.
+ * {@code apply} uses the cached plan; {@code compileAndApply} disables the cache so every call
+ * compiles the plan first, which is what applying the mappings used to cost on every call.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=com.jtdev.authhooker.benchmark.ClaimMappingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClaimMappingBenchmark {
+
+    private static final int MAPPINGS = 50;
+    private static final int USERS = 10_000;
+
+    private ClaimMappingService cachedService;
+    private ClaimMappingService uncachedService;
+    private UUID providerId;
+    private List<Map<String, Object>> users;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        providerId = UUID.randomUUID();
+
+        List<ClaimMapping> mappings = new ArrayList<>(MAPPINGS);
+        for (int i = 0; i < MAPPINGS; i++) {
+            mappings.add(mapping(i));
+        }
+
+        ClaimMappingRepository repository = Mockito.mock(ClaimMappingRepository.class);
+        Mockito.when(repository.findActiveByProviderId(providerId)).thenReturn(mappings);
+        ProviderService providerService = Mockito.mock(ProviderService.class);
+        cachedService = new ClaimMappingService(repository, providerService, 100, 3600);
+        uncachedService = new ClaimMappingService(repository, providerService, 0, 3600);
+
+        users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            Map<String, Object> claims = new HashMap<>();
+            claims.put("sub", "user-" + i);
+            claims.put("email", "  User" + i + "@Domain" + random.nextInt(200) + ".COM ");
+            claims.put("upn", "user" + i + "@contoso.com");
+            claims.put("groups", List.of("group-" + random.nextInt(500), "group-" + random.nextInt(500)));
+            claims.put("org", Map.of(
+                    "department", "dept-" + random.nextInt(20),
+                    "level", random.nextInt(10),
+                    "region", random.nextBoolean() ? "eu" : "us"));
+            for (int a = 0; a < 10; a++) {
+                claims.put("attr_" + a, "Value-" + random.nextInt(1_000));
+            }
+            users.add(claims);
+        }
+
+        // Compile outside the measurement
+        cachedService.applyMappings(providerId, users.get(0));
+    }
+
+    @Benchmark
+    public Map<String, Object> apply() {
+        return cachedService.applyMappings(providerId, nextUser());
+    }
+
+    @Benchmark
+    public Map<String, Object> compileAndApply() {
+        return uncachedService.applyMappings(providerId, nextUser());
+    }
+
+    private Map<String, Object> nextUser() {
+        Map<String, Object> claims = users.get(next);
+        next = next + 1 == USERS ? 0 : next + 1;
+        return claims;
+    }
+
+    private static ClaimMapping mapping(int i) {
+        String[] orgFields = {"department", "level", "region"};
+        ClaimMapping.ClaimMappingBuilder builder = ClaimMapping.builder()
+                .id(UUID.randomUUID())
+                .name("mapping-" + i)
+                .priority(MAPPINGS - i);
+        return switch (i % 5) {
+            case 0 -> builder.sourcePath("attr_" + (i / 5)).targetField("custom.attr_" + i)
+                    .transform(Map.of("toLowerCase", true)).build();
+            case 1 -> builder.sourcePath("$.org." + orgFields[i % orgFields.length]).targetField("org_" + i)
+                    .transform(Map.of()).build();
+            case 2 -> builder.sourcePath("email").targetField("normalized.email_" + i)
+                    .transform(Map.of("trim", true, "toLowerCase", true)).build();
+            case 3 -> builder.sourcePath("upn").targetField("upn_domain_" + i)
+                    .transform(Map.of("regex", "^[^@]*@", "replacement", "")).build();
+            default -> builder.sourcePath("$.groups[0]").targetField("primary_group_" + i)
+                    .transform(Map.of("default", "none")).build();
+        };
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ClaimMappingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
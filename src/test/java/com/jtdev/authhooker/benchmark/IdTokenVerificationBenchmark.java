@@ -0,0 +1,147 @@
+package com.jtdev.authhooker.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jtdev.authhooker.domain.Provider;
+import com.jtdev.authhooker.service.OidcClient;
+import com.jtdev.authhooker.service.OidcMetadataCache;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-token cost of ID token verification in the OAuth callback path
+ *
+ * legacy:     header decode with a new ObjectMapper, new JwtParser per token,
+ *             then a second payload decode with another new ObjectMapper
+ * singlePass: OidcClient.verifyIdToken (cached parser, kid resolved during the one parse)
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *      -Dexec.mainClass=com.jtdev.authhooker.benchmark.IdTokenVerificationBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdTokenVerificationBenchmark {
+
+    private static final String ISSUER = "https://idp.example.com";
+    private static final String CLIENT_ID = "bench-client";
+    private static final String KID = "bench-key";
+
+    private HttpServer server;
+    private OidcClient oidcClient;
+    private Provider provider;
+    private String idToken;
+
+    // Legacy path state: the old per-provider kid -> key map
+    private Map<String, PublicKey> legacyKeys;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPair keyPair = Jwts.SIG.RS256.keyPair().build();
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        legacyKeys = Map.of(KID, publicKey);
+
+        byte[] jwks = jwks(publicKey).getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/jwks", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=86400");
+            exchange.sendResponseHeaders(200, jwks.length);
+            exchange.getResponseBody().write(jwks);
+            exchange.close();
+        });
+        server.start();
+
+        OidcMetadataCache metadataCache = new OidcMetadataCache(WebClient.create(), new SimpleMeterRegistry(),
+                86400, 300, 86400, 3600, 0.8, 60, 30, 10);
+        oidcClient = new OidcClient(WebClient.create(), null, metadataCache);
+
+        provider = Provider.builder()
+                .id(UUID.randomUUID())
+                .clientId(CLIENT_ID)
+                .config(Map.of(
+                        "issuer", ISSUER,
+                        "jwks_uri", "http://127.0.0.1:" + server.getAddress().getPort() + "/jwks"))
+                .build();
+
+        idToken = Jwts.builder()
+                .header().keyId(KID).and()
+                .issuer(ISSUER)
+                .audience().add(CLIENT_ID).and()
+                .subject("1234567890")
+                .claim("email", "user@example.com")
+                .claim("email_verified", true)
+                .claim("name", "Bench User")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(12)))
+                .signWith(keyPair.getPrivate())
+                .compact();
+
+        // Warm the JWKS cache so both paths measure verification only
+        oidcClient.verifyIdToken(provider, idToken);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public Map<String, Object> legacy() throws Exception {
+        String[] parts = idToken.split("\\.");
+        String headerJson = new String(Base64.getUrlDecoder().decode(parts[0]));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> header = new ObjectMapper().readValue(headerJson, Map.class);
+
+        PublicKey publicKey = legacyKeys.get((String) header.get("kid"));
+        Claims claims = Jwts.parser()
+                .verifyWith(publicKey)
+                .build()
+                .parseSignedClaims(idToken)
+                .getPayload();
+        if (!ISSUER.equals(claims.getIssuer()) || !claims.getAudience().contains(CLIENT_ID)) {
+            throw new IllegalStateException("invalid token");
+        }
+
+        String payloadJson = new String(Base64.getUrlDecoder().decode(idToken.split("\\.")[1]));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> extracted = new ObjectMapper().readValue(payloadJson, Map.class);
+        return extracted;
+    }
+
+    @Benchmark
+    public Map<String, Object> singlePass() {
+        return oidcClient.verifyIdToken(provider, idToken);
+    }
+
+    private static String jwks(RSAPublicKey publicKey) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return """
+                {"keys":[{"kty":"RSA","kid":"%s","use":"sig","alg":"RS256","n":"%s","e":"%s"}]}
+                """.formatted(KID,
+                encoder.encodeToString(publicKey.getModulus().toByteArray()),
+                encoder.encodeToString(publicKey.getPublicExponent().toByteArray()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(IdTokenVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package com.jtdev.authhooker.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for the shared IdP WebClient against a local stub endpoint
+ */
+class IdpHttpClientConfigTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/jwks", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "{\"keys\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/large", exchange -> {
+            byte[] body = ("{\"data\":\"" + "x".repeat(4096) + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        IdpHttpClientConfig config = new IdpHttpClientConfig();
+        ReflectionTestUtils.setField(config, "maxConnections", 4);
+        ReflectionTestUtils.setField(config, "pendingAcquireMaxCount", 100);
+        ReflectionTestUtils.setField(config, "pendingAcquireTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(config, "maxIdleTimeSeconds", 60L);
+        ReflectionTestUtils.setField(config, "maxLifeTimeSeconds", 600L);
+        ReflectionTestUtils.setField(config, "evictIntervalSeconds", 30L);
+        ReflectionTestUtils.setField(config, "connectTimeoutMs", 5000);
+        ReflectionTestUtils.setField(config, "http2Enabled", true);
+        ReflectionTestUtils.setField(config, "dnsCacheTtlSeconds", 300L);
+        ReflectionTestUtils.setField(config, "maxResponseSizeKb", 1);
+
+        connectionProvider = config.idpConnectionProvider();
+        webClient = config.idpWebClient(WebClient.builder(), connectionProvider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionProvider.dispose();
+        server.stop(0);
+    }
+
+    @Test
+    void idpWebClient_shouldReuseConnectionAcrossRequests() {
+        // When
+        for (int i = 0; i < 10; i++) {
+            String body = webClient.get().uri(baseUrl + "/jwks").retrieve().bodyToMono(String.class).block();
+            assertThat(body).contains("keys");
+        }
+
+        // Then - sequential requests go over pooled keep-alive connections
+        // (a connection may still be on its way back to the pool when the next request starts)
+        assertThat(clientPorts).hasSizeLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void idpWebClient_shouldRejectOversizedResponse() {
+        // When / Then
+        assertThatThrownBy(() -> webClient.get().uri(baseUrl + "/large").retrieve().bodyToMono(String.class).block())
+                .hasRootCauseInstanceOf(DataBufferLimitException.class);
+    }
+}
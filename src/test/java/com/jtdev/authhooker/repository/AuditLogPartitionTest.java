@@ -0,0 +1,109 @@
+package com.jtdev.authhooker.repository;
+
+import com.jtdev.authhooker.service.AuditLogPartitionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the monthly audit_logs partitions (V5) and their maintenance
+ */
+class AuditLogPartitionTest extends BaseRepositoryTest {
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'audit_logs_y'yyyy'm'MM");
+
+    @Autowired
+    private AuditLogPartitionManager partitionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void ensurePartitions_shouldCoverCurrentAndUpcomingMonths() {
+        // When
+        List<String> partitions = partitionManager.ensurePartitions();
+
+        // Then
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(partitions).contains(
+                now.format(PARTITION_NAME),
+                now.plusMonths(1).format(PARTITION_NAME));
+    }
+
+    @Test
+    void insert_shouldRouteRowToMonthlyPartition() {
+        // When
+        insertAuditRow(LocalDateTime.now());
+
+        // Then
+        String partition = jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::text FROM audit_logs WHERE action = 'partition.test'", String.class);
+        assertThat(partition).isEqualTo(LocalDateTime.now().format(PARTITION_NAME));
+    }
+
+    @Test
+    void dropExpiredPartitions_shouldDropOnlyMonthsPastRetention() {
+        // Given - a partition a year old with a row in it
+        LocalDateTime old = LocalDateTime.now().minusMonths(12);
+        jdbcTemplate.queryForObject("SELECT create_audit_log_partition(?)", String.class, Timestamp.valueOf(old));
+        insertAuditRow(old);
+
+        // When
+        List<String> dropped = partitionManager.dropExpiredPartitions(90);
+
+        // Then
+        assertThat(dropped).contains(old.format(PARTITION_NAME));
+        assertThat(dropped).doesNotContain(LocalDateTime.now().format(PARTITION_NAME));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM audit_logs WHERE action = 'partition.test'", Long.class)).isZero();
+    }
+
+    @Test
+    void ensurePartitions_shouldMoveRowsOutOfDefaultPartition() {
+        // Given - a row for a month no partition covers yet
+        LocalDateTime farFuture = LocalDateTime.now().plusMonths(24);
+        insertAuditRow(farFuture);
+        assertThat(partitionOfTestRow()).isEqualTo("audit_logs_default");
+
+        // When
+        List<String> partitions = partitionManager.ensurePartitions();
+
+        // Then
+        assertThat(partitions).contains(farFuture.format(PARTITION_NAME));
+        assertThat(partitionOfTestRow()).isEqualTo(farFuture.format(PARTITION_NAME));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM audit_logs_default", Long.class)).isZero();
+    }
+
+    @Test
+    void dropExpiredPartitions_shouldDeleteExpiredRowsFromDefaultPartition() {
+        // Given - a row older than any partition, in the default partition
+        LocalDateTime old = LocalDateTime.now().minusYears(5);
+        insertAuditRow(old);
+        assertThat(partitionOfTestRow()).isEqualTo("audit_logs_default");
+
+        // When
+        partitionManager.dropExpiredPartitions(90);
+
+        // Then
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM audit_logs WHERE action = 'partition.test'", Long.class)).isZero();
+    }
+
+    private String partitionOfTestRow() {
+        return jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::text FROM audit_logs WHERE action = 'partition.test'", String.class);
+    }
+
+    private void insertAuditRow(LocalDateTime timestamp) {
+        jdbcTemplate.update(
+                "INSERT INTO audit_logs (actor_type, action, details, timestamp) VALUES ('system', 'partition.test', '{}', ?)",
+                Timestamp.valueOf(timestamp));
+    }
+}
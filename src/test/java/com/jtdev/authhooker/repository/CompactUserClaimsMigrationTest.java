@@ -0,0 +1,139 @@
+package com.jtdev.authhooker.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration test for the V11 claims backfill (db.migration.V11__Compact_user_claims)
+ *
+ * Runs Flyway directly against its own database: the schema is migrated to V10, seeded with
+ * users in the pre-V11 format (raw claims merged into claims), then migrated to V11.
+ */
+@Testcontainers
+class CompactUserClaimsMigrationTest {
+
+    // More than two of the migration's 1000-row batches
+    private static final int USERS = 2100;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+            .withDatabaseName("authhooker_migration_test")
+            .withUsername("test")
+            .withPassword("test");
+
+    private JdbcTemplate jdbcTemplate;
+    private UUID tenantId;
+    private UUID providerId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute("DROP SCHEMA public CASCADE; CREATE SCHEMA public");
+        flyway("10").migrate();
+
+        tenantId = jdbcTemplate.queryForObject("""
+                INSERT INTO tenants (name, owner_email, plan_tier, max_verified_users)
+                VALUES ('Migration Tenant', 'owner@test.com', 'enterprise', 1000000) RETURNING id
+                """, UUID.class);
+        providerId = jdbcTemplate.queryForObject("""
+                INSERT INTO providers (tenant_id, provider_type, name, client_id, client_secret_encrypted, config)
+                VALUES (?, 'google', 'Google', 'client-id', 'secret', '{}') RETURNING id
+                """, UUID.class, tenantId);
+    }
+
+    @Test
+    void migrate_shouldRemoveRawDuplicatesFromClaimsOfEveryUser() {
+        // Given - users verified before V11: claims = raw claims + normalized fields + mapping targets
+        jdbcTemplate.update("""
+                INSERT INTO users (tenant_id, provider_id, subject, email, raw_claims, claims)
+                SELECT ?, ?, 'sub-' || i, 'user' || i || '@example.com', raw, raw || jsonb_build_object(
+                        'subject', 'sub-' || i,
+                        'email', 'user' || i || '@example.com',
+                        'email_domain', 'example.com',
+                        'department', 'eng')
+                FROM generate_series(1, ?) AS i,
+                     LATERAL (SELECT jsonb_build_object(
+                        'sub', 'sub-' || i,
+                        'email', 'user' || i || '@example.com',
+                        'hd', 'example.com',
+                        'iat', 1700000000 + i) AS raw) r
+                """, tenantId, providerId, USERS);
+        // A mapping that overwrote a raw claim with a different value
+        jdbcTemplate.update("""
+                INSERT INTO users (tenant_id, provider_id, subject, email, raw_claims, claims)
+                VALUES (?, ?, 'sub-mapped', 'mapped@example.com',
+                        '{"sub": "sub-mapped", "email": "mapped@example.com", "hd": "Example.COM"}',
+                        '{"sub": "sub-mapped", "email": "mapped@example.com", "hd": "example.com",
+                          "subject": "sub-mapped", "email_domain": "example.com"}')
+                """, tenantId, providerId);
+        String rawClaimsBefore = rawClaimsDigest();
+
+        // When
+        flyway("11").migrate();
+
+        // Then - normalized fields and mapping targets survive, raw-only duplicates are gone
+        assertThat(claims("sub-1")).isEqualTo(Map.of(
+                "subject", "sub-1",
+                "email", "user1@example.com",
+                "email_domain", "example.com",
+                "department", "eng"));
+        assertThat(claims("sub-" + USERS)).isEqualTo(Map.of(
+                "subject", "sub-" + USERS,
+                "email", "user" + USERS + "@example.com",
+                "email_domain", "example.com",
+                "department", "eng"));
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM users WHERE claims -> 'sub' IS NOT NULL OR claims -> 'iat' IS NOT NULL",
+                Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM users WHERE claims -> 'department' IS NOT NULL", Long.class)).isEqualTo(USERS);
+        assertThat(claims("sub-mapped")).isEqualTo(Map.of(
+                "email", "mapped@example.com",
+                "hd", "example.com",
+                "subject", "sub-mapped",
+                "email_domain", "example.com"));
+
+        // Then - raw claims are untouched
+        assertThat(rawClaimsDigest()).isEqualTo(rawClaimsBefore);
+    }
+
+    private Flyway flyway(String target) {
+        return Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .locations("classpath:db/migration")
+                .placeholderReplacement(false)
+                .target(target)
+                .load();
+    }
+
+    private Map<String, Object> claims(String subject) {
+        String json = jdbcTemplate.queryForObject(
+                "SELECT claims::text FROM users WHERE subject = ?", String.class, subject);
+        try {
+            return objectMapper.readValue(json, new TypeReference<>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String rawClaimsDigest() {
+        return jdbcTemplate.queryForObject(
+                "SELECT md5(string_agg(id::text || raw_claims::text, ',' ORDER BY id)) FROM users", String.class);
+    }
+}
@@ -0,0 +1,186 @@
+package com.jtdev.authhooker.repository;
+
+import com.jtdev.authhooker.domain.Provider;
+import com.jtdev.authhooker.domain.Tenant;
+import com.jtdev.authhooker.domain.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the trigger-maintained tenant_counters (V6) and slot reservation
+ */
+class TenantCountersRepositoryTest extends BaseRepositoryTest {
+
+    @Autowired
+    private TenantCountersRepository tenantCountersRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private ProviderRepository providerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Tenant testTenant;
+    private Provider testProvider;
+
+    @BeforeEach
+    void setUp() {
+        testTenant = tenantRepository.saveAndFlush(Tenant.builder()
+                .name("Counter Tenant")
+                .ownerEmail("counters-" + UUID.randomUUID() + "@test.com")
+                .planTier("free")
+                .status("active")
+                .maxVerifiedUsers(50)
+                .settings(Map.of())
+                .build());
+
+        testProvider = providerRepository.saveAndFlush(Provider.builder()
+                .tenant(testTenant)
+                .providerType("google")
+                .name("Google OAuth")
+                .clientId("test-client-id")
+                .clientSecretEncrypted("encrypted-secret")
+                .config(Map.of())
+                .isActive(true)
+                .isPrimary(true)
+                .build());
+    }
+
+    @Test
+    void triggers_shouldTrackActiveRows() {
+        // Given
+        User user = userRepository.saveAndFlush(newUser("sub-1"));
+        userRepository.saveAndFlush(newUser("sub-2"));
+
+        // Then
+        assertThat(activeCount("active_users")).isEqualTo(2);
+        assertThat(activeCount("active_providers")).isEqualTo(1);
+        assertThat(activeCount("active_integrations")).isZero();
+
+        // When - re-verification does not change membership
+        userRepository.upsertVerified(testTenant.getId(), testProvider.getId(), "sub-1", null, false,
+                "{\"sub\": \"sub-1\"}", "{\"sub\": \"sub-1\"}", "fingerprint", LocalDateTime.now());
+        assertThat(activeCount("active_users")).isEqualTo(2);
+
+        // When - deactivated, then soft-deleted
+        user.setIsActive(false);
+        userRepository.saveAndFlush(user);
+        assertThat(activeCount("active_users")).isEqualTo(1);
+
+        user.setDeletedAt(LocalDateTime.now());
+        userRepository.saveAndFlush(user);
+        assertThat(activeCount("active_users")).isEqualTo(1);
+    }
+
+    @Test
+    void reserveUserSlot_shouldStopAtLimit() {
+        // Given
+        userRepository.saveAndFlush(newUser("sub-1"));
+
+        // When/Then
+        assertThat(tenantCountersRepository.reserveUserSlot(testTenant.getId(), 2)).isEqualTo(1);
+        assertThat(tenantCountersRepository.reserveUserSlot(testTenant.getId(), 1)).isZero();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void reserveUserSlot_shouldLetOnlyOneConcurrentCreationTakeTheLastSlot() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Tenant tenant = tx.execute(s -> tenantRepository.save(Tenant.builder()
+                .name("Race Tenant")
+                .ownerEmail("race-" + UUID.randomUUID() + "@test.com")
+                .planTier("free")
+                .status("active")
+                .maxVerifiedUsers(1)
+                .settings(Map.of())
+                .build()));
+        Provider provider = tx.execute(s -> providerRepository.save(Provider.builder()
+                .tenant(tenant)
+                .providerType("google")
+                .name("Google OAuth")
+                .clientId("race-client-id")
+                .clientSecretEncrypted("encrypted-secret")
+                .config(Map.of())
+                .build()));
+
+        CountDownLatch firstReserved = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // First creation reserves, inserts, and holds its transaction open briefly
+            Future<Integer> first = executor.submit(() -> tx.execute(s -> {
+                int reserved = tenantCountersRepository.reserveUserSlot(tenant.getId(), 1);
+                userRepository.saveAndFlush(newUser(tenant, provider, "race-1"));
+                firstReserved.countDown();
+                sleep(500);
+                return reserved;
+            }));
+
+            // Second creation starts while the first is uncommitted and must wait, then see the limit
+            firstReserved.await(10, TimeUnit.SECONDS);
+            Future<Integer> second = executor.submit(() -> tx.execute(s ->
+                    tenantCountersRepository.reserveUserSlot(tenant.getId(), 1)));
+
+            assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+            assertThat(second.get(10, TimeUnit.SECONDS)).isZero();
+        } finally {
+            executor.shutdownNow();
+            // Not rolled back automatically in this test (setUp committed its tenant too)
+            tx.executeWithoutResult(s -> tenantRepository.deleteAllById(List.of(tenant.getId(), testTenant.getId())));
+        }
+    }
+
+    private long activeCount(String column) {
+        return jdbcTemplate.queryForObject(
+                "SELECT " + column + " FROM tenant_counters WHERE tenant_id = ?", Long.class, testTenant.getId());
+    }
+
+    private User newUser(String subject) {
+        return newUser(testTenant, testProvider, subject);
+    }
+
+    private static User newUser(Tenant tenant, Provider provider, String subject) {
+        return User.builder()
+                .tenant(tenant)
+                .provider(provider)
+                .subject(subject)
+                .rawClaims(Map.of("sub", subject))
+                .claims(Map.of("sub", subject))
+                .isActive(true)
+                .build();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
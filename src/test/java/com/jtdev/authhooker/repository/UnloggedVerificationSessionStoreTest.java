@@ -0,0 +1,155 @@
+package com.jtdev.authhooker.repository;
+
+import com.jtdev.authhooker.domain.Provider;
+import com.jtdev.authhooker.domain.Tenant;
+import com.jtdev.authhooker.domain.VerificationSession;
+import com.jtdev.authhooker.service.UnloggedVerificationSessionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UnloggedVerificationSessionStoreTest extends BaseRepositoryTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private ProviderRepository providerRepository;
+
+    private UnloggedVerificationSessionStore store;
+    private Tenant testTenant;
+    private Provider testProvider;
+
+    @BeforeEach
+    void setUp() {
+        store = new UnloggedVerificationSessionStore(jdbcTemplate, providerRepository);
+
+        testTenant = tenantRepository.saveAndFlush(Tenant.builder()
+                .name("Unlogged Store Tenant")
+                .ownerEmail("owner@test.com")
+                .planTier("free")
+                .status("active")
+                .maxVerifiedUsers(50)
+                .settings(Map.of())
+                .build());
+
+        // Flushed so the JDBC inserts see the rows their foreign keys point to
+        testProvider = providerRepository.saveAndFlush(Provider.builder()
+                .tenant(testTenant)
+                .providerType("google")
+                .name("Google OAuth")
+                .clientId("test-client-id")
+                .clientSecretEncrypted("encrypted-secret")
+                .config(Map.of())
+                .isActive(true)
+                .isPrimary(true)
+                .build());
+    }
+
+    @Test
+    void findByStateToken_shouldReturnSavedSessionWithProviderAndTenant() {
+        // Given
+        VerificationSession saved = store.save(session("state-1", LocalDateTime.now().plusMinutes(10)));
+
+        // When
+        Optional<VerificationSession> found = store.findByStateToken("state-1");
+
+        // Then
+        assertThat(saved.getId()).isNotNull();
+        assertThat(found).isPresent();
+        assertThat(found.get().getId()).isEqualTo(saved.getId());
+        assertThat(found.get().getCodeVerifier()).isEqualTo("verifier-abc123");
+        assertThat(found.get().getNonce()).isEqualTo("nonce-xyz789");
+        assertThat(found.get().getPlatformUserId()).isEqualTo("discord-user-123");
+        assertThat(found.get().getStatus()).isEqualTo("pending");
+        assertThat(found.get().getSessionData())
+                .containsEntry("discord_guild_id", "guild-456")
+                .containsEntry("roles", List.of("member", "staff"));
+        assertThat(found.get().getProvider().getId()).isEqualTo(testProvider.getId());
+        assertThat(found.get().getTenant().getId()).isEqualTo(testTenant.getId());
+    }
+
+    @Test
+    void findByStateToken_shouldReturnEmptyForUnknownState() {
+        // When
+        Optional<VerificationSession> found = store.findByStateToken("unknown-state");
+
+        // Then
+        assertThat(found).isEmpty();
+    }
+
+    @Test
+    void completePending_shouldRejectReplay() {
+        // Given
+        VerificationSession session = store.save(session("state-1", LocalDateTime.now().plusMinutes(10)));
+        LocalDateTime completedAt = LocalDateTime.now();
+
+        // When
+        boolean first = store.completePending(session, completedAt, Map.of("sub", "123"));
+        boolean replay = store.completePending(session, completedAt.plusSeconds(1), Map.of("sub", "456"));
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(replay).isFalse();
+        VerificationSession found = store.findByStateToken("state-1").orElseThrow();
+        assertThat(found.getStatus()).isEqualTo("completed");
+        assertThat(found.getCompletedAt()).isNotNull();
+        assertThat(found.getSessionData()).containsEntry("sub", "123");
+    }
+
+    @Test
+    void completePending_shouldRejectExpiredSession() {
+        // Given
+        VerificationSession session = store.save(session("state-1", LocalDateTime.now().minusSeconds(1)));
+
+        // When
+        boolean completed = store.completePending(session, LocalDateTime.now(), Map.of("sub", "123"));
+
+        // Then
+        assertThat(completed).isFalse();
+        assertThat(store.findByStateToken("state-1").orElseThrow().getStatus()).isEqualTo("pending");
+    }
+
+    @Test
+    void purgeExpired_shouldDeleteOnlyExpiredSessions() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        store.save(session("expired-state", now.minusMinutes(1)));
+        store.save(session("active-state", now.plusMinutes(10)));
+
+        // When
+        int purged = store.purgeExpired(now, now.minusHours(24));
+
+        // Then
+        assertThat(purged).isEqualTo(1);
+        assertThat(store.findByStateToken("expired-state")).isEmpty();
+        assertThat(store.findByStateToken("active-state")).isPresent();
+    }
+
+    private VerificationSession session(String stateToken, LocalDateTime expiresAt) {
+        return VerificationSession.builder()
+                .tenant(testTenant)
+                .provider(testProvider)
+                .stateToken(stateToken)
+                .codeVerifier("verifier-abc123")
+                .nonce("nonce-xyz789")
+                .platformType("discord")
+                .platformUserId("discord-user-123")
+                .redirectUrl("https://example.com/callback")
+                .sessionData(Map.of("discord_guild_id", "guild-456", "roles", List.of("member", "staff")))
+                .status("pending")
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
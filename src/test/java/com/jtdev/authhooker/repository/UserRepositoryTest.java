@@ -3,6 +3,7 @@ package com.jtdev.authhooker.repository;
 import com.jtdev.authhooker.domain.Provider;
 import com.jtdev.authhooker.domain.Tenant;
 import com.jtdev.authhooker.domain.User;
+import com.jtdev.authhooker.dto.TenantUsageCounts;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -243,4 +244,49 @@ class UserRepositoryTest extends BaseRepositoryTest {
         assertThat(usersThisMonth).hasSize(1);
         assertThat(usersThisMonth.get(0).getEmail()).isEqualTo("user@example.com");
     }
+
+    @Test
+    void shouldAggregateTenantUsageInOneQuery() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        testUser.setVerificationCount(3);
+        userRepository.save(testUser);
+
+        User inactiveUser = User.builder()
+                .tenant(testTenant)
+                .provider(testProvider)
+                .subject("google-oauth2|INACTIVE")
+                .rawClaims(Map.of("sub", "google-oauth2|INACTIVE"))
+                .claims(Map.of("sub", "google-oauth2|INACTIVE"))
+                .isActive(false)
+                .verificationCount(2)
+                .lastVerifiedAt(now.minusMonths(2))
+                .build();
+        userRepository.save(inactiveUser);
+
+        User deletedUser = User.builder()
+                .tenant(testTenant)
+                .provider(testProvider)
+                .subject("google-oauth2|DELETED")
+                .rawClaims(Map.of("sub", "google-oauth2|DELETED"))
+                .claims(Map.of("sub", "google-oauth2|DELETED"))
+                .verificationCount(10)
+                .deletedAt(now)
+                .build();
+        userRepository.save(deletedUser);
+
+        // When
+        TenantUsageCounts counts = tenantRepository.aggregateUsage(
+                testTenant.getId(), now.minusDays(30), now.plusMinutes(1));
+
+        // Then
+        assertThat(counts.totalUsers()).isEqualTo(2L);
+        assertThat(counts.activeUsers()).isEqualTo(1L);
+        assertThat(counts.monthlyActiveUsers()).isEqualTo(1L);
+        assertThat(counts.totalVerifications()).isEqualTo(5L);
+        assertThat(counts.lastVerificationAt()).isNotNull();
+        assertThat(counts.totalProviders()).isEqualTo(1L);
+        assertThat(counts.activeProviders()).isEqualTo(1L);
+        assertThat(counts.totalPlatformIntegrations()).isZero();
+    }
 }
@@ -1,11 +1,17 @@
 package com.jtdev.authhooker.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
@@ -111,4 +117,73 @@ class JwtServiceTest {
         // Then
         assertThat(isExpired).isFalse();
     }
+    
+    @Test
+    void verifyAndExtract_shouldReturnPrincipal() {
+        // Given
+        String token = jwtService.generateToken(testTenantId, testEmail, null);
+        
+        // When
+        Optional<JwtService.JwtPrincipal> principal = jwtService.verifyAndExtract(token);
+        
+        // Then
+        assertThat(principal).isPresent();
+        assertThat(principal.get().tenantId()).isEqualTo(testTenantId);
+        assertThat(principal.get().email()).isEqualTo(testEmail);
+        assertThat(principal.get().expiresAt()).isAfter(Instant.now());
+    }
+    
+    @Test
+    void verifyAndExtract_shouldServeRepeatCallsFromCache() {
+        // Given
+        String token = jwtService.generateToken(testTenantId, testEmail, null);
+        
+        // When
+        Optional<JwtService.JwtPrincipal> first = jwtService.verifyAndExtract(token);
+        Optional<JwtService.JwtPrincipal> second = jwtService.verifyAndExtract(token);
+        
+        // Then
+        assertThat(second).containsSame(first.get());
+    }
+    
+    @Test
+    void verifyAndExtract_shouldRejectTokenSignedWithAnotherKey() {
+        // Given
+        JwtService otherService = new JwtService("another-secret-key-minimum-32-characters", 24);
+        String foreignToken = otherService.generateToken(testTenantId, testEmail, null);
+        
+        // When / Then
+        assertThat(jwtService.verifyAndExtract(foreignToken)).isEmpty();
+        assertThat(jwtService.verifyAndExtract("invalid.token.here")).isEmpty();
+    }
+    
+    @Test
+    void verifyAndExtract_shouldWorkWithCacheDisabled() {
+        // Given
+        JwtService uncached = new JwtService("test-secret-key-minimum-32-characters-long", 24, false, 0, 0);
+        String token = uncached.generateToken(testTenantId, testEmail, null);
+        
+        // When / Then
+        assertThat(uncached.verifyAndExtract(token)).map(JwtService.JwtPrincipal::tenantId).contains(testTenantId);
+    }
+    
+    @Test
+    void verifyAndExtract_shouldAcceptAndCacheTokenWithoutExpiry() {
+        // Given - signed with the service's key, but no exp claim
+        String token = Jwts.builder()
+                .claim("tenantId", testTenantId.toString())
+                .claim("email", testEmail)
+                .issuedAt(new Date())
+                .signWith(Keys.hmacShaKeyFor(
+                        "test-secret-key-minimum-32-characters-long".getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        
+        // When
+        Optional<JwtService.JwtPrincipal> first = jwtService.verifyAndExtract(token);
+        Optional<JwtService.JwtPrincipal> second = jwtService.verifyAndExtract(token);
+        
+        // Then
+        assertThat(first).map(JwtService.JwtPrincipal::expiresAt).contains(Instant.MAX);
+        assertThat(second).containsSame(first.get());
+    }
 }
@@ -0,0 +1,129 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.domain.AuditLog;
+import com.jtdev.authhooker.domain.Tenant;
+import com.jtdev.authhooker.repository.AuditLogRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AuditExportService
+ */
+@ExtendWith(MockitoExtension.class)
+class AuditExportServiceTest {
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private AuditExportService auditExportService;
+
+    private UUID tenantId;
+    private AuditLog first;
+    private AuditLog second;
+
+    @BeforeEach
+    void setUp() {
+        tenantId = UUID.randomUUID();
+        Tenant tenant = Tenant.builder().id(tenantId).build();
+        first = AuditLog.builder()
+                .id(1L)
+                .tenant(tenant)
+                .actorType("system")
+                .action("tenant.created")
+                .details(Map.of("plan", "free"))
+                .timestamp(LocalDateTime.of(2025, 1, 1, 12, 0))
+                .build();
+        second = AuditLog.builder()
+                .id(2L)
+                .tenant(tenant)
+                .actorType("user")
+                .action("user.created")
+                .resourceType("user")
+                .userAgent("Mozilla/5.0 (X11, \"Linux\")")
+                .timestamp(LocalDateTime.of(2025, 1, 1, 12, 5))
+                .build();
+    }
+
+    @Test
+    void export_shouldWriteOneJsonObjectPerLine() throws Exception {
+        // Given
+        when(auditLogRepository.streamForExport(eq(tenantId), any(), any(), isNull(), isNull(), isNull()))
+                .thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long count = auditExportService.export(tenantId, new AuditExportService.Filter(null, null, null, null, null),
+                AuditExportService.Format.NDJSON, out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertThat(count).isEqualTo(2);
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).startsWith("{\"id\":1,\"timestamp\":\"2025-01-01T12:00\"")
+                .contains("\"tenantId\":\"" + tenantId + "\"")
+                .endsWith("\"details\":{\"plan\":\"free\"}}");
+        assertThat(lines[1]).startsWith("{\"id\":2,");
+        assertThat(lines[2]).isEmpty();
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    void export_shouldWriteCsvWithHeaderAndQuoting() throws Exception {
+        // Given
+        when(auditLogRepository.streamForExport(eq(tenantId), any(), any(), eq("user.created"), isNull(), isNull()))
+                .thenReturn(Stream.of(second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long count = auditExportService.export(tenantId,
+                new AuditExportService.Filter(null, null, "user.created", null, null),
+                AuditExportService.Format.CSV, out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(count).isEqualTo(1);
+        assertThat(lines[0]).isEqualTo(
+                "id,timestamp,tenant_id,user_id,actor_type,actor_id,action,resource_type,resource_id,ip_address,user_agent,details");
+        assertThat(lines[1]).isEqualTo("2,2025-01-01T12:05," + tenantId
+                + ",,user,,user.created,user,,,\"Mozilla/5.0 (X11, \"\"Linux\"\")\",{}");
+    }
+
+    @Test
+    void export_shouldWriteNothingWhenNoRowsMatch() throws Exception {
+        // Given
+        when(auditLogRepository.streamForExport(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long count = auditExportService.export(tenantId, new AuditExportService.Filter(null, null, null, null, null),
+                AuditExportService.Format.NDJSON, out);
+
+        // Then
+        assertThat(count).isZero();
+        assertThat(out.size()).isZero();
+    }
+}
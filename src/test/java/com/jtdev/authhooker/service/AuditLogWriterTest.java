@@ -0,0 +1,143 @@
+package com.jtdev.authhooker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AuditLogWriter
+ */
+class AuditLogWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private AuditLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    Collection<?> entries = invocation.getArgument(1);
+                    batchSizes.add(entries.size());
+                    return new int[][]{};
+                });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void write_shouldInsertInBatches() {
+        // Given
+        writer = writer(true, 1000, 50, 200, "caller-runs");
+        writer.start();
+
+        // When
+        for (int i = 0; i < 120; i++) {
+            writer.write(entry("verification.completed"));
+        }
+
+        // Then
+        await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> batchSizes.stream().mapToInt(Integer::intValue).sum() == 120);
+        assertThat(batchSizes).allMatch(size -> size <= 50);
+        assertThat(batchSizes.size()).isLessThan(120);
+        assertThat(meterRegistry.get("authhooker.audit.written").counter().count()).isEqualTo(120);
+    }
+
+    @Test
+    void write_shouldDropWhenQueueFullWithDropPolicy() throws Exception {
+        // Given - the first batch blocks the writer thread
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    firstBatchStarted.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    Collection<?> entries = invocation.getArgument(1);
+                    batchSizes.add(entries.size());
+                    return new int[][]{};
+                });
+        writer = writer(true, 2, 1, 10, "drop");
+        writer.start();
+        writer.write(entry("first"));
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            writer.write(entry("overflow"));
+        }
+
+        // Then
+        assertThat(writer.pending()).isEqualTo(2);
+        assertThat(meterRegistry.get("authhooker.audit.dropped").counter().count()).isEqualTo(3);
+        release.countDown();
+    }
+
+    @Test
+    void stop_shouldDrainPendingEntries() {
+        // Given - a flush interval far longer than the test
+        writer = writer(true, 1000, 500, 60_000, "caller-runs");
+        writer.start();
+        for (int i = 0; i < 10; i++) {
+            writer.write(entry("user.created"));
+        }
+
+        // When
+        writer.stop();
+
+        // Then
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(10);
+        assertThat(writer.pending()).isZero();
+    }
+
+    @Test
+    void write_shouldInsertImmediatelyWhenSynchronous() {
+        // Given
+        writer = writer(false, 10, 10, 10, "caller-runs");
+        writer.start();
+
+        // When
+        writer.write(entry("tenant.created"));
+
+        // Then
+        verify(jdbcTemplate).batchUpdate(eq(AuditLogWriter.INSERT_SQL), anyCollection(), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertThat(batchSizes).containsExactly(1);
+    }
+
+    private AuditLogWriter writer(boolean async, int capacity, int batchSize, long flushIntervalMs, String policy) {
+        return new AuditLogWriter(jdbcTemplate, mock(PlatformTransactionManager.class), meterRegistry,
+                async, capacity, batchSize, flushIntervalMs, policy, 5);
+    }
+
+    private static AuditLogWriter.Entry entry(String action) {
+        return new AuditLogWriter.Entry(UUID.randomUUID(), null, "system", null, action,
+                null, null, Map.of("key", "value"), null, null, LocalDateTime.now());
+    }
+}
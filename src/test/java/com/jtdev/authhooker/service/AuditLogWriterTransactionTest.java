@@ -0,0 +1,112 @@
+package com.jtdev.authhooker.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AuditLogWriter overflow writes against a real database
+ *
+ * Not transactional: the entries are enqueued from afterCommit of a real transaction, so the
+ * caller-runs insert happens after the caller's transaction has already committed.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class AuditLogWriterTransactionTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AuditLogWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (writer != null) {
+            writer.stop();
+        }
+        jdbcTemplate.update("DELETE FROM audit_logs WHERE action LIKE 'overflow.%'");
+    }
+
+    @Test
+    void write_shouldCommitCallerRunsInsertWhenQueueFull() throws Exception {
+        // Given - the writer thread is stuck on its first batch and the one-slot queue is full
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        JdbcTemplate gated = new JdbcTemplate(dataSource) {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> pss) {
+                if (Thread.currentThread().getName().equals("audit-log-writer")) {
+                    writerBusy.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.batchUpdate(sql, batchArgs, batchSize, pss);
+            }
+        };
+        writer = new AuditLogWriter(gated, transactionManager, new SimpleMeterRegistry(),
+                true, 1, 1, 10, "caller-runs", 5);
+        writer.start();
+        writer.write(entry("overflow.blocked"));
+        assertThat(writerBusy.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.write(entry("overflow.queued"));
+        assertThat(writer.pending()).isEqualTo(1);
+
+        // When - the overflowing entry is enqueued from afterCommit
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                writer.write(entry("overflow.caller-runs")));
+
+        // Then - the row is visible from another connection before the writer thread resumes
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM audit_logs WHERE action = 'overflow.caller-runs'", Long.class))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void write_shouldCommitInsertWhenWriterNotRunning() {
+        // Given - never started, so every entry takes the fallback path
+        writer = new AuditLogWriter(jdbcTemplate, transactionManager, new SimpleMeterRegistry(),
+                true, 10, 10, 10, "caller-runs", 5);
+
+        // When
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                writer.write(entry("overflow.not-running")));
+
+        // Then
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM audit_logs WHERE action = 'overflow.not-running'", Long.class))
+                .isEqualTo(1);
+    }
+
+    private static AuditLogWriter.Entry entry(String action) {
+        return new AuditLogWriter.Entry(null, null, "system", null, action,
+                null, null, Map.of("test", UUID.randomUUID().toString()), null, null, LocalDateTime.now());
+    }
+}
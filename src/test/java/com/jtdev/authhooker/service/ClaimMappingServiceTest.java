@@ -0,0 +1,133 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.domain.ClaimMapping;
+import com.jtdev.authhooker.domain.Provider;
+import com.jtdev.authhooker.dto.ClaimMappingRequest;
+import com.jtdev.authhooker.repository.ClaimMappingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ClaimMappingService
+ */
+@ExtendWith(MockitoExtension.class)
+class ClaimMappingServiceTest {
+
+    @Mock
+    private ClaimMappingRepository claimMappingRepository;
+
+    @Mock
+    private ProviderService providerService;
+
+    private ClaimMappingService claimMappingService;
+    private Provider provider;
+
+    @BeforeEach
+    void setUp() {
+        claimMappingService = new ClaimMappingService(claimMappingRepository, providerService, 100, 300);
+        provider = Provider.builder().id(UUID.randomUUID()).providerType("oidc").name("Custom").build();
+    }
+
+    @Test
+    void applyMappings_shouldApplyPathsTransformsAndNestedTargets() {
+        // Given
+        when(claimMappingRepository.findActiveByProviderId(provider.getId())).thenReturn(List.of(
+                mapping("preferred_username", "email", Map.of("toLowerCase", true, "trim", true)),
+                mapping("$.org.department", "profile.department", Map.of()),
+                mapping("upn", "tenant", Map.of("regex", "^.*@", "replacement", "")),
+                mapping("missing", "locale", Map.of("default", "en"))));
+
+        // When
+        Map<String, Object> claims = claimMappingService.applyMappings(provider.getId(), Map.of(
+                "sub", "user-1",
+                "preferred_username", "  Jane.Doe@Example.COM ",
+                "org", Map.of("department", "eng"),
+                "upn", "jane@contoso.com"));
+
+        // Then
+        assertThat(claims)
+                .containsEntry("sub", "user-1")
+                .containsEntry("email", "jane.doe@example.com")
+                .containsEntry("profile", Map.of("department", "eng"))
+                .containsEntry("tenant", "contoso.com")
+                .doesNotContainKey("locale");
+    }
+
+    @Test
+    void applyMappings_shouldCompilePlanOncePerProvider() {
+        // Given
+        when(claimMappingRepository.findActiveByProviderId(provider.getId())).thenReturn(List.of(
+                mapping("$.groups[0]", "primary_group", Map.of())));
+
+        // When
+        Map<String, Object> first = claimMappingService.applyMappings(provider.getId(),
+                Map.of("groups", List.of("admins", "staff")));
+        Map<String, Object> second = claimMappingService.applyMappings(provider.getId(),
+                Map.of("groups", List.of("staff")));
+
+        // Then
+        assertThat(first).containsEntry("primary_group", "admins");
+        assertThat(second).containsEntry("primary_group", "staff");
+        verify(claimMappingRepository, times(1)).findActiveByProviderId(provider.getId());
+    }
+
+    @Test
+    void applyMappings_shouldSkipMappingThatCannotCompile() {
+        // Given
+        when(claimMappingRepository.findActiveByProviderId(provider.getId())).thenReturn(List.of(
+                mapping("name", "display_name", Map.of("regex", "(unclosed", "replacement", "")),
+                mapping("name", "full_name", Map.of("toUpperCase", true))));
+
+        // When
+        Map<String, Object> claims = claimMappingService.applyMappings(provider.getId(), Map.of("name", "Jane"));
+
+        // Then
+        assertThat(claims)
+                .containsEntry("full_name", "JANE")
+                .doesNotContainKey("display_name");
+    }
+
+    @Test
+    void createMapping_shouldRebuildProviderPlan() {
+        // Given
+        when(claimMappingRepository.findActiveByProviderId(provider.getId()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(mapping("nickname", "name", Map.of())));
+        when(providerService.getProviderById(provider.getId())).thenReturn(provider);
+        when(claimMappingRepository.save(any(ClaimMapping.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Map<String, Object> rawClaims = Map.of("nickname", "jd");
+        assertThat(claimMappingService.applyMappings(provider.getId(), rawClaims)).doesNotContainKey("name");
+
+        // When
+        claimMappingService.createMapping(provider.getId(), ClaimMappingRequest.builder()
+                .name("nickname-as-name")
+                .sourcePath("nickname")
+                .targetField("name")
+                .build());
+
+        // Then
+        assertThat(claimMappingService.applyMappings(provider.getId(), rawClaims)).containsEntry("name", "jd");
+        verify(claimMappingRepository, times(2)).findActiveByProviderId(provider.getId());
+    }
+
+    private ClaimMapping mapping(String sourcePath, String targetField, Map<String, Object> transform) {
+        return ClaimMapping.builder()
+                .id(UUID.randomUUID())
+                .provider(provider)
+                .name(targetField)
+                .sourcePath(sourcePath)
+                .targetField(targetField)
+                .transform(transform)
+                .build();
+    }
+}
@@ -1,8 +1,10 @@
 package com.jtdev.authhooker.service;
 
+import com.jtdev.authhooker.domain.ClaimMapping;
 import com.jtdev.authhooker.domain.Provider;
 import com.jtdev.authhooker.domain.Tenant;
 import com.jtdev.authhooker.dto.NormalizedClaims;
+import com.jtdev.authhooker.repository.ClaimMappingRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,8 +12,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -52,6 +56,10 @@ class ClaimsNormalizerTest {
                 .providerType("github")
                 .name("GitHub")
                 .build();
+        
+        // No claim mappings configured: claims pass through unchanged
+        lenient().when(claimMappingService.applyMappings(any(), anyMap()))
+                .thenAnswer(invocation -> new HashMap<>(invocation.<Map<String, Object>>getArgument(1)));
     }
     
     @Test
@@ -98,6 +106,77 @@ class ClaimsNormalizerTest {
         assertEquals("company.com", result.getEmailDomain());
     }
     
+    @Test
+    void normalize_shouldCollectClaimsSetByMappings() {
+        // Given
+        Map<String, Object> rawClaims = Map.of(
+                "sub", "123",
+                "email", "Admin@Company.com",
+                "org", Map.of("department", "eng")
+        );
+        Map<String, Object> mapped = new HashMap<>(rawClaims);
+        mapped.put("email", "admin@company.com");
+        mapped.put("department", "eng");
+        when(claimMappingService.applyMappings(googleProvider.getId(), rawClaims)).thenReturn(mapped);
+        
+        // When
+        NormalizedClaims result = claimsNormalizer.normalize(rawClaims, googleProvider);
+        
+        // Then
+        assertEquals("admin@company.com", result.getEmail());
+        assertEquals(Map.of("email", "admin@company.com", "department", "eng"), result.getCustomClaims());
+        assertEquals(rawClaims, result.getRawClaims());
+    }
+    
+    @Test
+    void normalize_shouldCollectMappedFieldUnderExistingRawObject() {
+        // Given - a real mapping plan writing into the raw "org" object
+        ClaimMappingRepository claimMappingRepository = mock(ClaimMappingRepository.class);
+        when(claimMappingRepository.findActiveByProviderId(googleProvider.getId())).thenReturn(List.of(
+                ClaimMapping.builder()
+                        .id(UUID.randomUUID())
+                        .provider(googleProvider)
+                        .name("department")
+                        .sourcePath("hd")
+                        .targetField("org.department")
+                        .build()));
+        ClaimsNormalizer normalizer = new ClaimsNormalizer(
+                new ClaimMappingService(claimMappingRepository, mock(ProviderService.class), 100, 300), Set.of());
+        Map<String, Object> org = new HashMap<>(Map.of("name", "Acme"));
+        Map<String, Object> rawClaims = new HashMap<>(Map.of(
+                "sub", "123",
+                "hd", "eng",
+                "org", org
+        ));
+        
+        // When
+        NormalizedClaims result = normalizer.normalize(rawClaims, googleProvider);
+        
+        // Then
+        assertEquals(Map.of("org", Map.of("name", "Acme", "department", "eng")), result.getCustomClaims());
+        assertEquals(Map.of("name", "Acme"), org);
+        assertEquals(Map.of("name", "Acme"), result.getRawClaims().get("org"));
+    }
+    
+    @Test
+    void normalize_shouldRetainOnlyAllowListedRawClaims() {
+        // Given
+        ClaimsNormalizer normalizer = new ClaimsNormalizer(claimMappingService, Set.of("sub", "iss"));
+        Map<String, Object> rawClaims = Map.of(
+                "sub", "123",
+                "iss", "https://accounts.google.com",
+                "email", "user@example.com",
+                "at_hash", "abc"
+        );
+        
+        // When
+        NormalizedClaims result = normalizer.normalize(rawClaims, googleProvider);
+        
+        // Then
+        assertEquals("user@example.com", result.getEmail());
+        assertEquals(Map.of("sub", "123", "iss", "https://accounts.google.com"), result.getRawClaims());
+    }
+    
     @Test
     void normalize_shouldExtractGroups() {
         // Given
@@ -0,0 +1,118 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.domain.Provider;
+import com.jtdev.authhooker.domain.Tenant;
+import com.jtdev.authhooker.domain.VerificationSession;
+import com.jtdev.authhooker.repository.ProviderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for InMemoryVerificationSessionStore
+ */
+@ExtendWith(MockitoExtension.class)
+class InMemoryVerificationSessionStoreTest {
+
+    @Mock
+    private ProviderRepository providerRepository;
+
+    private InMemoryVerificationSessionStore store;
+    private Tenant tenant;
+    private Provider provider;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryVerificationSessionStore(providerRepository, new SimpleMeterRegistry(), 1000);
+        tenant = Tenant.builder().id(UUID.randomUUID()).build();
+        provider = Provider.builder().id(UUID.randomUUID()).tenant(tenant).build();
+    }
+
+    @Test
+    void findByStateToken_shouldReturnCopyWithCurrentProviderAndTenant() {
+        // Given
+        VerificationSession saved = store.save(session("state-1", LocalDateTime.now().plusMinutes(10)));
+        when(providerRepository.findWithTenantById(provider.getId())).thenReturn(Optional.of(provider));
+
+        // When
+        Optional<VerificationSession> found = store.findByStateToken("state-1");
+
+        // Then
+        assertThat(saved.getId()).isNotNull();
+        assertThat(found).isPresent();
+        assertThat(found.get().getId()).isEqualTo(saved.getId());
+        assertThat(found.get().getProvider()).isSameAs(provider);
+        assertThat(found.get().getTenant()).isSameAs(tenant);
+        assertThat(found.get()).isNotSameAs(saved);
+    }
+
+    @Test
+    void findByStateToken_shouldNotReturnExpiredSession() {
+        // Given
+        store.save(session("state-1", LocalDateTime.now().minusSeconds(1)));
+
+        // When
+        Optional<VerificationSession> found = store.findByStateToken("state-1");
+
+        // Then
+        assertThat(found).isEmpty();
+        verifyNoInteractions(providerRepository);
+    }
+
+    @Test
+    void completePending_shouldCompleteSessionOnlyOnce() {
+        // Given
+        VerificationSession session = store.save(session("state-1", LocalDateTime.now().plusMinutes(10)));
+        when(providerRepository.findWithTenantById(provider.getId())).thenReturn(Optional.of(provider));
+
+        // When
+        boolean first = store.completePending(session, LocalDateTime.now(), Map.of("sub", "123"));
+        boolean replay = store.completePending(session, LocalDateTime.now(), Map.of("sub", "456"));
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(replay).isFalse();
+        VerificationSession stored = store.findByStateToken("state-1").orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo("completed");
+        assertThat(stored.getSessionData()).containsEntry("sub", "123");
+    }
+
+    @Test
+    void expire_shouldMarkSessionExpired() {
+        // Given
+        VerificationSession session = store.save(session("state-1", LocalDateTime.now().plusMinutes(10)));
+
+        // When
+        boolean expired = store.expire("state-1");
+        boolean missing = store.expire("unknown");
+
+        // Then
+        assertThat(expired).isTrue();
+        assertThat(missing).isFalse();
+        assertThat(store.completePending(session, LocalDateTime.now(), Map.of())).isFalse();
+    }
+
+    private VerificationSession session(String stateToken, LocalDateTime expiresAt) {
+        return VerificationSession.builder()
+                .tenant(tenant)
+                .provider(provider)
+                .stateToken(stateToken)
+                .codeVerifier("verifier")
+                .nonce("nonce")
+                .platformType("discord")
+                .platformUserId("111")
+                .expiresAt(expiresAt)
+                .build();
+    }
+}
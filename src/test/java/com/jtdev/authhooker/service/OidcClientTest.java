@@ -0,0 +1,138 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.domain.Provider;
+import com.jtdev.authhooker.exception.InvalidIdTokenException;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for OidcClient ID token verification against a local stub JWKS endpoint
+ */
+class OidcClientTest {
+
+    private static final String ISSUER = "https://idp.example.com";
+    private static final String CLIENT_ID = "test-client";
+
+    private HttpServer server;
+    private KeyPair keyPair;
+    private OidcClient oidcClient;
+    private Provider provider;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        keyPair = Jwts.SIG.RS256.keyPair().build();
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        byte[] jwks = """
+                {"keys":[{"kty":"RSA","kid":"key-1","n":"%s","e":"%s"}]}
+                """.formatted(
+                encoder.encodeToString(publicKey.getModulus().toByteArray()),
+                encoder.encodeToString(publicKey.getPublicExponent().toByteArray()))
+                .getBytes(StandardCharsets.UTF_8);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/jwks", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, jwks.length);
+            exchange.getResponseBody().write(jwks);
+            exchange.close();
+        });
+        server.start();
+
+        OidcMetadataCache metadataCache = new OidcMetadataCache(WebClient.create(), new SimpleMeterRegistry(),
+                3600, 300, 86400, 3600, 0.8, 60, 30, 5);
+        oidcClient = new OidcClient(WebClient.create(), null, metadataCache);
+
+        provider = Provider.builder()
+                .id(UUID.randomUUID())
+                .clientId(CLIENT_ID)
+                .config(Map.of(
+                        "issuer", ISSUER,
+                        "jwks_uri", "http://127.0.0.1:" + server.getAddress().getPort() + "/jwks"))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void verifyIdToken_shouldReturnClaimsForValidToken() {
+        // Given
+        String idToken = token(CLIENT_ID, new Date(System.currentTimeMillis() + 60_000));
+
+        // When
+        Map<String, Object> claims = oidcClient.verifyIdToken(provider, idToken);
+
+        // Then
+        assertThat(claims).containsEntry("sub", "user-1")
+                .containsEntry("email", "user@example.com")
+                .containsEntry("iss", ISSUER);
+        assertThat(claims.get("exp")).isInstanceOf(Long.class);
+    }
+
+    @Test
+    void verifyIdToken_shouldRejectWrongAudience() {
+        // Given
+        String idToken = token("another-client", new Date(System.currentTimeMillis() + 60_000));
+
+        // When / Then
+        assertThatThrownBy(() -> oidcClient.verifyIdToken(provider, idToken))
+                .isInstanceOf(InvalidIdTokenException.class);
+        assertThat(oidcClient.validateIdToken(provider, idToken)).isFalse();
+    }
+
+    @Test
+    void verifyIdToken_shouldRejectExpiredToken() {
+        // Given
+        String idToken = token(CLIENT_ID, new Date(System.currentTimeMillis() - 60_000));
+
+        // When / Then
+        assertThatThrownBy(() -> oidcClient.verifyIdToken(provider, idToken))
+                .isInstanceOf(InvalidIdTokenException.class);
+    }
+
+    @Test
+    void verifyIdToken_shouldRejectTamperedToken() {
+        // Given
+        String idToken = token(CLIENT_ID, new Date(System.currentTimeMillis() + 60_000));
+        String[] parts = idToken.split("\\.");
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                ("{\"sub\":\"admin\",\"iss\":\"" + ISSUER + "\",\"aud\":\"" + CLIENT_ID + "\"}")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        // When / Then
+        assertThatThrownBy(() -> oidcClient.verifyIdToken(provider, parts[0] + "." + forgedPayload + "." + parts[2]))
+                .isInstanceOf(InvalidIdTokenException.class);
+    }
+
+    private String token(String audience, Date expiration) {
+        return Jwts.builder()
+                .header().keyId("key-1").and()
+                .issuer(ISSUER)
+                .audience().add(audience).and()
+                .subject("user-1")
+                .claim("email", "user@example.com")
+                .issuedAt(new Date(System.currentTimeMillis() - 120_000))
+                .expiration(expiration)
+                .signWith(keyPair.getPrivate())
+                .compact();
+    }
+}
@@ -0,0 +1,154 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.exception.InvalidIdTokenException;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for OidcMetadataCache against a local stub JWKS endpoint
+ */
+class OidcMetadataCacheTest {
+
+    private HttpServer server;
+    private String jwksUri;
+    private final AtomicInteger jwksRequests = new AtomicInteger();
+    private volatile String jwksBody;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OidcMetadataCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jwksBody = jwks("key-1");
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/jwks", exchange -> {
+            jwksRequests.incrementAndGet();
+            try {
+                Thread.sleep(100); // widen the window for concurrent misses
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = jwksBody.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("Cache-Control", "public, max-age=600");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        jwksUri = "http://127.0.0.1:" + server.getAddress().getPort() + "/jwks";
+
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new OidcMetadataCache(WebClient.create(), meterRegistry,
+                3600, 300, 86400, 3600, 0.8, 60, 30, 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void getSigningKey_shouldCoalesceConcurrentMisses() throws Exception {
+        // Given
+        UUID providerId = UUID.randomUUID();
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<PublicKey>> results = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 16; i++) {
+            results.add(pool.submit(() -> cache.getSigningKey(providerId, jwksUri, "key-1")));
+        }
+        for (Future<PublicKey> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isNotNull();
+        }
+        pool.shutdown();
+
+        // Then
+        assertThat(jwksRequests.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("authhooker.oidc.metadata.cache")
+                .tag("cache", "jwks").tag("result", "miss").counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void getSigningKey_shouldServeFromCacheWithinMaxAge() {
+        // Given
+        UUID providerId = UUID.randomUUID();
+        cache.getSigningKey(providerId, jwksUri, "key-1");
+
+        // When
+        cache.getSigningKey(providerId, jwksUri, "key-1");
+        cache.getSigningKey(providerId, jwksUri, "key-1");
+
+        // Then
+        assertThat(jwksRequests.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("authhooker.oidc.metadata.cache")
+                .tag("cache", "jwks").tag("result", "hit").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void getSigningKey_shouldRefreshOnceForRotatedKid() throws Exception {
+        // Given
+        UUID providerId = UUID.randomUUID();
+        cache.getSigningKey(providerId, jwksUri, "key-1");
+        jwksBody = jwks("key-2");
+
+        // When
+        PublicKey rotated = cache.getSigningKey(providerId, jwksUri, "key-2");
+
+        // Then
+        assertThat(rotated).isNotNull();
+        assertThat(jwksRequests.get()).isEqualTo(2);
+    }
+
+    @Test
+    void getSigningKey_shouldNegativelyCacheUnknownKid() {
+        // Given
+        UUID providerId = UUID.randomUUID();
+        cache.getSigningKey(providerId, jwksUri, "key-1");
+
+        // When / Then
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> cache.getSigningKey(providerId, jwksUri, "unknown"))
+                    .isInstanceOf(InvalidIdTokenException.class)
+                    .hasMessageContaining("unknown");
+        }
+
+        // Only one forced refresh reaches the IdP
+        assertThat(jwksRequests.get()).isEqualTo(2);
+    }
+
+    private static String jwks(String kid) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        RSAPublicKey publicKey = (RSAPublicKey) generator.generateKeyPair().getPublic();
+
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String n = encoder.encodeToString(publicKey.getModulus().toByteArray());
+        String e = encoder.encodeToString(publicKey.getPublicExponent().toByteArray());
+
+        return """
+                {"keys":[{"kty":"RSA","kid":"%s","use":"sig","alg":"RS256","n":"%s","e":"%s"}]}
+                """.formatted(kid, n, e);
+    }
+}
@@ -0,0 +1,195 @@
+package com.jtdev.authhooker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for OutboxRelay against the embedded Kafka broker (event_outbox reads/deletes are mocked)
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@EmbeddedKafka(partitions = 2, topics = OutboxRelayTest.TOPIC)
+class OutboxRelayTest {
+
+    static final String TOPIC = "authhooker.events.test";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final EmbeddedKafkaBroker broker;
+    private KafkaTemplate<String, String> kafkaTemplate;
+    private Consumer<String, String> consumer;
+
+    OutboxRelayTest(EmbeddedKafkaBroker broker) {
+        this.broker = broker;
+    }
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> producerProps = KafkaTestUtils.producerProps(broker);
+        producerProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        producerProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                producerProps, new StringSerializer(), new StringSerializer()));
+
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps(broker, "relay-test-" + UUID.randomUUID(), false);
+        consumerProps.put("auto.offset.reset", "earliest");
+        consumer = new DefaultKafkaConsumerFactory<>(
+                consumerProps, new StringDeserializer(), new StringDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(consumer, TOPIC);
+
+        when(jdbcTemplate.queryForObject(contains("pg_try_advisory_xact_lock"), eq(Boolean.class), any()))
+                .thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+        kafkaTemplate.destroy();
+    }
+
+    @Test
+    void relay_shouldPublishTenantKeyedEnvelopesAndDeleteRows() throws Exception {
+        // Given
+        UUID tenantA = UUID.randomUUID();
+        UUID tenantB = UUID.randomUUID();
+        UUID mappingId = UUID.randomUUID();
+        stubOutbox(
+                row(1, tenantA, EventOutbox.PLATFORM_LINKED, mappingId, "{\"platform\":\"discord\"}"),
+                row(2, tenantB, EventOutbox.USER_CREATED, UUID.randomUUID(), "{}"),
+                row(3, tenantA, EventOutbox.ROLES_CHANGED, mappingId, "{\"add\":[\"member\"]}"));
+
+        // When
+        int published = relay(500).relay();
+
+        // Then
+        assertThat(published).isEqualTo(3);
+
+        ConsumerRecords<String, String> records = KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(10), 3);
+        List<ConsumerRecord<String, String>> tenantARecords = new ArrayList<>();
+        records.forEach(record -> {
+            if (record.key().equals(tenantA.toString())) {
+                tenantARecords.add(record);
+            }
+        });
+        assertThat(records.count()).isEqualTo(3);
+
+        // Same key, same partition, in outbox order
+        assertThat(tenantARecords).hasSize(2);
+        assertThat(tenantARecords.get(0).partition()).isEqualTo(tenantARecords.get(1).partition());
+        JsonNode first = objectMapper.readTree(tenantARecords.get(0).value());
+        JsonNode second = objectMapper.readTree(tenantARecords.get(1).value());
+        assertThat(first.get("id").asLong()).isEqualTo(1);
+        assertThat(first.get("type").asText()).isEqualTo(EventOutbox.PLATFORM_LINKED);
+        assertThat(first.get("aggregate_id").asText()).isEqualTo(mappingId.toString());
+        assertThat(first.get("payload").get("platform").asText()).isEqualTo("discord");
+        assertThat(second.get("type").asText()).isEqualTo(EventOutbox.ROLES_CHANGED);
+        assertThat(new String(tenantARecords.get(1).headers().lastHeader("event_type").value()))
+                .isEqualTo(EventOutbox.ROLES_CHANGED);
+
+        verify(jdbcTemplate).update(startsWith("DELETE FROM event_outbox"), any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    void relay_shouldKeepRowsWhenPublishFails() throws Exception {
+        // Given
+        stubOutbox(row(1, UUID.randomUUID(), EventOutbox.USER_VERIFIED, UUID.randomUUID(), "{}"));
+        @SuppressWarnings("unchecked")
+        KafkaTemplate<String, String> failing = mock(KafkaTemplate.class);
+        when(failing.send(any(org.apache.kafka.clients.producer.ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        // When
+        int published = new OutboxRelay(jdbcTemplate, new TransactionTemplate(transactionManager), failing,
+                true, TOPIC, 500, 5).relay();
+
+        // Then
+        assertThat(published).isZero();
+        verify(jdbcTemplate, never()).update(startsWith("DELETE"), any(PreparedStatementSetter.class));
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void relay_shouldSkipWhenAnotherNodeHoldsTheLock() {
+        // Given
+        when(jdbcTemplate.queryForObject(contains("pg_try_advisory_xact_lock"), eq(Boolean.class), any()))
+                .thenReturn(false);
+
+        // When
+        int published = relay(500).relay();
+
+        // Then
+        assertThat(published).isZero();
+        verify(jdbcTemplate, never()).query(anyString(), any(RowCallbackHandler.class), any());
+    }
+
+    private OutboxRelay relay(int batchSize) {
+        return new OutboxRelay(jdbcTemplate, new TransactionTemplate(transactionManager), kafkaTemplate,
+                true, TOPIC, batchSize, 10);
+    }
+
+    private void stubOutbox(ResultSet... rows) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (ResultSet rs : rows) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, tenant_id"), any(RowCallbackHandler.class), any());
+    }
+
+    private static ResultSet row(long id, UUID tenantId, String type, UUID aggregateId, String payload) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getObject("tenant_id", UUID.class)).thenReturn(tenantId);
+        when(rs.getString("event_type")).thenReturn(type);
+        when(rs.getObject("aggregate_id", UUID.class)).thenReturn(aggregateId);
+        when(rs.getString("payload")).thenReturn(payload);
+        when(rs.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(LocalDateTime.now()));
+        return rs;
+    }
+}
@@ -0,0 +1,116 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.dto.PlatformUserStatus;
+import com.jtdev.authhooker.repository.UserPlatformMappingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PlatformUserStatusCache
+ */
+@ExtendWith(MockitoExtension.class)
+class PlatformUserStatusCacheTest {
+
+    @Mock
+    private UserPlatformMappingRepository mappingRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PlatformUserStatusCache cache;
+    private UUID tenantId;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PlatformUserStatusCache(mappingRepository, meterRegistry, 1000, 60);
+        tenantId = UUID.randomUUID();
+    }
+
+    @Test
+    void get_shouldServeRepeatedLookupsFromMemory() {
+        // Given
+        PlatformUserStatus status = status("111");
+        when(mappingRepository.findStatusByTenantIdAndPlatformUserIds(tenantId, "discord", List.of("111")))
+                .thenReturn(List.of(status));
+
+        // When
+        Optional<PlatformUserStatus> first = cache.get(tenantId, "discord", "111");
+        Optional<PlatformUserStatus> second = cache.get(tenantId, "discord", "111");
+
+        // Then
+        assertThat(first).contains(status);
+        assertThat(second).contains(status);
+        verify(mappingRepository, times(1)).findStatusByTenantIdAndPlatformUserIds(any(), any(), any());
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "platform_user_status").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void get_shouldCacheUnlinkedAccounts() {
+        // Given
+        when(mappingRepository.findStatusByTenantIdAndPlatformUserIds(any(), any(), any())).thenReturn(List.of());
+
+        // When
+        cache.get(tenantId, "discord", "999");
+        Optional<PlatformUserStatus> again = cache.get(tenantId, "discord", "999");
+
+        // Then
+        assertThat(again).isEmpty();
+        verify(mappingRepository, times(1)).findStatusByTenantIdAndPlatformUserIds(any(), any(), any());
+    }
+
+    @Test
+    void getAll_shouldLoadOnlyMissesInOneQuery() {
+        // Given
+        PlatformUserStatus cached = status("111");
+        PlatformUserStatus loaded = status("222");
+        when(mappingRepository.findStatusByTenantIdAndPlatformUserIds(tenantId, "discord", List.of("111")))
+                .thenReturn(List.of(cached));
+        cache.get(tenantId, "discord", "111");
+        when(mappingRepository.findStatusByTenantIdAndPlatformUserIds(eq(tenantId), eq("discord"), argThat(ids ->
+                ids.size() == 2 && ids.containsAll(List.of("222", "333")))))
+                .thenReturn(List.of(loaded));
+
+        // When
+        Map<String, PlatformUserStatus> statuses = cache.getAll(tenantId, "discord", List.of("111", "222", "333"));
+
+        // Then
+        assertThat(statuses).containsOnly(Map.entry("111", cached), Map.entry("222", loaded));
+        verify(mappingRepository, times(2)).findStatusByTenantIdAndPlatformUserIds(any(), any(), any());
+    }
+
+    @Test
+    void invalidate_shouldReloadAfterEviction() {
+        // Given
+        when(mappingRepository.findStatusByTenantIdAndPlatformUserIds(any(), any(), any()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(status("111")));
+        cache.get(tenantId, "discord", "111");
+
+        // When
+        cache.invalidate(tenantId, "discord", "111");
+        Optional<PlatformUserStatus> relinked = cache.get(tenantId, "discord", "111");
+
+        // Then
+        assertThat(relinked).isPresent();
+        verify(mappingRepository, times(2)).findStatusByTenantIdAndPlatformUserIds(any(), any(), any());
+    }
+
+    private static PlatformUserStatus status(String platformUserId) {
+        return new PlatformUserStatus(platformUserId, UUID.randomUUID(), true, true,
+                LocalDateTime.now(), true, List.of("member"), null);
+    }
+}
@@ -36,7 +36,7 @@ class ProviderServiceTest {
     private EncryptionService encryptionService;
     
     @Mock
-    private WebClient.Builder webClientBuilder;
+    private WebClient idpWebClient;
     
     @InjectMocks
     private ProviderService providerService;
@@ -82,7 +82,7 @@ class ProviderServiceTest {
         UUID tenantId = testTenant.getId();
         
         when(tenantService.getTenantById(tenantId)).thenReturn(testTenant);
-        when(tenantService.validatePlanLimits(tenantId, "providers")).thenReturn(true);
+        when(tenantService.reservePlanSlot(tenantId, "providers")).thenReturn(true);
         when(encryptionService.encrypt(anyString())).thenReturn("encrypted-secret");
         when(providerRepository.save(any(Provider.class))).thenAnswer(i -> {
             Provider p = i.getArgument(0);
@@ -117,7 +117,7 @@ class ProviderServiceTest {
                 .build();
         
         when(tenantService.getTenantById(tenantId)).thenReturn(testTenant);
-        when(tenantService.validatePlanLimits(tenantId, "providers")).thenReturn(true);
+        when(tenantService.reservePlanSlot(tenantId, "providers")).thenReturn(true);
         when(encryptionService.encrypt(anyString())).thenReturn("encrypted-secret");
         when(providerRepository.findByTenantId(tenantId)).thenReturn(List.of(existingPrimary));
         when(providerRepository.save(any(Provider.class))).thenAnswer(i -> i.getArgument(0));
@@ -136,7 +136,7 @@ class ProviderServiceTest {
         UUID tenantId = testTenant.getId();
         
         when(tenantService.getTenantById(tenantId)).thenReturn(testTenant);
-        when(tenantService.validatePlanLimits(tenantId, "providers")).thenReturn(false);
+        when(tenantService.reservePlanSlot(tenantId, "providers")).thenReturn(false);
         
         // When/Then
         assertThatThrownBy(() -> providerService.createProvider(tenantId, createRequest))
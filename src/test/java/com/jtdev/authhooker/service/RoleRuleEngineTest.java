@@ -0,0 +1,169 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.domain.PlatformIntegration;
+import com.jtdev.authhooker.domain.RoleRule;
+import com.jtdev.authhooker.exception.ValidationException;
+import com.jtdev.authhooker.repository.RoleRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RoleRuleEngine
+ */
+@ExtendWith(MockitoExtension.class)
+class RoleRuleEngineTest {
+
+    @Mock
+    private RoleRuleRepository roleRuleRepository;
+
+    private RoleRuleEngine roleRuleEngine;
+    private UUID tenantId;
+    private PlatformIntegration integration;
+
+    @BeforeEach
+    void setUp() {
+        roleRuleEngine = new RoleRuleEngine(roleRuleRepository, 100, 300);
+        tenantId = UUID.randomUUID();
+        integration = PlatformIntegration.builder().id(UUID.randomUUID()).build();
+    }
+
+    @Test
+    void evaluate_shouldUnionMatchingRulesInPriorityOrder() {
+        // Given
+        when(roleRuleRepository.findActiveByTenantId(tenantId)).thenReturn(List.of(
+                rule(10, null, Map.of(
+                        "roles", List.of("staff"),
+                        "condition", Map.of("email_domain", "Example.com"))),
+                rule(5, null, Map.of(
+                        "roles", List.of("engineering"),
+                        "condition", Map.of("all", List.of(
+                                Map.of("groups", List.of("eng", "platform")),
+                                Map.of("not", Map.of("claim", "contractor", "equals", true)))))),
+                rule(1, null, Map.of(
+                        "roles", "everyone"))));
+
+        // When
+        Set<String> roles = roleRuleEngine.evaluate(tenantId, integration.getId(), Map.of(
+                "email_domain", "example.com",
+                "groups", List.of("platform"),
+                "contractor", false));
+
+        // Then
+        assertThat(roles).containsExactly("staff", "engineering", "everyone");
+    }
+
+    @Test
+    void evaluate_shouldStopAtRuleMarkedStop() {
+        // Given
+        when(roleRuleRepository.findActiveByTenantId(tenantId)).thenReturn(List.of(
+                rule(10, null, Map.of(
+                        "roles", List.of("banned"),
+                        "condition", Map.of("claim", "org.status", "in", List.of("suspended", "closed")),
+                        "stop", true)),
+                rule(1, null, Map.of("roles", List.of("member")))));
+
+        // When
+        Set<String> suspended = roleRuleEngine.evaluate(tenantId, integration.getId(),
+                Map.of("org", Map.of("status", "suspended")));
+        Set<String> active = roleRuleEngine.evaluate(tenantId, integration.getId(),
+                Map.of("org", Map.of("status", "active")));
+
+        // Then
+        assertThat(suspended).containsExactly("banned");
+        assertThat(active).containsExactly("member");
+    }
+
+    @Test
+    void evaluate_shouldOnlyApplyRulesForTheIntegrationAndCacheThem() {
+        // Given
+        PlatformIntegration other = PlatformIntegration.builder().id(UUID.randomUUID()).build();
+        when(roleRuleRepository.findActiveByTenantId(tenantId)).thenReturn(List.of(
+                rule(1, integration, Map.of("roles", List.of("discord-member"))),
+                rule(1, other, Map.of("roles", List.of("minecraft-member"))),
+                rule(0, null, Map.of(
+                        "roles", List.of("verified"),
+                        "condition", Map.of("claim", "email", "matches", ".+@.+")))));
+
+        // When
+        roleRuleEngine.evaluate(tenantId, integration.getId(), Map.of());
+        Set<String> roles = roleRuleEngine.evaluate(tenantId, integration.getId(), Map.of("email", "a@b.com"));
+
+        // Then
+        assertThat(roles).containsExactly("discord-member", "verified");
+        verify(roleRuleRepository, times(1)).findActiveByTenantId(tenantId);
+    }
+
+    @Test
+    void evaluate_shouldSkipInvalidRulesAndReloadAfterInvalidate() {
+        // Given
+        when(roleRuleRepository.findActiveByTenantId(tenantId))
+                .thenReturn(List.of(
+                        rule(2, null, Map.of("roles", List.of("broken"), "condition", Map.of("bogus", 1))),
+                        rule(1, null, Map.of("roles", List.of("member")))))
+                .thenReturn(List.of());
+
+        // When
+        Set<String> before = roleRuleEngine.evaluate(tenantId, null, Map.of());
+        roleRuleEngine.invalidate(tenantId);
+        Set<String> after = roleRuleEngine.evaluate(tenantId, null, Map.of());
+
+        // Then
+        assertThat(before).containsExactly("member");
+        assertThat(after).isEmpty();
+    }
+
+    @Test
+    void roleChanges_shouldDiffDesiredAgainstCurrentRoles() {
+        // When
+        Map<String, Object> changes = RoleRuleEngine.roleChanges(
+                List.of("member", "legacy"), new LinkedHashSet<>(List.of("member", "verified")));
+
+        // Then
+        assertThat(changes)
+                .containsEntry("roles", List.of("member", "verified"))
+                .containsEntry("add", List.of("verified"))
+                .containsEntry("remove", List.of("legacy"))
+                .containsKey("computed_at");
+
+        // When/Then - already in sync
+        assertThat(RoleRuleEngine.roleChanges(List.of("verified", "member"), Set.of("member", "verified")))
+                .isEmpty();
+    }
+
+    @Test
+    void compile_shouldRejectMalformedRuleSets() {
+        assertThatThrownBy(() -> RoleRuleCompiler.compile(rule(0, null, Map.of("condition", Map.of()))))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> RoleRuleCompiler.compile(rule(0, null, Map.of(
+                "roles", List.of("x"),
+                "condition", Map.of("claim", "name", "matches", "(unclosed")))))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> RoleRuleCompiler.compile(rule(0, null, Map.of(
+                "roles", List.of("x"),
+                "condition", Map.of("any", List.of())))))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    private static RoleRule rule(int priority, PlatformIntegration integration, Map<String, Object> ruleSet) {
+        return RoleRule.builder()
+                .id(UUID.randomUUID())
+                .name("rule-" + priority)
+                .platformIntegration(integration)
+                .ruleSet(ruleSet)
+                .priority(priority)
+                .build();
+    }
+}
@@ -0,0 +1,219 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.domain.RoleRule;
+import com.jtdev.authhooker.repository.RoleRuleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RoleSyncScheduler
+ */
+@ExtendWith(MockitoExtension.class)
+class RoleSyncSchedulerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private RoleRuleEngine roleRuleEngine;
+
+    @Mock
+    private UsageMeteringService usageMeteringService;
+
+    @Mock
+    private EventOutbox eventOutbox;
+
+    @Mock
+    private PlatformUserStatusCache platformUserStatusCache;
+
+    private RoleSyncScheduler.Integration integration;
+
+    @BeforeEach
+    void setUp() {
+        integration = new RoleSyncScheduler.Integration(UUID.randomUUID(), UUID.randomUUID());
+    }
+
+    @Test
+    void syncIntegration_shouldBatchUpdateChangedAndUnchangedMappings() throws Exception {
+        // Given
+        UUID unchanged = UUID.randomUUID();
+        UUID changed = UUID.randomUUID();
+        stubBatches(List.of(
+                row(unchanged, "[\"member\"]", "{\"email_domain\":\"example.com\"}", true),
+                row(changed, "[]", "{\"email_domain\":\"example.com\"}", true)));
+        when(roleRuleEngine.evaluate(eq(integration.tenantId()), eq(integration.id()), anyMap()))
+                .thenReturn(Set.of("member"));
+
+        // When
+        int synced = scheduler(500).syncIntegration(integration, LocalDateTime.now().minusHours(24));
+
+        // Then
+        assertThat(synced).isEqualTo(2);
+
+        ArgumentCaptor<List<Object[]>> changedArgs = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("pending_role_changes"), changedArgs.capture());
+        assertThat(changedArgs.getValue()).hasSize(1);
+        assertThat(changedArgs.getValue().get(0)[0]).isEqualTo("[\"member\"]");
+        assertThat((String) changedArgs.getValue().get(0)[1]).contains("\"add\":[\"member\"]");
+        assertThat(changedArgs.getValue().get(0)[3]).isEqualTo(changed);
+
+        ArgumentCaptor<List<Object[]>> unchangedArgs = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE user_platform_mappings SET last_role_sync_at"),
+                unchangedArgs.capture());
+        assertThat(unchangedArgs.getValue()).hasSize(1);
+        assertThat(unchangedArgs.getValue().get(0)[1]).isEqualTo(unchanged);
+
+        verify(usageMeteringService).recordRoleSyncs(integration.tenantId(), 2);
+
+        ArgumentCaptor<List<EventOutbox.Event>> events = ArgumentCaptor.forClass(List.class);
+        verify(eventOutbox).appendAll(events.capture());
+        assertThat(events.getValue()).singleElement().satisfies(event -> {
+            assertThat(event.type()).isEqualTo(EventOutbox.ROLES_CHANGED);
+            assertThat(event.aggregateId()).isEqualTo(changed);
+            assertThat(event.payload()).containsEntry("add", List.of("member"));
+        });
+        verify(platformUserStatusCache).invalidate(integration.tenantId(), "discord", "platform-" + changed);
+        verifyNoMoreInteractions(platformUserStatusCache);
+        verify(jdbcTemplate).update(contains("platform_integrations"), any(), eq(integration.id()));
+    }
+
+    @Test
+    void syncIntegration_shouldRemoveAllRolesForInactiveUser() throws Exception {
+        // Given
+        UUID mappingId = UUID.randomUUID();
+        stubBatches(List.of(row(mappingId, "[\"member\",\"staff\"]", "{}", false)));
+
+        // When
+        scheduler(500).syncIntegration(integration, LocalDateTime.now().minusHours(24));
+
+        // Then
+        ArgumentCaptor<List<Object[]>> changedArgs = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("pending_role_changes"), changedArgs.capture());
+        assertThat(changedArgs.getValue().get(0)[0]).isEqualTo("[]");
+        assertThat((String) changedArgs.getValue().get(0)[1]).contains("\"remove\":[\"member\",\"staff\"]");
+        verifyNoInteractions(roleRuleEngine);
+    }
+
+    @Test
+    void syncIntegration_shouldContinueAfterLastIdWhileBatchesAreFull() throws Exception {
+        // Given - batch size 1: first batch full, second empty
+        UUID first = UUID.randomUUID();
+        stubBatches(List.of(row(first, "[]", "{}", true)), List.of());
+        when(roleRuleEngine.evaluate(any(), any(), anyMap())).thenReturn(Set.of());
+
+        // When
+        int synced = scheduler(1).syncIntegration(integration, LocalDateTime.now().minusHours(24));
+
+        // Then
+        assertThat(synced).isEqualTo(1);
+        ArgumentCaptor<Object> afterIds = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate, times(2)).query(contains("SKIP LOCKED"), any(RowMapper.class),
+                eq(integration.id()), afterIds.capture(), any(), eq(1));
+        assertThat(afterIds.getAllValues()).containsExactly(new UUID(0L, 0L), first);
+    }
+
+    @Test
+    void syncIntegration_shouldLeaveMappingStaleWhenEvaluationFails() throws Exception {
+        // Given
+        stubBatches(List.of(row(UUID.randomUUID(), "[]", "{}", true)));
+        when(roleRuleEngine.evaluate(any(), any(), anyMap())).thenThrow(new IllegalStateException("boom"));
+
+        // When
+        int synced = scheduler(500).syncIntegration(integration, LocalDateTime.now().minusHours(24));
+
+        // Then
+        assertThat(synced).isZero();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        verifyNoInteractions(usageMeteringService);
+    }
+
+    @Test
+    void syncIntegration_shouldKeepRoleGrantedByRawClaimRule() throws Exception {
+        // Given - a rule on a raw claim, and a user verified after V11: users.claims holds only the
+        // normalized fields, so the raw claim reaches the rule through the merged claims column
+        RoleRuleRepository roleRuleRepository = mock(RoleRuleRepository.class);
+        when(roleRuleRepository.findActiveByTenantId(integration.tenantId())).thenReturn(List.of(RoleRule.builder()
+                .id(UUID.randomUUID())
+                .name("contractors")
+                .ruleSet(Map.of(
+                        "roles", List.of("contractor"),
+                        "condition", Map.of("claim", "contractor", "equals", true)))
+                .build()));
+        roleRuleEngine = new RoleRuleEngine(roleRuleRepository, 100, 300);
+        UUID mappingId = UUID.randomUUID();
+        stubBatches(List.of(row(mappingId, "[\"contractor\"]",
+                "{\"hd\":\"example.com\",\"contractor\":true,\"email_domain\":\"example.com\"}", true)));
+
+        // When
+        int synced = scheduler(500).syncIntegration(integration, LocalDateTime.now().minusHours(24));
+
+        // Then - the role is unchanged and nothing is revoked
+        assertThat(synced).isEqualTo(1);
+        verify(jdbcTemplate).query(contains("u.raw_claims || u.claims AS claims"), any(RowMapper.class),
+                eq(integration.id()), any(), any(), eq(500));
+        verify(jdbcTemplate, never()).batchUpdate(contains("pending_role_changes"), anyList());
+        ArgumentCaptor<List<Object[]>> unchangedArgs = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("UPDATE user_platform_mappings SET last_role_sync_at"),
+                unchangedArgs.capture());
+        assertThat(unchangedArgs.getValue()).singleElement()
+                .satisfies(args -> assertThat(args[1]).isEqualTo(mappingId));
+        verify(eventOutbox).appendAll(List.of());
+        verifyNoInteractions(platformUserStatusCache);
+    }
+
+    private RoleSyncScheduler scheduler(int batchSize) {
+        return new RoleSyncScheduler(jdbcTemplate, new TransactionTemplate(transactionManager),
+                roleRuleEngine, usageMeteringService, eventOutbox, platformUserStatusCache, true, 24, batchSize, 2);
+    }
+
+    @SafeVarargs
+    private void stubBatches(List<ResultSet>... batches) {
+        List<List<ResultSet>> remaining = new ArrayList<>(List.of(batches));
+        when(jdbcTemplate.query(contains("SKIP LOCKED"), any(RowMapper.class), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    RowMapper<?> mapper = invocation.getArgument(1);
+                    List<Object> rows = new ArrayList<>();
+                    List<ResultSet> batch = remaining.isEmpty() ? List.of() : remaining.remove(0);
+                    for (int i = 0; i < batch.size(); i++) {
+                        rows.add(mapper.mapRow(batch.get(i), i));
+                    }
+                    return rows;
+                });
+    }
+
+    private static ResultSet row(UUID id, String currentRoles, String claims, boolean userActive) throws Exception {
+        ResultSet rs = mock(ResultSet.class, withSettings().strictness(Strictness.LENIENT));
+        when(rs.getObject("id", UUID.class)).thenReturn(id);
+        when(rs.getObject("user_id", UUID.class)).thenReturn(UUID.randomUUID());
+        when(rs.getString("platform_type")).thenReturn("discord");
+        when(rs.getString("platform_user_id")).thenReturn("platform-" + id);
+        when(rs.getString("current_roles")).thenReturn(currentRoles);
+        when(rs.getString("claims")).thenReturn(claims);
+        when(rs.getBoolean("user_active")).thenReturn(userActive);
+        return rs;
+    }
+}
@@ -3,6 +3,7 @@ package com.jtdev.authhooker.service;
 import com.jtdev.authhooker.domain.*;
 import com.jtdev.authhooker.dto.ProviderCreateRequest;
 import com.jtdev.authhooker.dto.TenantCreateRequest;
+import com.jtdev.authhooker.dto.response.CursorPagedResponse;
 import com.jtdev.authhooker.repository.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +12,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -154,6 +156,39 @@ class ServiceIntegrationTest {
         assertThat(stats.getTotalProviders()).isEqualTo(1L);
     }
     
+    @Test
+    void reVerification_withNewIdTokenForSameIdentity_shouldKeepClaims() {
+        Tenant tenant = tenantService.createTenant(TenantCreateRequest.builder()
+                .name("Re-verification Tenant")
+                .subdomain("reverify")
+                .ownerEmail("owner@example.com")
+                .planTier("free")
+                .build());
+        Provider provider = providerService.createProvider(tenant.getId(), ProviderCreateRequest.builder()
+                .providerType("google")
+                .name("Google")
+                .clientId("client")
+                .clientSecret("secret")
+                .config(Map.of())
+                .build());
+        Map<String, Object> claims = Map.of("subject", "google-user-123", "email", "user@example.com");
+        
+        // Two logins: same identity, but every ID token has its own iat/exp/nonce
+        User first = userService.createVerifiedUser(tenant, provider, "google-user-123", claims,
+                Map.of("sub", "google-user-123", "email", "user@example.com",
+                        "iat", 1700000000, "exp", 1700003600, "nonce", "nonce-1"));
+        String firstFingerprint = first.getClaimsFingerprint();
+        User second = userService.createVerifiedUser(tenant, provider, "google-user-123", claims,
+                Map.of("sub", "google-user-123", "email", "user@example.com",
+                        "iat", 1700090000, "exp", 1700093600, "nonce", "nonce-2"));
+        
+        assertThat(second.getId()).isEqualTo(first.getId());
+        assertThat(second.getVerificationCount()).isEqualTo(2);
+        assertThat(second.getClaimsFingerprint()).isEqualTo(firstFingerprint);
+        // Claims were not rewritten: the stored raw claims are still the first token's
+        assertThat(second.getRawClaims()).containsEntry("nonce", "nonce-1");
+    }
+    
     @Test
     void multiTenantIsolation_shouldIsolateTenantData() {
         // Create two tenants
@@ -215,4 +250,32 @@ class ServiceIntegrationTest {
         assertThat(tenant1Providers.get(0).getClientId()).isEqualTo("client1");
         assertThat(tenant2Providers.get(0).getClientId()).isEqualTo("client2");
     }
+    
+    @Test
+    void getAuditLogPage_shouldWalkAllLogsWithCursor() {
+        Tenant tenant = tenantService.createTenant(TenantCreateRequest.builder()
+                .name("Audit Tenant")
+                .subdomain("audit-tenant")
+                .ownerEmail("audit@example.com")
+                .planTier("free")
+                .build());
+        for (int i = 0; i < 5; i++) {
+            auditService.logAction(tenant.getId(), null, "paging.test", Map.of("i", i));
+        }
+        List<AuditLog> all = auditService.getAuditLogs(tenant.getId(), null, null, 100);
+        
+        // Walk in pages of 2
+        List<AuditLog> walked = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPagedResponse<AuditLog> page = auditService.getAuditLogPage(tenant.getId(), null, null, cursor, 2);
+            assertThat(page.getSize()).isLessThanOrEqualTo(2);
+            walked.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        
+        assertThat(all).hasSizeGreaterThanOrEqualTo(5);
+        assertThat(walked).extracting(AuditLog::getId)
+                .containsExactlyElementsOf(all.stream().map(AuditLog::getId).toList());
+    }
 }
@@ -2,17 +2,23 @@ package com.jtdev.authhooker.service;
 
 import com.jtdev.authhooker.domain.Tenant;
 import com.jtdev.authhooker.dto.TenantCreateRequest;
+import com.jtdev.authhooker.dto.TenantUsageCounts;
 import com.jtdev.authhooker.dto.UsageStats;
 import com.jtdev.authhooker.exception.ConflictException;
 import com.jtdev.authhooker.exception.PlanLimitExceededException;
 import com.jtdev.authhooker.exception.ResourceNotFoundException;
+import com.jtdev.authhooker.exception.ValidationException;
 import com.jtdev.authhooker.repository.*;
+import com.jtdev.authhooker.security.ApiKeyService;
+import com.jtdev.authhooker.util.ApiKeyUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -20,6 +26,7 @@ import java.util.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -40,6 +47,12 @@ class TenantServiceTest {
     @Mock
     private PlatformIntegrationRepository platformIntegrationRepository;
     
+    @Mock
+    private ApiKeyService apiKeyService;
+    
+    @Mock
+    private TenantCounterService tenantCounterService;
+    
     @InjectMocks
     private TenantService tenantService;
     
@@ -210,7 +223,7 @@ class TenantServiceTest {
         // Given
         UUID id = testTenant.getId();
         when(tenantRepository.findActiveById(id)).thenReturn(Optional.of(testTenant));
-        when(userRepository.countActiveByTenantId(id)).thenReturn(25L);
+        when(tenantCounterService.getCount(id, "users")).thenReturn(25L);
         
         // When
         boolean result = tenantService.validatePlanLimits(id, "users");
@@ -224,7 +237,7 @@ class TenantServiceTest {
         // Given
         UUID id = testTenant.getId();
         when(tenantRepository.findActiveById(id)).thenReturn(Optional.of(testTenant));
-        when(userRepository.countActiveByTenantId(id)).thenReturn(50L);
+        when(tenantCounterService.getCount(id, "users")).thenReturn(50L);
         
         // When
         boolean result = tenantService.validatePlanLimits(id, "users");
@@ -233,18 +246,54 @@ class TenantServiceTest {
         assertThat(result).isFalse();
     }
     
+    @Test
+    void reservePlanSlot_shouldReserveAgainstPlanLimit() {
+        // Given
+        UUID id = testTenant.getId();
+        when(tenantRepository.findActiveById(id)).thenReturn(Optional.of(testTenant));
+        when(tenantCounterService.reserveSlot(id, "providers", 1L)).thenReturn(true);
+        
+        // When
+        boolean result = tenantService.reservePlanSlot(id, "Providers");
+        
+        // Then - free plan allows one provider
+        assertThat(result).isTrue();
+        verify(tenantCounterService).reserveSlot(id, "providers", 1L);
+    }
+    
+    @Test
+    void confirmPlanSlot_shouldAllowForRowAlreadyCounted() {
+        // Given
+        when(tenantCounterService.reserveSlot(testTenant.getId(), "users", 51L)).thenReturn(true);
+        
+        // When
+        boolean result = tenantService.confirmPlanSlot(testTenant, "users");
+        
+        // Then - the inserted user is already in the count, so up to max + 1 counted rows fit
+        assertThat(result).isTrue();
+        verify(tenantCounterService).reserveSlot(testTenant.getId(), "users", 51L);
+    }
+    
+    @Test
+    void reservePlanSlot_shouldRejectUnknownLimitType() {
+        // Given
+        UUID id = testTenant.getId();
+        when(tenantRepository.findActiveById(id)).thenReturn(Optional.of(testTenant));
+        
+        // When/Then
+        assertThatThrownBy(() -> tenantService.reservePlanSlot(id, "widgets"))
+                .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(tenantCounterService);
+    }
+    
     @Test
     void getTenantUsageStats_shouldReturnCompleteStats() {
         // Given
         UUID id = testTenant.getId();
         when(tenantRepository.findActiveById(id)).thenReturn(Optional.of(testTenant));
-        when(userRepository.findByTenantId(id)).thenReturn(List.of());
-        when(userRepository.countActiveByTenantId(id)).thenReturn(30L);
-        when(providerRepository.findByTenantId(id)).thenReturn(List.of());
-        when(providerRepository.findActiveByTenantId(id)).thenReturn(List.of());
-        when(platformIntegrationRepository.findByTenantId(id)).thenReturn(List.of());
-        when(userRepository.findByTenantIdAndLastVerifiedAtBetween(any(), any(), any()))
-                .thenReturn(List.of());
+        LocalDateTime lastVerification = LocalDateTime.now().minusHours(1);
+        when(tenantRepository.aggregateUsage(eq(id), any(), any()))
+                .thenReturn(new TenantUsageCounts(40L, 30L, 12L, 95L, lastVerification, 2L, 1L, 3L));
         
         // When
         UsageStats stats = tenantService.getTenantUsageStats(id);
@@ -252,7 +301,16 @@ class TenantServiceTest {
         // Then
         assertThat(stats).isNotNull();
         assertThat(stats.getMaxVerifiedUsers()).isEqualTo(50);
+        assertThat(stats.getTotalUsers()).isEqualTo(40L);
         assertThat(stats.getActiveUsers()).isEqualTo(30L);
+        assertThat(stats.getMonthlyActiveUsers()).isEqualTo(12L);
+        assertThat(stats.getTotalVerifications()).isEqualTo(95L);
+        assertThat(stats.getLastVerificationAt()).isEqualTo(lastVerification);
+        assertThat(stats.getTotalProviders()).isEqualTo(2L);
+        assertThat(stats.getActiveProviders()).isEqualTo(1L);
+        assertThat(stats.getTotalPlatformIntegrations()).isEqualTo(3L);
+        assertThat(stats.getUsagePercentage()).isEqualTo(60.0);
+        verifyNoInteractions(userRepository, providerRepository, platformIntegrationRepository);
     }
     
     @Test
@@ -268,6 +326,7 @@ class TenantServiceTest {
         // Then
         assertThat(suspended.getStatus()).isEqualTo("suspended");
         verify(tenantRepository).save(testTenant);
+        verify(apiKeyService).invalidateTenant(id);
     }
     
     @Test
@@ -285,4 +344,43 @@ class TenantServiceTest {
         assertThat(testTenant.getStatus()).isEqualTo("deleted");
         verify(tenantRepository).save(testTenant);
     }
+    
+    @Test
+    void rotateApiKey_shouldStoreHashOnly() {
+        // Given
+        UUID id = testTenant.getId();
+        when(tenantRepository.findActiveById(id)).thenReturn(Optional.of(testTenant));
+        when(tenantRepository.save(any(Tenant.class))).thenAnswer(i -> i.getArgument(0));
+        
+        // When
+        String apiKey = tenantService.rotateApiKey(id);
+        
+        // Then
+        assertThat(apiKey).isNotBlank();
+        assertThat(testTenant.getApiKeyHash()).isEqualTo(ApiKeyUtil.hashApiKey(apiKey));
+        assertThat(testTenant.getSettings()).doesNotContainKey("api_key");
+        verify(tenantRepository).save(testTenant);
+        verify(apiKeyService).invalidateTenant(id);
+    }
+    
+    @Test
+    void rotateApiKey_shouldInvalidateCachedKeysAfterCommit() {
+        // Given
+        UUID id = testTenant.getId();
+        when(tenantRepository.findActiveById(id)).thenReturn(Optional.of(testTenant));
+        when(tenantRepository.save(any(Tenant.class))).thenAnswer(i -> i.getArgument(0));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            tenantService.rotateApiKey(id);
+            
+            // Then - nothing is evicted until the transaction commits
+            verifyNoInteractions(apiKeyService);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+            verify(apiKeyService).invalidateTenant(id);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
 }
@@ -0,0 +1,118 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.util.HyperLogLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for UsageMeteringService
+ */
+@ExtendWith(MockitoExtension.class)
+class UsageMeteringServiceTest {
+    
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private UsageMeteringService usageMeteringService;
+    private UUID tenantId;
+    
+    @BeforeEach
+    void setUp() {
+        usageMeteringService = new UsageMeteringService(jdbcTemplate, new TransactionTemplate(transactionManager), true);
+        tenantId = UUID.randomUUID();
+    }
+    
+    @Test
+    void flush_shouldUpsertCountsAndMauEstimate() {
+        // Given - 3 verifications by 2 users, 1 role sync
+        UUID alice = UUID.randomUUID();
+        usageMeteringService.recordVerification(tenantId, alice);
+        usageMeteringService.recordVerification(tenantId, alice);
+        usageMeteringService.recordVerification(tenantId, UUID.randomUUID());
+        usageMeteringService.recordRoleSync(tenantId);
+        
+        ArgumentCaptor<Object[]> upsertArgs = ArgumentCaptor.forClass(Object[].class);
+        when(jdbcTemplate.queryForObject(contains("ON CONFLICT"), eq(byte[].class), upsertArgs.capture()))
+                .thenAnswer(i -> upsertArgs.getValue()[4]);
+        
+        // When
+        int written = usageMeteringService.flush();
+        
+        // Then
+        assertThat(written).isEqualTo(1);
+        Object[] args = upsertArgs.getValue();
+        assertThat(args[0]).isEqualTo(tenantId);
+        assertThat(args[2]).isEqualTo(3);
+        assertThat(args[3]).isEqualTo(1);
+        assertThat(HyperLogLog.fromBytes((byte[]) args[4]).estimate()).isEqualTo(2);
+        verify(jdbcTemplate).update(contains("active_verified_users"), eq(2L), eq(tenantId), any());
+        
+        // Nothing left for the next flush
+        assertThat(usageMeteringService.flush()).isZero();
+    }
+    
+    @Test
+    void flush_shouldKeepUsageWhenWriteFails() {
+        // Given
+        usageMeteringService.recordVerification(tenantId, UUID.randomUUID());
+        when(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), any(Object[].class)))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(null);
+        
+        // When
+        assertThat(usageMeteringService.flush()).isZero();
+        usageMeteringService.recordVerification(tenantId, UUID.randomUUID());
+        assertThat(usageMeteringService.flush()).isEqualTo(1);
+        
+        // Then - the retried bucket includes both verifications
+        ArgumentCaptor<Object[]> upsertArgs = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(byte[].class), upsertArgs.capture());
+        assertThat(upsertArgs.getAllValues().get(1)[2]).isEqualTo(2);
+    }
+    
+    @Test
+    void flush_shouldDropUsageForDeletedTenant() {
+        // Given
+        usageMeteringService.recordRoleSync(tenantId);
+        when(jdbcTemplate.queryForObject(anyString(), eq(byte[].class), any(Object[].class)))
+                .thenThrow(new DataIntegrityViolationException("fk_usage_metering_tenant"));
+        
+        // When
+        usageMeteringService.flush();
+        
+        // Then
+        assertThat(usageMeteringService.flush()).isZero();
+        verify(jdbcTemplate, times(1)).queryForObject(anyString(), eq(byte[].class), any(Object[].class));
+    }
+    
+    @Test
+    void record_shouldBeNoOpWhenDisabled() {
+        // Given
+        usageMeteringService = new UsageMeteringService(jdbcTemplate, new TransactionTemplate(transactionManager), false);
+        
+        // When
+        usageMeteringService.recordVerification(tenantId, UUID.randomUUID());
+        
+        // Then
+        assertThat(usageMeteringService.flush()).isZero();
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
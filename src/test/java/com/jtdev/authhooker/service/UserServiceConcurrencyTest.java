@@ -0,0 +1,200 @@
+package com.jtdev.authhooker.service;
+
+import com.jtdev.authhooker.domain.*;
+import com.jtdev.authhooker.exception.ConflictException;
+import com.jtdev.authhooker.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parallel OAuth callbacks against the upsert write paths of UserService
+ *
+ * Not transactional: each service call commits on its own, as in production, so the callbacks
+ * really race on the unique indexes.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UserServiceConcurrencyTest {
+
+    private static final int CALLBACKS = 8;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private ProviderRepository providerRepository;
+
+    @Autowired
+    private PlatformIntegrationRepository platformIntegrationRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserPlatformMappingRepository mappingRepository;
+
+    private Tenant tenant;
+    private Provider provider;
+    private PlatformIntegration integration;
+
+    @BeforeEach
+    void setUp() {
+        tenant = tenantRepository.save(Tenant.builder()
+                .name("Concurrency Tenant " + UUID.randomUUID())
+                .ownerEmail("owner@test.com")
+                .planTier("free")
+                .build());
+
+        provider = providerRepository.save(Provider.builder()
+                .tenant(tenant)
+                .providerType("google")
+                .name("Google Test")
+                .clientId("test-client-id")
+                .clientSecretEncrypted("encrypted-secret")
+                .config(Map.of())
+                .isActive(true)
+                .isPrimary(true)
+                .build());
+
+        integration = platformIntegrationRepository.save(PlatformIntegration.builder()
+                .tenant(tenant)
+                .platformType("discord")
+                .platformId("concurrency-server")
+                .config(Map.of("serverId", "123456789"))
+                .isActive(true)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        tenantRepository.deleteById(tenant.getId());
+    }
+
+    @Test
+    void parallelCallbacks_shouldVerifyOneUserWithoutDuplicateKeyFailures() throws Exception {
+        // Given
+        String platformUserId = "discord-" + UUID.randomUUID();
+        Map<String, Object> claims = Map.of("email", "user@example.com", "email_verified", true);
+
+        // When - the same person completes several callbacks at once
+        List<Future<User>> callbacks = runInParallel(i -> () -> {
+            User user = userService.createVerifiedUser(tenant, provider, "google-race", claims);
+            userService.linkPlatformAccount(user, "discord", platformUserId, Map.of("username", "racer"));
+            return user;
+        });
+
+        // Then
+        UUID userId = callbacks.get(0).get().getId();
+        for (Future<User> callback : callbacks) {
+            assertThat(callback.get().getId()).isEqualTo(userId);
+        }
+        assertThat(userRepository.findById(userId).orElseThrow().getVerificationCount()).isEqualTo(CALLBACKS);
+        assertThat(mappingRepository.findByUserId(userId))
+                .singleElement()
+                .satisfies(mapping -> assertThat(mapping.getPlatformUserId()).isEqualTo(platformUserId));
+
+        // When - a later verification with changed claims
+        User reverified = userService.createVerifiedUser(tenant, provider, "google-race",
+                Map.of("email", "renamed@example.com", "email_verified", true));
+
+        // Then
+        assertThat(reverified.getEmail()).isEqualTo("renamed@example.com");
+        assertThat(reverified.getVerificationCount()).isEqualTo(CALLBACKS + 1);
+        assertThat(reverified.getUpdatedAt()).isAfter(reverified.getCreatedAt());
+    }
+
+    @Test
+    void parallelLinks_shouldLinkAccountToOnlyOneUser() throws Exception {
+        // Given
+        String platformUserId = "discord-" + UUID.randomUUID();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < CALLBACKS; i++) {
+            users.add(userService.createVerifiedUser(tenant, provider, "google-" + i,
+                    Map.of("email", "user" + i + "@example.com")));
+        }
+
+        // When - different users claim the same platform account at once
+        List<Future<UserPlatformMapping>> links = runInParallel(i -> () ->
+                userService.linkPlatformAccount(users.get(i), "discord", platformUserId, null));
+
+        // Then
+        int linked = 0;
+        for (Future<UserPlatformMapping> link : links) {
+            try {
+                link.get();
+                linked++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause())
+                        .isInstanceOf(ConflictException.class)
+                        .hasMessageContaining("already linked");
+            }
+        }
+        assertThat(linked).isEqualTo(1);
+    }
+
+    @Test
+    void relink_shouldUpdateMappingAfterIntegrationIsDeleted() {
+        // Given
+        User user = userService.createVerifiedUser(tenant, provider, "google-relink",
+                Map.of("email", "relink@example.com"));
+        UserPlatformMapping linked = userService.linkPlatformAccount(user, "discord",
+                "discord-" + UUID.randomUUID(), null);
+        integration.softDelete();
+        platformIntegrationRepository.save(integration);
+
+        // When - the user links another account on the same platform
+        String newPlatformUserId = "discord-" + UUID.randomUUID();
+        UserPlatformMapping relinked = userService.linkPlatformAccount(user, "discord", newPlatformUserId, null);
+
+        // Then
+        assertThat(relinked.getId()).isEqualTo(linked.getId());
+        assertThat(relinked.getPlatformUserId()).isEqualTo(newPlatformUserId);
+        assertThat(relinked.getUpdatedAt()).isAfter(linked.getUpdatedAt());
+    }
+
+    /**
+     * Start CALLBACKS tasks together and wait for all of them
+     */
+    private <T> List<Future<T>> runInParallel(IntFunction<Callable<T>> task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLBACKS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLBACKS; i++) {
+                Callable<T> callable = task.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return callable.call();
+                }));
+            }
+            start.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+            return futures;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,19 +1,36 @@
 package com.jtdev.authhooker.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jtdev.authhooker.domain.*;
+import com.jtdev.authhooker.dto.PlatformUserStatus;
+import com.jtdev.authhooker.dto.UserClaims;
+import com.jtdev.authhooker.dto.UserSummary;
+import com.jtdev.authhooker.dto.response.CursorPagedResponse;
+import com.jtdev.authhooker.dto.response.PlatformLookupResponse;
+import com.jtdev.authhooker.dto.response.UserResponse;
 import com.jtdev.authhooker.exception.ConflictException;
 import com.jtdev.authhooker.exception.PlanLimitExceededException;
 import com.jtdev.authhooker.exception.ResourceNotFoundException;
+import com.jtdev.authhooker.exception.ValidationException;
 import com.jtdev.authhooker.repository.PlatformIntegrationRepository;
 import com.jtdev.authhooker.repository.UserPlatformMappingRepository;
+import com.jtdev.authhooker.repository.UserPlatformMappingRepositoryCustom.UpsertedMapping;
 import com.jtdev.authhooker.repository.UserRepository;
+import com.jtdev.authhooker.util.ClaimsUtil;
+import com.jtdev.authhooker.util.CursorUtil;
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -27,6 +44,8 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class UserServiceTest {
     
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
     @Mock
     private UserRepository userRepository;
     
@@ -45,6 +64,18 @@ class UserServiceTest {
     @Mock
     private AuditService auditService;
     
+    @Mock
+    private UsageMeteringService usageMeteringService;
+    
+    @Mock
+    private EventOutbox eventOutbox;
+    
+    @Mock
+    private PlatformUserStatusCache platformUserStatusCache;
+    
+    @Mock
+    private EntityManager entityManager;
+    
     @InjectMocks
     private UserService userService;
     
@@ -97,14 +128,8 @@ class UserServiceTest {
         // Given
         when(tenantService.getTenantById(any())).thenReturn(testTenant);
         when(providerService.getProviderById(any())).thenReturn(testProvider);
-        when(userRepository.findByTenantIdAndProviderIdAndSubject(any(), any(), any()))
-                .thenReturn(Optional.empty());
-        when(tenantService.validatePlanLimits(any(), eq("users"))).thenReturn(true);
-        when(userRepository.save(any(User.class))).thenAnswer(i -> {
-            User u = i.getArgument(0);
-            u.setId(UUID.randomUUID());
-            return u;
-        });
+        stubUpsertVerified(1);
+        when(tenantService.confirmPlanSlot(any(Tenant.class), eq("users"))).thenReturn(true);
         
         // When
         User created = userService.createVerifiedUser(
@@ -121,8 +146,45 @@ class UserServiceTest {
         assertThat(created.getEmailVerified()).isTrue();
         assertThat(created.getClaims()).containsKey("email_domain");
         
-        verify(userRepository).save(any(User.class));
+        verify(tenantService).confirmPlanSlot(testTenant, "users");
         verify(auditService).logAction(any(), any(), eq("user.created"), any());
+        verify(usageMeteringService).recordVerification(testTenant.getId(), created.getId());
+        verify(eventOutbox).append(eq(testTenant.getId()), eq(EventOutbox.USER_CREATED), eq(created.getId()), anyMap());
+    }
+    
+    @Test
+    void createVerifiedUser_shouldReuseLoadedTenantAndProvider() {
+        // Given
+        stubUpsertVerified(1);
+        when(tenantService.confirmPlanSlot(testTenant, "users")).thenReturn(true);
+        
+        // When
+        userService.createVerifiedUser(testTenant, testProvider, "google-user-123", testClaims);
+        
+        // Then
+        verify(userRepository).upsertVerified(eq(testTenant.getId()), eq(testProvider.getId()), eq("google-user-123"),
+                any(), anyBoolean(), any(), any(), any(), any());
+        verify(tenantService, never()).getTenantById(any());
+        verifyNoInteractions(providerService);
+    }
+    
+    @Test
+    void createVerifiedUser_shouldStoreRawClaimsSeparately() {
+        // Given
+        Map<String, Object> claims = Map.of("subject", "google-user-123", "email", "user@example.com");
+        Map<String, Object> rawClaims = Map.of("sub", "google-user-123", "email", "user@example.com",
+                "iss", "https://accounts.google.com");
+        stubUpsertVerified(1);
+        when(tenantService.confirmPlanSlot(testTenant, "users")).thenReturn(true);
+        
+        // When
+        User created = userService.createVerifiedUser(testTenant, testProvider, "google-user-123", claims, rawClaims);
+        
+        // Then
+        assertThat(created.getRawClaims()).isEqualTo(rawClaims);
+        assertThat(created.getClaims())
+                .containsEntry("email_domain", "example.com")
+                .doesNotContainKeys("sub", "iss");
     }
     
     @Test
@@ -130,11 +192,7 @@ class UserServiceTest {
         // Given
         when(tenantService.getTenantById(any())).thenReturn(testTenant);
         when(providerService.getProviderById(any())).thenReturn(testProvider);
-        when(userRepository.findByTenantIdAndProviderIdAndSubject(any(), any(), any()))
-                .thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(User.class))).thenAnswer(i -> i.getArgument(0));
-        
-        int initialCount = testUser.getVerificationCount();
+        stubUpsertVerified(2);
         
         // When
         User updated = userService.createVerifiedUser(
@@ -145,9 +203,31 @@ class UserServiceTest {
         );
         
         // Then
-        assertThat(updated.getVerificationCount()).isEqualTo(initialCount + 1);
+        assertThat(updated.getVerificationCount()).isEqualTo(2);
+        assertThat(updated.getClaimsFingerprint()).isEqualTo(ClaimsUtil.fingerprint(testClaims, testClaims));
         
-        verify(userRepository).save(testUser);
+        verify(tenantService, never()).confirmPlanSlot(any(), any());
+        verifyNoInteractions(entityManager);
+        verify(auditService).logAction(any(), any(), eq("user.verified"), any());
+        verify(eventOutbox).append(eq(testTenant.getId()), eq(EventOutbox.USER_VERIFIED), eq(updated.getId()), anyMap());
+    }
+    
+    @Test
+    void createVerifiedUser_shouldRefreshUserAlreadyInPersistenceContext() {
+        // Given - the upsert hands back the instance loaded earlier in the transaction
+        when(userRepository.upsertVerified(any(), any(), any(), any(), anyBoolean(), any(), any(), any(), any()))
+                .thenReturn(testUser);
+        doAnswer(i -> {
+            testUser.setVerificationCount(2);
+            return null;
+        }).when(entityManager).refresh(testUser);
+        
+        // When
+        User updated = userService.createVerifiedUser(testTenant, testProvider, "google-user-123", testClaims);
+        
+        // Then
+        assertThat(updated.getVerificationCount()).isEqualTo(2);
+        verify(tenantService, never()).confirmPlanSlot(any(), any());
         verify(auditService).logAction(any(), any(), eq("user.verified"), any());
     }
     
@@ -156,9 +236,8 @@ class UserServiceTest {
         // Given
         when(tenantService.getTenantById(any())).thenReturn(testTenant);
         when(providerService.getProviderById(any())).thenReturn(testProvider);
-        when(userRepository.findByTenantIdAndProviderIdAndSubject(any(), any(), any()))
-                .thenReturn(Optional.empty());
-        when(tenantService.validatePlanLimits(any(), eq("users"))).thenReturn(false);
+        stubUpsertVerified(1);
+        when(tenantService.confirmPlanSlot(any(Tenant.class), eq("users"))).thenReturn(false);
         
         // When/Then
         assertThatThrownBy(() -> userService.createVerifiedUser(
@@ -169,7 +248,7 @@ class UserServiceTest {
         ))
                 .isInstanceOf(PlanLimitExceededException.class);
         
-        verify(userRepository, never()).save(any());
+        verifyNoInteractions(auditService, eventOutbox);
     }
     
     @Test
@@ -179,24 +258,10 @@ class UserServiceTest {
         String platform = "discord";
         String platformUserId = "discord-123";
         
-        PlatformIntegration integration = PlatformIntegration.builder()
-                .id(UUID.randomUUID())
-                .tenant(testTenant)
-                .platformType(platform)
-                .build();
-        
         when(userRepository.findActiveById(userId)).thenReturn(Optional.of(testUser));
-        when(mappingRepository.findByPlatformTypeAndPlatformUserId(platform, platformUserId))
-                .thenReturn(Optional.empty());
-        when(mappingRepository.findByUserIdAndPlatformType(userId, platform))
-                .thenReturn(Optional.empty());
-        when(integrationRepository.findByTenantIdAndPlatformType(any(), eq(platform)))
-                .thenReturn(Optional.of(integration));
-        when(mappingRepository.save(any(UserPlatformMapping.class))).thenAnswer(i -> {
-            UserPlatformMapping m = i.getArgument(0);
-            m.setId(UUID.randomUUID());
-            return m;
-        });
+        when(mappingRepository.upsertForUser(eq(testTenant.getId()), eq(userId), eq(platform), eq(platformUserId),
+                eq("testuser"), any(LocalDateTime.class)))
+                .thenReturn(Optional.of(new UpsertedMapping(mapping(platform, platformUserId, "testuser"), null)));
         
         // When
         UserPlatformMapping mapping = userService.linkPlatformAccount(
@@ -212,8 +277,27 @@ class UserServiceTest {
         assertThat(mapping.getPlatformUserId()).isEqualTo(platformUserId);
         assertThat(mapping.getPlatformUsername()).isEqualTo("testuser");
         
-        verify(mappingRepository).save(any(UserPlatformMapping.class));
+        verify(platformUserStatusCache).invalidate(testTenant.getId(), platform, platformUserId);
         verify(auditService).logAction(any(), any(), eq("platform.linked"), any());
+        verify(eventOutbox).append(eq(testTenant.getId()), eq(EventOutbox.PLATFORM_LINKED), eq(mapping.getId()),
+                argThat(payload -> "discord-123".equals(payload.get("platform_user_id"))));
+    }
+    
+    @Test
+    void linkPlatformAccount_shouldRelinkExistingMapping() {
+        // Given
+        String platform = "discord";
+        when(mappingRepository.upsertForUser(any(), eq(testUser.getId()), eq(platform), eq("discord-456"), any(), any()))
+                .thenReturn(Optional.of(new UpsertedMapping(mapping(platform, "discord-456", null), "discord-123")));
+        
+        // When
+        userService.linkPlatformAccount(testUser, platform, "discord-456", null);
+        
+        // Then
+        verify(platformUserStatusCache).invalidate(testTenant.getId(), platform, "discord-456");
+        verify(platformUserStatusCache).invalidate(testTenant.getId(), platform, "discord-123");
+        verifyNoInteractions(auditService);
+        verify(eventOutbox).append(eq(testTenant.getId()), eq(EventOutbox.PLATFORM_LINKED), any(), anyMap());
     }
     
     @Test
@@ -223,16 +307,11 @@ class UserServiceTest {
         String platform = "discord";
         String platformUserId = "discord-123";
         
-        User otherUser = User.builder().id(UUID.randomUUID()).build();
-        UserPlatformMapping existingMapping = UserPlatformMapping.builder()
-                .user(otherUser)
-                .platformType(platform)
-                .platformUserId(platformUserId)
-                .build();
-        
         when(userRepository.findActiveById(userId)).thenReturn(Optional.of(testUser));
-        when(mappingRepository.findByPlatformTypeAndPlatformUserId(platform, platformUserId))
-                .thenReturn(Optional.of(existingMapping));
+        when(mappingRepository.upsertForUser(any(), eq(userId), eq(platform), eq(platformUserId), any(), any()))
+                .thenReturn(Optional.empty());
+        when(integrationRepository.findByTenantIdAndPlatformType(testTenant.getId(), platform))
+                .thenReturn(Optional.of(PlatformIntegration.builder().id(UUID.randomUUID()).build()));
         
         // When/Then
         assertThatThrownBy(() -> userService.linkPlatformAccount(
@@ -244,7 +323,45 @@ class UserServiceTest {
                 .isInstanceOf(ConflictException.class)
                 .hasMessageContaining("already linked");
         
-        verify(mappingRepository, never()).save(any());
+        verifyNoInteractions(eventOutbox);
+    }
+    
+    @Test
+    void linkPlatformAccount_shouldThrowNotFoundWithoutIntegration() {
+        // Given
+        when(mappingRepository.upsertForUser(any(), any(), eq("slack"), eq("U123"), any(), any()))
+                .thenReturn(Optional.empty());
+        when(integrationRepository.findByTenantIdAndPlatformType(testTenant.getId(), "slack"))
+                .thenReturn(Optional.empty());
+        
+        // When/Then
+        assertThatThrownBy(() -> userService.linkPlatformAccount(testUser, "slack", "U123", null))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+    
+    @Test
+    void linkPlatformAccount_shouldReportConcurrentLinkAsConflict() {
+        // Given
+        when(mappingRepository.upsertForUser(any(), any(), eq("discord"), eq("discord-123"), any(), any()))
+                .thenThrow(uniqueViolation("uq_platform_user"));
+        
+        // When/Then
+        assertThatThrownBy(() -> userService.linkPlatformAccount(testUser, "discord", "discord-123", null))
+                .isInstanceOf(ConflictException.class)
+                .hasMessageContaining("already linked");
+    }
+    
+    @Test
+    void linkPlatformAccount_shouldRethrowOtherConstraintViolations() {
+        // Given - the message mentions uq_platform_user, but another index was violated
+        when(mappingRepository.upsertForUser(any(), any(), eq("discord"), eq("discord-123"), any(), any()))
+                .thenThrow(new DataIntegrityViolationException("uq_platform_user",
+                        new ConstraintViolationException("uq_platform_user",
+                                new SQLException("duplicate key", "23505"), "uq_user_platform")));
+        
+        // When/Then
+        assertThatThrownBy(() -> userService.linkPlatformAccount(testUser, "discord", "discord-123", null))
+                .isInstanceOf(DataIntegrityViolationException.class);
     }
     
     @Test
@@ -281,6 +398,7 @@ class UserServiceTest {
         UserPlatformMapping mapping = UserPlatformMapping.builder()
                 .id(UUID.randomUUID())
                 .user(testUser)
+                .platformIntegration(PlatformIntegration.builder().id(UUID.randomUUID()).build())
                 .platformType(platform)
                 .platformUserId("discord-123")
                 .build();
@@ -299,6 +417,8 @@ class UserServiceTest {
         
         verify(mappingRepository).save(mapping);
         verify(auditService).logAction(any(), any(), eq("platform.unlinked"), any());
+        verify(eventOutbox).append(any(), eq(EventOutbox.PLATFORM_UNLINKED), eq(mapping.getId()), anyMap());
+        verify(platformUserStatusCache).invalidate(testTenant.getId(), platform, "discord-123");
     }
     
     @Test
@@ -328,5 +448,144 @@ class UserServiceTest {
         verify(userRepository).save(testUser);
         verify(mappingRepository).save(mapping1);
         verify(auditService).logAction(any(), any(), eq("user.deleted"), any());
+        verify(platformUserStatusCache).invalidate(testTenant.getId(), "discord", null);
+    }
+    
+    @Test
+    void getUserPage_shouldReturnNextCursorWhenMoreRowsExist() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        UserSummary newest = summary(now);
+        UserSummary middle = summary(now.minusMinutes(1));
+        UserSummary oldest = summary(now.minusMinutes(2));
+        when(userRepository.findSummaryPageByTenantId(eq(testTenant.getId()), any(), any(), any(), any(), eq(Limit.of(3))))
+                .thenReturn(List.of(newest, middle, oldest));
+        
+        // When
+        CursorPagedResponse<UserResponse> page = userService.getUserPage(
+                testTenant.getId(), new UserService.UserFilter(null, null, null), false, false, null, 2);
+        
+        // Then
+        assertThat(page.getContent()).extracting(UserResponse::getId).containsExactly(newest.id(), middle.id());
+        assertThat(page.getContent()).allSatisfy(user -> assertThat(user.getClaims()).isNull());
+        assertThat(CursorUtil.decode(page.getNextCursor()).id()).isEqualTo(middle.id().toString());
+        verify(userRepository, never()).findSummaryPageByTenantIdAndEmailDomain(any(), any(), any(), any(), any(), any(), any());
+        verify(userRepository, never()).findClaimsByIdIn(any());
+        verify(userRepository, never()).findRawClaimsByIdIn(any());
+    }
+    
+    @Test
+    void getUserPage_shouldLoadClaimsOnlyWhenRequested() {
+        // Given
+        UserSummary row = summary(LocalDateTime.now());
+        String cursor = CursorUtil.encode(LocalDateTime.now().plusMinutes(1), UUID.randomUUID());
+        when(userRepository.findSummaryPageByTenantIdAndEmailDomain(
+                any(), eq("example.com"), eq(true), any(), any(), any(), any()))
+                .thenReturn(List.of(row));
+        when(userRepository.findClaimsByIdIn(List.of(row.id())))
+                .thenReturn(List.of(new UserClaims(row.id(), testClaims)));
+        
+        // When
+        CursorPagedResponse<UserResponse> page = userService.getUserPage(
+                testTenant.getId(), new UserService.UserFilter("example.com", true, null), true, false, cursor, 100);
+        
+        // Then
+        assertThat(page.getContent()).singleElement()
+                .satisfies(user -> assertThat(user.getClaims()).isEqualTo(testClaims));
+        assertThat(page.getNextCursor()).isNull();
+        verify(userRepository, never()).findRawClaimsByIdIn(any());
+    }
+    
+    @Test
+    void getUserPage_shouldRejectMalformedCursorId() {
+        // Given
+        String cursor = CursorUtil.encode(LocalDateTime.now(), "not-a-uuid");
+        
+        // When / Then
+        assertThatThrownBy(() -> userService.getUserPage(
+                testTenant.getId(), new UserService.UserFilter(null, null, null), false, false, cursor, 100))
+                .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(userRepository);
+    }
+    
+    @Test
+    void lookupPlatformUsers_shouldResolveThroughCacheAndReportMissing() {
+        // Given
+        PlatformUserStatus linked = new PlatformUserStatus("111", testUser.getId(), true, true,
+                LocalDateTime.now(), true, List.of("member"), null);
+        when(platformUserStatusCache.getAll(
+                eq(testTenant.getId()), eq("discord"), eq(new LinkedHashSet<>(List.of("111", "222")))))
+                .thenReturn(Map.of("111", linked));
+        
+        // When
+        PlatformLookupResponse response = userService.lookupPlatformUsers(
+                testTenant.getId(), "discord", List.of("111", "222", "111", " "));
+        
+        // Then
+        assertThat(response.getUsers()).containsExactly(linked);
+        assertThat(response.getNotFound()).containsExactly("222");
+        verifyNoInteractions(tenantService, userRepository, mappingRepository);
+    }
+    
+    @Test
+    void lookupPlatformUsers_shouldRejectOversizedBatch() {
+        // Given
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i <= UserService.MAX_PLATFORM_LOOKUP_IDS; i++) {
+            ids.add(String.valueOf(i));
+        }
+        
+        // When / Then
+        assertThatThrownBy(() -> userService.lookupPlatformUsers(testTenant.getId(), "discord", ids))
+                .isInstanceOf(ValidationException.class);
+        verifyNoInteractions(platformUserStatusCache);
+    }
+    
+    private UserSummary summary(LocalDateTime createdAt) {
+        return new UserSummary(UUID.randomUUID(), testProvider.getId(), "subject-" + createdAt, null, false,
+                true, 1, createdAt, createdAt, createdAt, createdAt);
+    }
+    
+    /**
+     * Stub the user upsert to return the row it would write (verification_count 1 = inserted)
+     */
+    private void stubUpsertVerified(int verificationCount) {
+        when(userRepository.upsertVerified(any(), any(), any(), any(), anyBoolean(), any(), any(), any(), any()))
+                .thenAnswer(i -> User.builder()
+                        .id(UUID.randomUUID())
+                        .tenant(testTenant)
+                        .provider(testProvider)
+                        .subject(i.getArgument(2))
+                        .email(i.getArgument(3))
+                        .emailVerified(i.getArgument(4))
+                        .rawClaims(readJson(i.getArgument(5)))
+                        .claims(readJson(i.getArgument(6)))
+                        .claimsFingerprint(i.getArgument(7))
+                        .verificationCount(verificationCount)
+                        .lastVerifiedAt(i.getArgument(8))
+                        .isActive(true)
+                        .build());
+    }
+    
+    private static DataIntegrityViolationException uniqueViolation(String constraintName) {
+        SQLException root = new SQLException(
+                "duplicate key value violates unique constraint \"" + constraintName + "\"", "23505");
+        return new DataIntegrityViolationException(root.getMessage(),
+                new ConstraintViolationException(root.getMessage(), root, constraintName));
+    }
+    
+    private static Map<String, Object> readJson(String json) throws Exception {
+        return OBJECT_MAPPER.readValue(json, new TypeReference<>() {});
+    }
+    
+    private UserPlatformMapping mapping(String platform, String platformUserId, String platformUsername) {
+        return UserPlatformMapping.builder()
+                .id(UUID.randomUUID())
+                .user(testUser)
+                .platformIntegration(PlatformIntegration.builder().id(UUID.randomUUID()).build())
+                .platformType(platform)
+                .platformUserId(platformUserId)
+                .platformUsername(platformUsername)
+                .build();
     }
 }
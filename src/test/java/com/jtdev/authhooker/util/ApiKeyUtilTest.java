@@ -0,0 +1,44 @@
+package com.jtdev.authhooker.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ApiKeyUtil
+ */
+class ApiKeyUtilTest {
+    
+    @Test
+    void generateApiKey_shouldReturnUniqueUrlSafeKeys() {
+        // When
+        String key1 = ApiKeyUtil.generateApiKey();
+        String key2 = ApiKeyUtil.generateApiKey();
+        
+        // Then
+        assertEquals(43, key1.length(), "256-bit key should be 43 base64url characters");
+        assertTrue(key1.matches("[A-Za-z0-9_-]+"));
+        assertNotEquals(key1, key2);
+    }
+    
+    @Test
+    void hashApiKey_shouldMatchKnownSha256() {
+        // SHA-256("abc") test vector
+        assertEquals(
+                "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                ApiKeyUtil.hashApiKey("abc"));
+    }
+    
+    @Test
+    void hashApiKey_shouldBeDeterministic() {
+        String key = ApiKeyUtil.generateApiKey();
+        
+        assertEquals(ApiKeyUtil.hashApiKey(key), ApiKeyUtil.hashApiKey(key));
+    }
+    
+    @Test
+    void hashApiKey_shouldRejectBlankKey() {
+        assertThrows(IllegalArgumentException.class, () -> ApiKeyUtil.hashApiKey(null));
+        assertThrows(IllegalArgumentException.class, () -> ApiKeyUtil.hashApiKey(" "));
+    }
+}
@@ -0,0 +1,66 @@
+package com.jtdev.authhooker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ClaimsUtil
+ */
+class ClaimsUtilTest {
+    
+    @Test
+    void fingerprint_shouldIgnoreKeyOrder() {
+        // Given
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("sub", "123");
+        first.put("email", "user@example.com");
+        first.put("org", new LinkedHashMap<>(Map.of("a", 1, "b", 2)));
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("org", new LinkedHashMap<>(Map.of("b", 2, "a", 1)));
+        second.put("email", "user@example.com");
+        second.put("sub", "123");
+        
+        // When/Then
+        assertEquals(ClaimsUtil.fingerprint(first, first), ClaimsUtil.fingerprint(second, second));
+    }
+    
+    @Test
+    void fingerprint_shouldChangeWithAnyClaim() {
+        Map<String, Object> claims = Map.of("sub", "123", "groups", List.of("admins"));
+        Map<String, Object> rawClaims = new HashMap<>(claims);
+        String fingerprint = ClaimsUtil.fingerprint(claims, rawClaims);
+        
+        rawClaims.put("groups", List.of("admins", "staff"));
+        
+        assertNotEquals(fingerprint, ClaimsUtil.fingerprint(claims, rawClaims));
+        assertNotEquals(fingerprint, ClaimsUtil.fingerprint(rawClaims, claims));
+    }
+    
+    @Test
+    void fingerprint_shouldIgnorePerTokenClaims() {
+        // Given - two ID tokens for the same identity
+        Map<String, Object> claims = Map.of("subject", "123", "email", "user@example.com");
+        Map<String, Object> firstToken = Map.of("sub", "123", "email", "user@example.com",
+                "iat", 1700000000L, "exp", 1700003600L, "nonce", "n-1", "at_hash", "h-1");
+        Map<String, Object> secondToken = Map.of("sub", "123", "email", "user@example.com",
+                "iat", 1700090000L, "exp", 1700093600L, "nonce", "n-2", "at_hash", "h-2",
+                "auth_time", 1700089990L, "jti", "j-2");
+        
+        // When/Then
+        assertEquals(ClaimsUtil.fingerprint(claims, firstToken), ClaimsUtil.fingerprint(claims, secondToken));
+    }
+    
+    @Test
+    void fingerprint_shouldBeHexSha256() {
+        String fingerprint = ClaimsUtil.fingerprint(Map.of("sub", "123"), Map.of());
+        
+        assertEquals(64, fingerprint.length());
+        assertTrue(fingerprint.matches("[0-9a-f]+"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.jtdev.authhooker.util;
+
+import com.jtdev.authhooker.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CursorUtil
+ */
+class CursorUtilTest {
+    
+    @Test
+    void encode_shouldRoundTrip() {
+        // Given
+        LocalDateTime timestamp = LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_897_000);
+        
+        // When
+        CursorUtil.Cursor cursor = CursorUtil.decode(CursorUtil.encode(timestamp, 42L));
+        
+        // Then
+        assertEquals(timestamp, cursor.timestamp());
+        assertEquals("42", cursor.id());
+    }
+    
+    @Test
+    void encode_shouldSupportUuidIds() {
+        UUID id = UUID.randomUUID();
+        
+        CursorUtil.Cursor cursor = CursorUtil.decode(CursorUtil.encode(LocalDateTime.now(), id));
+        
+        assertEquals(id.toString(), cursor.id());
+    }
+    
+    @Test
+    void encode_shouldBeUrlSafe() {
+        String cursor = CursorUtil.encode(LocalDateTime.now(), Long.MAX_VALUE);
+        
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"));
+    }
+    
+    @Test
+    void decode_shouldReturnNullForMissingCursor() {
+        assertNull(CursorUtil.decode(null));
+        assertNull(CursorUtil.decode(" "));
+    }
+    
+    @Test
+    void decode_shouldRejectMalformedCursor() {
+        assertThrows(ValidationException.class, () -> CursorUtil.decode("not base64!"));
+        assertThrows(ValidationException.class, () -> CursorUtil.decode(CursorUtil.encode(LocalDateTime.now(), "")));
+        assertThrows(ValidationException.class, () -> CursorUtil.decode("bm90LWEtZGF0ZXw0Mg")); // "not-a-date|42"
+    }
+}
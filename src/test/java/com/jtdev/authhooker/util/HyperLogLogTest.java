@@ -0,0 +1,100 @@
+package com.jtdev.authhooker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HyperLogLog
+ */
+class HyperLogLogTest {
+    
+    @Test
+    void estimate_shouldBeZeroForEmptySketch() {
+        HyperLogLog sketch = new HyperLogLog();
+        
+        assertTrue(sketch.isEmpty());
+        assertEquals(0, sketch.estimate());
+    }
+    
+    @Test
+    void estimate_shouldIgnoreDuplicates() {
+        // Given
+        HyperLogLog sketch = new HyperLogLog();
+        UUID userId = UUID.randomUUID();
+        
+        // When
+        for (int i = 0; i < 1000; i++) {
+            sketch.add(userId);
+        }
+        
+        // Then
+        assertEquals(1, sketch.estimate());
+    }
+    
+    @Test
+    void estimate_shouldBeAccurateAcrossRanges() {
+        for (int distinct : new int[] {100, 5_000, 200_000}) {
+            // Given
+            HyperLogLog sketch = new HyperLogLog();
+            
+            // When
+            for (int i = 0; i < distinct; i++) {
+                sketch.add(UUID.randomUUID());
+            }
+            
+            // Then - within 5% (about three standard errors)
+            double error = Math.abs(sketch.estimate() - distinct) / (double) distinct;
+            assertTrue(error < 0.05, "estimate " + sketch.estimate() + " for " + distinct + " distinct values");
+        }
+    }
+    
+    @Test
+    void merge_shouldEstimateUnion() {
+        // Given - two overlapping halves
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 20_000; i++) {
+            UUID id = UUID.randomUUID();
+            if (i < 12_000) {
+                first.add(id);
+            }
+            if (i >= 8_000) {
+                second.add(id);
+            }
+        }
+        
+        // When
+        first.merge(second);
+        
+        // Then
+        double error = Math.abs(first.estimate() - 20_000) / 20_000.0;
+        assertTrue(error < 0.05, "estimate " + first.estimate());
+    }
+    
+    @Test
+    void toBytes_shouldRoundTrip() {
+        // Given
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 500; i++) {
+            sketch.add(UUID.randomUUID());
+        }
+        
+        // When
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+        
+        // Then
+        assertEquals(HyperLogLog.REGISTER_COUNT, bytes.length);
+        assertEquals(sketch, restored);
+        assertEquals(sketch.estimate(), restored.estimate());
+    }
+    
+    @Test
+    void fromBytes_shouldRejectWrongLength() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[16]));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(null));
+    }
+}